@@ -29,13 +29,34 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            // DataLayerBenchmark runs only with -Pbenchmark; see that class for the other options
+            all { test ->
+                test.systemProperty("eventdaddy.benchmark", project.hasProperty("benchmark"))
+                test.systemProperty("eventdaddy.benchmark.output",
+                    layout.buildDirectory.file("benchmarks/data-layer.json").get().asFile.path)
+                listOf("Sizes", "Baseline", "Tolerance").forEach { option ->
+                    project.findProperty("benchmark$option")?.let {
+                        test.systemProperty("eventdaddy.benchmark.${option.lowercase()}", it)
+                    }
+                }
+                if (project.hasProperty("benchmark")) {
+                    test.maxHeapSize = "2g"
+                    test.outputs.upToDateWhen { false }
+                }
+            }
+        }
+    }
 }
 
 dependencies {
 
     implementation(libs.appcompat)
     implementation(libs.material)
+    implementation(libs.recyclerview)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Several accounts on one device: each user's events are kept, counted and removed on their own
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperAccountsTest {
+
+    private static final String TEST_DB = "accounts-test.db";
+    private static final Recurrence WEEKLY = new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private int alex;
+    private int sam;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DatabaseHelper(context, TEST_DB);
+        assertTrue(helper.addUser("alex", "secret"));
+        assertTrue(helper.addUser("sam", "secret"));
+        alex = helper.getUserId("alex");
+        sam = helper.getUserId("sam");
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    private long count(String sql, int userId) {
+        return DatabaseUtils.longForQuery(helper.getReadableDatabase(), sql, new String[]{String.valueOf(userId)});
+    }
+
+    private void addEvents(int userId, int events) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < events; i++) {
+                assertNotEquals(-1, helper.insertEvent("Practice " + i, "2025-03-01", "6:00 PM", userId));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Median time of a few logins, after one untimed one
+    private long loginNanos(String username, String password) {
+        helper.authenticate(username, password);
+        long[] nanos = new long[5];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            assertEquals(-1, helper.authenticate(username, password));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2];
+    }
+
+    @Test
+    public void unknownUsername_takesAsLongAsAWrongPassword() {
+        long wrongPassword = loginNanos("alex", "guess");
+        long unknownUser = loginNanos("nobody", "guess");
+
+        // Both are dominated by one password hash; without it the miss is a sub-millisecond lookup
+        assertTrue(unknownUser + " ns vs " + wrongPassword + " ns", unknownUser > wrongPassword / 2);
+        assertEquals(alex, helper.authenticate("alex", "secret"));
+    }
+
+    @Test
+    public void event_needsAnExistingOwner() {
+        assertEquals(-1, helper.insertEvent("Orphan", "2025-03-01", "10:00 AM", 99));
+        assertEquals(0, helper.getUserEventCount(99));
+    }
+
+    @Test
+    public void eventCount_followsInsertsAndDeletes() {
+        addEvents(alex, 5);
+        long series = helper.insertRecurringEvent("Standup", "2025-03-03", "9:00 AM", alex, WEEKLY);
+        helper.skipOccurrence((int) series, EventTimes.toEpochMillis("2025-03-10", "9:00 AM"));
+        helper.addEvent("Game", "2025-03-01", "10:00 AM", sam);
+        helper.deleteEvent(helper.getUserEventsList(alex).get(0).getId());
+
+        assertEquals(5, helper.getUserEventCount(alex));  // A series counts once
+        assertEquals(1, helper.getUserEventCount(sam));
+        assertEquals(helper.getUserEventsList(alex).size(), helper.getUserEventCount(alex));
+    }
+
+    @Test
+    public void deleteUser_removesTheAccountInChunksAndLeavesOthersAlone() {
+        addEvents(alex, 1_200);
+        long series = helper.insertRecurringEvent("Standup", "2025-03-03", "9:00 AM", alex, WEEKLY);
+        helper.skipOccurrence((int) series, EventTimes.toEpochMillis("2025-03-10", "9:00 AM"));
+        helper.addEvent("Game", "2025-03-01", "10:00 AM", sam);
+        helper.applyRemoteChanges(alex, List.of(), "phone", 42);
+        List<Integer> progress = new ArrayList<>();
+        List<EventChange> changes = new ArrayList<>();
+        helper.getChangeNotifier().subscribe(alex, Runnable::run, changes::addAll);
+
+        assertTrue(helper.deleteUser(alex, progress::add));
+
+        assertEquals(List.of(500, 1_000, 1_201), progress);
+        assertEquals(-1, helper.getUserId("alex"));
+        assertEquals(-1, helper.authenticate("alex", "secret"));
+        assertEquals(0, helper.getUserEventCount(alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM events WHERE user_id = ?", alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM change_log WHERE user_id = ?", alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM sync_state WHERE user_id = ?", alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM skipped_occurrences WHERE event_id = ?", (int) series));
+        assertTrue(helper.searchUserEvents(alex, "practice", 10).isEmpty());
+        assertEquals(EventChange.Type.RELOADED, changes.get(changes.size() - 1).getType());
+
+        assertEquals(1, helper.getUserEventCount(sam));
+        assertEquals(1, helper.searchUserEvents(sam, "game", 10).size());
+        assertEquals(1, helper.getPendingChanges(sam, "phone", 10).getChanges().size());
+
+        // The name can be registered again, as a new user with nothing from the old one
+        assertTrue(helper.addUser("alex", "new secret"));
+        assertNotEquals(alex, helper.getUserId("alex"));
+        assertFalse(helper.deleteUser(alex, null));
+    }
+
+    @Test
+    public void deleteUser_returnsTheFreedSpaceToTheFileSystem() {
+        addEvents(alex, 3_000);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long pagesBefore = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+
+        helper.deleteUser(alex, null);
+
+        assertEquals(0, DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null));
+        assertTrue(DatabaseUtils.longForQuery(db, "PRAGMA page_count", null) < pagesBefore / 2);
+    }
+
+    @Test
+    public void deletingTheUserRow_cascadesToEverythingTheyOwn() {
+        addEvents(alex, 10);
+        helper.deleteEvent(helper.getUserEventsList(alex).get(0).getId());
+        assertEquals(1, count("SELECT COUNT(*) FROM sync_tombstones WHERE user_id = ?", alex));
+
+        helper.getWritableDatabase().delete("users", "id = ?", new String[]{String.valueOf(alex)});
+
+        assertEquals(0, count("SELECT COUNT(*) FROM events WHERE user_id = ?", alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM sync_tombstones WHERE user_id = ?", alex));
+        assertEquals(0, count("SELECT COUNT(*) FROM user_event_counts WHERE user_id = ?", alex));
+    }
+
+    @Test
+    public void userQueries_seekThePerUserIndex() {
+        addEvents(sam, 100);
+        try (Cursor plan = helper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN SELECT event_id FROM events " +
+                "WHERE user_id = ? ORDER BY start_epoch_millis, event_id", new String[]{String.valueOf(alex)})) {
+            StringBuilder detail = new StringBuilder();
+            while (plan.moveToNext()) {
+                detail.append(plan.getString(plan.getColumnIndexOrThrow("detail"))).append('\n');
+            }
+            assertTrue(detail.toString(), detail.toString().contains("INDEX idx_events_user_start (user_id=?)"));
+            assertFalse(detail.toString(), detail.toString().contains("TEMP B-TREE"));
+        }
+    }
+}
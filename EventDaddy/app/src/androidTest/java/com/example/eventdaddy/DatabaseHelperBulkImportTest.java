@@ -0,0 +1,141 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperBulkImportTest {
+
+    private static final String TEST_DB = "bulk-import-test.db";
+    private static final String TAG = "DatabaseHelperBulkImportTest";
+    private static final int ROWS = 5_000;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DatabaseHelper(context, TEST_DB);
+        // Users 1 to 3; every event needs an existing owner
+        assertTrue(helper.addUser("alex", "secret"));
+        assertTrue(helper.addUser("sam", "secret"));
+        assertTrue(helper.addUser("jo", "secret"));
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    private static String scheduleCsv(int rows) {
+        StringBuilder csv = new StringBuilder("name,date,time\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(String.format(Locale.US, "Game %d,2025-%02d-%02d,%d:00 PM%n",
+                    i, 1 + i % 12, 1 + i % 28, 1 + i % 11));
+        }
+        return csv.toString();
+    }
+
+    private static double rowsPerSecond(int rows, long nanos) {
+        return rows / (nanos / 1_000_000_000.0);
+    }
+
+    @Test
+    public void importThenExport_roundTripsAndReportsThroughput() throws IOException {
+        List<Integer> progress = new ArrayList<>();
+
+        long importStart = System.nanoTime();
+        int imported = helper.importEvents(1,
+                EventFileFormat.CSV.openReader(new StringReader(scheduleCsv(ROWS))), progress::add);
+        long importNanos = System.nanoTime() - importStart;
+
+        assertEquals(ROWS, imported);
+        assertEquals(ROWS, helper.getUserEventsList(1).size());
+        assertEquals(Integer.valueOf(ROWS), progress.get(progress.size() - 1));
+        assertTrue("Progress is reported per chunk", progress.size() > 1);
+
+        // Same rows through the one-transaction-per-row path
+        long addStart = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            helper.addEvent("Game " + i, "2025-01-01", "1:00 PM", 2);
+        }
+        long addNanos = System.nanoTime() - addStart;
+
+        StringWriter out = new StringWriter();
+        long exportStart = System.nanoTime();
+        int exported = helper.exportEvents(1, EventFileFormat.CSV.openWriter(out), null);
+        long exportNanos = System.nanoTime() - exportStart;
+        assertEquals(ROWS, exported);
+
+        helper.importEvents(3, EventFileFormat.CSV.openReader(new StringReader(out.toString())), null);
+        List<Event> original = helper.getUserEventsList(1);
+        List<Event> copy = helper.getUserEventsList(3);
+        assertEquals(original.size(), copy.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.get(i).getName(), copy.get(i).getName());
+            assertEquals(original.get(i).getStartMillis(), copy.get(i).getStartMillis());
+        }
+
+        Log.i(TAG, String.format(Locale.US,
+                "%d rows: importEvents %.0f rows/s, addEvent loop %.0f rows/s, exportEvents %.0f rows/s",
+                ROWS, rowsPerSecond(ROWS, importNanos), rowsPerSecond(ROWS, addNanos),
+                rowsPerSecond(ROWS, exportNanos)));
+        assertTrue("Bulk import should beat per-row inserts", importNanos < addNanos);
+    }
+
+    @Test
+    public void exportThenImport_keepsDurations() throws IOException {
+        helper.insertEvent("Workshop", "2025-03-07", "9:00 AM", 90 * 60_000L, 1, null);
+        helper.insertEvent("Reminder", "2025-03-08", "1:00 PM", 0, 1, null);
+
+        // Into user 2 through CSV, user 3 through ICS
+        int copyUser = 2;
+        for (EventFileFormat format : EventFileFormat.values()) {
+            StringWriter out = new StringWriter();
+            helper.exportEvents(1, format.openWriter(out), null);
+            helper.importEvents(copyUser, format.openReader(new StringReader(out.toString())), null);
+
+            List<Event> copy = helper.getUserEventsList(copyUser++);
+            assertEquals(format.name(), 90 * 60_000L, copy.get(0).getDurationMillis());
+            assertEquals(format.name(), 0, copy.get(1).getDurationMillis());
+        }
+    }
+
+    @Test
+    public void importAndExport_areTimedWhenMetricsAreOn() throws IOException {
+        PerfMetrics.reset();
+        PerfMetrics.setEnabled(true);
+        try {
+            helper.importEvents(1, EventFileFormat.CSV.openReader(new StringReader(scheduleCsv(100))), null);
+            helper.exportEvents(1, EventFileFormat.CSV.openWriter(new StringWriter()), null);
+        } finally {
+            PerfMetrics.setEnabled(false);
+        }
+
+        assertEquals(1, PerfMetrics.timer("db.importEvents").getCount());
+        assertEquals(100, PerfMetrics.timer("db.importEvents").getRows());
+        assertEquals(1, PerfMetrics.timer("db.exportEvents").getCount());
+        assertEquals(100, PerfMetrics.timer("db.exportEvents").getRows());
+        PerfMetrics.reset();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperMigrationTest {
+
+    private static final String TEST_DB = "migration-test.db";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DB);
+    }
+
+    // Creates the database exactly as version 1 of the app left it
+    private void createVersion1Database() {
+        SQLiteDatabase db = context.openOrCreateDatabase(TEST_DB, Context.MODE_PRIVATE, null);
+        db.execSQL("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT UNIQUE, password TEXT)");
+        db.execSQL("CREATE TABLE events (event_id INTEGER PRIMARY KEY AUTOINCREMENT, event_name TEXT, " +
+                "event_date TEXT, event_time TEXT, user_id INTEGER, FOREIGN KEY(user_id) REFERENCES users(id))");
+        db.execSQL("INSERT INTO users (username, password) VALUES ('alex', 'secret')");
+        db.execSQL("INSERT INTO events (event_name, event_date, event_time, user_id) VALUES " +
+                "('Lunch', '2025-03-07', '1:00 PM', 1), " +
+                "('Standup', '2025-03-07', '9:00 AM', 1), " +
+                "('Review', '2025-03-07', '10:00 AM', 1), " +
+                "('Kickoff', '2025-01-15', '10:00 AM', 1)");
+        db.setVersion(1);
+        db.close();
+    }
+
+    @Test
+    public void upgradeFromVersion1_keepsDataAndIndexesIt() {
+        createVersion1Database();
+
+        DatabaseHelper helper = new DatabaseHelper(context, TEST_DB);
+        try {
+            assertEquals(1, helper.authenticate("alex", "secret"));
+            assertEquals(-1, helper.authenticate("alex", "wrong"));
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT password FROM users WHERE username = 'alex'", null)) {
+                assertTrue(cursor.moveToFirst());
+                assertTrue("Plaintext password should be hashed", PasswordHasher.isHash(cursor.getString(0)));
+            }
+
+            List<String> names = new ArrayList<>();
+            for (Event event : helper.getUserEventsList(1)) {
+                names.add(event.getName());
+            }
+            // Text sorting would have put "10:00 AM" before "9:00 AM" and "1:00 PM"
+            assertEquals(List.of("Kickoff", "Standup", "Review", "Lunch"), names);
+
+            // Rows from before the full-text index existed are searchable
+            assertEquals("Lunch", helper.searchUserEvents(1, "lun", 10).get(0).getName());
+
+            try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                    "SELECT COUNT(*) FROM events WHERE start_epoch_millis = ?",
+                    new String[]{String.valueOf(EventTimes.UNKNOWN)})) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals("Every row should be backfilled", 0, cursor.getInt(0));
+            }
+
+            // Upgraded rows each get a sync ID and wait to be uploaded by the first sync
+            SyncStore.PendingChanges pending = helper.getPendingChanges(1, "device", 100);
+            assertEquals(4, pending.getChanges().size());
+            assertEquals(4, pending.getChanges().stream().map(SyncChange::getSyncId).distinct().count());
+            assertFalse(pending.getChanges().get(0).isDeleted());
+
+            // Existing rows stay one-off events next to a new recurring one
+            helper.insertRecurringEvent("Weekly sync", "2025-03-03", "9:00 AM", 1,
+                    new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END));
+            List<Event> firstWeeks = helper.getUserEventsBetween(1,
+                    EventTimes.toEpochMillis("2025-03-03", null), EventTimes.toEpochMillis("2025-03-11", null));
+            assertEquals(5, firstWeeks.size());
+            assertEquals("Weekly sync", firstWeeks.get(0).getName());
+            assertEquals("2025-03-10", firstWeeks.get(4).getDate());
+
+            // Upgraded rows have no duration
+            for (Event event : helper.getUserEventsList(1)) {
+                assertEquals(0, event.getDurationMillis());
+            }
+        } finally {
+            helper.close();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.eventdaddy;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperPagingTest {
+
+    private static final String TAG = "DatabaseHelperPagingTest";
+    private static final int PAGE_SIZE = 50;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Rule
+    public final TwoUserDatabaseRule database = new TwoUserDatabaseRule("paging-test.db");
+
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        userId = database.getUserId();
+        otherUserId = database.getOtherUserId();
+    }
+
+    // Inserts events for userId plus the same number for another user, in one transaction
+    private void insertEvents(int count) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO events " +
+                "(event_name, event_date, event_time, user_id, start_epoch_millis) VALUES (?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                for (int user : new int[]{userId, otherUserId}) {
+                    insert.bindString(1, "Event " + i);
+                    insert.bindString(2, "2025-01-01");
+                    insert.bindString(3, "10:00 AM");
+                    insert.bindLong(4, user);
+                    // Insert out of start order so the query has to rely on the index
+                    insert.bindLong(5, ((i * 7919L) % count) * DAY_MILLIS);
+                    insert.executeInsert();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    private long timeFirstPage() {
+        helper.getUserEventsFrom(userId, Long.MIN_VALUE, 0, PAGE_SIZE); // Warm up
+        long start = System.nanoTime();
+        List<Event> page = helper.getUserEventsFrom(userId, Long.MIN_VALUE, 0, PAGE_SIZE);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(PAGE_SIZE, page.size());
+        return elapsed;
+    }
+
+    @Test
+    public void pagesWalkEveryEventInStartOrder() {
+        insertEvents(1_000);
+
+        long previousStart = Long.MIN_VALUE;
+        int previousId = 0;
+        int seen = 0;
+        List<Event> page = helper.getUserEventsFrom(userId, Long.MIN_VALUE, 0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (Event event : page) {
+                assertTrue(event.getStartMillis() > previousStart
+                        || (event.getStartMillis() == previousStart && event.getId() > previousId));
+                previousStart = event.getStartMillis();
+                previousId = event.getId();
+                seen++;
+            }
+            Event last = page.get(page.size() - 1);
+            page = helper.getUserEventsFrom(userId, last.getStartMillis(), last.getId() + 1, PAGE_SIZE);
+        }
+        assertEquals(1_000, seen);
+
+        // Walking back from the end gives the page just before it, still in start order
+        List<Event> before = helper.getUserEventsBefore(userId, previousStart, previousId, PAGE_SIZE);
+        assertEquals(PAGE_SIZE, before.size());
+        assertTrue(before.get(before.size() - 1).getStartMillis() <= previousStart);
+    }
+
+    @Test
+    public void firstPageCostDoesNotGrowWithAccountSize() {
+        insertEvents(1_000);
+        long smallNanos = timeFirstPage();
+
+        insertEvents(99_000);
+        long largeNanos = timeFirstPage();
+        Log.i(TAG, "First page: " + smallNanos / 1000 + " us at 1k events, " + largeNanos / 1000 + " us at 100k");
+
+        // The plan must seek the (user_id, start) index rather than scan or sort
+        try (Cursor plan = helper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN SELECT event_id FROM events " +
+                "WHERE user_id = ? AND (start_epoch_millis, event_id) >= (?, ?) " +
+                "ORDER BY start_epoch_millis, event_id LIMIT ?", new String[]{"1", "0", "0", "50"})) {
+            StringBuilder detail = new StringBuilder();
+            while (plan.moveToNext()) {
+                detail.append(plan.getString(plan.getColumnIndexOrThrow("detail"))).append('\n');
+            }
+            assertTrue(detail.toString(), detail.toString().contains("idx_events_user_start"));
+            assertFalse(detail.toString(), detail.toString().contains("TEMP B-TREE"));
+        }
+
+        // Only PAGE_SIZE rows are materialized either way; allow generous noise on timing
+        assertTrue("First page took " + largeNanos / 1000 + " us at 100k events",
+                largeNanos < smallNanos * 10 + 20_000_000L);
+    }
+}
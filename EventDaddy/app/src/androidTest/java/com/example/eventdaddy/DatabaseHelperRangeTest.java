@@ -0,0 +1,119 @@
+package com.example.eventdaddy;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperRangeTest {
+
+    private static final String TAG = "DatabaseHelperRangeTest";
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Rule
+    public final TwoUserDatabaseRule database = new TwoUserDatabaseRule("range-test.db");
+
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        userId = database.getUserId();
+        otherUserId = database.getOtherUserId();
+    }
+
+    private static long millis(String date) {
+        return EventTimes.toEpochMillis(date, null);
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void overlap_includesEventsThatStartedBeforeTheRange() {
+        helper.insertEvent("Conference", "2025-02-26", "9:00 AM", 5 * 24 * HOUR, userId, null);  // Until Mar 3
+        helper.insertEvent("Lunch", "2025-03-04", "12:00 PM", userId);
+        helper.insertEvent("Ended", "2025-03-01", "8:00 AM", 16 * HOUR, userId, null);           // Until midnight
+        helper.insertEvent("Not mine", "2025-03-04", "12:00 PM", 2 * HOUR, otherUserId, null);
+        helper.insertEvent("Offsite", "2025-02-03", "9:00 AM", 8 * HOUR, userId,
+                new Recurrence(Recurrence.Frequency.MONTHLY, 1, 0, Recurrence.NO_END));
+
+        List<Event> week = helper.getUserEventsOverlapping(userId, millis("2025-03-02"), millis("2025-03-09"));
+        assertEquals(List.of("Conference", "Offsite", "Lunch"), names(week));
+        Event offsite = week.get(1);
+        assertEquals("2025-03-03", offsite.getDate());
+        assertEquals(8 * HOUR, offsite.getDurationMillis());
+
+        assertTrue(helper.updateEvent(offsite.getId(), "Offsite", "2025-02-04", "9:00 AM"));
+        Event moved = helper.getUserEventsOverlapping(userId, millis("2025-03-04"), millis("2025-03-05")).get(0);
+        assertEquals("Moving an event keeps its duration", 8 * HOUR, moved.getDurationMillis());
+    }
+
+    @Test
+    public void monthSummary_matchesTheEventsOverlappingEachDay() {
+        helper.insertEvent("Conference", "2025-02-26", "9:00 AM", 5 * 24 * HOUR, userId, null);
+        helper.insertRecurringEvent("Standup", "2025-03-10", "9:00 AM", userId,
+                new Recurrence(Recurrence.Frequency.DAILY, 1, 5, Recurrence.NO_END));
+        for (int day = 1; day <= 31; day += 3) {
+            helper.insertEvent("Event " + day, String.format("2025-03-%02d", day), "6:00 PM", 3 * HOUR, userId, null);
+        }
+
+        YearMonth march = YearMonth.of(2025, 3);
+        MonthSummary summary = helper.getUserMonthSummary(userId, march);
+        for (int day = 1; day <= march.lengthOfMonth(); day++) {
+            long from = march.atDay(day).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            long to = march.atDay(day).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            assertEquals("Day " + day, helper.getUserEventsOverlapping(userId, from, to).size(), summary.getCount(day));
+        }
+    }
+
+    @Test
+    public void benchmark_monthSummaryAgainstLoadingTheMonth() {
+        helper.getWritableDatabase().beginTransaction();
+        try {
+            for (int i = 0; i < 5000; i++) {
+                String date = String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+                helper.insertEvent("Event " + i, date, (1 + i % 12) + ":00 PM", (i % 4) * HOUR, userId, null);
+            }
+            helper.getWritableDatabase().setTransactionSuccessful();
+        } finally {
+            helper.getWritableDatabase().endTransaction();
+        }
+        YearMonth june = YearMonth.of(2025, 6);
+        helper.getUserMonthSummary(userId, june); // Warm up
+
+        long start = System.nanoTime();
+        MonthSummary summary = helper.getUserMonthSummary(userId, june);
+        long summaryMicros = (System.nanoTime() - start) / 1000;
+        start = System.nanoTime();
+        List<Event> events = helper.getUserEventsOverlapping(userId, summary.getFromMillis(), summary.getToMillis());
+        long loadMicros = (System.nanoTime() - start) / 1000;
+        Log.i(TAG, "Month of " + events.size() + " events: summary " + summaryMicros + " us, full load "
+                + loadMicros + " us");
+
+        int total = 0;
+        for (int day = 1; day <= summary.getDaysInMonth(); day++) {
+            total += summary.getCount(day);
+        }
+        assertTrue(total >= events.size());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.eventdaddy;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperRecurrenceTest {
+
+    private static final String TAG = "DatabaseHelperRecurrenceTest";
+    private static final Recurrence WEEKLY = new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END);
+
+    @Rule
+    public final TwoUserDatabaseRule database = new TwoUserDatabaseRule("recurrence-test.db");
+
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        userId = database.getUserId();
+        otherUserId = database.getOtherUserId();
+    }
+
+    // Events don't define equals, so lists are compared by each row's position
+    private static List<String> keys(List<Event> events) {
+        List<String> keys = new ArrayList<>();
+        for (Event event : events) {
+            keys.add(event.getStartMillis() + "/" + event.getId());
+        }
+        return keys;
+    }
+
+    private static long millis(String date, String time) {
+        return EventTimes.toEpochMillis(date, time);
+    }
+
+    private int count(String sql) {
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(sql, null)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+
+    @Test
+    public void window_mergesOneOffAndRecurringOccurrencesInOrder() {
+        helper.insertRecurringEvent("Standup", "2025-01-06", "9:00 AM", userId,
+                new Recurrence(Recurrence.Frequency.DAILY, 1, 10, Recurrence.NO_END));
+        helper.insertRecurringEvent("Sync", "2025-01-06", "10:00 AM", userId, WEEKLY);
+        helper.insertEvent("Launch", "2025-01-08", "9:30 AM", userId);
+        helper.insertRecurringEvent("Not mine", "2025-01-06", "9:00 AM", otherUserId, WEEKLY);
+        assertEquals("One row per series, not per occurrence", 3, count("SELECT COUNT(*) FROM events WHERE user_id = 1"));
+
+        List<Event> week = helper.getUserEventsBetween(userId, millis("2025-01-13", null), millis("2025-01-20", null));
+        List<String> rows = new ArrayList<>();
+        for (Event event : week) {
+            rows.add(event.getDate() + " " + event.getName());
+        }
+        // The daily series ran out after 10 occurrences (Jan 6-15)
+        assertEquals(List.of("2025-01-13 Standup", "2025-01-13 Sync", "2025-01-14 Standup", "2025-01-15 Standup"), rows);
+    }
+
+    @Test
+    public void paging_walksOccurrencesBothWays() {
+        helper.insertRecurringEvent("Sync", "2025-01-06", "10:00 AM", userId, WEEKLY);
+        for (int day = 1; day <= 28; day++) {
+            helper.insertEvent("One-off " + day, "2025-02-" + day, "8:00 AM", userId);
+        }
+
+        List<Event> all = new ArrayList<>();
+        List<Event> page = helper.getUserEventsFrom(userId, Long.MIN_VALUE, 0, 10);
+        while (all.size() < 60) {
+            all.addAll(page);
+            Event last = page.get(page.size() - 1);
+            page = helper.getUserEventsFrom(userId, last.getStartMillis(), last.getId() + 1, 10);
+        }
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue("Pages must be in order without repeats",
+                    Event.START_ORDER.compare(all.get(i - 1), all.get(i)) < 0);
+        }
+        assertEquals(keys(helper.getUserEventsBetween(userId, Long.MIN_VALUE, all.get(59).getStartMillis() + 1)),
+                keys(all));
+
+        Event anchor = all.get(40);
+        List<Event> before = helper.getUserEventsBefore(userId, anchor.getStartMillis(), anchor.getId(), 10);
+        assertEquals(keys(all.subList(30, 40)), keys(before));
+    }
+
+    @Test
+    public void skippedOccurrence_isLeftOutAndDeletedWithTheSeries() {
+        int eventId = (int) helper.insertRecurringEvent("Sync", "2025-01-06", "10:00 AM", userId, WEEKLY);
+        assertTrue(helper.skipOccurrence(eventId, millis("2025-01-13", "10:00 AM")));
+        assertFalse("Only recurring events have occurrences to skip",
+                helper.skipOccurrence((int) helper.insertEvent("Once", "2025-01-06", "", userId), 0));
+
+        List<Event> january = helper.getUserEventsBetween(userId, millis("2025-01-06", null), millis("2025-01-21", null));
+        assertEquals(2, january.stream().filter(Event::isRecurring).count());
+        assertEquals("2025-01-20", january.get(january.size() - 1).getDate());
+
+        assertTrue(helper.deleteEvent(eventId));
+        assertEquals(0, count("SELECT COUNT(*) FROM skipped_occurrences"));
+    }
+
+    @Test
+    public void windowQuery_costFollowsTheWindowNotTheSeriesLength() {
+        // Ten years of daily occurrences from one row each
+        for (int i = 0; i < 20; i++) {
+            helper.insertRecurringEvent("Daily " + i, "2020-01-01", "9:00 AM", userId,
+                    new Recurrence(Recurrence.Frequency.DAILY, 1, 0, Recurrence.NO_END));
+        }
+        long from = millis("2029-06-01", null);
+        long to = millis("2029-06-08", null);
+        helper.getUserEventsBetween(userId, from, to); // Warm up
+
+        long start = System.nanoTime();
+        List<Event> week = helper.getUserEventsBetween(userId, from, to);
+        long micros = (System.nanoTime() - start) / 1000;
+        Log.i(TAG, "One week of 20 daily series, 9.5 years in: " + micros + " us");
+        assertEquals(20 * 7, week.size());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.eventdaddy;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperSearchTest {
+
+    private static final String TAG = "DatabaseHelperSearchTest";
+    private static final int LIMIT = 100;
+    private static final String[] WORDS = {"team", "lunch", "review", "standup", "planning", "dentist",
+            "soccer", "practice", "birthday", "party", "launch", "retro", "demo", "dinner", "flight"};
+
+    @Rule
+    public final TwoUserDatabaseRule database = new TwoUserDatabaseRule("search-test.db");
+
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        userId = database.getUserId();
+        otherUserId = database.getOtherUserId();
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void search_matchesWordPrefixesAndRanksNamesFirst() {
+        helper.addEvent("Team lunch", "2025-03-07", "1:00 PM", userId);
+        helper.addEvent("Lunar eclipse", "2025-03-14", "9:00 PM", userId);
+        helper.addEvent("Planning 2025", "2025-01-01", "10:00 AM", userId);
+        helper.addEvent("Team lunch", "2025-03-07", "1:00 PM", otherUserId);
+
+        assertEquals(List.of("Team lunch", "Lunar eclipse"), names(helper.searchUserEvents(userId, "LU", LIMIT)));
+        assertEquals(List.of("Team lunch"), names(helper.searchUserEvents(userId, "team lun", LIMIT)));
+        // Name match first, then date-only matches in start order
+        assertEquals(List.of("Planning 2025", "Team lunch", "Lunar eclipse"),
+                names(helper.searchUserEvents(userId, "2025", LIMIT)));
+        assertEquals(List.of("Planning 2025"), names(helper.searchUserEvents(userId, "2025", 1)));
+        assertTrue(helper.searchUserEvents(userId, "\"*", LIMIT).isEmpty());
+    }
+
+    @Test
+    public void triggers_keepTheIndexInStepWithWrites() {
+        int id = (int) helper.insertEvent("Dentist", "2025-03-07", "9:00 AM", userId);
+        assertEquals(1, helper.searchUserEvents(userId, "dent", LIMIT).size());
+
+        helper.updateEvent(id, "Orthodontist", "2025-03-08", "9:00 AM");
+        assertTrue(helper.searchUserEvents(userId, "dent", LIMIT).isEmpty());
+        assertTrue(helper.searchUserEvents(userId, "03-07", LIMIT).isEmpty());
+        assertEquals(1, helper.searchUserEvents(userId, "ortho", LIMIT).size());
+
+        helper.deleteEvent(id);
+        assertTrue(helper.searchUserEvents(userId, "ortho", LIMIT).isEmpty());
+    }
+
+    @Test
+    public void searchContaining_matchesMidWordInStartOrderUpToTheLimit() {
+        helper.addEvent("Team Meeting", "2025-01-10", "10:00 AM", userId);
+        helper.addEvent("Sweet sixteen", "2025-02-01", "10:00 AM", userId);
+        helper.addEvent("50% off_sale", "2025-03-01", "10:00 AM", userId);
+        helper.addEvent("Meeting", "2025-01-01", "10:00 AM", otherUserId);
+
+        assertEquals(List.of("Team Meeting", "Sweet sixteen"),
+                names(helper.searchUserEventsContaining(userId, "EET", LIMIT)));
+        assertEquals(List.of("Team Meeting"), names(helper.searchUserEventsContaining(userId, "eet", 1)));
+        assertEquals(List.of("Sweet sixteen"), names(helper.searchUserEventsContaining(userId, "02-0", LIMIT)));
+        // LIKE wildcards in the text match themselves
+        assertEquals(List.of("50% off_sale"), names(helper.searchUserEventsContaining(userId, "% off_", LIMIT)));
+        assertTrue(helper.searchUserEventsContaining(userId, "t_m", LIMIT).isEmpty());
+    }
+
+    // Adds events with two-word names to the user's account in one transaction
+    private void insertEvents(int from, int to) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT INTO events " +
+                "(event_name, event_date, event_time, user_id, start_epoch_millis) VALUES (?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = from; i < to; i++) {
+                String date = String.format(Locale.US, "2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+                insert.bindString(1, WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i);
+                insert.bindString(2, date);
+                insert.bindString(3, "10:00 AM");
+                insert.bindLong(4, userId);
+                insert.bindLong(5, EventTimes.toEpochMillis(date, "10:00 AM"));
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    // The filter as it used to be: load the whole account, then contains() on every row
+    private List<Event> containsLoop(String query) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        List<Event> matches = new ArrayList<>();
+        for (Event event : helper.getUserEventsList(userId)) {
+            if (event.getName().toLowerCase(Locale.ROOT).contains(lowerQuery)
+                    || event.getDate().toLowerCase(Locale.ROOT).contains(lowerQuery)) {
+                matches.add(event);
+            }
+        }
+        return matches;
+    }
+
+    // Average microseconds per keystroke while typing each query one character at a time
+    private double typeQueries(boolean fts, String... queries) {
+        int keystrokes = 0;
+        long start = System.nanoTime();
+        for (String query : queries) {
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                List<Event> result = fts ? helper.searchUserEvents(userId, typed, LIMIT) : containsLoop(typed);
+                assertNotNull(result);
+                keystrokes++;
+            }
+        }
+        return (System.nanoTime() - start) / 1000.0 / keystrokes;
+    }
+
+    @Test
+    public void benchmark_ftsAgainstContainsLoop() {
+        String[] queries = {"lunch", "dentist", "2025-03"};
+        int[] sizes = {10_000, 100_000};
+        int inserted = 0;
+        for (int size : sizes) {
+            insertEvents(inserted, size);
+            inserted = size;
+            typeQueries(true, "warm");
+            typeQueries(false, "warm");
+
+            double contains = typeQueries(false, queries);
+            double fts = typeQueries(true, queries);
+            Log.i(TAG, String.format(Locale.US, "%,d events: contains() loop %.0f us/keystroke, FTS %.0f us/keystroke",
+                    size, contains, fts));
+            assertTrue("FTS should beat loading every row", fts < contains);
+        }
+    }
+}
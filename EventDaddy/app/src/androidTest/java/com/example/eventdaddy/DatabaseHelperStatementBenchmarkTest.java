@@ -0,0 +1,164 @@
+package com.example.eventdaddy;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+// Per-operation latency of the hot DatabaseHelper paths: the original rawQuery/ContentValues
+// code (reproduced below) against the cached compiled statements.
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperStatementBenchmarkTest {
+
+    private static final String TEST_DB = "statement-benchmark-test.db";
+    private static final String TAG = "StatementBenchmark";
+    private static final int OPERATIONS = 2_000;
+    // Logins are dominated by the deliberately slow password hash, so fewer of them
+    private static final int LOGINS = 20;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DatabaseHelper(context, TEST_DB);
+        assertTrue(helper.addUser("alex", "secret"));
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    private static void report(String operation, long beforeNanos, long afterNanos) {
+        report(operation, beforeNanos, afterNanos, OPERATIONS);
+    }
+
+    private static void report(String operation, long beforeNanos, long afterNanos, int operations) {
+        Log.i(TAG, String.format(Locale.US, "%-12s before %7.1f us/op, after %7.1f us/op",
+                operation, beforeNanos / 1000.0 / operations, afterNanos / 1000.0 / operations));
+    }
+
+    @Test
+    public void hotOperations_beforeAndAfter() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        // Insert
+        long start = System.nanoTime();
+        long firstBeforeId = -1;
+        for (int i = 0; i < OPERATIONS; i++) {
+            ContentValues values = new ContentValues();
+            values.put("event_name", "Event " + i);
+            values.put("event_date", "2025-03-07");
+            values.put("event_time", "10:00 AM");
+            values.put("user_id", 1);
+            values.put("start_epoch_millis", EventTimes.toEpochMillis("2025-03-07", "10:00 AM"));
+            long id = db.insert("events", null, values);
+            if (firstBeforeId == -1) {
+                firstBeforeId = id;
+            }
+        }
+        long insertBefore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long firstAfterId = -1;
+        for (int i = 0; i < OPERATIONS; i++) {
+            long id = helper.insertEvent("Event " + i, "2025-03-07", "10:00 AM", 1);
+            if (firstAfterId == -1) {
+                firstAfterId = id;
+            }
+        }
+        long insertAfter = System.nanoTime() - start;
+        report("insert", insertBefore, insertAfter);
+
+        // Update
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            ContentValues values = new ContentValues();
+            values.put("event_name", "Renamed " + i);
+            values.put("event_date", "2025-03-08");
+            values.put("event_time", "11:00 AM");
+            values.put("start_epoch_millis", EventTimes.toEpochMillis("2025-03-08", "11:00 AM"));
+            db.update("events", values, "event_id = ?", new String[]{String.valueOf(firstBeforeId + i)});
+        }
+        long updateBefore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(helper.updateEvent((int) firstAfterId + i, "Renamed " + i, "2025-03-08", "11:00 AM"));
+        }
+        long updateAfter = System.nanoTime() - start;
+        report("update", updateBefore, updateAfter);
+
+        // Login: the old two round trips against a plaintext row, then one lookup plus the hash
+        db.execSQL("INSERT INTO users (username, password) VALUES ('plain', 'secret')");
+        start = System.nanoTime();
+        for (int i = 0; i < LOGINS; i++) {
+            Cursor cursor = db.rawQuery("SELECT * FROM users WHERE username = ? AND password = ?",
+                    new String[]{"plain", "secret"});
+            assertTrue(cursor.getCount() > 0);
+            cursor.close();
+            cursor = db.rawQuery("SELECT id FROM users WHERE username = ?", new String[]{"plain"});
+            assertTrue(cursor.moveToFirst());
+            cursor.close();
+        }
+        long loginBefore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOGINS; i++) {
+            assertEquals(1, helper.authenticate("alex", "secret"));
+        }
+        long loginAfter = System.nanoTime() - start;
+        report("login", loginBefore, loginAfter, LOGINS);
+        assertEquals(-1, helper.authenticate("alex", "wrong"));
+
+        // User lookup
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            Cursor cursor = db.rawQuery("SELECT id FROM users WHERE username = ?", new String[]{"alex"});
+            assertTrue(cursor.moveToFirst());
+            cursor.close();
+        }
+        long lookupBefore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertEquals(1, helper.getUserId("alex"));
+        }
+        long lookupAfter = System.nanoTime() - start;
+        report("getUserId", lookupBefore, lookupAfter);
+
+        // Delete
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            db.delete("events", "event_id = ?", new String[]{String.valueOf(firstBeforeId + i)});
+        }
+        long deleteBefore = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            assertTrue(helper.deleteEvent((int) firstAfterId + i));
+        }
+        long deleteAfter = System.nanoTime() - start;
+        report("delete", deleteBefore, deleteAfter);
+
+        assertTrue(helper.getUserEventsList(1).isEmpty());
+        assertEquals(-1, helper.getUserId("nobody"));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.eventdaddy;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperSyncTest {
+
+    private static final String DEVICE = "this-device";
+
+    @Rule
+    public final TwoUserDatabaseRule database = new TwoUserDatabaseRule("sync-test.db");
+
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    @Before
+    public void setUp() {
+        helper = database.getHelper();
+        userId = database.getUserId();
+        otherUserId = database.getOtherUserId();
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+
+    private static List<Event> events(SyncStore.PendingChanges pending) {
+        List<Event> events = new ArrayList<>();
+        for (SyncChange change : pending.getChanges()) {
+            events.add(change.getEvent());
+        }
+        return events;
+    }
+
+    private static Event event(String name, String date, String time) {
+        return new Event(0, name, date, time, EventTimes.toEpochMillis(date, time));
+    }
+
+    @Test
+    public void localWrites_areLoggedOncePerEventUntilCleared() {
+        long game = helper.insertEvent("Game", "2025-03-01", "10:00 AM", userId);
+        long practice = helper.insertEvent("Practice", "2025-03-03", "6:00 PM", userId);
+        helper.updateEvent((int) game, "Game (home)", "2025-03-01", "11:00 AM");
+        helper.deleteEvent((int) practice);
+        helper.insertEvent("Other user's", "2025-03-01", "10:00 AM", otherUserId);
+
+        SyncStore.PendingChanges pending = helper.getPendingChanges(userId, DEVICE, 100);
+
+        assertEquals(2, pending.getChanges().size());
+        SyncChange updated = pending.getChanges().get(0);
+        assertEquals("Game (home)", updated.getEvent().getName());
+        assertEquals(DEVICE, updated.getOrigin());
+        assertTrue(pending.getChanges().get(1).isDeleted());
+
+        helper.clearPendingChanges(userId, pending.getThroughSeq());
+        assertTrue(helper.getPendingChanges(userId, DEVICE, 100).isEmpty());
+        assertEquals(1, helper.getPendingChanges(otherUserId, DEVICE, 100).getChanges().size());
+    }
+
+    @Test
+    public void delete_isPublishedToASubscriberThatArrivesWhileItWaits() throws Exception {
+        long game = helper.insertEvent("Game", "2025-03-01", "10:00 AM", userId);
+        List<EventChange> changes = new ArrayList<>();
+        SQLiteDatabase db = helper.getWritableDatabase();
+        Thread deleter = new Thread(() -> helper.deleteEvent((int) game));
+
+        // The delete waits on this transaction while the subscriber comes in
+        db.beginTransaction();
+        try {
+            deleter.start();
+            Thread.sleep(200);
+            helper.getChangeNotifier().subscribe(userId, Runnable::run, changes::addAll);
+        } finally {
+            db.endTransaction();
+        }
+        deleter.join(5_000);
+
+        assertEquals(1, changes.size());
+        assertEquals(EventChange.Type.DELETED, changes.get(0).getType());
+        assertEquals((int) game, changes.get(0).getEventId());
+    }
+
+    @Test
+    public void pendingChanges_comeInLogOrderUpToTheLimit() {
+        for (int i = 0; i < 5; i++) {
+            helper.insertEvent("Event " + i, "2025-03-01", "10:00 AM", userId);
+        }
+
+        SyncStore.PendingChanges first = helper.getPendingChanges(userId, DEVICE, 3);
+        helper.clearPendingChanges(userId, first.getThroughSeq());
+        SyncStore.PendingChanges rest = helper.getPendingChanges(userId, DEVICE, 3);
+
+        assertEquals(List.of("Event 0", "Event 1", "Event 2"), names(events(first)));
+        assertEquals(List.of("Event 3", "Event 4"), names(events(rest)));
+    }
+
+    @Test
+    public void remoteChanges_areAppliedWithoutBeingLogged() {
+        Recurrence weekly = new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END);
+        long skipped = EventTimes.toEpochMillis("2025-03-10", "6:00 PM");
+        Event practice = event("Practice", "2025-03-03", "6:00 PM");
+        practice = new Event(0, practice.getName(), practice.getDate(), practice.getTime(),
+                practice.getStartMillis(), practice.getStartMillis() + 60 * 60_000L, weekly.withSkipped(skipped));
+
+        int applied = helper.applyRemoteChanges(userId, List.of(
+                SyncChange.updated("remote-1", 1000, "other-device", practice),
+                SyncChange.deleted("remote-2", 1000, "other-device")), DEVICE, 42);
+
+        assertEquals(2, applied);
+        assertEquals(42, helper.getPullCursor(userId));
+        assertTrue(helper.getPendingChanges(userId, DEVICE, 100).isEmpty());
+        Event stored = helper.getUserEventsList(userId).get(0);
+        assertEquals("Practice", stored.getName());
+        assertEquals(60 * 60_000L, stored.getDurationMillis());
+        List<Event> march = helper.getUserEventsBetween(userId, EventTimes.toEpochMillis("2025-03-01", null),
+                EventTimes.toEpochMillis("2025-03-18", null));
+        assertEquals(2, march.size());  // The 3rd and 17th; the 10th was skipped
+        assertEquals("Practice", helper.searchUserEvents(userId, "prac", 10).get(0).getName());
+
+        // A tombstone keeps an older copy of the deleted event out
+        assertEquals(0, helper.applyRemoteChanges(userId, List.of(
+                SyncChange.updated("remote-2", 500, "third-device", event("Old", "2025-03-01", "9:00 AM"))),
+                DEVICE, 43));
+        assertEquals(List.of("Practice"), names(helper.getUserEventsList(userId)));
+    }
+
+    @Test
+    public void remoteChange_replacesAnOlderLocalEditAndDropsItFromTheLog() {
+        helper.applyRemoteChanges(userId, List.of(SyncChange.updated("shared", 1000, "other-device",
+                event("Game", "2025-03-01", "10:00 AM"))), DEVICE, 1);
+        int id = helper.getUserEventsList(userId).get(0).getId();
+        helper.updateEvent(id, "Game (my edit)", "2025-03-01", "10:00 AM");
+        long localEdit = helper.getPendingChanges(userId, DEVICE, 10).getChanges().get(0).getModifiedMillis();
+
+        // Older than the local edit: ignored
+        assertEquals(0, helper.applyRemoteChanges(userId, List.of(SyncChange.updated("shared", localEdit - 1,
+                "other-device", event("Game (stale)", "2025-03-01", "10:00 AM"))), DEVICE, 2));
+        assertEquals(List.of("Game (my edit)"), names(helper.getUserEventsList(userId)));
+
+        // Newer: wins, and the losing local edit is no longer pending
+        assertEquals(1, helper.applyRemoteChanges(userId, List.of(SyncChange.updated("shared", localEdit + 1,
+                "other-device", event("Game (their edit)", "2025-03-01", "10:00 AM"))), DEVICE, 3));
+        assertEquals(List.of("Game (their edit)"), names(helper.getUserEventsList(userId)));
+        assertEquals(id, helper.getUserEventsList(userId).get(0).getId());
+        assertTrue(helper.getPendingChanges(userId, DEVICE, 10).isEmpty());
+
+        // A newer remote delete removes it
+        assertEquals(1, helper.applyRemoteChanges(userId, List.of(
+                SyncChange.deleted("shared", localEdit + 2, "other-device")), DEVICE, 4));
+        assertTrue(helper.getUserEventsList(userId).isEmpty());
+    }
+}
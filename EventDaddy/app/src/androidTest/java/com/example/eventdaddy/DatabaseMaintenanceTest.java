@@ -0,0 +1,190 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMaintenanceTest {
+
+    private static final String TEST_DB = "maintenance-test.db";
+    private static final long NOW = EventTimes.toEpochMillis("2026-01-01", "12:00 PM");
+    private static final long HORIZON = TimeUnit.DAYS.toMillis(365);
+    private static final long BUDGET = TimeUnit.MINUTES.toMillis(10);
+
+    private Context context;
+    private DatabaseHelper helper;
+    private DatabaseMaintenance maintenance;
+    private int alex;
+    private int sam;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        helper = new DatabaseHelper(context, TEST_DB);
+        assertTrue(helper.addUser("alex", "secret"));
+        assertTrue(helper.addUser("sam", "secret"));
+        alex = helper.getUserId("alex");
+        sam = helper.getUserId("sam");
+        maintenance = new DatabaseMaintenance(helper, () -> NOW, HORIZON);
+    }
+
+    @After
+    public void tearDown() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private long count(String sql) {
+        return DatabaseUtils.longForQuery(helper.getReadableDatabase(), sql, null);
+    }
+
+    // `events` one-off events from 2024 for the user, already synced
+    private void addSyncedPastEvents(int userId, int events) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < events; i++) {
+                helper.insertEvent("Practice " + i, "2024-03-01", "6:00 PM", userId);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        helper.clearPendingChanges(userId, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void run_archivesOneOffEventsThatEndedBeforeTheHorizon() {
+        helper.addEvent("Old game", "2024-06-01", "10:00 AM", alex);
+        helper.addEvent("Recent game", "2025-06-01", "10:00 AM", alex);
+        helper.addEvent("Some time", "someday", "10:00 AM", alex);
+        helper.insertRecurringEvent("Old series", "2023-01-02", "9:00 AM", alex,
+                new Recurrence(Recurrence.Frequency.WEEKLY, 1, 3, Recurrence.NO_END));
+        helper.addEvent("Sam's old game", "2024-02-01", "10:00 AM", sam);
+        helper.clearPendingChanges(alex, Long.MAX_VALUE);
+        helper.clearPendingChanges(sam, Long.MAX_VALUE);
+        helper.addEvent("Old, not synced yet", "2024-01-01", "10:00 AM", alex);
+        assertEquals(5, helper.getUserEventCount(alex));
+        assertEquals(1, helper.getUserEventCount(sam));
+
+        DatabaseMaintenance.Result result = maintenance.run(BUDGET, () -> false);
+
+        assertTrue(result.isFinished());
+        assertEquals(2, result.getArchived());
+        assertEquals(List.of("Old series", "Old, not synced yet", "Recent game", "Some time"),
+                names(helper.getUserEventsList(alex)));
+        assertEquals(List.of("Old game"), names(helper.getUserArchivedEvents(alex)));
+        assertEquals(List.of("Sam's old game"), names(helper.getUserArchivedEvents(sam)));
+        assertTrue(helper.getUserEventsList(sam).isEmpty());
+        // Archived events no longer count
+        assertEquals(4, helper.getUserEventCount(alex));
+        assertEquals(0, helper.getUserEventCount(sam));
+        assertTrue(helper.searchUserEvents(alex, "old game", 10).isEmpty());
+        assertTrue("Statistics gathered", count("SELECT COUNT(*) FROM sqlite_stat1") > 0);
+
+        // Nothing left to do the next time
+        assertEquals(0, maintenance.run(BUDGET, () -> false).getArchived());
+    }
+
+    @Test
+    public void newerRemoteChange_bringsAnArchivedEventBack() {
+        helper.addEvent("Old game", "2024-06-01", "10:00 AM", alex);
+        helper.addEvent("Older game", "2024-05-01", "10:00 AM", alex);
+        helper.clearPendingChanges(alex, Long.MAX_VALUE);
+        maintenance.run(BUDGET, () -> false);
+        String moved = DatabaseUtils.stringForQuery(helper.getReadableDatabase(),
+                "SELECT sync_id FROM events_archive WHERE event_name = 'Old game'", null);
+        String stale = DatabaseUtils.stringForQuery(helper.getReadableDatabase(),
+                "SELECT sync_id FROM events_archive WHERE event_name = 'Older game'", null);
+        long start = EventTimes.toEpochMillis("2026-02-01", "10:00 AM");
+        // Archiving keeps the row's modified time, stamped by the real clock when it was added
+        long later = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+
+        int applied = helper.applyRemoteChanges(alex, List.of(
+                SyncChange.updated(moved, later, "tablet",
+                        new Event(0, "Rematch", "2026-02-01", "10:00 AM", start, start, null)),
+                SyncChange.deleted(stale, 0, "tablet")), "phone", 1);
+
+        assertEquals(1, applied);  // The deletion is older than the archived copy
+        assertEquals(List.of("Rematch"), names(helper.getUserEventsList(alex)));
+        assertEquals(List.of("Older game"), names(helper.getUserArchivedEvents(alex)));
+    }
+
+    @Test
+    public void run_stopsWhenToldAndTheNextRunCarriesOn() {
+        addSyncedPastEvents(alex, 2 * DatabaseMaintenance.ARCHIVE_CHUNK_SIZE + 200);
+        AtomicInteger checks = new AtomicInteger();
+
+        DatabaseMaintenance.Result first = maintenance.run(BUDGET, () -> checks.incrementAndGet() > 2);
+        assertFalse(first.isFinished());
+        assertEquals(2 * DatabaseMaintenance.ARCHIVE_CHUNK_SIZE, first.getArchived());
+
+        DatabaseMaintenance.Result second = maintenance.run(BUDGET, () -> false);
+        assertTrue(second.isFinished());
+        assertEquals(200, second.getArchived());
+        assertTrue(helper.getUserEventsList(alex).isEmpty());
+    }
+
+    @Test
+    public void run_handsFreedPagesBackInSlices() {
+        // Moving the rows leaves their old pages, and their search index entries', free
+        addSyncedPastEvents(alex, 3_000);
+
+        DatabaseMaintenance.Result result = maintenance.run(BUDGET, () -> false);
+
+        assertTrue(result.isFinished());
+        assertTrue(result.getPagesFreed() > 0);
+        assertEquals(0, helper.getFreePageCount());
+    }
+
+    @Test
+    public void run_archivesEventsFromAnUpgradedDatabase() {
+        helper.close();
+        context.deleteDatabase(TEST_DB);
+        SQLiteDatabase db = context.openOrCreateDatabase(TEST_DB, Context.MODE_PRIVATE, null);
+        db.execSQL("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT UNIQUE, password TEXT)");
+        db.execSQL("CREATE TABLE events (event_id INTEGER PRIMARY KEY AUTOINCREMENT, event_name TEXT, " +
+                "event_date TEXT, event_time TEXT, user_id INTEGER, FOREIGN KEY(user_id) REFERENCES users(id))");
+        db.execSQL("INSERT INTO users (username, password) VALUES ('alex', 'secret')");
+        db.execSQL("INSERT INTO events (event_name, event_date, event_time, user_id) VALUES " +
+                "('Kickoff', '2024-01-15', '10:00 AM', 1), ('Final', '2025-12-15', '10:00 AM', 1)");
+        db.setVersion(1);
+        db.close();
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.clearPendingChanges(1, Long.MAX_VALUE);
+
+        DatabaseMaintenance.Result result = new DatabaseMaintenance(helper, () -> NOW, HORIZON).run(BUDGET, () -> false);
+
+        assertTrue(result.isFinished());
+        assertEquals(1, result.getArchived());
+        assertEquals(List.of("Final"), names(helper.getUserEventsList(1)));
+        assertEquals(List.of("Kickoff"), names(helper.getUserArchivedEvents(1)));
+    }
+}
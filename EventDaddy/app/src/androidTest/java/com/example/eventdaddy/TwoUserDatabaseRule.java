@@ -0,0 +1,54 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.rules.ExternalResource;
+
+import static org.junit.Assert.*;
+
+// A fresh database per test holding two accounts: every event needs an existing owner, and
+// the other user's events check that queries stay within one account. IDs come from
+// getUserId rather than assuming the first two rows are 1 and 2.
+public class TwoUserDatabaseRule extends ExternalResource {
+
+    private final String name;
+    private Context context;
+    private DatabaseHelper helper;
+    private int userId;
+    private int otherUserId;
+
+    public TwoUserDatabaseRule(String name) {
+        this.name = name;
+    }
+
+    @Override
+    protected void before() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(name);
+        helper = new DatabaseHelper(context, name);
+        assertTrue(helper.addUser("alex", "secret"));
+        assertTrue(helper.addUser("sam", "secret"));
+        userId = helper.getUserId("alex");
+        otherUserId = helper.getUserId("sam");
+    }
+
+    @Override
+    protected void after() {
+        helper.close();
+        context.deleteDatabase(name);
+    }
+
+    public DatabaseHelper getHelper() {
+        return helper;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getOtherUserId() {
+        return otherUserId;
+    }
+}
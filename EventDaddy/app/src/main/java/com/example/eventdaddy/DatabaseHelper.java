@@ -1,24 +1,36 @@
 package com.example.eventdaddy;
 
-import android.annotation.SuppressLint;
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.CharArrayBuffer;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.LruCache;
 
+import java.io.IOException;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
-public class DatabaseHelper extends SQLiteOpenHelper {
+public class DatabaseHelper extends SQLiteOpenHelper implements EventStore, SyncStore {
 
     private static final String DATABASE_NAME = "EventDaddy.db";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 9;
 
     // Users table
     private static final String TABLE_USERS = "users";
     private static final String COLUMN_ID = "id";
     private static final String COLUMN_USERNAME = "username";
+    // Salted hash in PasswordHasher's format; plaintext before version 3
     private static final String COLUMN_PASSWORD = "password";
 
     // Events table
@@ -27,6 +39,73 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COLUMN_EVENT_NAME = "event_name";
     private static final String COLUMN_EVENT_DATE = "event_date";
     private static final String COLUMN_EVENT_TIME = "event_time";
+    private static final String COLUMN_EVENT_USER_ID = "user_id";
+    // Start of the event in epoch millis, derived from date + time (EventTimes.UNKNOWN if unparseable)
+    private static final String COLUMN_EVENT_START = "start_epoch_millis";
+    private static final String INDEX_EVENTS_USER_START = "idx_events_user_start";
+    // End of the event in epoch millis; equal to the start for an event without a duration
+    private static final String COLUMN_EVENT_END = "end_epoch_millis";
+    private static final String INDEX_EVENTS_USER_DURATION = "idx_events_user_duration";
+    // Recurrence.encode() text for a recurring event, null for a one-off
+    private static final String COLUMN_EVENT_RECURRENCE = "recurrence";
+    // Start of a recurring event's last occurrence (Recurrence.NO_END if open-ended); only
+    // set for recurring rows, where it lets a window query skip series that have ended
+    private static final String COLUMN_EVENT_LAST_START = "last_start_epoch_millis";
+    private static final String INDEX_EVENTS_USER_RECURRING = "idx_events_user_recurring";
+    // Identifies the event across devices (see SyncChange); assigned where it was created
+    private static final String COLUMN_EVENT_SYNC_ID = "sync_id";
+    private static final String INDEX_EVENTS_SYNC_ID = "idx_events_sync_id";
+    // When the event was last written and by which device, null meaning this one
+    private static final String COLUMN_EVENT_MODIFIED = "modified_millis";
+    private static final String COLUMN_EVENT_MODIFIED_BY = "modified_by";
+
+    // Occurrences of recurring events that were individually removed
+    private static final String TABLE_SKIPPED_OCCURRENCES = "skipped_occurrences";
+    private static final String COLUMN_OCCURRENCE_START = "occurrence_start";
+
+    // Events written on this device that the sync backend doesn't have yet, oldest first
+    private static final String TABLE_CHANGE_LOG = "change_log";
+    private static final String COLUMN_CHANGE_SEQ = "seq";
+    // Deleted events, kept so an older change from another device can't bring them back
+    private static final String TABLE_SYNC_TOMBSTONES = "sync_tombstones";
+    // Per user, how far into the backend's changes this device has pulled
+    private static final String TABLE_SYNC_STATE = "sync_state";
+    private static final String COLUMN_PULL_CURSOR = "pull_cursor";
+
+    // Number of events each user owns, kept up to date by triggers instead of counted
+    private static final String TABLE_USER_EVENT_COUNTS = "user_event_counts";
+    private static final String COLUMN_EVENT_COUNT = "event_count";
+
+    // One-off events that ended long ago, moved out of events by archiveUserEvents so the
+    // rows every screen reads stay few. Same columns and IDs as in events.
+    private static final String TABLE_EVENTS_ARCHIVE = "events_archive";
+
+    // Full-text index over event names and dates; the events table holds the content
+    private static final String TABLE_EVENTS_FTS = "events_fts";
+
+    // Rows committed per transaction by importEvents; also how often progress is reported
+    private static final int IMPORT_CHUNK_SIZE = 500;
+
+    // Events removed per transaction by deleteUser; also how often progress is reported
+    private static final int DELETE_CHUNK_SIZE = 500;
+
+    // Rows ANALYZE samples per index; enough for the planner, and bounds its run time
+    private static final int ANALYSIS_LIMIT = 1_000;
+
+    // The bulk paths that don't go through EventStore, so InstrumentedEventStore can't time them
+    private static final PerfMetrics.Timer DELETE_USER = PerfMetrics.timer("db.deleteUser");
+    private static final PerfMetrics.Timer ARCHIVE_USER_EVENTS = PerfMetrics.timer("db.archiveUserEvents");
+    private static final PerfMetrics.Timer IMPORT_EVENTS = PerfMetrics.timer("db.importEvents");
+    private static final PerfMetrics.Timer EXPORT_EVENTS = PerfMetrics.timer("db.exportEvents");
+    private static final PerfMetrics.Timer APPLY_REMOTE_CHANGES = PerfMetrics.timer("db.applyRemoteChanges");
+
+
+    // Per-connection prepared statement cache for the rawQuery paths (100 is SQLite's maximum)
+    private static final int SQL_CACHE_SIZE = 100;
+
+    // Recent username -> ID lookups kept for the session; users are never renamed, and
+    // deleteUser drops a deleted user's entry (AUTOINCREMENT never hands out an ID twice)
+    private static final int USER_ID_CACHE_SIZE = 16;
 
     // SQL to create users table
     private static final String CREATE_TABLE_USERS =
@@ -42,113 +121,1556 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     COLUMN_EVENT_NAME + " TEXT, " +
                     COLUMN_EVENT_DATE + " TEXT, " +
                     COLUMN_EVENT_TIME + " TEXT, " +
-                    "user_id INTEGER, " +
-                    "FOREIGN KEY(user_id) REFERENCES " + TABLE_USERS + "(" + COLUMN_ID + "))";
+                    COLUMN_EVENT_USER_ID + " INTEGER, " +
+                    COLUMN_EVENT_START + " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN + ", " +
+                    COLUMN_EVENT_END + " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN + ", " +
+                    COLUMN_EVENT_RECURRENCE + " TEXT, " +
+                    COLUMN_EVENT_LAST_START + " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN + ", " +
+                    COLUMN_EVENT_SYNC_ID + " TEXT, " +
+                    COLUMN_EVENT_MODIFIED + " INTEGER NOT NULL DEFAULT 0, " +
+                    COLUMN_EVENT_MODIFIED_BY + " TEXT, " +
+                    "FOREIGN KEY(" + COLUMN_EVENT_USER_ID + ") REFERENCES " + TABLE_USERS + "(" + COLUMN_ID + "))";
+
+    // One-off events overlapping [from, to), given (user, from - longest duration, to, from, from)
+    private static final String OVERLAP_WHERE = " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND " +
+            COLUMN_EVENT_START + " >= ? AND " + COLUMN_EVENT_START + " < ? AND (" + COLUMN_EVENT_END + " > ? OR " +
+            COLUMN_EVENT_START + " >= ?) AND " + COLUMN_EVENT_RECURRENCE + " IS NULL";
+
+    // Columns and ordering shared by every query that returns Event objects
+    private static final String EVENT_COLUMNS = COLUMN_EVENT_ID + ", " + COLUMN_EVENT_NAME + ", " +
+            COLUMN_EVENT_DATE + ", " + COLUMN_EVENT_TIME + ", " + COLUMN_EVENT_START + ", " + COLUMN_EVENT_END;
+    private static final String EVENT_ORDER = " ORDER BY " + COLUMN_EVENT_START + ", " + COLUMN_EVENT_ID;
+
+    // One chunk of a migration backfill over events, given (after key, last key)
+    private static final String KEY_RANGE = " WHERE " + COLUMN_EVENT_ID + " > ? AND " + COLUMN_EVENT_ID + " <= ?";
+
+    // Serves "this user's events in start order" straight from the index, no sort step
+    private static final String CREATE_INDEX_EVENTS_USER_START =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_EVENTS_USER_START + " ON " + TABLE_EVENTS +
+                    " (" + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START + ")";
+
+    // Longest duration per user, read with one index seek. A range query uses it to bound how
+    // far before the range an overlapping event can start, so it stays a range scan of the
+    // start index instead of a scan of everything that starts before the range ends.
+    private static final String CREATE_INDEX_EVENTS_USER_DURATION =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_EVENTS_USER_DURATION + " ON " + TABLE_EVENTS +
+                    " (" + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_END + " - " + COLUMN_EVENT_START + ")";
+
+    // Recurring events are few next to one-off ones, so a partial index finds a user's
+    // series without touching the rest of their rows
+    private static final String CREATE_INDEX_EVENTS_USER_RECURRING =
+            "CREATE INDEX IF NOT EXISTS " + INDEX_EVENTS_USER_RECURRING + " ON " + TABLE_EVENTS +
+                    " (" + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START + ") WHERE " +
+                    COLUMN_EVENT_RECURRENCE + " IS NOT NULL";
+
+    private static final String CREATE_TABLE_SKIPPED_OCCURRENCES =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SKIPPED_OCCURRENCES + " (" +
+                    COLUMN_EVENT_ID + " INTEGER NOT NULL, " +
+                    COLUMN_OCCURRENCE_START + " INTEGER NOT NULL, " +
+                    "PRIMARY KEY(" + COLUMN_EVENT_ID + ", " + COLUMN_OCCURRENCE_START + ")) WITHOUT ROWID";
+
+    // Deleting a series deletes its skipped occurrences with it
+    private static final String CREATE_SKIPPED_OCCURRENCES_TRIGGER =
+            "CREATE TRIGGER IF NOT EXISTS skipped_occurrences_after_event_delete AFTER DELETE ON " + TABLE_EVENTS +
+                    " BEGIN DELETE FROM " + TABLE_SKIPPED_OCCURRENCES + " WHERE " + COLUMN_EVENT_ID +
+                    " = old." + COLUMN_EVENT_ID + "; END";
+
+    private static final String CREATE_INDEX_EVENTS_SYNC_ID =
+            "CREATE UNIQUE INDEX IF NOT EXISTS " + INDEX_EVENTS_SYNC_ID + " ON " + TABLE_EVENTS +
+                    " (" + COLUMN_EVENT_SYNC_ID + ")";
+
+    // One row per local write; an event written five times before a sync is sent once, as
+    // it now is. Indexed by user for reading the log in order and by event for dropping an
+    // event's entries when a newer change from another device replaces it.
+    private static final String[] CREATE_SYNC_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_CHANGE_LOG + " (" +
+                    COLUMN_CHANGE_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    COLUMN_EVENT_USER_ID + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_SYNC_ID + " TEXT NOT NULL)",
+            "CREATE INDEX IF NOT EXISTS idx_change_log_user ON " + TABLE_CHANGE_LOG + " (" + COLUMN_EVENT_USER_ID + ")",
+            "CREATE INDEX IF NOT EXISTS idx_change_log_sync_id ON " + TABLE_CHANGE_LOG + " (" + COLUMN_EVENT_SYNC_ID + ")",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_TOMBSTONES + " (" +
+                    COLUMN_EVENT_SYNC_ID + " TEXT PRIMARY KEY, " +
+                    COLUMN_EVENT_USER_ID + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_MODIFIED + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_MODIFIED_BY + " TEXT) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS " + TABLE_SYNC_STATE + " (" +
+                    COLUMN_EVENT_USER_ID + " INTEGER PRIMARY KEY, " +
+                    COLUMN_PULL_CURSOR + " INTEGER NOT NULL)"
+    };
+
+    // Each user's rows are a partition of events: every per-user query seeks on an index
+    // that leads with user_id, an owner must exist (foreign keys are enforced; see
+    // onConfigure), and deleting a user deletes everything they own, sync state included.
+    // The trigger does the cascade because the declared foreign key has no ON DELETE action,
+    // and SQLite can only add one by rebuilding the table. Events never change owner, so the
+    // counts only follow inserts and deletes.
+    private static final String[] CREATE_PARTITIONING_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_USER_EVENT_COUNTS + " (" +
+                    COLUMN_EVENT_USER_ID + " INTEGER PRIMARY KEY, " +
+                    COLUMN_EVENT_COUNT + " INTEGER NOT NULL)",
+            "CREATE TRIGGER IF NOT EXISTS user_event_counts_after_insert AFTER INSERT ON " + TABLE_EVENTS +
+                    " WHEN new." + COLUMN_EVENT_USER_ID + " IS NOT NULL BEGIN " +
+                    "INSERT INTO " + TABLE_USER_EVENT_COUNTS + " VALUES (new." + COLUMN_EVENT_USER_ID + ", 1) " +
+                    "ON CONFLICT(" + COLUMN_EVENT_USER_ID + ") DO UPDATE SET " + COLUMN_EVENT_COUNT + " = " +
+                    COLUMN_EVENT_COUNT + " + 1; END",
+            "CREATE TRIGGER IF NOT EXISTS user_event_counts_after_delete AFTER DELETE ON " + TABLE_EVENTS +
+                    " BEGIN UPDATE " + TABLE_USER_EVENT_COUNTS + " SET " + COLUMN_EVENT_COUNT + " = " +
+                    COLUMN_EVENT_COUNT + " - 1 WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_EVENT_USER_ID + "; END",
+            "CREATE INDEX IF NOT EXISTS idx_sync_tombstones_user ON " + TABLE_SYNC_TOMBSTONES +
+                    " (" + COLUMN_EVENT_USER_ID + ")",
+            "CREATE TRIGGER IF NOT EXISTS users_before_delete BEFORE DELETE ON " + TABLE_USERS + " BEGIN " +
+                    "DELETE FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_ID + "; " +
+                    "DELETE FROM " + TABLE_CHANGE_LOG + " WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_ID + "; " +
+                    "DELETE FROM " + TABLE_SYNC_TOMBSTONES + " WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_ID + "; " +
+                    "DELETE FROM " + TABLE_SYNC_STATE + " WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_ID + "; " +
+                    "DELETE FROM " + TABLE_USER_EVENT_COUNTS + " WHERE " + COLUMN_EVENT_USER_ID + " = old." + COLUMN_ID +
+                    "; END"
+    };
+
+    // Archived rows go with their owner through a real cascade, since the table is new.
+    // The sync ID index lets a change from another device find an archived event.
+    private static final String[] CREATE_ARCHIVE_SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS " + TABLE_EVENTS_ARCHIVE + " (" +
+                    COLUMN_EVENT_ID + " INTEGER PRIMARY KEY, " +
+                    COLUMN_EVENT_NAME + " TEXT, " +
+                    COLUMN_EVENT_DATE + " TEXT, " +
+                    COLUMN_EVENT_TIME + " TEXT, " +
+                    COLUMN_EVENT_USER_ID + " INTEGER NOT NULL REFERENCES " + TABLE_USERS + "(" + COLUMN_ID +
+                    ") ON DELETE CASCADE, " +
+                    COLUMN_EVENT_START + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_END + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_SYNC_ID + " TEXT, " +
+                    COLUMN_EVENT_MODIFIED + " INTEGER NOT NULL, " +
+                    COLUMN_EVENT_MODIFIED_BY + " TEXT)",
+            "CREATE INDEX IF NOT EXISTS idx_events_archive_user_start ON " + TABLE_EVENTS_ARCHIVE +
+                    " (" + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START + ")",
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_events_archive_sync_id ON " + TABLE_EVENTS_ARCHIVE +
+                    " (" + COLUMN_EVENT_SYNC_ID + ")"
+    };
+
+    // Columns an archived row keeps, in both tables
+    private static final String ARCHIVE_COLUMNS = COLUMN_EVENT_ID + ", " + COLUMN_EVENT_NAME + ", " +
+            COLUMN_EVENT_DATE + ", " + COLUMN_EVENT_TIME + ", " + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START +
+            ", " + COLUMN_EVENT_END + ", " + COLUMN_EVENT_SYNC_ID + ", " + COLUMN_EVENT_MODIFIED + ", " +
+            COLUMN_EVENT_MODIFIED_BY;
+
+    // FTS4 rather than FTS5, which the platform SQLite isn't built with. External content
+    // means the text is stored once, in events, and only the word index lives here.
+    private static final String CREATE_TABLE_EVENTS_FTS =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_EVENTS_FTS + " USING fts4(content=\"" + TABLE_EVENTS + "\", " +
+                    COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ")";
+
+    // Keep events_fts in step with every insert, delete and name/date edit of events.
+    // Old words are removed before the row changes, new ones added after.
+    private static final String[] CREATE_EVENTS_FTS_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS events_fts_before_update BEFORE UPDATE OF " +
+                    COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + " ON " + TABLE_EVENTS + " BEGIN " +
+                    "DELETE FROM " + TABLE_EVENTS_FTS + " WHERE docid = old." + COLUMN_EVENT_ID + "; END",
+            "CREATE TRIGGER IF NOT EXISTS events_fts_before_delete BEFORE DELETE ON " + TABLE_EVENTS + " BEGIN " +
+                    "DELETE FROM " + TABLE_EVENTS_FTS + " WHERE docid = old." + COLUMN_EVENT_ID + "; END",
+            "CREATE TRIGGER IF NOT EXISTS events_fts_after_update AFTER UPDATE OF " +
+                    COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + " ON " + TABLE_EVENTS + " BEGIN " +
+                    "INSERT INTO " + TABLE_EVENTS_FTS + " (docid, " + COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ") " +
+                    "VALUES (new." + COLUMN_EVENT_ID + ", new." + COLUMN_EVENT_NAME + ", new." + COLUMN_EVENT_DATE + "); END",
+            "CREATE TRIGGER IF NOT EXISTS events_fts_after_insert AFTER INSERT ON " + TABLE_EVENTS + " BEGIN " +
+                    "INSERT INTO " + TABLE_EVENTS_FTS + " (docid, " + COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ") " +
+                    "VALUES (new." + COLUMN_EVENT_ID + ", new." + COLUMN_EVENT_NAME + ", new." + COLUMN_EVENT_DATE + "); END"
+    };
+
+    // Receives the running row count during importEvents/exportEvents
+    public interface ProgressListener {
+        void onProgress(int rowsDone);
+    }
+
+    private static DatabaseHelper instance;
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Hot statements, compiled on first use and reused for the life of the helper
+    private final CachedStatement insertEventStatement = new CachedStatement("INSERT INTO " + TABLE_EVENTS +
+            " (" + COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ", " + COLUMN_EVENT_TIME + ", " +
+            COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START + ", " + COLUMN_EVENT_RECURRENCE + ", " +
+            COLUMN_EVENT_LAST_START + ", " + COLUMN_EVENT_END + ", " + COLUMN_EVENT_SYNC_ID + ", " +
+            COLUMN_EVENT_MODIFIED + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    // Moving an event keeps its duration (the right-hand side sees the old start and end)
+    private final CachedStatement updateEventStatement = new CachedStatement("UPDATE " + TABLE_EVENTS + " SET " +
+            COLUMN_EVENT_NAME + " = ?, " + COLUMN_EVENT_DATE + " = ?, " + COLUMN_EVENT_TIME + " = ?, " +
+            COLUMN_EVENT_START + " = ?, " + COLUMN_EVENT_LAST_START + " = ?, " + COLUMN_EVENT_END + " = ? + (" +
+            COLUMN_EVENT_END + " - " + COLUMN_EVENT_START + "), " + COLUMN_EVENT_MODIFIED + " = ?, " +
+            COLUMN_EVENT_MODIFIED_BY + " = NULL WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement maxDurationStatement = new CachedStatement("SELECT MAX(" + COLUMN_EVENT_END +
+            " - " + COLUMN_EVENT_START + ") FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_USER_ID + " = ?");
+    private final CachedStatement eventRecurrenceStatement = new CachedStatement("SELECT " +
+            COLUMN_EVENT_RECURRENCE + " FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement skipOccurrenceStatement = new CachedStatement("INSERT OR IGNORE INTO " +
+            TABLE_SKIPPED_OCCURRENCES + " (" + COLUMN_EVENT_ID + ", " + COLUMN_OCCURRENCE_START + ") VALUES (?, ?)");
+    private final CachedStatement deleteEventStatement = new CachedStatement("DELETE FROM " + TABLE_EVENTS +
+            " WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement touchEventStatement = new CachedStatement("UPDATE " + TABLE_EVENTS + " SET " +
+            COLUMN_EVENT_MODIFIED + " = ?, " + COLUMN_EVENT_MODIFIED_BY + " = NULL WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement logChangeStatement = new CachedStatement("INSERT INTO " + TABLE_CHANGE_LOG +
+            " (" + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_SYNC_ID + ") SELECT " + COLUMN_EVENT_USER_ID + ", " +
+            COLUMN_EVENT_SYNC_ID + " FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement tombstoneStatement = new CachedStatement("INSERT OR REPLACE INTO " +
+            TABLE_SYNC_TOMBSTONES + " (" + COLUMN_EVENT_SYNC_ID + ", " + COLUMN_EVENT_USER_ID + ", " +
+            COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + ") SELECT " + COLUMN_EVENT_SYNC_ID + ", " +
+            COLUMN_EVENT_USER_ID + ", ?, NULL FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement userIdStatement = new CachedStatement("SELECT " + COLUMN_ID + " FROM " +
+            TABLE_USERS + " WHERE " + COLUMN_USERNAME + " = ?");
+    // The ID and stored hash as one "<id> <hash>" value, since a statement returns one column
+    private final CachedStatement loginStatement = new CachedStatement("SELECT " + COLUMN_ID + " || ' ' || " +
+            COLUMN_PASSWORD + " FROM " + TABLE_USERS + " WHERE " + COLUMN_USERNAME + " = ? LIMIT 1");
+    private final CachedStatement eventUserIdStatement = new CachedStatement("SELECT " + COLUMN_EVENT_USER_ID +
+            " FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_ID + " = ?");
+    private final CachedStatement updatePasswordStatement = new CachedStatement("UPDATE " + TABLE_USERS +
+            " SET " + COLUMN_PASSWORD + " = ? WHERE " + COLUMN_ID + " = ?");
+    private final CachedStatement eventCountStatement = new CachedStatement("SELECT " + COLUMN_EVENT_COUNT +
+            " FROM " + TABLE_USER_EVENT_COUNTS + " WHERE " + COLUMN_EVENT_USER_ID + " = ?");
+
+    private final EventChangeNotifier changeNotifier = new EventChangeNotifier();
+    private final PasswordHasher passwordHasher = new PasswordHasher(PasswordHasher.DEFAULT_ITERATIONS);
+    // Verified against when the username doesn't exist, so that costs the same as a wrong
+    // password; made on first use to keep the hash off start-up
+    private volatile String dummyHash;
+    private final LruCache<String, Integer> userIdCache = new LruCache<>(USER_ID_CACHE_SIZE);
+    private final SchemaMigrator migrator = new SchemaMigrator(migrations());
+    private int migrationChunkSize = SchemaMigrator.DEFAULT_CHUNK_SIZE;
+    private SchemaMigrator.ProgressListener migrationListener;
+
+    // Returns the app-wide helper. One instance means one connection pool and one set of
+    // compiled statements, instead of a new helper per screen or button tap.
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    // Visible for tests: opens a separate database file instead of the app's
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        if (migrator.getLatestVersion() != DATABASE_VERSION) {
+            throw new IllegalStateException("No migration to version " + DATABASE_VERSION);
+        }
+        // WAL lets reads run on their own connections while a write is in progress
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // Receives the progress of the backfills that follow an upgrade, e.g. to show it on a
+    // splash screen; set it before the database is first opened
+    public void setMigrationListener(SchemaMigrator.ProgressListener listener) {
+        migrationListener = listener;
+    }
+
+    // Visible for tests: rows per backfill transaction
+    void setMigrationChunkSize(int chunkSize) {
+        migrationChunkSize = chunkSize;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+        db.setForeignKeyConstraintsEnabled(true);
+        // Android creates databases with FULL auto-vacuum, which shrinks the file on every
+        // commit; INCREMENTAL leaves that to deleteUser and DatabaseMaintenance, which hand
+        // freed pages back to the file system a slice at a time.
+        db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_USERS);
         db.execSQL(CREATE_TABLE_EVENTS);
+        db.execSQL(CREATE_INDEX_EVENTS_USER_START);
+        createEventsFts(db);
+        createRecurrenceSchema(db);
+        db.execSQL(CREATE_INDEX_EVENTS_USER_DURATION);
+        createSyncSchema(db);
+        createPartitioningSchema(db);
+        createArchiveSchema(db);
+        SchemaMigrator.createTables(db);
     }
 
+    // Upgrades step by step from the installed version, keeping all existing data. Only the
+    // schema changes run here; row-by-row backfills follow in onOpen.
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_EVENTS);
-        onCreate(db);
+        migrator.upgrade(db, oldVersion, newVersion);
+    }
+
+    // Finishes any backfill an upgrade queued (or an interrupted one left), in chunks, before
+    // the database is handed to callers
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        if (!db.isReadOnly() && migrator.hasPendingBackfills(db)) {
+            migrator.runBackfills(db, migrationChunkSize, migrationListener);
+        }
+    }
+
+    // Every version of the schema after the first, in order. A new version adds a step here
+    // and to onCreate; existing steps never change, since installed databases already ran them.
+    private List<Migration> migrations() {
+        return List.of(
+                // Start times parsed from the stored text, so events sort and range-query by time
+                Migration.to(2, "event start times")
+                        .schema(db -> {
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_START +
+                                    " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN);
+                            db.execSQL(CREATE_INDEX_EVENTS_USER_START);
+                        })
+                        .backfill(TABLE_EVENTS, COLUMN_EVENT_ID, DatabaseHelper::backfillStartTimes),
+                // Plaintext passwords replaced by salted hashes; there are only ever a few users
+                Migration.to(3, "password hashes")
+                        .schema(this::hashPlaintextPasswords),
+                // Full-text index, with the rows from before the triggers indexed afterwards
+                Migration.to(4, "full-text search")
+                        .schema(DatabaseHelper::createEventsFts)
+                        .backfill(TABLE_EVENTS, COLUMN_EVENT_ID, (db, afterKey, lastKey) -> db.execSQL(
+                                "INSERT INTO " + TABLE_EVENTS_FTS + " (docid, " + COLUMN_EVENT_NAME + ", " +
+                                        COLUMN_EVENT_DATE + ") SELECT " + COLUMN_EVENT_ID + ", " + COLUMN_EVENT_NAME +
+                                        ", " + COLUMN_EVENT_DATE + " FROM " + TABLE_EVENTS + KEY_RANGE,
+                                range(afterKey, lastKey))),
+                // Every existing row is a one-off event, which the column defaults already describe
+                Migration.to(5, "recurring events")
+                        .schema(db -> {
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_RECURRENCE + " TEXT");
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_LAST_START +
+                                    " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN);
+                            createRecurrenceSchema(db);
+                        }),
+                // Existing events have no duration: they end where they start
+                Migration.to(6, "event durations")
+                        .schema(db -> {
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_END +
+                                    " INTEGER NOT NULL DEFAULT " + EventTimes.UNKNOWN);
+                            db.execSQL(CREATE_INDEX_EVENTS_USER_DURATION);
+                        })
+                        .backfill(TABLE_EVENTS, COLUMN_EVENT_ID, (db, afterKey, lastKey) -> db.execSQL(
+                                "UPDATE " + TABLE_EVENTS + " SET " + COLUMN_EVENT_END + " = " + COLUMN_EVENT_START +
+                                        KEY_RANGE, range(afterKey, lastKey))),
+                // Existing events get sync IDs and are logged, so the first sync uploads them.
+                // They count as written before any other device's changes (modified at 0).
+                Migration.to(7, "sync")
+                        .schema(db -> {
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_SYNC_ID + " TEXT");
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_MODIFIED +
+                                    " INTEGER NOT NULL DEFAULT 0");
+                            db.execSQL("ALTER TABLE " + TABLE_EVENTS + " ADD COLUMN " + COLUMN_EVENT_MODIFIED_BY + " TEXT");
+                            createSyncSchema(db);
+                        })
+                        .backfill(TABLE_EVENTS, COLUMN_EVENT_ID, (db, afterKey, lastKey) -> {
+                            db.execSQL("UPDATE " + TABLE_EVENTS + " SET " + COLUMN_EVENT_SYNC_ID +
+                                    " = lower(hex(randomblob(16)))" + KEY_RANGE, range(afterKey, lastKey));
+                            db.execSQL("INSERT INTO " + TABLE_CHANGE_LOG + " (" + COLUMN_EVENT_USER_ID + ", " +
+                                    COLUMN_EVENT_SYNC_ID + ") SELECT " + COLUMN_EVENT_USER_ID + ", " +
+                                    COLUMN_EVENT_SYNC_ID + " FROM " + TABLE_EVENTS + KEY_RANGE + " ORDER BY " +
+                                    COLUMN_EVENT_ID, range(afterKey, lastKey));
+                        }),
+                // Owners enforced, accounts deleted with everything they own, and each user's
+                // event count kept; existing events are counted a chunk at a time
+                Migration.to(8, "per-user partitioning")
+                        .schema(DatabaseHelper::createPartitioningSchema)
+                        .backfill(TABLE_EVENTS, COLUMN_EVENT_ID, (db, afterKey, lastKey) -> db.execSQL(
+                                "INSERT INTO " + TABLE_USER_EVENT_COUNTS + " SELECT " + COLUMN_EVENT_USER_ID +
+                                        ", COUNT(*) FROM " + TABLE_EVENTS + KEY_RANGE + " AND " + COLUMN_EVENT_USER_ID +
+                                        " IS NOT NULL GROUP BY " + COLUMN_EVENT_USER_ID + " ON CONFLICT(" +
+                                        COLUMN_EVENT_USER_ID + ") DO UPDATE SET " + COLUMN_EVENT_COUNT + " = " +
+                                        COLUMN_EVENT_COUNT + " + excluded." + COLUMN_EVENT_COUNT,
+                                range(afterKey, lastKey))),
+                // An empty archive; events move into it during maintenance
+                Migration.to(9, "event archive")
+                        .schema(DatabaseHelper::createArchiveSchema));
+    }
+
+    // Arguments for KEY_RANGE
+    private static Object[] range(long afterKey, long lastKey) {
+        return new Object[]{afterKey, lastKey};
+    }
+
+    // Version 2 backfill: start times parsed in Java, as when an event is added
+    private static void backfillStartTimes(SQLiteDatabase db, long afterKey, long lastKey) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_EVENTS + " SET " +
+                COLUMN_EVENT_START + " = ? WHERE " + COLUMN_EVENT_ID + " = ?");
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_ID + ", " + COLUMN_EVENT_DATE + ", " +
+                COLUMN_EVENT_TIME + " FROM " + TABLE_EVENTS + KEY_RANGE,
+                new String[]{String.valueOf(afterKey), String.valueOf(lastKey)})) {
+            while (cursor.moveToNext()) {
+                update.bindLong(1, EventTimes.toEpochMillis(cursor.getString(1), cursor.getString(2)));
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            update.close();
+        }
+    }
+
+    // Version 3: replaces plaintext passwords with salted hashes
+    private void hashPlaintextPasswords(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_USERS + " SET " +
+                COLUMN_PASSWORD + " = ? WHERE " + COLUMN_ID + " = ?");
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_PASSWORD +
+                " FROM " + TABLE_USERS, null)) {
+            while (cursor.moveToNext()) {
+                String password = cursor.getString(1);
+                if (password == null || PasswordHasher.isHash(password)) {
+                    continue;
+                }
+                update.bindString(1, passwordHasher.hash(password));
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            update.close();
+        }
+    }
+
+    // Version 7 (and new databases): sync IDs, the change log and what sync keeps per user
+    private static void createSyncSchema(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX_EVENTS_SYNC_ID);
+        for (String sql : CREATE_SYNC_SCHEMA) {
+            db.execSQL(sql);
+        }
+    }
+
+    // Version 8 (and new databases): per-user counts and the cascade from users
+    private static void createPartitioningSchema(SQLiteDatabase db) {
+        for (String sql : CREATE_PARTITIONING_SCHEMA) {
+            db.execSQL(sql);
+        }
     }
 
-    // Adds a new user to the database
+    // Version 9 (and new databases): the archive of past events
+    private static void createArchiveSchema(SQLiteDatabase db) {
+        for (String sql : CREATE_ARCHIVE_SCHEMA) {
+            db.execSQL(sql);
+        }
+    }
+
+    // Version 4 (and new databases): the full-text index and the triggers that maintain it
+    private static void createEventsFts(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_EVENTS_FTS);
+        for (String trigger : CREATE_EVENTS_FTS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    // Version 5 (and new databases): the recurring-event index and skipped occurrences
+    private static void createRecurrenceSchema(SQLiteDatabase db) {
+        db.execSQL(CREATE_INDEX_EVENTS_USER_RECURRING);
+        db.execSQL(CREATE_TABLE_SKIPPED_OCCURRENCES);
+        db.execSQL(CREATE_SKIPPED_OCCURRENCES_TRIGGER);
+    }
+
+    // Adds a new user to the database. Hashing is slow by design, so call this off the main thread.
+    @Override
     public boolean addUser(String username, String password) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COLUMN_USERNAME, username);
-        values.put(COLUMN_PASSWORD, password);
+        values.put(COLUMN_PASSWORD, passwordHasher.hash(password));
 
         long result = db.insert(TABLE_USERS, null, values);
         return result != -1;
     }
 
     // Checks if the username/password combo exists in the database
+    @Override
     public boolean checkUser(String username, String password) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String query = "SELECT * FROM " + TABLE_USERS + " WHERE " +
-                COLUMN_USERNAME + " = ? AND " + COLUMN_PASSWORD + " = ?";
-        Cursor cursor = db.rawQuery(query, new String[]{username, password});
+        return authenticate(username, password) != -1;
+    }
 
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        return exists;
+    // Checks credentials and returns the user's ID, or -1 if they don't match. One lookup on
+    // the username index fetches both the ID and the hash, then the hash is verified in memory.
+    // An unknown username still pays for one hash, so timing doesn't tell which names exist.
+    // Hashes made with an older work factor are rewritten at the current one.
+    @Override
+    public int authenticate(String username, String password) {
+        String row;
+        synchronized (loginStatement) {
+            SQLiteStatement statement = loginStatement.get();
+            statement.bindString(1, username);
+            try {
+                row = statement.simpleQueryForString();
+            } catch (SQLiteDoneException e) {
+                row = null;
+            }
+        }
+        if (row == null) {
+            passwordHasher.verify(password, dummyHash());
+            return -1;
+        }
+        int separator = row.indexOf(' ');
+        int userId = Integer.parseInt(row.substring(0, separator));
+        String stored = row.substring(separator + 1);
+        if (!passwordHasher.verify(password, stored)) {
+            return -1;
+        }
+        if (passwordHasher.needsRehash(stored)) {
+            synchronized (updatePasswordStatement) {
+                SQLiteStatement statement = updatePasswordStatement.get();
+                statement.bindString(1, passwordHasher.hash(password));
+                statement.bindLong(2, userId);
+                statement.executeUpdateDelete();
+            }
+        }
+        userIdCache.put(username, userId);
+        return userId;
+    }
+
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            dummyHash = hash = passwordHasher.hash(UUID.randomUUID().toString());
+        }
+        return hash;
+    }
+
+    // Removes the user's account from this device along with their events and sync state,
+    // and returns false if there was no such user. Events are deleted DELETE_CHUNK_SIZE per
+    // transaction, so a large account never holds the write lock for long, and the pages each
+    // chunk frees go back to the file system before the next. The backend is not told: the
+    // account's events stay on its other devices. Call this off the main thread.
+    public boolean deleteUser(int userId, ProgressListener listener) {
+        long start = DELETE_USER.begin();
+        int deleted = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            String[] userArg = {String.valueOf(userId)};
+            int chunk;
+            do {
+                db.beginTransaction();
+                try {
+                    chunk = db.delete(TABLE_EVENTS, COLUMN_EVENT_ID + " IN (SELECT " + COLUMN_EVENT_ID + " FROM " +
+                            TABLE_EVENTS + " WHERE " + COLUMN_EVENT_USER_ID + " = ? LIMIT " + DELETE_CHUNK_SIZE + ")",
+                            userArg);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                runPragma(db, "PRAGMA incremental_vacuum");
+                deleted += chunk;
+                if (listener != null && chunk > 0) {
+                    listener.onProgress(deleted);
+                }
+            } while (chunk == DELETE_CHUNK_SIZE);
+            // The trigger clears what's left: the change log, tombstones, pull cursor and count
+            boolean removed = db.delete(TABLE_USERS, COLUMN_ID + " = ?", userArg) > 0;
+            runPragma(db, "PRAGMA incremental_vacuum");
+            for (Map.Entry<String, Integer> entry : userIdCache.snapshot().entrySet()) {
+                if (entry.getValue() == userId) {
+                    userIdCache.remove(entry.getKey());
+                }
+            }
+            if (deleted > 0) {
+                changeNotifier.publish(EventChange.reloaded(userId));
+            }
+            return removed;
+        } finally {
+            DELETE_USER.end(start, deleted);
+        }
+    }
+
+    // Runs a pragma that returns rows, such as incremental_vacuum, which execSQL refuses.
+    // The rows are read to the end, since the pragma only runs as far as they are stepped.
+    private static void runPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery(pragma, null)) {
+            cursor.moveToLast();
+        }
+    }
+
+    // IDs of every user on the device
+    public List<Integer> getUserIds() {
+        List<Integer> userIds = new ArrayList<>();
+        try (Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + COLUMN_ID + " FROM " + TABLE_USERS +
+                " ORDER BY " + COLUMN_ID, null)) {
+            while (cursor.moveToNext()) {
+                userIds.add(cursor.getInt(0));
+            }
+        }
+        return userIds;
+    }
+
+    // Moves up to `limit` of the user's one-off events that ended before cutoffMillis into
+    // the archive, in one transaction, and returns how many moved; call it until it returns
+    // less than the limit. The candidates come straight off the user's start index, as
+    // anything that ended before the cutoff started before it. Left in place:
+    //   - recurring series, which are one row however long they ran
+    //   - events with times that couldn't be parsed
+    //   - events with local changes the sync backend doesn't have yet
+    // A later change from another device brings an archived event back (applyRemoteChanges).
+    public int archiveUserEvents(int userId, long cutoffMillis, int limit) {
+        long start = ARCHIVE_USER_EVENTS.begin();
+        int archived = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                List<String> args = new ArrayList<>();
+                try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_ID + " FROM " + TABLE_EVENTS + " WHERE " +
+                        COLUMN_EVENT_USER_ID + " = ? AND " + COLUMN_EVENT_START + " > ? AND " + COLUMN_EVENT_START +
+                        " < ? AND " + COLUMN_EVENT_END + " < ? AND " + COLUMN_EVENT_RECURRENCE + " IS NULL AND " +
+                        COLUMN_EVENT_SYNC_ID + " NOT IN (SELECT " + COLUMN_EVENT_SYNC_ID + " FROM " + TABLE_CHANGE_LOG +
+                        ")" + EVENT_ORDER + " LIMIT ?", new String[]{String.valueOf(userId),
+                        String.valueOf(EventTimes.UNKNOWN), String.valueOf(cutoffMillis), String.valueOf(cutoffMillis),
+                        String.valueOf(limit)})) {
+                    while (cursor.moveToNext()) {
+                        args.add(cursor.getString(0));
+                    }
+                }
+                archived = args.size();
+                if (archived > 0) {
+                    String in = " WHERE " + COLUMN_EVENT_ID + " IN (" + placeholders(archived) + ")";
+                    Object[] bindArgs = args.toArray();
+                    db.execSQL("INSERT INTO " + TABLE_EVENTS_ARCHIVE + " (" + ARCHIVE_COLUMNS + ") SELECT " +
+                            ARCHIVE_COLUMNS + " FROM " + TABLE_EVENTS + in, bindArgs);
+                    db.execSQL("DELETE FROM " + TABLE_EVENTS + in, bindArgs);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (archived > 0) {
+                changeNotifier.publish(EventChange.reloaded(userId));
+            }
+            return archived;
+        } finally {
+            ARCHIVE_USER_EVENTS.end(start, archived);
+        }
+    }
+
+    // The user's archived events, in start order
+    public List<Event> getUserArchivedEvents(int userId) {
+        return readEvents(this.getReadableDatabase().rawQuery("SELECT " + EVENT_COLUMNS + " FROM " +
+                TABLE_EVENTS_ARCHIVE + " WHERE " + COLUMN_EVENT_USER_ID + " = ?" + EVENT_ORDER,
+                new String[]{String.valueOf(userId)}));
+    }
+
+    // Refreshes the statistics the query planner picks indexes by, sampling at most
+    // ANALYSIS_LIMIT rows per index
+    public void refreshStatistics() {
+        SQLiteDatabase db = this.getWritableDatabase();
+        runPragma(db, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+        db.execSQL("ANALYZE");
+    }
+
+    // Pages in the file that hold no data, e.g. after deletes
+    public long getFreePageCount() {
+        return DatabaseUtils.longForQuery(this.getReadableDatabase(), "PRAGMA freelist_count", null);
+    }
+
+    // Hands up to maxPages free pages back to the file system and returns how many are left.
+    // Each call is one short write transaction.
+    public long reclaimFreePages(int maxPages) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        runPragma(db, "PRAGMA incremental_vacuum(" + maxPages + ")");
+        return getFreePageCount();
+    }
+
+    // Number of the user's live (non-archived) events, a recurring series counting once; one
+    // primary key lookup, however many events there are
+    public int getUserEventCount(int userId) {
+        synchronized (eventCountStatement) {
+            SQLiteStatement statement = eventCountStatement.get();
+            statement.bindLong(1, userId);
+            try {
+                return (int) statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return 0;
+            }
+        }
     }
 
     // Adds a new event for a specific user
+    @Override
     public boolean addEvent(String eventName, String eventDate, String eventTime, int userId) {
+        return insertEvent(eventName, eventDate, eventTime, userId) != -1;
+    }
+
+    // Adds a new event and returns its ID, or -1 on failure
+    @Override
+    public long insertEvent(String eventName, String eventDate, String eventTime, int userId) {
+        return insertRecurringEvent(eventName, eventDate, eventTime, userId, null);
+    }
+
+    // Adds an event that repeats by the given rule (null for a one-off) and returns its ID,
+    // or -1 on failure. One row holds the whole series, however many times it repeats.
+    @Override
+    public long insertRecurringEvent(String eventName, String eventDate, String eventTime, int userId,
+                                     Recurrence recurrence) {
+        return insertEvent(eventName, eventDate, eventTime, 0, userId, recurrence);
+    }
+
+    // Adds an event lasting durationMillis (0 for none) that repeats by the rule (null for a
+    // one-off), and returns its ID or -1 on failure
+    @Override
+    public long insertEvent(String eventName, String eventDate, String eventTime, long durationMillis, int userId,
+                            Recurrence recurrence) {
+        long startMillis = EventTimes.toEpochMillis(eventDate, eventTime);
+        long endMillis = startMillis == EventTimes.UNKNOWN ? startMillis : startMillis + durationMillis;
+        long eventId;
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_EVENT_NAME, eventName);
-        values.put(COLUMN_EVENT_DATE, eventDate);
-        values.put(COLUMN_EVENT_TIME, eventTime);
-        values.put("user_id", userId);
+        synchronized (insertEventStatement) {
+            SQLiteStatement statement = insertEventStatement.get();
+            statement.bindString(1, eventName);
+            statement.bindString(2, eventDate);
+            statement.bindString(3, eventTime);
+            statement.bindLong(4, userId);
+            statement.bindLong(5, startMillis);
+            if (recurrence != null) {
+                statement.bindString(6, recurrence.encode());
+                statement.bindLong(7, recurrence.lastStart(startMillis));
+            } else {
+                statement.bindNull(6);
+                statement.bindLong(7, EventTimes.UNKNOWN);
+            }
+            statement.bindLong(8, endMillis);
+            statement.bindString(9, UUID.randomUUID().toString());
+            statement.bindLong(10, System.currentTimeMillis());
+            db.beginTransaction();
+            try {
+                eventId = statement.executeInsert();
+                logChange(eventId);
+                db.setTransactionSuccessful();
+            } catch (SQLException e) {
+                return -1; // Same contract as SQLiteDatabase.insert
+            } finally {
+                db.endTransaction();
+            }
+        }
+        if (eventId != -1) {
+            changeNotifier.publish(EventChange.inserted(userId,
+                    new Event((int) eventId, eventName, eventDate, eventTime, startMillis, endMillis, recurrence)));
+        }
+        return eventId;
+    }
 
-        long result = db.insert(TABLE_EVENTS, null, values);
-        return result != -1;
+    // Changes to events made through this helper, for screens and caches to apply as deltas
+    @Override
+    public EventChangeNotifier getChangeNotifier() {
+        return changeNotifier;
     }
 
-    // Returns a user's ID given their username
+    // Returns a user's ID given their username, from the lookup cache when possible
+    @Override
     public int getUserId(String username) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT " + COLUMN_ID + " FROM " + TABLE_USERS + " WHERE " + COLUMN_USERNAME + " = ?", new String[]{username});
-        if (cursor.moveToFirst()) {
-            @SuppressLint("Range")
-            int userId = cursor.getInt(cursor.getColumnIndex(COLUMN_ID));
-            cursor.close();
-            return userId;
+        Integer cached = userIdCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (userIdStatement) {
+            SQLiteStatement statement = userIdStatement.get();
+            statement.bindString(1, username);
+            try {
+                int userId = (int) statement.simpleQueryForLong();
+                userIdCache.put(username, userId);
+                return userId;
+            } catch (SQLiteDoneException e) {
+                return -1; // Not found; not cached, since the name may be registered next
+            }
         }
-        cursor.close();
-        return -1; // Not found
     }
 
     // Deletes an event by its ID
+    @Override
     public boolean deleteEvent(int eventId) {
+        int userId;
+        boolean deleted;
         SQLiteDatabase db = this.getWritableDatabase();
-        int result = db.delete(TABLE_EVENTS, COLUMN_EVENT_ID + " = ?", new String[]{String.valueOf(eventId)});
-        return result > 0;
+        synchronized (deleteEventStatement) {
+            db.beginTransaction();
+            try {
+                // The owner is read in the same transaction as the delete, and always, so a
+                // subscriber that arrives while the delete runs still hears about it
+                userId = getEventUserId(eventId);
+                // Logged while the row still names its owner and sync ID
+                synchronized (tombstoneStatement) {
+                    SQLiteStatement tombstone = tombstoneStatement.get();
+                    tombstone.bindLong(1, System.currentTimeMillis());
+                    tombstone.bindLong(2, eventId);
+                    tombstone.executeInsert();
+                }
+                logChange(eventId);
+                SQLiteStatement statement = deleteEventStatement.get();
+                statement.bindLong(1, eventId);
+                deleted = statement.executeUpdateDelete() > 0;
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        if (deleted && userId != -1) {
+            changeNotifier.publish(EventChange.deleted(userId, eventId));
+        }
+        return deleted;
     }
 
-    // Updates an event's details by ID
+    // Returns the ID of the user who owns an event, or -1 if it doesn't exist
+    @Override
+    public int getEventUserId(int eventId) {
+        synchronized (eventUserIdStatement) {
+            SQLiteStatement statement = eventUserIdStatement.get();
+            statement.bindLong(1, eventId);
+            try {
+                return (int) statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return -1;
+            }
+        }
+    }
+
+    // Updates an event's details by ID. For a recurring event this moves the whole series;
+    // its rule and skipped occurrences are kept.
+    @Override
     public boolean updateEvent(int eventId, String eventName, String eventDate, String eventTime) {
+        long startMillis = EventTimes.toEpochMillis(eventDate, eventTime);
+        boolean updated;
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_EVENT_NAME, eventName);
-        values.put(COLUMN_EVENT_DATE, eventDate);
-        values.put(COLUMN_EVENT_TIME, eventTime);
+        synchronized (updateEventStatement) {
+            db.beginTransaction();
+            try {
+                // Read in the same transaction, so the series' last start comes from the rule
+                // being updated rather than one a concurrent write has since replaced
+                Recurrence recurrence = getRecurrence(eventId);
+                SQLiteStatement statement = updateEventStatement.get();
+                statement.bindString(1, eventName);
+                statement.bindString(2, eventDate);
+                statement.bindString(3, eventTime);
+                statement.bindLong(4, startMillis);
+                statement.bindLong(5, recurrence != null ? recurrence.lastStart(startMillis) : EventTimes.UNKNOWN);
+                statement.bindLong(6, startMillis);
+                statement.bindLong(7, System.currentTimeMillis());
+                statement.bindLong(8, eventId);
+                updated = statement.executeUpdateDelete() > 0;
+                if (updated) {
+                    logChange(eventId);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        if (updated && changeNotifier.hasSubscribers()) {
+            Event event = getStoredEvent(eventId);
+            int userId = getEventUserId(eventId);
+            if (event != null && userId != -1) {
+                changeNotifier.publish(EventChange.updated(userId, event));
+            }
+        }
+        return updated;
+    }
 
-        int result = db.update(TABLE_EVENTS, values, COLUMN_EVENT_ID + " = ?", new String[]{String.valueOf(eventId)});
-        return result > 0;
+    // Removes one occurrence of a recurring event, leaving the rest of the series. Returns
+    // false if the event doesn't exist or doesn't repeat.
+    @Override
+    public boolean skipOccurrence(int eventId, long occurrenceStart) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        synchronized (skipOccurrenceStatement) {
+            db.beginTransaction();
+            try {
+                // Checked in the same transaction, so the event can't stop repeating in between
+                if (getRecurrence(eventId) == null) {
+                    return false;
+                }
+                SQLiteStatement statement = skipOccurrenceStatement.get();
+                statement.bindLong(1, eventId);
+                statement.bindLong(2, occurrenceStart);
+                statement.executeInsert();
+                // The series as a whole is what syncs, so it counts as modified
+                synchronized (touchEventStatement) {
+                    SQLiteStatement touch = touchEventStatement.get();
+                    touch.bindLong(1, System.currentTimeMillis());
+                    touch.bindLong(2, eventId);
+                    touch.executeUpdateDelete();
+                }
+                logChange(eventId);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+        if (changeNotifier.hasSubscribers()) {
+            Event series = getStoredEvent(eventId);
+            int userId = getEventUserId(eventId);
+            if (series != null && userId != -1) {
+                changeNotifier.publish(EventChange.updated(userId, series));
+            }
+        }
+        return true;
     }
 
-    // Returns a list of Event objects for a given user
+    // Records a local write to the event in the change log; called inside the write's transaction
+    private void logChange(long eventId) {
+        synchronized (logChangeStatement) {
+            SQLiteStatement statement = logChangeStatement.get();
+            statement.bindLong(1, eventId);
+            statement.executeInsert();
+        }
+    }
+
+    // The event's stored rule without its skipped occurrences, or null if it's a one-off
+    // or doesn't exist
+    private Recurrence getRecurrence(int eventId) {
+        String rule;
+        synchronized (eventRecurrenceStatement) {
+            SQLiteStatement statement = eventRecurrenceStatement.get();
+            statement.bindLong(1, eventId);
+            try {
+                rule = statement.simpleQueryForString();
+            } catch (SQLiteDoneException e) {
+                return null;
+            }
+        }
+        return rule != null ? Recurrence.decode(rule) : null;
+    }
+
+    // An event as stored, i.e. a recurring one as its series with its full rule, or null if
+    // there's no such event
+    private Event getStoredEvent(int eventId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        List<Event> stored = readSeries(db, "SELECT " + EVENT_COLUMNS + ", " + COLUMN_EVENT_RECURRENCE +
+                " FROM " + TABLE_EVENTS + " WHERE " + COLUMN_EVENT_ID + " = ?", new String[]{String.valueOf(eventId)});
+        return stored.isEmpty() ? null : stored.get(0);
+    }
+
+    // Returns a list of Event objects for a given user, ordered by start time. The list is
+    // backed by a snapshot, so each Event is only created when it is read. These are the
+    // stored rows: a recurring event appears once, as its first occurrence.
+    @Override
     public List<Event> getUserEventsList(int userId) {
-        List<Event> eventList = new ArrayList<>();
+        return getUserEventsSnapshot(userId).all();
+    }
+
+    // Loads all of a user's events, ordered by start time, into a columnar snapshot.
+    // Each text column is copied into a reused buffer and from there into the snapshot, so
+    // rows never become Event objects or per-cell Strings on the way in.
+    @Override
+    public EventSnapshot getUserEventsSnapshot(int userId) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_EVENTS + " WHERE user_id = ?", new String[]{String.valueOf(userId)});
+        try (Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ?" + EVENT_ORDER, new String[]{String.valueOf(userId)})) {
+            int idColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_ID);
+            int nameColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_NAME);
+            int dateColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_DATE);
+            int timeColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_TIME);
+            int startColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_START);
+            int endColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_END);
 
-        if (cursor.moveToFirst()) {
-            do {
-                int id = cursor.getInt(cursor.getColumnIndexOrThrow(COLUMN_EVENT_ID));
-                String name = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EVENT_NAME));
-                String date = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EVENT_DATE));
-                String time = cursor.getString(cursor.getColumnIndexOrThrow(COLUMN_EVENT_TIME));
+            EventSnapshot.Builder builder = new EventSnapshot.Builder(cursor.getCount());
+            CharArrayBuffer name = new CharArrayBuffer(64);
+            CharArrayBuffer date = new CharArrayBuffer(16);
+            CharArrayBuffer time = new CharArrayBuffer(16);
+            while (cursor.moveToNext()) {
+                cursor.copyStringToBuffer(nameColumn, name);
+                cursor.copyStringToBuffer(dateColumn, date);
+                cursor.copyStringToBuffer(timeColumn, time);
+                builder.add(cursor.getInt(idColumn), cursor.getLong(startColumn), cursor.getLong(endColumn),
+                        name.data, name.sizeCopied,
+                        date.data, date.sizeCopied, time.data, time.sizeCopied);
+            }
+            return builder.build();
+        }
+    }
 
-                eventList.add(new Event(id, name, date, time));
-            } while (cursor.moveToNext());
+    // Returns up to pageSize of the user's events at or after the (startMillis, eventId)
+    // position, in start order, with recurring events expanded into their occurrences.
+    // Keyset paging: the index seeks straight to the position, so every page costs the same
+    // no matter how deep into the list it is. Each series that is still running expands at
+    // most one page of occurrences from the position, never the ones before it.
+    // Pass (Long.MIN_VALUE, 0) for the first page, or (last.getStartMillis(), last.getId() + 1)
+    // to continue after the last event of the previous page.
+    @Override
+    public List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND (" + COLUMN_EVENT_START + ", " + COLUMN_EVENT_ID + ") >= (?, ?)" +
+                " AND " + COLUMN_EVENT_RECURRENCE + " IS NULL" +
+                EVENT_ORDER + " LIMIT ?", new String[]{String.valueOf(userId),
+                String.valueOf(startMillis), String.valueOf(eventId), String.valueOf(pageSize)});
+        List<Event> page = readEvents(cursor);
+        List<Event> running = getUserSeries(db, userId, startMillis, Recurrence.NO_END);
+        if (running.isEmpty()) {
+            return page;
+        }
+        for (Event series : running) {
+            page.addAll(series.getRecurrence().occurrencesFrom(series, startMillis, eventId, pageSize));
         }
+        page.sort(Event.START_ORDER);
+        return page.size() > pageSize ? new ArrayList<>(page.subList(0, pageSize)) : page;
+    }
+
+    // Returns up to pageSize of the user's events strictly before the (startMillis, eventId)
+    // position, still in start order, with recurring events expanded the same way. Used when
+    // scrolling back up through a trimmed window.
+    @Override
+    public List<Event> getUserEventsBefore(int userId, long startMillis, int eventId, int pageSize) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND (" + COLUMN_EVENT_START + ", " + COLUMN_EVENT_ID + ") < (?, ?)" +
+                " AND " + COLUMN_EVENT_RECURRENCE + " IS NULL" +
+                " ORDER BY " + COLUMN_EVENT_START + " DESC, " + COLUMN_EVENT_ID + " DESC LIMIT ?",
+                new String[]{String.valueOf(userId),
+                String.valueOf(startMillis), String.valueOf(eventId), String.valueOf(pageSize)});
+        List<Event> page = readEvents(cursor);
+        long seriesStartBound = startMillis == Long.MAX_VALUE ? startMillis : startMillis + 1;
+        for (Event series : getUserSeries(db, userId, Long.MIN_VALUE, seriesStartBound)) {
+            page.addAll(series.getRecurrence().occurrencesBefore(series, startMillis, eventId, pageSize));
+        }
+        page.sort(Event.START_ORDER);
+        return page.size() > pageSize ? new ArrayList<>(page.subList(page.size() - pageSize, page.size())) : page;
+    }
 
-        cursor.close();
-        return eventList;
+    // Returns the user's events and occurrences starting in [fromMillis, toMillis), in start
+    // order. Only series that overlap the window are read, and only the occurrences inside
+    // it are created, so the cost follows the window rather than how long a series runs.
+    @Override
+    public List<Event> getUserEventsBetween(int userId, long fromMillis, long toMillis) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND " + COLUMN_EVENT_START + " >= ? AND " +
+                COLUMN_EVENT_START + " < ? AND " + COLUMN_EVENT_RECURRENCE + " IS NULL" + EVENT_ORDER,
+                new String[]{String.valueOf(userId), String.valueOf(fromMillis), String.valueOf(toMillis)});
+        List<Event> events = readEvents(cursor);
+        List<Event> overlapping = getUserSeries(db, userId, fromMillis, toMillis);
+        for (Event series : overlapping) {
+            events.addAll(series.getRecurrence().occurrencesBetween(series, fromMillis, toMillis, Integer.MAX_VALUE));
+        }
+        if (!overlapping.isEmpty()) {
+            events.sort(Event.START_ORDER);
+        }
+        return events;
+    }
+
+    // Returns the user's events and occurrences overlapping [fromMillis, toMillis), e.g. one
+    // week or month of a calendar, in start order. An event overlaps if it starts in the
+    // range or is still running at its beginning (see Event.overlaps). The query is a range
+    // scan of the start index from `fromMillis` minus the user's longest duration, so its
+    // cost follows the size of the range, not of the account.
+    @Override
+    public List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        long lookback = Recurrence.minus(fromMillis, getMaxDurationMillis(userId));
+        Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS + OVERLAP_WHERE + EVENT_ORDER,
+                overlapArgs(userId, lookback, fromMillis, toMillis));
+        List<Event> events = readEvents(cursor);
+        List<Event> overlapping = getUserSeries(db, userId, lookback, toMillis);
+        for (Event series : overlapping) {
+            events.addAll(series.getRecurrence().occurrencesOverlapping(series, fromMillis, toMillis));
+        }
+        if (!overlapping.isEmpty()) {
+            events.sort(Event.START_ORDER);
+        }
+        return events;
+    }
+
+    // Counts the user's events on each day of a month. Same rows as getUserEventsOverlapping,
+    // but only the start and end columns are read, and recurring events only produce
+    // occurrence times, so no Event objects or Strings are created for one-off rows.
+    @Override
+    public MonthSummary getUserMonthSummary(int userId, YearMonth month) {
+        MonthSummary summary = new MonthSummary(month);
+        long fromMillis = summary.getFromMillis();
+        long toMillis = summary.getToMillis();
+        SQLiteDatabase db = this.getReadableDatabase();
+        long lookback = Recurrence.minus(fromMillis, getMaxDurationMillis(userId));
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_START + ", " + COLUMN_EVENT_END + " FROM " +
+                TABLE_EVENTS + OVERLAP_WHERE, overlapArgs(userId, lookback, fromMillis, toMillis))) {
+            while (cursor.moveToNext()) {
+                summary.add(cursor.getLong(0), cursor.getLong(1));
+            }
+        }
+        for (Event series : getUserSeries(db, userId, lookback, toMillis)) {
+            long duration = series.getDurationMillis();
+            for (long start : series.getRecurrence().startsBetween(series.getStartMillis(),
+                    Recurrence.minus(fromMillis, duration), toMillis)) {
+                summary.add(start, start + duration);
+            }
+        }
+        return summary;
+    }
+
+    // Longest end - start among the user's events, from the duration index
+    private long getMaxDurationMillis(int userId) {
+        synchronized (maxDurationStatement) {
+            SQLiteStatement statement = maxDurationStatement.get();
+            statement.bindLong(1, userId);
+            return Math.max(0, statement.simpleQueryForLong());  // NULL (no events) reads as 0
+        }
+    }
+
+    private static String[] overlapArgs(int userId, long lookback, long fromMillis, long toMillis) {
+        return new String[]{String.valueOf(userId), String.valueOf(lookback), String.valueOf(toMillis),
+                String.valueOf(fromMillis), String.valueOf(fromMillis)};
+    }
+
+    // The user's recurring events that may have occurrences starting in [fromMillis, toMillis):
+    // first start before the window's end, last start at or after its beginning
+    private List<Event> getUserSeries(SQLiteDatabase db, int userId, long fromMillis, long toMillis) {
+        return readSeries(db, "SELECT " + EVENT_COLUMNS + ", " + COLUMN_EVENT_RECURRENCE + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND " + COLUMN_EVENT_RECURRENCE + " IS NOT NULL AND " +
+                COLUMN_EVENT_START + " < ? AND " + COLUMN_EVENT_LAST_START + " >= ?",
+                new String[]{String.valueOf(userId), String.valueOf(toMillis), String.valueOf(fromMillis)});
+    }
+
+    // Reads event rows selected with EVENT_COLUMNS plus the rule, attaching each series'
+    // skipped occurrences, fetched in one query for all of them
+    private static List<Event> readSeries(SQLiteDatabase db, String sql, String[] args) {
+        List<Event> series = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, args)) {
+            int ruleColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_RECURRENCE);
+            while (cursor.moveToNext()) {
+                Recurrence recurrence = null;
+                if (!cursor.isNull(ruleColumn)) {
+                    try {
+                        recurrence = Recurrence.decode(cursor.getString(ruleColumn));
+                    } catch (IllegalArgumentException e) {
+                        // Unreadable rule: show the event once rather than not at all
+                    }
+                }
+                series.add(new Event(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getString(3), cursor.getLong(4), cursor.getLong(5), recurrence));
+            }
+        }
+        if (series.isEmpty()) {
+            return series;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Event event : series) {
+            ids.append(ids.length() == 0 ? "" : ",").append(event.getId());
+        }
+        Map<Integer, List<Long>> skipped = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_ID + ", " + COLUMN_OCCURRENCE_START +
+                " FROM " + TABLE_SKIPPED_OCCURRENCES + " WHERE " + COLUMN_EVENT_ID + " IN (" + ids + ")", null)) {
+            while (cursor.moveToNext()) {
+                skipped.computeIfAbsent(cursor.getInt(0), id -> new ArrayList<>()).add(cursor.getLong(1));
+            }
+        }
+        for (int i = 0; i < series.size(); i++) {
+            Event event = series.get(i);
+            List<Long> starts = skipped.get(event.getId());
+            if (starts != null && event.getRecurrence() != null) {
+                long[] array = new long[starts.size()];
+                for (int j = 0; j < array.length; j++) {
+                    array[j] = starts.get(j);
+                }
+                series.set(i, new Event(event.getId(), event.getName(), event.getDate(), event.getTime(),
+                        event.getStartMillis(), event.getEndMillis(), event.getRecurrence().withSkipped(array)));
+            }
+        }
+        return series;
+    }
+
+    // Returns up to limit of the user's events whose name or date has words starting with
+    // the query's words, in order (see FtsQuery). Name matches rank ahead of date-only
+    // matches, then events sort by start time. The word index finds the matches, so the
+    // cost follows the number of matches rather than the size of the account, and only
+    // the top rows are ever read into Event objects.
+    @Override
+    public List<Event> searchUserEvents(int userId, String query, int limit) {
+        String phrase = FtsQuery.prefixPhrase(query);
+        if (phrase == null) {
+            return new ArrayList<>();
+        }
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + prefixed("e.", EVENT_COLUMNS) + " FROM " + TABLE_EVENTS_FTS +
+                " JOIN " + TABLE_EVENTS + " e ON e." + COLUMN_EVENT_ID + " = " + TABLE_EVENTS_FTS + ".docid" +
+                " WHERE " + TABLE_EVENTS_FTS + " MATCH ? AND e." + COLUMN_EVENT_USER_ID + " = ?" +
+                " ORDER BY CASE WHEN " + TABLE_EVENTS_FTS + ".docid IN (SELECT docid FROM " + TABLE_EVENTS_FTS +
+                " WHERE " + TABLE_EVENTS_FTS + " MATCH ?) THEN 0 ELSE 1 END, e." + COLUMN_EVENT_START +
+                ", e." + COLUMN_EVENT_ID + " LIMIT ?", new String[]{phrase, String.valueOf(userId),
+                FtsQuery.prefixPhrase(COLUMN_EVENT_NAME, query), String.valueOf(limit)});
+        return readEvents(cursor);
+    }
+
+    // Returns up to limit of the user's events whose name or date contains the text anywhere,
+    // ignoring ASCII case, in start order: the mid-word matches the word index can't find,
+    // such as "eet" in "Meeting". The scan walks the user's start index and stops at the
+    // limit, so only matching rows are read, and never more than limit of them.
+    @Override
+    public List<Event> searchUserEventsContaining(int userId, String text, int limit) {
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return readEvents(this.getReadableDatabase().rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                " WHERE " + COLUMN_EVENT_USER_ID + " = ? AND (" + COLUMN_EVENT_NAME + " LIKE ? ESCAPE '\\' OR " +
+                COLUMN_EVENT_DATE + " LIKE ? ESCAPE '\\')" + EVENT_ORDER + " LIMIT ?",
+                new String[]{String.valueOf(userId), pattern, pattern, String.valueOf(limit)}));
+    }
+
+    // Streams events from the reader into the user's account and returns how many were added.
+    // Rows go through one compiled INSERT, committed IMPORT_CHUNK_SIZE rows per transaction,
+    // instead of one implicit transaction per row as with addEvent. If the input fails part
+    // way through, chunks that already committed stay imported. The user must exist.
+    public int importEvents(int userId, EventFileFormat.EventReader reader, ProgressListener listener)
+            throws IOException {
+        long start = IMPORT_EVENTS.begin();
+        int imported = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_EVENTS + " (" +
+                    COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ", " + COLUMN_EVENT_TIME + ", " +
+                    COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_START + ", " + COLUMN_EVENT_END + ", " +
+                    COLUMN_EVENT_SYNC_ID + ", " + COLUMN_EVENT_MODIFIED + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement log = db.compileStatement("INSERT INTO " + TABLE_CHANGE_LOG + " (" +
+                    COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_SYNC_ID + ") VALUES (?, ?)");
+            long modifiedMillis = System.currentTimeMillis();
+            try {
+                Event event = reader.next();
+                while (event != null) {
+                    db.beginTransaction();
+                    try {
+                        int chunkEnd = imported + IMPORT_CHUNK_SIZE;
+                        while (event != null && imported < chunkEnd) {
+                            insert.bindString(1, event.getName());
+                            insert.bindString(2, event.getDate());
+                            insert.bindString(3, event.getTime());
+                            insert.bindLong(4, userId);
+                            insert.bindLong(5, event.getStartMillis());
+                            insert.bindLong(6, event.getEndMillis());
+                            String syncId = UUID.randomUUID().toString();
+                            insert.bindString(7, syncId);
+                            insert.bindLong(8, modifiedMillis);
+                            insert.executeInsert();
+                            log.bindLong(1, userId);
+                            log.bindString(2, syncId);
+                            log.executeInsert();
+                            imported++;
+                            event = reader.next();
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    if (listener != null) {
+                        listener.onProgress(imported);
+                    }
+                }
+            } finally {
+                insert.close();
+                log.close();
+                if (imported > 0) {
+                    // One reload rather than a change per row
+                    changeNotifier.publish(EventChange.reloaded(userId));
+                }
+            }
+            return imported;
+        } finally {
+            IMPORT_EVENTS.end(start, imported);
+        }
+    }
+
+    // Writes all of the user's events, in start order, and returns how many were written.
+    // Rows are read straight off the cursor, which only keeps one window of rows in memory,
+    // rather than being collected into a list first.
+    public int exportEvents(int userId, EventFileFormat.EventWriter writer, ProgressListener listener)
+            throws IOException {
+        long start = EXPORT_EVENTS.begin();
+        int exported = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            try (Cursor cursor = db.rawQuery("SELECT " + EVENT_COLUMNS + " FROM " + TABLE_EVENTS +
+                    " WHERE " + COLUMN_EVENT_USER_ID + " = ?" + EVENT_ORDER, new String[]{String.valueOf(userId)})) {
+                int idColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_ID);
+                int nameColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_NAME);
+                int dateColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_DATE);
+                int timeColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_TIME);
+                int startColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_START);
+                int endColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_END);
+
+                while (cursor.moveToNext()) {
+                    writer.write(new Event(cursor.getInt(idColumn), cursor.getString(nameColumn),
+                            cursor.getString(dateColumn), cursor.getString(timeColumn), cursor.getLong(startColumn),
+                            cursor.getLong(endColumn), null));
+                    exported++;
+                    if (listener != null && exported % IMPORT_CHUNK_SIZE == 0) {
+                        listener.onProgress(exported);
+                    }
+                }
+            }
+            writer.finish();
+            if (listener != null) {
+                listener.onProgress(exported);
+            }
+            return exported;
+        } finally {
+            EXPORT_EVENTS.end(start, exported);
+        }
+    }
+
+    // Reads the oldest `limit` log entries, then the events they name in two queries (rows,
+    // then tombstones for any that are gone), however often each one was written
+    @Override
+    public PendingChanges getPendingChanges(int userId, String deviceId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        LinkedHashSet<String> syncIds = new LinkedHashSet<>();
+        long throughSeq = 0;
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_CHANGE_SEQ + ", " + COLUMN_EVENT_SYNC_ID + " FROM " +
+                TABLE_CHANGE_LOG + " WHERE " + COLUMN_EVENT_USER_ID + " = ? ORDER BY " + COLUMN_CHANGE_SEQ +
+                " LIMIT ?", new String[]{String.valueOf(userId), String.valueOf(limit)})) {
+            while (cursor.moveToNext()) {
+                throughSeq = cursor.getLong(0);
+                syncIds.add(cursor.getString(1));
+            }
+        }
+        if (syncIds.isEmpty()) {
+            return new PendingChanges(new ArrayList<>(), 0);
+        }
+        String[] args = syncIds.toArray(new String[0]);
+        String in = " IN (" + placeholders(args.length) + ")";
+
+        Map<Integer, SyncChange> stamps = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_ID + ", " + COLUMN_EVENT_SYNC_ID + ", " +
+                COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + " FROM " + TABLE_EVENTS + " WHERE " +
+                COLUMN_EVENT_SYNC_ID + in, args)) {
+            while (cursor.moveToNext()) {
+                stamps.put(cursor.getInt(0), SyncChange.deleted(cursor.getString(1), cursor.getLong(2),
+                        cursor.isNull(3) ? deviceId : cursor.getString(3)));
+            }
+        }
+        Map<String, SyncChange> changes = new HashMap<>();
+        for (Event event : readSeries(db, "SELECT " + EVENT_COLUMNS + ", " + COLUMN_EVENT_RECURRENCE + " FROM " +
+                TABLE_EVENTS + " WHERE " + COLUMN_EVENT_SYNC_ID + in, args)) {
+            SyncChange stamp = stamps.get(event.getId());
+            changes.put(stamp.getSyncId(), SyncChange.updated(stamp.getSyncId(), stamp.getModifiedMillis(),
+                    stamp.getOrigin(), event));
+        }
+        if (changes.size() < args.length) {
+            try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_EVENT_SYNC_ID + ", " + COLUMN_EVENT_MODIFIED + ", " +
+                    COLUMN_EVENT_MODIFIED_BY + " FROM " + TABLE_SYNC_TOMBSTONES + " WHERE " + COLUMN_EVENT_SYNC_ID + in,
+                    args)) {
+                while (cursor.moveToNext()) {
+                    changes.putIfAbsent(cursor.getString(0), SyncChange.deleted(cursor.getString(0),
+                            cursor.getLong(1), cursor.isNull(2) ? deviceId : cursor.getString(2)));
+                }
+            }
+        }
+        List<SyncChange> ordered = new ArrayList<>(changes.size());
+        for (String syncId : syncIds) {
+            SyncChange change = changes.get(syncId);
+            if (change != null) {
+                ordered.add(change);
+            }
+        }
+        return new PendingChanges(ordered, throughSeq);
+    }
+
+    @Override
+    public void clearPendingChanges(int userId, long throughSeq) {
+        this.getWritableDatabase().delete(TABLE_CHANGE_LOG, COLUMN_EVENT_USER_ID + " = ? AND " +
+                COLUMN_CHANGE_SEQ + " <= ?", new String[]{String.valueOf(userId), String.valueOf(throughSeq)});
+    }
+
+    @Override
+    public long getPullCursor(int userId) {
+        try (Cursor cursor = this.getReadableDatabase().rawQuery("SELECT " + COLUMN_PULL_CURSOR + " FROM " +
+                TABLE_SYNC_STATE + " WHERE " + COLUMN_EVENT_USER_ID + " = ?", new String[]{String.valueOf(userId)})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    // Applies the changes in one transaction, without logging them (they came from the
+    // backend). Any local change they replace is dropped from the log, as it lost.
+    @Override
+    public int applyRemoteChanges(int userId, List<SyncChange> changes, String deviceId, long cursor) {
+        long start = APPLY_REMOTE_CHANGES.begin();
+        int applied = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_EVENTS + " (" +
+                    COLUMN_EVENT_NAME + ", " + COLUMN_EVENT_DATE + ", " + COLUMN_EVENT_TIME + ", " +
+                    COLUMN_EVENT_START + ", " + COLUMN_EVENT_END + ", " + COLUMN_EVENT_RECURRENCE + ", " +
+                    COLUMN_EVENT_LAST_START + ", " + COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + ", " +
+                    COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_SYNC_ID + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_EVENTS + " SET " +
+                    COLUMN_EVENT_NAME + " = ?, " + COLUMN_EVENT_DATE + " = ?, " + COLUMN_EVENT_TIME + " = ?, " +
+                    COLUMN_EVENT_START + " = ?, " + COLUMN_EVENT_END + " = ?, " + COLUMN_EVENT_RECURRENCE + " = ?, " +
+                    COLUMN_EVENT_LAST_START + " = ?, " + COLUMN_EVENT_MODIFIED + " = ?, " + COLUMN_EVENT_MODIFIED_BY +
+                    " = ? WHERE " + COLUMN_EVENT_ID + " = ?");
+            SQLiteStatement tombstone = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_SYNC_TOMBSTONES + " (" +
+                    COLUMN_EVENT_SYNC_ID + ", " + COLUMN_EVENT_USER_ID + ", " + COLUMN_EVENT_MODIFIED + ", " +
+                    COLUMN_EVENT_MODIFIED_BY + ") VALUES (?, ?, ?, ?)");
+            db.beginTransaction();
+            try {
+                for (SyncChange change : changes) {
+                    String[] syncIdArg = {change.getSyncId()};
+                    long eventId = -1;
+                    boolean known = false;
+                    // The local copy is a live event, a tombstone or an archived event (which a
+                    // newer change takes out of the archive, as it is no longer the latest)
+                    try (Cursor local = db.rawQuery("SELECT " + COLUMN_EVENT_ID + ", " + COLUMN_EVENT_USER_ID + ", " +
+                            COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + " FROM " + TABLE_EVENTS + " WHERE " +
+                            COLUMN_EVENT_SYNC_ID + " = ? UNION ALL SELECT -1, " + COLUMN_EVENT_USER_ID + ", " +
+                            COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + " FROM " + TABLE_SYNC_TOMBSTONES +
+                            " WHERE " + COLUMN_EVENT_SYNC_ID + " = ? UNION ALL SELECT -1, " + COLUMN_EVENT_USER_ID + ", " +
+                            COLUMN_EVENT_MODIFIED + ", " + COLUMN_EVENT_MODIFIED_BY + " FROM " + TABLE_EVENTS_ARCHIVE +
+                            " WHERE " + COLUMN_EVENT_SYNC_ID + " = ?",
+                            new String[]{change.getSyncId(), change.getSyncId(), change.getSyncId()})) {
+                        if (local.moveToFirst()) {
+                            if (local.getInt(1) != userId || !change.supersedes(local.getLong(2),
+                                    local.isNull(3) ? deviceId : local.getString(3))) {
+                                continue;
+                            }
+                            eventId = local.getLong(0);
+                            known = true;
+                        }
+                    }
+                    if (known && eventId == -1) {
+                        db.delete(TABLE_EVENTS_ARCHIVE, COLUMN_EVENT_SYNC_ID + " = ?", syncIdArg);
+                    }
+                    if (change.isDeleted()) {
+                        if (eventId != -1) {
+                            db.delete(TABLE_EVENTS, COLUMN_EVENT_ID + " = ?", new String[]{String.valueOf(eventId)});
+                        }
+                        tombstone.bindString(1, change.getSyncId());
+                        tombstone.bindLong(2, userId);
+                        tombstone.bindLong(3, change.getModifiedMillis());
+                        tombstone.bindString(4, change.getOrigin());
+                        tombstone.executeInsert();
+                    } else {
+                        Event event = change.getEvent();
+                        Recurrence recurrence = event.getRecurrence();
+                        SQLiteStatement write = eventId != -1 ? update : insert;
+                        write.clearBindings();
+                        write.bindString(1, event.getName());
+                        write.bindString(2, event.getDate());
+                        write.bindString(3, event.getTime());
+                        write.bindLong(4, event.getStartMillis());
+                        write.bindLong(5, event.getEndMillis());
+                        if (recurrence != null) {
+                            write.bindString(6, recurrence.encode());
+                            write.bindLong(7, recurrence.lastStart(event.getStartMillis()));
+                        } else {
+                            write.bindNull(6);
+                            write.bindLong(7, EventTimes.UNKNOWN);
+                        }
+                        write.bindLong(8, change.getModifiedMillis());
+                        write.bindString(9, change.getOrigin());
+                        if (eventId != -1) {
+                            update.bindLong(10, eventId);
+                            update.executeUpdateDelete();
+                            db.delete(TABLE_SKIPPED_OCCURRENCES, COLUMN_EVENT_ID + " = ?",
+                                    new String[]{String.valueOf(eventId)});
+                        } else {
+                            insert.bindLong(10, userId);
+                            insert.bindString(11, change.getSyncId());
+                            eventId = insert.executeInsert();
+                            if (known) {
+                                db.delete(TABLE_SYNC_TOMBSTONES, COLUMN_EVENT_SYNC_ID + " = ?", syncIdArg);
+                            }
+                        }
+                        if (recurrence != null) {
+                            for (long skippedStart : recurrence.getSkipped()) {
+                                ContentValues skipped = new ContentValues();
+                                skipped.put(COLUMN_EVENT_ID, eventId);
+                                skipped.put(COLUMN_OCCURRENCE_START, skippedStart);
+                                db.insert(TABLE_SKIPPED_OCCURRENCES, null, skipped);
+                            }
+                        }
+                    }
+                    db.delete(TABLE_CHANGE_LOG, COLUMN_EVENT_SYNC_ID + " = ?", syncIdArg);
+                    applied++;
+                }
+                ContentValues state = new ContentValues();
+                state.put(COLUMN_EVENT_USER_ID, userId);
+                state.put(COLUMN_PULL_CURSOR, cursor);
+                db.insertWithOnConflict(TABLE_SYNC_STATE, null, state, SQLiteDatabase.CONFLICT_REPLACE);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                insert.close();
+                update.close();
+                tombstone.close();
+            }
+            if (applied > 0) {
+                // One reload rather than a change per row, as for an import
+                changeNotifier.publish(EventChange.reloaded(userId));
+            }
+            return applied;
+        } finally {
+            APPLY_REMOTE_CHANGES.end(start, applied);
+        }
+    }
+
+    // "?, ?, ..." for an IN list of `count` arguments
+    private static String placeholders(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "?" : ", ?");
+        }
+        return text.toString();
+    }
+
+    // Qualifies each column of a comma-separated list with a table alias
+    private static String prefixed(String alias, String columns) {
+        return alias + columns.replace(", ", ", " + alias);
+    }
+
+    // Reads every row of an events cursor (selected with EVENT_COLUMNS) and closes it.
+    // Column indexes are looked up once per cursor rather than once per row.
+    private static List<Event> readEvents(Cursor cursor) {
+        try {
+            List<Event> eventList = new ArrayList<>(cursor.getCount());
+            int idColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_ID);
+            int nameColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_NAME);
+            int dateColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_DATE);
+            int timeColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_TIME);
+            int startColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_START);
+            int endColumn = cursor.getColumnIndexOrThrow(COLUMN_EVENT_END);
+
+            while (cursor.moveToNext()) {
+                eventList.add(new Event(cursor.getInt(idColumn), cursor.getString(nameColumn),
+                        cursor.getString(dateColumn), cursor.getString(timeColumn), cursor.getLong(startColumn),
+                        cursor.getLong(endColumn), null));
+            }
+            return eventList;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        insertEventStatement.close();
+        updateEventStatement.close();
+        deleteEventStatement.close();
+        userIdStatement.close();
+        loginStatement.close();
+        eventUserIdStatement.close();
+        eventRecurrenceStatement.close();
+        skipOccurrenceStatement.close();
+        maxDurationStatement.close();
+        updatePasswordStatement.close();
+        eventCountStatement.close();
+        touchEventStatement.close();
+        logChangeStatement.close();
+        tombstoneStatement.close();
+        super.close();
+    }
+
+    // A statement compiled on first use. Callers hold the lock on this object while binding
+    // and executing, since a compiled statement's bindings are shared state.
+    private final class CachedStatement {
+        private final String sql;
+        private SQLiteStatement statement;
+
+        CachedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        SQLiteStatement get() {
+            if (statement == null) {
+                statement = getWritableDatabase().compileStatement(sql);
+            }
+            statement.clearBindings();
+            return statement;
+        }
+
+        void close() {
+            synchronized (this) {
+                if (statement != null) {
+                    statement.close();
+                    statement = null;
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.example.eventdaddy;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Housekeeping that keeps the database small and its queries fast after months of use:
+//   1. archive: one-off events that ended more than archiveHorizonMillis ago move to the
+//      archive table, so getUserEventsList and every other per-user read see fewer rows
+//   2. statistics: ANALYZE, so the planner picks indexes by how the data really looks
+//   3. compaction: free pages go back to the file system, VACUUM_SLICE_PAGES at a time
+// Every step works in short transactions and checks the time between them, so a run stops
+// within about one slice of its budget, or as soon as `stopped` says so, and the next run
+// carries on. Meant for MaintenanceJobService, on an idle, charging device.
+public class DatabaseMaintenance {
+
+    // Events moved per archive transaction
+    static final int ARCHIVE_CHUNK_SIZE = 500;
+    // Pages freed per compaction transaction (1 MB at the default page size)
+    static final int VACUUM_SLICE_PAGES = 256;
+
+    private static final PerfMetrics.Timer ARCHIVE = PerfMetrics.timer("maintenance.archive");
+    private static final PerfMetrics.Timer ANALYZE = PerfMetrics.timer("maintenance.analyze");
+    private static final PerfMetrics.Timer VACUUM = PerfMetrics.timer("maintenance.vacuum");
+
+    private final DatabaseHelper helper;
+    private final LongSupplier clock;
+    private final long archiveHorizonMillis;
+
+    public DatabaseMaintenance(DatabaseHelper helper, LongSupplier clock, long archiveHorizonMillis) {
+        if (archiveHorizonMillis < 0) {
+            throw new IllegalArgumentException("Negative archive horizon: " + archiveHorizonMillis);
+        }
+        this.helper = helper;
+        this.clock = clock;
+        this.archiveHorizonMillis = archiveHorizonMillis;
+    }
+
+    // Runs the steps in order until they are done, budgetMillis has passed or `stopped`
+    // returns true
+    public Result run(long budgetMillis, BooleanSupplier stopped) {
+        long now = clock.getAsLong();
+        long deadline = now + budgetMillis;
+        BooleanSupplier outOfTime = () -> stopped.getAsBoolean() || clock.getAsLong() >= deadline;
+        Result result = new Result();
+
+        long cutoffMillis = now - archiveHorizonMillis;
+        for (int userId : helper.getUserIds()) {
+            int moved;
+            do {
+                if (outOfTime.getAsBoolean()) {
+                    return result;
+                }
+                long start = ARCHIVE.begin();
+                moved = helper.archiveUserEvents(userId, cutoffMillis, ARCHIVE_CHUNK_SIZE);
+                ARCHIVE.end(start, moved);
+                result.archived += moved;
+            } while (moved == ARCHIVE_CHUNK_SIZE);
+        }
+
+        if (outOfTime.getAsBoolean()) {
+            return result;
+        }
+        long start = ANALYZE.begin();
+        helper.refreshStatistics();
+        ANALYZE.end(start);
+
+        long free = helper.getFreePageCount();
+        while (free > 0) {
+            if (outOfTime.getAsBoolean()) {
+                return result;
+            }
+            start = VACUUM.begin();
+            long left = helper.reclaimFreePages(VACUUM_SLICE_PAGES);
+            VACUUM.end(start, free - left);
+            if (left >= free) {
+                break;  // Nothing more can be handed back for now
+            }
+            result.pagesFreed += free - left;
+            free = left;
+        }
+        result.finished = true;
+        return result;
+    }
+
+    // What one run did
+    public static final class Result {
+        private int archived;
+        private long pagesFreed;
+        private boolean finished;
+
+        // Events moved to the archive
+        public int getArchived() { return archived; }
+        // Pages handed back to the file system
+        public long getPagesFreed() { return pagesFreed; }
+        // False if the run stopped before every step was done
+        public boolean isFinished() { return finished; }
+
+        @Override
+        public String toString() {
+            return "archived " + archived + ", freed " + pagesFreed + " pages" + (finished ? "" : " (stopped early)");
+        }
+    }
+}
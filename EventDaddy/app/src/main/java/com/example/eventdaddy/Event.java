@@ -1,21 +1,63 @@
 package com.example.eventdaddy;
 
+import java.util.Comparator;
+
 public class Event {
+    // Order of every event list: start time, then ID
+    public static final Comparator<Event> START_ORDER =
+            Comparator.comparingLong(Event::getStartMillis).thenComparingInt(Event::getId);
+
     private int id;
     private String name;
     private String date;
     private String time;
+    private long startMillis;  // Parsed start (see EventTimes), used for ordering and paging
+    private long endMillis;    // Same as startMillis for an event without a duration
+    private Recurrence recurrence;  // Null for a one-off event
 
     public Event(int id, String name, String date, String time) {
+        this(id, name, date, time, EventTimes.toEpochMillis(date, time));
+    }
+
+    public Event(int id, String name, String date, String time, long startMillis) {
+        this(id, name, date, time, startMillis, null);
+    }
+
+    // For a recurring event this is either the series itself (its first occurrence) or one
+    // occurrence of it; every occurrence shares the series' ID
+    public Event(int id, String name, String date, String time, long startMillis, Recurrence recurrence) {
+        this(id, name, date, time, startMillis, startMillis, recurrence);
+    }
+
+    public Event(int id, String name, String date, String time, long startMillis, long endMillis,
+                 Recurrence recurrence) {
         this.id = id;
         this.name = name;
         this.date = date;
         this.time = time;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.recurrence = recurrence;
     }
 
     public int getId() { return id; }
     public String getName() { return name; }
     public String getDate() { return date; }
     public String getTime() { return time; }
-}
+    public long getStartMillis() { return startMillis; }
+    public long getEndMillis() { return endMillis; }
+    public long getDurationMillis() { return endMillis - startMillis; }
+    public Recurrence getRecurrence() { return recurrence; }
+    public boolean isRecurring() { return recurrence != null; }
+
+    // True if the event overlaps [fromMillis, toMillis). An event without a duration overlaps
+    // the range its start falls in.
+    public boolean overlaps(long fromMillis, long toMillis) {
+        return startMillis < toMillis && (endMillis > fromMillis || startMillis >= fromMillis);
+    }
 
+    // Unique per row in a list: the ID, plus the start for occurrences of a recurring event
+    public long getOccurrenceKey() {
+        return recurrence == null ? id : ((long) id << 32) | ((startMillis / 60_000) & 0xFFFFFFFFL);
+    }
+}
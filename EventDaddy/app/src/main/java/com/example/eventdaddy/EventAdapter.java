@@ -0,0 +1,96 @@
+package com.example.eventdaddy;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Objects;
+
+// Binds events to recycled rows in the event grid.
+// ListAdapter diffs each submitted list against the current one on a background thread
+// (keyed on the event ID, and the start for occurrences of a recurring event), so only
+// rows that actually changed are rebound or animated.
+public class EventAdapter extends ListAdapter<Event, EventAdapter.EventViewHolder> {
+
+    // Called when a row's DELETE button is tapped
+    public interface OnDeleteClickListener {
+        void onDeleteClick(Event event);
+    }
+
+    private static final DiffUtil.ItemCallback<Event> DIFF_CALLBACK = new DiffUtil.ItemCallback<Event>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+            return oldItem.getOccurrenceKey() == newItem.getOccurrenceKey();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Event oldItem, @NonNull Event newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && Objects.equals(oldItem.getTime(), newItem.getTime());
+        }
+    };
+
+    // Calls are row views inflated; binds count rows (re)filled with an event
+    private static final PerfMetrics.Timer CREATE_ROW_VIEW = PerfMetrics.timer("grid.createRowView");
+    private static final PerfMetrics.Counter ROWS_BOUND = PerfMetrics.counter("grid.rowsBound");
+
+    private final OnDeleteClickListener deleteListener;
+
+    public EventAdapter(OnDeleteClickListener deleteListener) {
+        super(DIFF_CALLBACK);
+        this.deleteListener = deleteListener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getOccurrenceKey();
+    }
+
+    @NonNull
+    @Override
+    public EventViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        long start = CREATE_ROW_VIEW.begin();
+        try {
+            View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_event, parent, false);
+            return new EventViewHolder(row);
+        } finally {
+            CREATE_ROW_VIEW.end(start, 1);
+        }
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull EventViewHolder holder, int position) {
+        ROWS_BOUND.increment();
+        Event event = getItem(position);
+        holder.eventName.setText(event.getName());
+        holder.eventDate.setText(event.getDate());
+    }
+
+    // Holds the views of one row so they are looked up once, not on every bind
+    class EventViewHolder extends RecyclerView.ViewHolder {
+        final TextView eventName;
+        final TextView eventDate;
+
+        EventViewHolder(View row) {
+            super(row);
+            eventName = row.findViewById(R.id.eventName);
+            eventDate = row.findViewById(R.id.eventDate);
+            Button deleteButton = row.findViewById(R.id.deleteButton);
+            deleteButton.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    deleteListener.onDeleteClick(getItem(position));
+                }
+            });
+        }
+    }
+}
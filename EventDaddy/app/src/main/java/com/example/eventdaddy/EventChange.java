@@ -0,0 +1,53 @@
+package com.example.eventdaddy;
+
+// One change to a user's events, as published by EventChangeNotifier
+public final class EventChange {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED,
+        // Too many rows changed at once to describe (e.g. a bulk import); reload instead
+        RELOADED
+    }
+
+    private final Type type;
+    private final int userId;
+    private final int eventId;
+    private final Event event;
+
+    private EventChange(Type type, int userId, int eventId, Event event) {
+        this.type = type;
+        this.userId = userId;
+        this.eventId = eventId;
+        this.event = event;
+    }
+
+    public static EventChange inserted(int userId, Event event) {
+        return new EventChange(Type.INSERTED, userId, event.getId(), event);
+    }
+
+    public static EventChange updated(int userId, Event event) {
+        return new EventChange(Type.UPDATED, userId, event.getId(), event);
+    }
+
+    public static EventChange deleted(int userId, int eventId) {
+        return new EventChange(Type.DELETED, userId, eventId, null);
+    }
+
+    public static EventChange reloaded(int userId) {
+        return new EventChange(Type.RELOADED, userId, -1, null);
+    }
+
+    public Type getType() { return type; }
+    public int getUserId() { return userId; }
+    // -1 for RELOADED
+    public int getEventId() { return eventId; }
+    // The event as it now is; null for DELETED and RELOADED
+    public Event getEvent() { return event; }
+
+    @Override
+    public String toString() {
+        return type + "(user " + userId + ", event " + eventId + ")";
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// Publishes changes to events so screens and caches can apply them as deltas.
+// Subscribers register for one user and only hear about that user's events. Each
+// subscriber names the executor it wants to be called on (e.g. the main thread); changes
+// published while a delivery is already queued for it are merged into that delivery, so a
+// burst of writes arrives as one batch with at most one change per event.
+// Safe to publish and subscribe from any thread.
+public class EventChangeNotifier {
+
+    // Receives batches of changes for the user it subscribed to
+    public interface Listener {
+        void onEventsChanged(List<EventChange> changes);
+    }
+
+    // Handle returned by subscribe(); once unsubscribed, no further batches are delivered
+    public interface Subscription {
+        void unsubscribe();
+    }
+
+    private final Map<Integer, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    public Subscription subscribe(int userId, Executor executor, Listener listener) {
+        Subscriber subscriber = new Subscriber(executor, listener);
+        subscribers.computeIfAbsent(userId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        return () -> {
+            subscriber.cancel();
+            subscribers.computeIfPresent(userId, (id, list) -> {
+                list.remove(subscriber);
+                return list.isEmpty() ? null : list;
+            });
+        };
+    }
+
+    // True if anyone at all is listening, so publishers can skip work done only for them
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public void publish(EventChange change) {
+        List<Subscriber> forUser = subscribers.get(change.getUserId());
+        if (forUser == null) {
+            return;
+        }
+        for (Subscriber subscriber : forUser) {
+            subscriber.enqueue(change);
+        }
+    }
+
+    // Merges a new change for an event into the one already pending for it.
+    // Returns null when the two cancel out (inserted, then deleted before delivery).
+    static EventChange merge(EventChange pending, EventChange next) {
+        if (pending.getType() == EventChange.Type.INSERTED) {
+            if (next.getType() == EventChange.Type.DELETED) {
+                return null;
+            }
+            return EventChange.inserted(next.getUserId(), next.getEvent());
+        }
+        return next;
+    }
+
+    private static final class Subscriber {
+        private final Executor executor;
+        private final Listener listener;
+        // Pending changes keyed by event ID, in order of first change; guarded by this
+        private Map<Integer, EventChange> pending = new LinkedHashMap<>();
+        private EventChange reload;   // Pending RELOADED, which replaces everything else
+        private boolean deliveryQueued;
+        private volatile boolean cancelled;
+
+        Subscriber(Executor executor, Listener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void enqueue(EventChange change) {
+            synchronized (this) {
+                if (change.getType() == EventChange.Type.RELOADED) {
+                    // The reload will pick up everything before it, so the details don't matter
+                    pending.clear();
+                    reload = change;
+                } else if (reload == null) {
+                    EventChange previous = pending.get(change.getEventId());
+                    EventChange merged = previous == null ? change : merge(previous, change);
+                    if (merged == null) {
+                        pending.remove(change.getEventId());
+                    } else {
+                        pending.put(change.getEventId(), merged);
+                    }
+                }
+                if (deliveryQueued) {
+                    return;
+                }
+                deliveryQueued = true;
+            }
+            executor.execute(this::deliver);
+        }
+
+        private void deliver() {
+            List<EventChange> batch;
+            synchronized (this) {
+                deliveryQueued = false;
+                if (reload != null) {
+                    batch = new ArrayList<>(1);
+                    batch.add(reload);
+                } else {
+                    batch = new ArrayList<>(pending.values());
+                }
+                pending = new LinkedHashMap<>();
+                reload = null;
+            }
+            if (!cancelled && !batch.isEmpty()) {
+                listener.onEventsChanged(batch);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
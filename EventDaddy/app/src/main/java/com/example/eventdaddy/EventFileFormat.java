@@ -0,0 +1,373 @@
+package com.example.eventdaddy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// File formats for bulk event import/export. Readers and writers stream one event at a
+// time, so a large file never has to be held in memory.
+public enum EventFileFormat {
+
+    // name,date,time,duration with RFC 4180 quoting; an optional header row is skipped. The
+    // duration is ISO 8601 (e.g. PT1H30M), empty or missing for an event without one.
+    CSV {
+        @Override
+        public EventReader openReader(Reader in) {
+            return new CsvReader(in);
+        }
+
+        @Override
+        public EventWriter openWriter(Writer out) {
+            return new CsvWriter(out);
+        }
+    },
+
+    // iCalendar VEVENTs; SUMMARY becomes the name, DTSTART the date and time, and DTEND (or
+    // DURATION) the duration
+    ICS {
+        @Override
+        public EventReader openReader(Reader in) {
+            return new IcsReader(in);
+        }
+
+        @Override
+        public EventWriter openWriter(Writer out) {
+            return new IcsWriter(out);
+        }
+    };
+
+    // Time text in the same style the app stores, e.g. "10:00 AM"
+    private static final DateTimeFormatter APP_TIME = DateTimeFormatter.ofPattern("h:mm a", Locale.US);
+    private static final DateTimeFormatter ICS_DATE = DateTimeFormatter.ofPattern("uuuuMMdd", Locale.US);
+    private static final DateTimeFormatter ICS_DATE_TIME = DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss", Locale.US);
+
+    public abstract EventReader openReader(Reader in);
+
+    // An event read from a file, lasting durationMillis (0 for none) from its start
+    private static Event readEvent(String name, String date, String time, long durationMillis) {
+        long start = EventTimes.toEpochMillis(date, time);
+        long end = start == EventTimes.UNKNOWN ? start : start + Math.max(0, durationMillis);
+        return new Event(0, name, date, time, start, end, null);
+    }
+
+    // ISO 8601 duration text in millis, or 0 if it's empty or not understood
+    private static long parseDuration(String value) {
+        try {
+            return value.isEmpty() ? 0 : Duration.parse(value).toMillis();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    public abstract EventWriter openWriter(Writer out);
+
+    // Streams events out of a file. Returned events have ID 0 since they aren't stored yet.
+    public interface EventReader {
+        // Returns the next event, or null at the end of the input
+        Event next() throws IOException;
+    }
+
+    // Streams events into a file; finish() must be called after the last event
+    public interface EventWriter {
+        void write(Event event) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvReader implements EventReader {
+        private final Reader in;
+        private boolean firstRecord = true;
+
+        CsvReader(Reader in) {
+            this.in = in instanceof BufferedReader ? in : new BufferedReader(in);
+        }
+
+        @Override
+        public Event next() throws IOException {
+            List<String> fields;
+            while ((fields = readRecord()) != null) {
+                boolean header = firstRecord && !fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("name");
+                firstRecord = false;
+                if (header || fields.size() < 2 || fields.get(0).trim().isEmpty()) {
+                    continue; // Header, blank line or a row without a name/date
+                }
+                String time = fields.size() > 2 ? fields.get(2).trim() : "";
+                long durationMillis = fields.size() > 3 ? parseDuration(fields.get(3).trim()) : 0;
+                return readEvent(fields.get(0).trim(), fields.get(1).trim(), time, durationMillis);
+            }
+            return null;
+        }
+
+        // Reads one record, honoring quoted fields that contain commas, quotes or newlines
+        private List<String> readRecord() throws IOException {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int nextChar = in.read();
+                        if (nextChar == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class CsvWriter implements EventWriter {
+        private final Writer out;
+        private boolean headerWritten;
+
+        CsvWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Event event) throws IOException {
+            writeHeader();
+            writeField(event.getName());
+            out.write(',');
+            writeField(event.getDate());
+            out.write(',');
+            writeField(event.getTime());
+            out.write(',');
+            if (event.getDurationMillis() > 0) {
+                out.write(Duration.ofMillis(event.getDurationMillis()).toString());
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writeHeader();
+            out.flush();
+        }
+
+        private void writeHeader() throws IOException {
+            if (!headerWritten) {
+                out.write("name,date,time,duration\n");
+                headerWritten = true;
+            }
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+    }
+
+    private static final class IcsReader implements EventReader {
+        private final BufferedReader in;
+        private String pendingLine;
+
+        IcsReader(Reader in) {
+            this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        }
+
+        @Override
+        public Event next() throws IOException {
+            String line;
+            boolean inEvent = false;
+            String summary = null;
+            String date = null;
+            String time = "";
+            String[] end = null;
+            long durationMillis = 0;
+            while ((line = readUnfoldedLine()) != null) {
+                if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                    inEvent = true;
+                    summary = null;
+                    date = null;
+                    time = "";
+                    end = null;
+                    durationMillis = 0;
+                } else if (line.equalsIgnoreCase("END:VEVENT") && inEvent) {
+                    inEvent = false;
+                    if (summary != null && date != null) {
+                        if (end != null) {
+                            durationMillis = EventTimes.toEpochMillis(end[0], end[1])
+                                    - EventTimes.toEpochMillis(date, time);
+                        }
+                        return readEvent(summary, date, time, durationMillis);
+                    }
+                } else if (inEvent) {
+                    int colon = line.indexOf(':');
+                    if (colon < 0) {
+                        continue;
+                    }
+                    String name = line.substring(0, colon).toUpperCase(Locale.ROOT);
+                    String value = line.substring(colon + 1);
+                    if (name.equals("SUMMARY") || name.startsWith("SUMMARY;")) {
+                        summary = unescape(value);
+                    } else if (name.equals("X-EVENTDADDY-DATE") && date == null) {
+                        date = unescape(value);
+                    } else if (name.startsWith("DTSTART")) {
+                        String[] dateAndTime = parseDateTime(value.trim());
+                        if (dateAndTime != null) {
+                            date = dateAndTime[0];
+                            time = dateAndTime[1];
+                        }
+                    } else if (name.startsWith("DTEND")) {
+                        end = parseDateTime(value.trim());
+                    } else if (name.equals("DURATION")) {
+                        durationMillis = parseDuration(value.trim());
+                    }
+                }
+            }
+            return null;
+        }
+
+        // Joins RFC 5545 folded lines (continuations start with a space or tab)
+        private String readUnfoldedLine() throws IOException {
+            String line = pendingLine != null ? pendingLine : in.readLine();
+            pendingLine = null;
+            if (line == null) {
+                return null;
+            }
+            StringBuilder unfolded = null;
+            String nextLine;
+            while ((nextLine = in.readLine()) != null
+                    && !nextLine.isEmpty() && (nextLine.charAt(0) == ' ' || nextLine.charAt(0) == '\t')) {
+                if (unfolded == null) {
+                    unfolded = new StringBuilder(line);
+                }
+                unfolded.append(nextLine, 1, nextLine.length());
+            }
+            pendingLine = nextLine;
+            return unfolded != null ? unfolded.toString() : line;
+        }
+
+        // Returns {date, time} in the app's text format, or null if the value isn't understood
+        private static String[] parseDateTime(String value) {
+            try {
+                if (value.length() == 8) {
+                    return new String[]{LocalDate.parse(value, ICS_DATE).toString(), ""};
+                }
+                LocalDateTime start;
+                if (value.endsWith("Z")) {
+                    start = LocalDateTime.ofInstant(
+                            LocalDateTime.parse(value.substring(0, value.length() - 1), ICS_DATE_TIME)
+                                    .atZone(ZoneId.of("UTC")).toInstant(),
+                            ZoneId.systemDefault());
+                } else {
+                    start = LocalDateTime.parse(value, ICS_DATE_TIME);
+                }
+                return new String[]{start.toLocalDate().toString(), start.toLocalTime().format(APP_TIME)};
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        private static String unescape(String value) {
+            if (value.indexOf('\\') < 0) {
+                return value;
+            }
+            StringBuilder result = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length()) {
+                    char escaped = value.charAt(++i);
+                    result.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+                } else {
+                    result.append(c);
+                }
+            }
+            return result.toString();
+        }
+    }
+
+    private static final class IcsWriter implements EventWriter {
+        private final Writer out;
+        private boolean started;
+
+        IcsWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Event event) throws IOException {
+            start();
+            out.write("BEGIN:VEVENT\r\n");
+            out.write("UID:eventdaddy-" + event.getId() + "\r\n");
+            out.write("SUMMARY:" + escape(event.getName()) + "\r\n");
+            if (event.getStartMillis() != EventTimes.UNKNOWN) {
+                LocalDateTime start = LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(event.getStartMillis()), ZoneId.systemDefault());
+                out.write("DTSTART:" + start.format(ICS_DATE_TIME) + "\r\n");
+                if (event.getDurationMillis() > 0) {
+                    out.write("DTEND:" + LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getEndMillis()),
+                            ZoneId.systemDefault()).format(ICS_DATE_TIME) + "\r\n");
+                }
+            } else {
+                // No parseable date: keep the original text so a re-import restores it
+                out.write("X-EVENTDADDY-DATE:" + escape(event.getDate()) + "\r\n");
+            }
+            out.write("END:VEVENT\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            start();
+            out.write("END:VCALENDAR\r\n");
+            out.flush();
+        }
+
+        private void start() throws IOException {
+            if (!started) {
+                out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//EventDaddy//EN\r\n");
+                started = true;
+            }
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            return value.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,").replace("\n", "\\n");
+        }
+    }
+}
@@ -4,34 +4,79 @@ import android.app.AlertDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
+import android.view.ViewTreeObserver;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.TableLayout;
-import android.widget.TableRow;
-import android.widget.TextView;
+import android.widget.Spinner;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class EventGridActivity extends AppCompatActivity {
 
+    private static final long FILTER_DEBOUNCE_MS = 150;  // Wait for typing to pause before searching
+    static final int PAGE_SIZE = 50;                      // Events fetched per query while scrolling
+    private static final int MAX_WINDOW_SIZE = 4 * PAGE_SIZE;  // Most unfiltered events held at once
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2; // Rows from the edge that trigger a load
+    private static final int SEARCH_LIMIT = 100;          // Most matches shown for a filter
+    // Choices in the add dialog's repeat spinner; index 0 is a one-off event
+    private static final String[] REPEAT_CHOICES = {"Does not repeat", "Daily", "Weekly", "Monthly"};
+    private static final Recurrence.Frequency[] REPEAT_FREQUENCIES =
+            {null, Recurrence.Frequency.DAILY, Recurrence.Frequency.WEEKLY, Recurrence.Frequency.MONTHLY};
+    // Async trace section from onCreate until the first rows are drawn
+    private static final String TRACE_FIRST_ROWS = "EventGrid.timeToFirstRows";
+    // From handing a list to the adapter until it is diffed and applied
+    private static final PerfMetrics.Timer GRID_REBUILD = PerfMetrics.timer("grid.rebuild");
+
     private int userId;                        // Currently logged-in user's ID
-    private DatabaseHelper dbHelper;          // DB helper instance
+    private EventRepository repository;       // Runs DB work off the UI thread
     private EditText filterInput;             // Search/filter text field
-    private TableLayout eventTable;           // Layout to display event rows
+    private RecyclerView eventList;           // Recycling list of event rows
+    private EventAdapter eventAdapter;        // Diffs and binds the displayed events
+    private String currentQuery = "";         // Filter currently applied to the list
+    private List<Event> displayedEvents = new ArrayList<>();  // Last list handed to the adapter
+    private boolean hasMoreBefore, hasMoreAfter;  // Whether the unfiltered window can grow either way
+    private boolean pageLoading;              // A page query is in flight
     private Button addEventButton, logoutButton;
+    private final Handler filterHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingFilter;
+    private EventChangeNotifier.Subscription changeSubscription;  // Writes to this user's events
+    private boolean firstRowsReported;        // reportFullyDrawn() has been called
+    private long rebuildStart = PerfMetrics.NOT_TIMED;  // Rebuild in progress, if measured
+    private int rebuildCookie;                // Tells overlapping rebuilds apart in traces
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        Trace.beginSection("EventGridActivity.onCreate");
+        Trace.beginAsyncSection(TRACE_FIRST_ROWS, 0);
+        try {
+            super.onCreate(savedInstanceState);
+            createGrid();
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private void createGrid() {
         setContentView(R.layout.activity_event_grid);
 
         // Retrieve userId from previous screen (MainActivity)
         userId = getIntent().getIntExtra("userId", -1);
-        dbHelper = new DatabaseHelper(this);  // Initialize DB helper
+        repository = EventRepository.getInstance(this);
 
         // Link layout views
         initializeViews();
@@ -42,36 +87,55 @@ public class EventGridActivity extends AppCompatActivity {
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterAndDisplayEvents(s.toString().trim());
+                String query = s.toString().trim();
+                filterHandler.removeCallbacks(pendingFilter);
+                pendingFilter = () -> filterAndDisplayEvents(query);
+                filterHandler.postDelayed(pendingFilter, FILTER_DEBOUNCE_MS);
             }
             @Override
             public void afterTextChanged(android.text.Editable s) {}
         });
 
-        // Load current user’s events
+        // Load current user’s events, then follow changes to them
         loadUserEvents();
+        changeSubscription = repository.observeEvents(userId, this::applyChanges);
 
         // Set up button click actions
         setupAddButtonListener();
         setupLogoutButton();
+
+        ReminderAlarmReceiver.startRemindersIfEnabled(this, userId);
     }
 
     // Connect layout views to variables
     private void initializeViews() {
-        eventTable = findViewById(R.id.eventTable);
+        eventList = findViewById(R.id.eventList);
+        eventAdapter = new EventAdapter(this::deleteEvent);
+        eventList.setLayoutManager(new LinearLayoutManager(this));
+        eventList.setAdapter(eventAdapter);
+        eventList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                loadMoreIfNeeded();
+            }
+        });
         addEventButton = findViewById(R.id.addEventButton);
         logoutButton = findViewById(R.id.logoutButton);
         filterInput = findViewById(R.id.filterInput);
+        findViewById(R.id.header).setOnLongClickListener(v -> {
+            startActivity(new Intent(this, PerfDebugActivity.class));
+            return true;
+        });
     }
 
-    // Load all events for this user and display in table
+    // Load the first page of this user's events and display in the list
     private void loadUserEvents() {
-        loadEventsFromDatabase(eventTable);
+        loadEventsFromDatabase();
     }
 
     // Set up add event button
     private void setupAddButtonListener() {
-        addEventButton.setOnClickListener(v -> openAddEventDialog(eventTable));
+        addEventButton.setOnClickListener(v -> openAddEventDialog());
     }
 
     // Clears login session and returns to login screen
@@ -81,7 +145,9 @@ public class EventGridActivity extends AppCompatActivity {
             SharedPreferences.Editor editor = prefs.edit();
             editor.putBoolean("isLoggedIn", false);
             editor.remove("userId");
+            editor.remove("reminderPhoneNumber");
             editor.apply();
+            repository.releaseUser(userId);
 
             // Redirect to login
             Intent intent = new Intent(EventGridActivity.this, MainActivity.class);
@@ -91,32 +157,156 @@ public class EventGridActivity extends AppCompatActivity {
         });
     }
 
-    // Fetch events from DB, sort them, and display
-    private void loadEventsFromDatabase(TableLayout tableLayout) {
-        tableLayout.removeAllViews(); // Clear any old rows
+    // Adds the performance report to `adb shell dumpsys activity ...EventGridActivity`
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd, @NonNull PrintWriter writer,
+                     @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Performance metrics:");
+        for (String line : PerfMetrics.report().split("\n")) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(line);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        filterHandler.removeCallbacksAndMessages(null);
+        changeSubscription.unsubscribe();
+        if (!firstRowsReported) {
+            Trace.endAsyncSection(TRACE_FIRST_ROWS, 0);  // Left before anything was shown
+        }
+        GRID_REBUILD.cancelAsync(rebuildStart, rebuildCookie);
+        repository.cancelReads(userId);  // Don't deliver results to a dead screen
+        super.onDestroy();
+    }
 
-        List<Event> eventList = dbHelper.getUserEventsList(userId);
+    // Fetch the first page of events (sorted by start time) in the background, then display.
+    // Further pages load as the user scrolls, so memory follows the window, not the account.
+    private void loadEventsFromDatabase() {
+        loadWindow(Long.MIN_VALUE, 0, PAGE_SIZE);
+    }
 
-        // Sort events by date + time ascending
-        eventList.sort((e1, e2) -> {
-            String dateTime1 = e1.getDate() + " " + e1.getTime();
-            String dateTime2 = e2.getDate() + " " + e2.getTime();
-            return dateTime1.compareTo(dateTime2);
+    // Loads `size` events starting at a (start, ID) position and makes them the whole window
+    private void loadWindow(long startMillis, int eventId, int size) {
+        boolean atBeginning = startMillis == Long.MIN_VALUE && eventId == 0;
+        pageLoading = true;
+        repository.loadEventsFrom(userId, startMillis, eventId, size, page -> {
+            pageLoading = false;
+            hasMoreBefore = !atBeginning;
+            hasMoreAfter = page.size() == size;
+            showEvents(page);
         });
+    }
+
+    // Re-runs whatever the list is currently showing (the scrolled window or the active filter)
+    private void refreshEvents() {
+        if (!currentQuery.isEmpty()) {
+            filterAndDisplayEvents(currentQuery);
+        } else if (!hasMoreBefore || displayedEvents.isEmpty()) {
+            loadWindow(Long.MIN_VALUE, 0, Math.max(PAGE_SIZE, displayedEvents.size()));
+        } else {
+            Event first = displayedEvents.get(0);
+            loadWindow(first.getStartMillis(), first.getId(), displayedEvents.size());
+        }
+    }
 
-        for (Event event : eventList) {
-            addEventRow(tableLayout, event.getName(), event.getDate(), event.getId());
+    // Grows the unfiltered window when the user scrolls near either edge of it
+    private void loadMoreIfNeeded() {
+        if (pageLoading || !currentQuery.isEmpty() || displayedEvents.isEmpty()) {
+            return;
         }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) eventList.getLayoutManager();
+        if (hasMoreAfter && layoutManager.findLastVisibleItemPosition() >= displayedEvents.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        } else if (hasMoreBefore && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+            loadPreviousPage();
+        }
+    }
+
+    // Appends the page after the window, dropping rows off the top past MAX_WINDOW_SIZE
+    private void loadNextPage() {
+        Event last = displayedEvents.get(displayedEvents.size() - 1);
+        pageLoading = true;
+        repository.loadEventsFrom(userId, last.getStartMillis(), last.getId() + 1, PAGE_SIZE, page -> {
+            pageLoading = false;
+            hasMoreAfter = page.size() == PAGE_SIZE;
+            List<Event> window = new ArrayList<>(displayedEvents);
+            window.addAll(page);
+            if (window.size() > MAX_WINDOW_SIZE) {
+                window.subList(0, window.size() - MAX_WINDOW_SIZE).clear();
+                hasMoreBefore = true;
+            }
+            showEvents(window);
+        });
+    }
+
+    // Prepends the page before the window, dropping rows off the bottom past MAX_WINDOW_SIZE
+    private void loadPreviousPage() {
+        Event first = displayedEvents.get(0);
+        pageLoading = true;
+        repository.loadEventsBefore(userId, first.getStartMillis(), first.getId(), PAGE_SIZE, page -> {
+            pageLoading = false;
+            hasMoreBefore = page.size() == PAGE_SIZE;
+            List<Event> window = new ArrayList<>(page);
+            window.addAll(displayedEvents);
+            if (window.size() > MAX_WINDOW_SIZE) {
+                window.subList(MAX_WINDOW_SIZE, window.size()).clear();
+                hasMoreAfter = true;
+            }
+            showEvents(window);
+        });
+    }
+
+    // Hands a new list to the adapter, which diffs it against what is on screen
+    // so unchanged rows are left alone
+    private void showEvents(List<Event> events) {
+        displayedEvents = events;
+        // A list submitted before the previous one was applied replaces it, and the
+        // previous one's callback never runs
+        GRID_REBUILD.cancelAsync(rebuildStart, rebuildCookie);
+        int cookie = ++rebuildCookie;
+        rebuildStart = GRID_REBUILD.beginAsync(cookie);
+        eventAdapter.submitList(events, () -> {
+            if (cookie == rebuildCookie) {
+                GRID_REBUILD.endAsync(rebuildStart, cookie, events.size());
+                rebuildStart = PerfMetrics.NOT_TIMED;
+            }
+            if (!firstRowsReported) {
+                reportFirstRows();
+            }
+        });
+    }
+
+    // Marks the end of start-up once the first list has been laid out, for startup
+    // traces and the "Fully drawn" time in logcat
+    private void reportFirstRows() {
+        if (firstRowsReported) {
+            return;
+        }
+        firstRowsReported = true;
+        eventList.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                eventList.getViewTreeObserver().removeOnPreDrawListener(this);
+                Trace.endAsyncSection(TRACE_FIRST_ROWS, 0);
+                reportFullyDrawn();
+                return true;
+            }
+        });
     }
 
     // Displays a dialog box to enter event name and date
-    private void openAddEventDialog(TableLayout tableLayout) {
+    private void openAddEventDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Add New Event");
 
         LinearLayout dialogLayout = buildDialogLayout();  // Create layout
         EditText eventNameInput = (EditText) dialogLayout.getChildAt(0);
         EditText eventDateInput = (EditText) dialogLayout.getChildAt(1);
+        Spinner repeatInput = (Spinner) dialogLayout.getChildAt(2);
 
         builder.setView(dialogLayout);
 
@@ -126,9 +316,11 @@ public class EventGridActivity extends AppCompatActivity {
             String eventDate = eventDateInput.getText().toString().trim();
 
             if (!eventName.isEmpty() && !eventDate.isEmpty()) {
-                if (dbHelper.addEvent(eventName, eventDate, "10:00 AM", userId)) {
-                    loadEventsFromDatabase(tableLayout);  // Refresh
-                }
+                // The new rows arrive through applyChanges
+                Recurrence.Frequency frequency = REPEAT_FREQUENCIES[repeatInput.getSelectedItemPosition()];
+                Recurrence recurrence = frequency != null
+                        ? new Recurrence(frequency, 1, 0, Recurrence.NO_END) : null;
+                repository.addRecurringEvent(eventName, eventDate, "10:00 AM", userId, recurrence, null);
             }
         });
 
@@ -147,66 +339,104 @@ public class EventGridActivity extends AppCompatActivity {
         EditText eventDateInput = new EditText(this);
         eventDateInput.setHint("Event Date (YYYY-MM-DD)");
 
+        Spinner repeatInput = new Spinner(this);
+        repeatInput.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, REPEAT_CHOICES));
+
         layout.addView(eventNameInput);
         layout.addView(eventDateInput);
+        layout.addView(repeatInput);
 
         return layout;
     }
 
-    // Adds a single row to the event table
-    private void addEventRow(TableLayout tableLayout, String eventNameText, String eventDateText, int eventId) {
-        TableRow newRow = new TableRow(this);
-
-        // Event name column
-        TextView eventName = new TextView(this);
-        eventName.setText(eventNameText);
-        eventName.setPadding(16, 16, 16, 16);
-        eventName.setMaxLines(2);
-        eventName.setEllipsize(android.text.TextUtils.TruncateAt.END);
-        eventName.setLayoutParams(new TableRow.LayoutParams(0, TableRow.LayoutParams.WRAP_CONTENT, 1));
-
-        // Event date column
-        TextView eventDate = new TextView(this);
-        eventDate.setText(eventDateText);
-        eventDate.setPadding(16, 16, 16, 16);
-        eventDate.setMaxLines(1);
-        eventDate.setEllipsize(android.text.TextUtils.TruncateAt.END);
-        eventDate.setLayoutParams(new TableRow.LayoutParams(0, TableRow.LayoutParams.WRAP_CONTENT, 1));
-
-        // Delete button
-        Button deleteButton = new Button(this);
-        deleteButton.setText("DELETE");
-        deleteButton.setTextColor(ContextCompat.getColor(this, android.R.color.white));
-        deleteButton.setBackgroundTintList(ContextCompat.getColorStateList(this, R.color.custom_red));
-        deleteButton.setLayoutParams(new TableRow.LayoutParams(TableRow.LayoutParams.WRAP_CONTENT, TableRow.LayoutParams.WRAP_CONTENT));
-        deleteButton.setOnClickListener(v -> {
-            if (dbHelper.deleteEvent(eventId)) {
-                tableLayout.removeView(newRow);  // Remove row from UI
+    // Deletes an event; its row is removed by applyChanges. For a recurring event, asks
+    // whether to remove just this occurrence or the whole series.
+    private void deleteEvent(Event event) {
+        if (!event.isRecurring()) {
+            repository.deleteEvent(event.getId(), null);
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Delete repeating event")
+                .setItems(new String[]{"This occurrence", "All occurrences"}, (dialog, which) -> {
+                    if (which == 0) {
+                        repository.skipOccurrence(event.getId(), event.getStartMillis(), null);
+                    } else {
+                        repository.deleteEvent(event.getId(), null);
+                    }
+                })
+                .show();
+    }
+
+    // Applies a batch of changes to this user's events, from this screen or anywhere else,
+    // to just the affected rows instead of reloading the window
+    private void applyChanges(List<EventChange> changes) {
+        if (!currentQuery.isEmpty()) {
+            filterAndDisplayEvents(currentQuery);  // Matches may have changed; the search is bounded
+            return;
+        }
+        List<Event> window = new ArrayList<>(displayedEvents);
+        // Occurrences of a changed series are only expanded across the loaded range
+        long windowStart = hasMoreBefore && !window.isEmpty() ? window.get(0).getStartMillis() : Long.MIN_VALUE;
+        long windowEnd = hasMoreAfter && !window.isEmpty()
+                ? window.get(window.size() - 1).getStartMillis() + 1 : Recurrence.NO_END;
+        for (EventChange change : changes) {
+            switch (change.getType()) {
+                case RELOADED:
+                    refreshEvents();
+                    return;
+                case DELETED:
+                    window.removeIf(e -> e.getId() == change.getEventId());
+                    break;
+                case UPDATED:
+                    window.removeIf(e -> e.getId() == change.getEventId());
+                    insertInWindow(window, change.getEvent(), windowStart, windowEnd);
+                    break;
+                case INSERTED:
+                    insertInWindow(window, change.getEvent(), windowStart, windowEnd);
+                    break;
             }
-        });
+        }
+        if (window.size() > MAX_WINDOW_SIZE) {
+            window.subList(MAX_WINDOW_SIZE, window.size()).clear();
+            hasMoreAfter = true;
+        }
+        showEvents(window);
+    }
 
-        // Add columns to row
-        newRow.addView(eventName);
-        newRow.addView(eventDate);
-        newRow.addView(deleteButton);
+    // Puts an event (or each occurrence of a series) at its start-order position, unless that
+    // falls outside the loaded window; it will be paged in when the user scrolls there
+    private void insertInWindow(List<Event> window, Event event, long windowStart, long windowEnd) {
+        if (!event.isRecurring()) {
+            insertInWindow(window, event);
+            return;
+        }
+        for (Event occurrence : event.getRecurrence().occurrencesBetween(event, windowStart, windowEnd, MAX_WINDOW_SIZE)) {
+            insertInWindow(window, occurrence);
+        }
+    }
 
-        // Add row to table layout
-        tableLayout.addView(newRow);
+    private void insertInWindow(List<Event> window, Event event) {
+        int position = Collections.binarySearch(window, event, Event.START_ORDER);
+        if (position >= 0) {
+            return;  // Already there
+        }
+        position = -position - 1;
+        boolean beforeWindow = position == 0 && hasMoreBefore;
+        boolean afterWindow = position == window.size() && hasMoreAfter;
+        if (!beforeWindow && !afterWindow) {
+            window.add(position, event);
+        }
     }
 
     // Filters events based on user input in search field
     private void filterAndDisplayEvents(String query) {
-        eventTable.removeAllViews();  // Clear table
-
-        List<Event> eventList = dbHelper.getUserEventsList(userId);
-
-        for (Event event : eventList) {
-            String name = event.getName().toLowerCase();
-            String date = event.getDate().toLowerCase();
-
-            if (name.contains(query.toLowerCase()) || date.contains(query.toLowerCase())) {
-                addEventRow(eventTable, event.getName(), event.getDate(), event.getId());
-            }
+        currentQuery = query;
+        if (query.isEmpty()) {
+            loadEventsFromDatabase();  // Back to the paged, unfiltered list
+            return;
         }
+        pageLoading = false;  // Any pending page load is cancelled by this search
+        repository.filterUserEvents(userId, query, SEARCH_LIMIT, this::showEvents);
     }
 }
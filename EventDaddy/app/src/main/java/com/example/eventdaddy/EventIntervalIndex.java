@@ -0,0 +1,68 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Answers "which events overlap [from, to)" from memory for a fixed set of events, such as
+// one range loaded from the store for a calendar that is being scrolled.
+// Events are sorted by start, and maxEnds[i] holds the latest end among events 0..i. Both
+// only grow along the array, so two binary searches bound the events worth checking: the
+// first one that could still be running at `from`, and the first that starts at or after
+// `to`. Long events are found exactly, without guessing how far back to look.
+public final class EventIntervalIndex {
+
+    private final Event[] events;
+    private final long[] starts;
+    private final long[] maxEnds;
+    private final long coveredFrom;
+    private final long coveredTo;
+
+    // `events` must be every event overlapping [coveredFrom, coveredTo), in any order
+    public EventIntervalIndex(List<Event> events, long coveredFrom, long coveredTo) {
+        this.events = events.toArray(new Event[0]);
+        Arrays.sort(this.events, Event.START_ORDER);
+        this.starts = new long[this.events.length];
+        this.maxEnds = new long[this.events.length];
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < this.events.length; i++) {
+            Event event = this.events[i];
+            starts[i] = event.getStartMillis();
+            maxEnd = Math.max(maxEnd, Math.max(event.getStartMillis(), event.getEndMillis()));
+            maxEnds[i] = maxEnd;
+        }
+        this.coveredFrom = coveredFrom;
+        this.coveredTo = coveredTo;
+    }
+
+    // True if every event overlapping [fromMillis, toMillis) is in the index
+    public boolean covers(long fromMillis, long toMillis) {
+        return fromMillis >= coveredFrom && toMillis <= coveredTo;
+    }
+
+    public int size() {
+        return events.length;
+    }
+
+    // Events overlapping [fromMillis, toMillis) (see Event.overlaps), in start order
+    public List<Event> overlapping(long fromMillis, long toMillis) {
+        // First event whose own or any earlier event's end passes `from`, or that starts at it
+        int low = 0;
+        int high = events.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid] > fromMillis || starts[mid] >= fromMillis) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        List<Event> overlapping = new ArrayList<>();
+        for (int i = low; i < events.length && starts[i] < toMillis; i++) {
+            if (events[i].overlaps(fromMillis, toMillis)) {
+                overlapping.add(events[i]);
+            }
+        }
+        return overlapping;
+    }
+}
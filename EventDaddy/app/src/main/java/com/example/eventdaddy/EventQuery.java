@@ -0,0 +1,331 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+// Filters, orders and limits the rows of an EventSnapshot, e.g. one user's events held in
+// memory. Built once from composable parts and run against any number of snapshots:
+//   EventQuery.builder().nameContains("game").startingBetween(from, to)
+//           .orderBy(EventQuery.BY_NAME).limit(100).build().run(snapshot)
+// Everything works on row indexes and the snapshot's primitive columns, so a query creates
+// no Event objects; the returned view creates them only for the rows that get displayed.
+// With a limit, only the best `limit` rows are kept in a bounded heap while scanning
+// (O(n log k)) instead of sorting every match. Snapshots of PARALLEL_THRESHOLD rows or more
+// are split into slices that are filtered and ordered on separate cores, then merged.
+// Rows that compare equal keep snapshot order, so results never depend on the split.
+public final class EventQuery {
+
+    // Smallest snapshot worth splitting across threads
+    public static final int PARALLEL_THRESHOLD = 50_000;
+
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private static final PerfMetrics.Timer RUN = PerfMetrics.timer("query.run");
+
+    // Orders two rows of a snapshot, like a Comparator over row indexes
+    public interface RowOrder {
+        int compare(EventSnapshot snapshot, int rowA, int rowB);
+
+        default RowOrder reversed() {
+            return (snapshot, a, b) -> compare(snapshot, b, a);
+        }
+
+        default RowOrder thenComparing(RowOrder next) {
+            return (snapshot, a, b) -> {
+                int result = compare(snapshot, a, b);
+                return result != 0 ? result : next.compare(snapshot, a, b);
+            };
+        }
+    }
+
+    public static final RowOrder BY_START =
+            (snapshot, a, b) -> Long.compare(snapshot.getStartMillis(a), snapshot.getStartMillis(b));
+    public static final RowOrder BY_END =
+            (snapshot, a, b) -> Long.compare(snapshot.getEndMillis(a), snapshot.getEndMillis(b));
+    public static final RowOrder BY_NAME = EventSnapshot::compareNames;
+    public static final RowOrder BY_ID = (snapshot, a, b) -> Integer.compare(snapshot.getId(a), snapshot.getId(b));
+
+    // Same order as getUserEventsList: start time, then ID
+    public static final RowOrder BY_START_THEN_ID = BY_START.thenComparing(BY_ID);
+
+    private final EventSnapshot.RowPredicate[] predicates;
+    private final RowOrder order;  // Null keeps snapshot order
+    private final int limit;
+
+    private EventQuery(Builder builder) {
+        predicates = builder.predicates.toArray(new EventSnapshot.RowPredicate[0]);
+        order = builder.order;
+        limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Runs the query, splitting large snapshots across the common pool
+    public EventSnapshot.View run(EventSnapshot snapshot) {
+        int slices = snapshot.size() >= PARALLEL_THRESHOLD
+                ? Math.min(Runtime.getRuntime().availableProcessors(), snapshot.size() / (PARALLEL_THRESHOLD / 4))
+                : 1;
+        long start = RUN.begin();
+        EventSnapshot.View rows = null;
+        try {
+            return rows = run(snapshot, ForkJoinPool.commonPool(), slices);
+        } finally {
+            RUN.end(start, rows != null ? rows.size() : 0);
+        }
+    }
+
+    // Visible for tests and benchmarks: runs in `slices` parts, all but the first on the
+    // executor, the first on the calling thread
+    EventSnapshot.View run(EventSnapshot snapshot, Executor executor, int slices) {
+        int size = snapshot.size();
+        if (slices <= 1 || size < 2) {
+            return snapshot.view(select(snapshot, 0, size));
+        }
+        List<FutureTask<int[]>> parts = new ArrayList<>();
+        for (int i = 1; i < slices; i++) {
+            int from = (int) ((long) size * i / slices);
+            int to = (int) ((long) size * (i + 1) / slices);
+            FutureTask<int[]> part = new FutureTask<>(() -> select(snapshot, from, to));
+            parts.add(part);
+            executor.execute(part);
+        }
+        int[] rows = select(snapshot, 0, size / slices);
+        for (FutureTask<int[]> part : parts) {
+            int[] next;
+            try {
+                next = part.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Query interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Query failed", e.getCause());
+            }
+            rows = order == null ? concat(rows, next) : merge(snapshot, rows, next);
+        }
+        return snapshot.view(rows);
+    }
+
+    // Matching rows among [from, to), ordered and cut to the limit
+    private int[] select(EventSnapshot snapshot, int from, int to) {
+        if (limit == 0) {
+            return new int[0];
+        }
+        if (order == null) {
+            return firstMatches(snapshot, from, to);
+        }
+        if (limit < (to - from) / 4) {
+            return topMatches(snapshot, from, to);
+        }
+        int[] rows = new int[to - from];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (matches(snapshot, row)) {
+                rows[count++] = row;
+            }
+        }
+        sort(snapshot, rows, new int[count], 0, count);
+        return Arrays.copyOf(rows, Math.min(count, limit));
+    }
+
+    // Without an order the first `limit` matches are the answer, so the scan stops there
+    private int[] firstMatches(EventSnapshot snapshot, int from, int to) {
+        int[] rows = new int[Math.min(to - from, limit)];
+        int count = 0;
+        for (int row = from; row < to && count < rows.length; row++) {
+            if (matches(snapshot, row)) {
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    // The `limit` best matches, kept in a max-heap whose root is the worst one held
+    private int[] topMatches(EventSnapshot snapshot, int from, int to) {
+        int[] heap = new int[limit];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (!matches(snapshot, row)) {
+                continue;
+            }
+            if (count < limit) {
+                heap[count] = row;
+                siftUp(snapshot, heap, count++);
+            } else if (compare(snapshot, row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(snapshot, heap, count);
+            }
+        }
+        sort(snapshot, heap, new int[count], 0, count);
+        return Arrays.copyOf(heap, count);
+    }
+
+    private boolean matches(EventSnapshot snapshot, int row) {
+        for (EventSnapshot.RowPredicate predicate : predicates) {
+            if (!predicate.test(snapshot, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The query's order, falling back to snapshot position so no two rows are ever equal
+    private int compare(EventSnapshot snapshot, int a, int b) {
+        int result = order.compare(snapshot, a, b);
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    private void siftUp(EventSnapshot snapshot, int[] heap, int i) {
+        int row = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(snapshot, heap[parent], row) >= 0) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = row;
+    }
+
+    private void siftDown(EventSnapshot snapshot, int[] heap, int size) {
+        int row = heap[0];
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && compare(snapshot, heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (compare(snapshot, row, heap[child]) >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+
+    // Merge sort of rows[from, to)
+    private void sort(EventSnapshot snapshot, int[] rows, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(snapshot, rows, scratch, from, mid);
+        sort(snapshot, rows, scratch, mid, to);
+        if (compare(snapshot, rows[mid - 1], rows[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && compare(snapshot, scratch[left], scratch[right]) <= 0)) {
+                rows[i] = scratch[left++];
+            } else {
+                rows[i] = scratch[right++];
+            }
+        }
+    }
+
+    // Two ordered slices as one, cut to the limit
+    private int[] merge(EventSnapshot snapshot, int[] a, int[] b) {
+        int[] rows = new int[(int) Math.min((long) a.length + b.length, limit)];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < rows.length; k++) {
+            rows[k] = j >= b.length || (i < a.length && compare(snapshot, a[i], b[j]) <= 0) ? a[i++] : b[j++];
+        }
+        return rows;
+    }
+
+    private int[] concat(int[] a, int[] b) {
+        int[] rows = Arrays.copyOf(a, (int) Math.min((long) a.length + b.length, limit));
+        System.arraycopy(b, 0, rows, a.length, rows.length - a.length);
+        return rows;
+    }
+
+    // One piece of a query's results on its way to the screen; see
+    // EventRepository.streamUserEvents
+    public static final class Chunk {
+        private final List<Event> events;
+        private final int offset;
+        private final int total;
+
+        Chunk(List<Event> events, int offset, int total) {
+            this.events = events;
+            this.offset = offset;
+            this.total = total;
+        }
+
+        public List<Event> getEvents() { return events; }
+        public int getOffset() { return offset; }
+        public int getTotal() { return total; }
+
+        public boolean isLast() {
+            return offset + events.size() >= total;
+        }
+    }
+
+    public static final class Builder {
+        private final List<EventSnapshot.RowPredicate> predicates = new ArrayList<>();
+        private RowOrder order;
+        private int limit = NO_LIMIT;
+
+        private Builder() {
+        }
+
+        // Rows whose name contains the text, ignoring case
+        public Builder nameContains(String text) {
+            String lowerText = text.toLowerCase(Locale.ROOT);
+            return where((snapshot, row) -> snapshot.nameContains(row, lowerText));
+        }
+
+        // Rows starting in [fromMillis, toMillis)
+        public Builder startingBetween(long fromMillis, long toMillis) {
+            return where((snapshot, row) -> {
+                long start = snapshot.getStartMillis(row);
+                return start >= fromMillis && start < toMillis;
+            });
+        }
+
+        // Rows overlapping [fromMillis, toMillis), as in Event.overlaps
+        public Builder overlapping(long fromMillis, long toMillis) {
+            return where((snapshot, row) -> {
+                long start = snapshot.getStartMillis(row);
+                return start < toMillis && (snapshot.getEndMillis(row) > fromMillis || start >= fromMillis);
+            });
+        }
+
+        // Any other condition; every condition added must hold
+        public Builder where(EventSnapshot.RowPredicate predicate) {
+            predicates.add(predicate);
+            return this;
+        }
+
+        // Orders results by the key, or by the next key where it ties
+        public Builder orderBy(RowOrder key) {
+            order = order == null ? key : order.thenComparing(key);
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Negative limit: " + limit);
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        public EventQuery build() {
+            return new EventQuery(this);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.eventdaddy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Holds the last range of events loaded for each user's calendar in an EventIntervalIndex,
+// so moving between nearby weeks or months is answered from memory. A miss loads the
+// requested window plus one window length on each side, which covers the next scroll in
+// either direction. Any change to the user's events, from any writer, drops their range.
+public class EventRangeCache {
+
+    private final EventStore store;
+    private final Map<Integer, UserRange> ranges = new ConcurrentHashMap<>();
+
+    public EventRangeCache(EventStore store) {
+        this.store = store;
+    }
+
+    // The user's events and occurrences overlapping [fromMillis, toMillis), in start order.
+    // Queries the store only if the cached range doesn't cover the window. Call off the main thread.
+    public List<Event> overlapping(int userId, long fromMillis, long toMillis) {
+        UserRange range = ranges.computeIfAbsent(userId, UserRange::new);
+        EventIntervalIndex index = range.index;
+        if (index != null && index.covers(fromMillis, toMillis)) {
+            return index.overlapping(fromMillis, toMillis);
+        }
+        long generation;
+        synchronized (range) {
+            generation = range.generation;
+        }
+        long span = Math.max(0, toMillis - fromMillis);  // Negative if the subtraction overflowed
+        long loadFrom = Recurrence.minus(fromMillis, span);
+        long loadTo = toMillis > Long.MAX_VALUE - span ? Long.MAX_VALUE : toMillis + span;
+        index = new EventIntervalIndex(store.getUserEventsOverlapping(userId, loadFrom, loadTo), loadFrom, loadTo);
+        synchronized (range) {
+            if (range.generation == generation) {
+                range.index = index;  // Otherwise the events changed during the query; don't keep it
+            }
+        }
+        return index.overlapping(fromMillis, toMillis);
+    }
+
+    // Forgets a user's range and stops watching their events, e.g. on logout
+    public void release(int userId) {
+        UserRange range = ranges.remove(userId);
+        if (range != null) {
+            range.subscription.unsubscribe();
+        }
+    }
+
+    public void clear() {
+        for (Integer userId : ranges.keySet()) {
+            release(userId);
+        }
+    }
+
+    private final class UserRange {
+        private final EventChangeNotifier.Subscription subscription;
+        private volatile EventIntervalIndex index;
+        private long generation;  // Bumped on every change; guarded by this
+
+        UserRange(int userId) {
+            // Delivered on the writer's thread, so the range is dropped before the write returns
+            subscription = store.getChangeNotifier().subscribe(userId, Runnable::run, changes -> {
+                synchronized (this) {
+                    generation++;
+                    index = null;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,553 @@
+package com.example.eventdaddy;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+import android.widget.Toast;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs all EventStore work off the UI thread.
+// Writes go through a single writer thread so they never race each other, reads share a
+// small fixed pool, and every result is handed back on the callback executor (the main
+// looper in the app). Starting a new read with the same key cancels the older one, so a
+// slow query can never overwrite the result of a newer one.
+public class EventRepository {
+
+    private static final String TAG = "EventRepository";
+    private static final int READER_THREADS = 2;
+    // Share of the heap the snapshot cache may use, as a divisor of Runtime.maxMemory()
+    private static final int SNAPSHOT_CACHE_HEAP_FRACTION = 8;
+
+    private static volatile EventRepository instance;
+
+    // Told about failures whose callback doesn't handle them itself; does nothing until
+    // getInstance sets up the app's reporter
+    private static volatile ErrorReporter errorReporter = error -> { };
+
+    private final EventStore store;
+    private final ExecutorService readExecutor;
+    private final ExecutorService writeExecutor;
+    private final Executor callbackExecutor;
+
+    // Latest read per key, e.g. one per user's event grid
+    private final Map<String, ReadTask<?>> latestReads = new ConcurrentHashMap<>();
+
+    // First pages fetched ahead of the screen that shows them; dropped by any change to the
+    // user's events, through the change notifier so imports, sync and archiving count too
+    private final Map<Integer, PrefetchedPage> prefetchedPages = new ConcurrentHashMap<>();
+
+    // Last calendar range loaded per user, reused while the user scrolls around it
+    private final EventRangeCache rangeCache;
+
+    // Every row of recently used users' events, for full loads and in-memory queries
+    private final EventSnapshotCache snapshotCache;
+
+    // Reminder engine for the logged-in user, if reminders are enabled
+    private volatile ReminderScheduler reminderScheduler;
+
+    // Receives the result of a repository call on the callback executor
+    public interface Callback<T> {
+        void onResult(T result);
+
+        // By default a failed call goes to the ErrorReporter (logged, and a short message in
+        // the app) instead of crashing; override to recover in place
+        default void onError(Throwable error) {
+            errorReporter.report(error);
+        }
+    }
+
+    // Handles errors that reach a Callback without an onError of its own; called on the
+    // callback executor
+    public interface ErrorReporter {
+        void report(Throwable error);
+    }
+
+    // Returns the app-wide repository, delivering callbacks on the main looper
+    public static EventRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (EventRepository.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    PerfDebugActivity.restoreSettings(appContext);
+                    setErrorReporter(error -> {
+                        Log.e(TAG, "Event storage call failed", error);
+                        Toast.makeText(appContext, "Something went wrong. Please try again.", Toast.LENGTH_SHORT).show();
+                    });
+                    EventRepository repository = new EventRepository(
+                            new InstrumentedEventStore(DatabaseHelper.getInstance(appContext)),
+                            Executors.newFixedThreadPool(READER_THREADS, namedThreads("EventRepository-reader")),
+                            Executors.newSingleThreadExecutor(namedThreads("EventRepository-writer")),
+                            appContext.getMainExecutor(),
+                            Runtime.getRuntime().maxMemory() / SNAPSHOT_CACHE_HEAP_FRACTION);
+                    appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+                        @Override
+                        public void onTrimMemory(int level) {
+                            repository.snapshotCache.onTrimMemory(level);
+                        }
+
+                        @Override
+                        public void onLowMemory() {
+                            repository.snapshotCache.evictAll();
+                        }
+
+                        @Override
+                        public void onConfigurationChanged(Configuration newConfig) {
+                        }
+                    });
+                    instance = repository;
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Replaces the reporter for unhandled errors, e.g. to record them in tests
+    static void setErrorReporter(ErrorReporter reporter) {
+        errorReporter = reporter;
+    }
+
+    // Visible for tests: lets the threading be driven without a device
+    EventRepository(EventStore store, ExecutorService readExecutor,
+                    ExecutorService writeExecutor, Executor callbackExecutor, long snapshotCacheBytes) {
+        this.store = store;
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.rangeCache = new EventRangeCache(store);
+        this.snapshotCache = new EventSnapshotCache(store, snapshotCacheBytes);
+    }
+
+    // Loads a user's events, ordered by start time, then ID (see EventSnapshotCache)
+    public Future<List<Event>> loadUserEvents(int userId, Callback<List<Event>> callback) {
+        return submitRead(eventsKey(userId), () -> snapshotCache.get(userId).all(), callback);
+    }
+
+    // Starts loading the first page of a user's events before any screen asks for it, so
+    // opening the database and running the query overlap with activity start-up. The next
+    // loadEventsFrom for that same page takes this result instead of querying again.
+    public Future<List<Event>> prefetchFirstPage(int userId, int pageSize) {
+        PrefetchTask page = new PrefetchTask(
+                () -> store.getUserEventsFrom(userId, Long.MIN_VALUE, 0, pageSize));
+        PrefetchedPage prefetched = new PrefetchedPage(pageSize, page);
+        // Subscribed before the query runs, so a change made while it runs drops it too
+        prefetched.subscription = store.getChangeNotifier().subscribe(userId, Runnable::run,
+                changes -> dropPrefetchedPage(userId, prefetched));
+        PrefetchedPage previous = prefetchedPages.putIfAbsent(userId, prefetched);
+        if (previous != null) {
+            prefetched.unsubscribe();
+            return previous.page;
+        }
+        readExecutor.execute(page);
+        return page;
+    }
+
+    // Loads one page of a user's events at or after a (start, ID) position, in start order
+    public Future<List<Event>> loadEventsFrom(int userId, long startMillis, int eventId, int pageSize,
+                                              Callback<List<Event>> callback) {
+        boolean firstPage = startMillis == Long.MIN_VALUE && eventId == 0;
+        PrefetchedPage prefetched = firstPage ? prefetchedPages.remove(userId) : null;
+        if (prefetched != null) {
+            prefetched.unsubscribe();
+        }
+        ReadTask<List<Event>> task = new ReadTask<>(eventsKey(userId),
+                () -> store.getUserEventsFrom(userId, startMillis, eventId, pageSize), callback);
+        if (prefetched == null || prefetched.pageSize != pageSize) {
+            return submit(task);
+        }
+        // Nobody waits on the prefetch: its result completes the task when the query finishes,
+        // and only a failed prefetch takes a reader thread to query again
+        supersede(task);
+        prefetched.page.whenDone(() -> {
+            try {
+                task.complete(prefetched.page.get());
+            } catch (ExecutionException | CancellationException | InterruptedException e) {
+                readExecutor.execute(task);
+            }
+        });
+        return task;
+    }
+
+    // Loads one page of a user's events before a (start, ID) position, in start order
+    public Future<List<Event>> loadEventsBefore(int userId, long startMillis, int eventId, int pageSize,
+                                                Callback<List<Event>> callback) {
+        return submitRead(eventsKey(userId),
+                () -> store.getUserEventsBefore(userId, startMillis, eventId, pageSize), callback);
+    }
+
+    // Returns up to `limit` of the user's events matching the query. Word-prefix matches
+    // from the full-text index come first, best first (see DatabaseHelper.searchUserEvents);
+    // any room left goes to events that only contain the text mid-word, such as "eet" in
+    // "Meeting", in start order (see DatabaseHelper.searchUserEventsContaining). Both are
+    // bounded by the limit, so neither reads the whole account. Shares its key with the
+    // page loads so a newer keystroke cancels any pending load or search.
+    public Future<List<Event>> filterUserEvents(int userId, String query, int limit,
+                                                Callback<List<Event>> callback) {
+        return submitRead(eventsKey(userId), () -> {
+            List<Event> matches = new ArrayList<>(store.searchUserEvents(userId, query, limit));
+            String text = query.trim();
+            if (matches.size() >= limit || text.isEmpty()) {
+                return matches;
+            }
+            Set<Integer> found = new HashSet<>();
+            for (Event event : matches) {
+                found.add(event.getId());
+            }
+            // Asks for enough rows to fill the limit even if every word match comes back again
+            for (Event event : store.searchUserEventsContaining(userId, text, limit + matches.size())) {
+                if (matches.size() >= limit) {
+                    break;
+                }
+                if (found.add(event.getId())) {
+                    matches.add(event);
+                }
+            }
+            return matches;
+        }, callback);
+    }
+
+    // Runs a query over the user's events in memory (see EventQuery) and hands the results
+    // to the callback chunkSize events at a time, first rows first, so the screen can show
+    // the top of a long result while the rest is still being turned into Events. Shares its
+    // key with the page loads: a newer load or query stops the delivery of older chunks.
+    public Future<Integer> streamUserEvents(int userId, EventQuery query, int chunkSize,
+                                            Callback<EventQuery.Chunk> callback) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        String key = eventsKey(userId);
+        AtomicReference<ReadTask<Integer>> self = new AtomicReference<>();
+        ReadTask<Integer> task = new ReadTask<>(key, () -> {
+            EventSnapshot.View rows = query.run(snapshotCache.get(userId));
+            int offset = 0;
+            do {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                int end = Math.min(offset + chunkSize, rows.size());
+                EventQuery.Chunk chunk = new EventQuery.Chunk(new ArrayList<>(rows.subList(offset, end)),
+                        offset, rows.size());
+                callbackExecutor.execute(() -> {
+                    if (latestReads.get(key) == self.get()) {
+                        callback.onResult(chunk);
+                    }
+                });
+                offset = end;
+            } while (offset < rows.size());
+            return rows.size();
+        }, new Callback<Integer>() {
+            @Override
+            public void onResult(Integer total) {
+                // Already delivered chunk by chunk
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                callback.onError(error);
+            }
+        });
+        self.set(task);
+        return submit(task);
+    }
+
+    // Loads the user's events and occurrences overlapping [fromMillis, toMillis), e.g. the week
+    // or month a calendar shows. Nearby windows come from memory (see EventRangeCache).
+    public Future<List<Event>> loadEventsOverlapping(int userId, long fromMillis, long toMillis,
+                                                     Callback<List<Event>> callback) {
+        return submitRead(rangeKey(userId), () -> rangeCache.overlapping(userId, fromMillis, toMillis), callback);
+    }
+
+    // Loads per-day event counts for a month grid
+    public Future<MonthSummary> loadMonthSummary(int userId, YearMonth month, Callback<MonthSummary> callback) {
+        return submitRead("month:" + userId, () -> store.getUserMonthSummary(userId, month), callback);
+    }
+
+    // Delivers batches of the user's event changes on the callback executor until unsubscribed
+    public EventChangeNotifier.Subscription observeEvents(int userId, EventChangeNotifier.Listener listener) {
+        return store.getChangeNotifier().subscribe(userId, callbackExecutor, listener);
+    }
+
+    // Checks credentials and resolves the user's ID; returns -1 if the login is invalid.
+    // Runs as a write, since a successful login may rewrite an outdated password hash.
+    public Future<Integer> login(String username, String password, Callback<Integer> callback) {
+        return submitWrite(() -> store.authenticate(username, password), callback);
+    }
+
+    public Future<Boolean> addUser(String username, String password, Callback<Boolean> callback) {
+        return submitWrite(() -> store.addUser(username, password), callback);
+    }
+
+    public Future<Boolean> addEvent(String eventName, String eventDate, String eventTime, int userId,
+                                    Callback<Boolean> callback) {
+        return addRecurringEvent(eventName, eventDate, eventTime, userId, null, callback);
+    }
+
+    // Adds an event that repeats by the rule; null adds a one-off event like addEvent
+    public Future<Boolean> addRecurringEvent(String eventName, String eventDate, String eventTime, int userId,
+                                             Recurrence recurrence, Callback<Boolean> callback) {
+        return submitWrite(
+                () -> store.insertRecurringEvent(eventName, eventDate, eventTime, userId, recurrence) != -1, callback);
+    }
+
+    public Future<Boolean> updateEvent(int eventId, String eventName, String eventDate, String eventTime,
+                                       Callback<Boolean> callback) {
+        return submitWrite(() -> store.updateEvent(eventId, eventName, eventDate, eventTime), callback);
+    }
+
+    public Future<Boolean> deleteEvent(int eventId, Callback<Boolean> callback) {
+        return submitWrite(() -> store.deleteEvent(eventId), callback);
+    }
+
+    // Removes a single occurrence of a recurring event, keeping the rest of the series
+    public Future<Boolean> skipOccurrence(int eventId, long occurrenceStart, Callback<Boolean> callback) {
+        return submitWrite(() -> store.skipOccurrence(eventId, occurrenceStart), callback);
+    }
+
+    // Runs work that has to happen but not right away, such as scheduling maintenance, on the
+    // writer thread, which is idle while the app starts
+    public Future<?> runInBackground(Runnable task) {
+        return writeExecutor.submit(task);
+    }
+
+    // The snapshot cache, for its hit and miss counts
+    public EventSnapshotCache getSnapshotCache() {
+        return snapshotCache;
+    }
+
+    // Drops the pending read for a key, e.g. when the screen showing it goes away
+    public void cancelReads(int userId) {
+        ReadTask<?> pending = latestReads.remove(eventsKey(userId));
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    // Starts sending reminders through the given scheduler, replacing (and stopping) any
+    // previous one
+    public synchronized void startReminders(ReminderScheduler scheduler) {
+        stopReminders();
+        reminderScheduler = scheduler;
+        scheduler.start();
+    }
+
+    // Stops the current reminder scheduler, if any
+    public synchronized void stopReminders() {
+        if (reminderScheduler != null) {
+            reminderScheduler.shutdown();
+            reminderScheduler = null;
+        }
+    }
+
+    // The running reminder scheduler, or null if reminders are off
+    public ReminderScheduler getReminders() {
+        return reminderScheduler;
+    }
+
+    // True if reminders are already running for the user
+    public boolean hasReminders(int userId) {
+        ReminderScheduler reminders = reminderScheduler;
+        return reminders != null && reminders.getUserId() == userId;
+    }
+
+    // Forgets everything held in memory for a user, e.g. on logout
+    public void releaseUser(int userId) {
+        cancelReads(userId);
+        PrefetchedPage prefetched = prefetchedPages.remove(userId);
+        if (prefetched != null) {
+            prefetched.unsubscribe();
+        }
+        rangeCache.release(userId);
+        snapshotCache.release(userId);
+        if (hasReminders(userId)) {
+            stopReminders();
+        }
+    }
+
+    // Stops the worker threads; pending callbacks are not delivered
+    public void shutdown() {
+        latestReads.clear();
+        for (PrefetchedPage prefetched : prefetchedPages.values()) {
+            prefetched.unsubscribe();
+        }
+        prefetchedPages.clear();
+        rangeCache.clear();
+        snapshotCache.clear();
+        stopReminders();
+        readExecutor.shutdownNow();
+        writeExecutor.shutdown();
+    }
+
+    private <T> Future<T> submitRead(String key, Callable<T> query, Callback<T> callback) {
+        return submit(new ReadTask<>(key, query, callback));
+    }
+
+    private <T> Future<T> submit(ReadTask<T> task) {
+        supersede(task);
+        readExecutor.execute(task);
+        return task;
+    }
+
+    // Makes the task the latest read for its key, cancelling the one it replaces
+    private void supersede(ReadTask<?> task) {
+        ReadTask<?> previous = latestReads.put(task.key, task);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+    }
+
+    private <T> Future<T> submitWrite(Callable<T> write, Callback<T> callback) {
+        FutureTask<T> task = new FutureTask<T>(write) {
+            @Override
+            protected void done() {
+                deliver(this, callback, () -> true);
+            }
+        };
+        writeExecutor.execute(task);
+        return task;
+    }
+
+    // Hands a finished task's outcome to the callback, unless it has gone stale by then
+    private <T> void deliver(FutureTask<T> task, Callback<T> callback, StillCurrent current) {
+        if (task.isCancelled()) {
+            return;
+        }
+        try {
+            T result = task.get();
+            callbackExecutor.execute(() -> {
+                if (current.check() && callback != null) {
+                    callback.onResult(result);
+                }
+            });
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            callbackExecutor.execute(() -> {
+                if (current.check() && callback != null) {
+                    callback.onError(cause);
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface StillCurrent {
+        boolean check();
+    }
+
+    private void dropPrefetchedPage(int userId, PrefetchedPage prefetched) {
+        if (prefetchedPages.remove(userId, prefetched)) {
+            prefetched.unsubscribe();
+        }
+    }
+
+    private static final class PrefetchedPage {
+        final int pageSize;
+        final PrefetchTask page;
+        EventChangeNotifier.Subscription subscription;
+
+        PrefetchedPage(int pageSize, PrefetchTask page) {
+            this.pageSize = pageSize;
+            this.page = page;
+        }
+
+        void unsubscribe() {
+            subscription.unsubscribe();
+        }
+    }
+
+    // The prefetch query, which hands its result on when it finishes rather than being waited on
+    private static final class PrefetchTask extends FutureTask<List<Event>> {
+        private boolean finished;
+        private Runnable whenDone;
+
+        PrefetchTask(Callable<List<Event>> query) {
+            super(query);
+        }
+
+        // Runs the action once the query has finished: now if it already has, otherwise on
+        // the thread that finishes it
+        void whenDone(Runnable action) {
+            synchronized (this) {
+                if (!finished) {
+                    whenDone = action;
+                    return;
+                }
+            }
+            action.run();
+        }
+
+        @Override
+        protected void done() {
+            Runnable action;
+            synchronized (this) {
+                finished = true;
+                action = whenDone;
+                whenDone = null;
+            }
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+
+    private static String eventsKey(int userId) {
+        return "events:" + userId;
+    }
+
+    private static String rangeKey(int userId) {
+        return "range:" + userId;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1); // Stay below the UI thread
+            return thread;
+        };
+    }
+
+    // A read that only reports back if no newer read with the same key has started
+    private final class ReadTask<T> extends FutureTask<T> {
+        private final String key;
+        private final Callback<T> callback;
+
+        ReadTask(String key, Callable<T> query, Callback<T> callback) {
+            super(query);
+            this.key = key;
+            this.callback = callback;
+        }
+
+        // Finishes the read with a result obtained elsewhere, without running the query
+        void complete(T result) {
+            set(result);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                latestReads.remove(key, this);
+                return;
+            }
+            deliver(this, callback, () -> latestReads.remove(key, this));
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// In-memory index over one user's events for the filter box.
+// Matches the same way the grid always has (case-insensitive substring of name or date),
+// but names and dates are lowercased once when indexed, queries of 3+ characters only look
+// at events sharing the query's rarest trigram, and a query that extends the previous one
+// narrows the previous result instead of searching again.
+public class EventSearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    // Matches getUserEventsList: start time, then ID
+    private static final Comparator<Entry> START_ORDER = (e1, e2) -> e1.start != e2.start
+            ? Long.compare(e1.start, e2.start)
+            : Integer.compare(e1.event.getId(), e2.event.getId());
+
+    // One indexed event with its search keys precomputed
+    private static final class Entry {
+        final Event event;
+        final String name;      // Lowercased name
+        final String date;      // Lowercased date
+        final long start;       // Start time, the same ordering the grid uses
+        int rank;               // Position in start order, valid while the index isn't dirty
+
+        Entry(Event event) {
+            this.event = event;
+            this.name = event.getName().toLowerCase(Locale.ROOT);
+            this.date = event.getDate().toLowerCase(Locale.ROOT);
+            this.start = event.getStartMillis();
+        }
+
+        boolean matches(String query) {
+            return name.contains(query) || date.contains(query);
+        }
+    }
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    // All entries in start order; rebuilt lazily on the first search after a change
+    private Entry[] sorted = new Entry[0];
+    private boolean dirty;
+
+    // Result of the last search, reused when the next query extends it
+    private String lastQuery;
+    private List<Entry> lastResult;
+
+    public EventSearchIndex(Collection<Event> events) {
+        for (Event event : events) {
+            put(event);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Adds an event, or replaces the indexed copy if the ID is already present
+    public synchronized void add(Event event) {
+        remove(event.getId());
+        put(event);
+    }
+
+    // Replaces an indexed event; returns false (and indexes nothing) if this index doesn't hold it
+    public synchronized boolean update(Event event) {
+        if (!remove(event.getId())) {
+            return false;
+        }
+        put(event);
+        return true;
+    }
+
+    // Returns true if the event was indexed
+    public synchronized boolean remove(int eventId) {
+        Entry entry = entries.remove(eventId);
+        if (entry == null) {
+            return false;
+        }
+        forEachGram(entry, gram -> {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(eventId) && list.size == 0) {
+                postings.remove(gram);
+            }
+        });
+        invalidateLastResult();
+        return true;
+    }
+
+    // Returns events whose name or date contains the query, ordered by start time
+    public synchronized List<Event> search(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        ensureSorted();
+
+        List<Entry> matches;
+        if (lastQuery != null && needle.contains(lastQuery)) {
+            matches = filter(lastResult, needle);           // Narrow the previous (sorted) result
+        } else if (needle.length() >= GRAM_LENGTH) {
+            matches = filter(candidatesFor(needle), needle); // Use the trigram postings
+            matches.sort((e1, e2) -> Integer.compare(e1.rank, e2.rank));
+        } else {
+            matches = filter(Arrays.asList(sorted), needle);  // Too short for a trigram
+        }
+
+        lastQuery = needle;
+        lastResult = matches;
+
+        List<Event> events = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            events.add(entry.event);
+        }
+        return events;
+    }
+
+    private void put(Event event) {
+        Entry entry = new Entry(event);
+        entries.put(event.getId(), entry);
+        forEachGram(entry, gram -> {
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(event.getId());
+        });
+        invalidateLastResult();
+    }
+
+    private void invalidateLastResult() {
+        lastQuery = null;
+        lastResult = null;
+        dirty = true;
+    }
+
+    private void ensureSorted() {
+        if (!dirty) {
+            return;
+        }
+        sorted = entries.values().toArray(new Entry[0]);
+        Arrays.sort(sorted, START_ORDER);
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i].rank = i;
+        }
+        dirty = false;
+    }
+
+    // Entries sharing the query's least common trigram; every match is among them
+    private Collection<Entry> candidatesFor(String needle) {
+        Postings smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= needle.length(); i++) {
+            Postings list = postings.get(gramAt(needle, i));
+            if (list == null) {
+                return new ArrayList<>(); // Some trigram never occurs, so nothing matches
+            }
+            if (smallest == null || list.size < smallest.size) {
+                smallest = list;
+            }
+        }
+        List<Entry> candidates = new ArrayList<>(smallest.size);
+        for (int i = 0; i < smallest.size; i++) {
+            candidates.add(entries.get(smallest.ids[i]));
+        }
+        return candidates;
+    }
+
+    private static List<Entry> filter(Collection<Entry> source, String needle) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : source) {
+            if (entry.matches(needle)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    private interface GramConsumer {
+        void accept(long gram);
+    }
+
+    private static void forEachGram(Entry entry, GramConsumer consumer) {
+        for (int i = 0; i + GRAM_LENGTH <= entry.name.length(); i++) {
+            consumer.accept(gramAt(entry.name, i));
+        }
+        for (int i = 0; i + GRAM_LENGTH <= entry.date.length(); i++) {
+            consumer.accept(gramAt(entry.date, i));
+        }
+    }
+
+    // Packs three chars into one key so no substring is allocated per trigram
+    private static long gramAt(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    // Sorted, duplicate-free list of event IDs for one trigram
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return; // Same trigram seen twice in one event
+            }
+            int index = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -(index + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
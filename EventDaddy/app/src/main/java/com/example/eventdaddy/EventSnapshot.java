@@ -0,0 +1,355 @@
+package com.example.eventdaddy;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+
+// Read-only, column-oriented copy of a set of events for large result sets.
+// IDs and start times live in primitive arrays, every name shares one char buffer, and
+// dates and times (which repeat across thousands of rows) are interned into a small pool.
+// A snapshot of n events is a handful of arrays instead of n Event objects holding 3n
+// Strings. Views select and order rows through an index array without copying any of it,
+// and only create an Event when a row is actually asked for, e.g. to bind it on screen.
+public final class EventSnapshot {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final int size;
+    private final int[] ids;
+    private final long[] starts;
+    private final long[] ends;
+    private final char[] nameChars;
+    private final int[] nameEnds;     // Row i's name is nameChars[nameEnds[i - 1], nameEnds[i])
+    private final int[] dateCodes;    // Index into texts
+    private final int[] timeCodes;    // Index into texts
+    private final String[] texts;     // Distinct date and time strings
+
+    private EventSnapshot(Builder builder) {
+        size = builder.size;
+        ids = Arrays.copyOf(builder.ids, size);
+        starts = Arrays.copyOf(builder.starts, size);
+        ends = Arrays.copyOf(builder.ends, size);
+        nameChars = Arrays.copyOf(builder.nameChars, builder.nameLength);
+        nameEnds = Arrays.copyOf(builder.nameEnds, size);
+        dateCodes = Arrays.copyOf(builder.dateCodes, size);
+        timeCodes = Arrays.copyOf(builder.timeCodes, size);
+        texts = builder.texts.toArray();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public long getStartMillis(int row) {
+        return starts[row];
+    }
+
+    public long getEndMillis(int row) {
+        return ends[row];
+    }
+
+    public String getName(int row) {
+        int start = row == 0 ? 0 : nameEnds[row - 1];
+        return new String(nameChars, start, nameEnds[row] - start);
+    }
+
+    public String getDate(int row) {
+        return texts[dateCodes[row]];
+    }
+
+    public String getTime(int row) {
+        return texts[timeCodes[row]];
+    }
+
+    // A new Event for one row; this is the only place rows become objects
+    public Event getEvent(int row) {
+        return new Event(ids[row], getName(row), getDate(row), getTime(row), starts[row], ends[row], null);
+    }
+
+    // Case-insensitive substring test on a row's name, without building the name String.
+    // The query must already be lowercase.
+    public boolean nameContains(int row, String lowerQuery) {
+        int start = row == 0 ? 0 : nameEnds[row - 1];
+        int last = nameEnds[row] - lowerQuery.length();
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < lowerQuery.length() && Character.toLowerCase(nameChars[i + j]) == lowerQuery.charAt(j)) {
+                j++;
+            }
+            if (j == lowerQuery.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Compares two rows' names ignoring case, like String.compareToIgnoreCase but without
+    // building either String
+    public int compareNames(int rowA, int rowB) {
+        int a = rowA == 0 ? 0 : nameEnds[rowA - 1];
+        int b = rowB == 0 ? 0 : nameEnds[rowB - 1];
+        int endA = nameEnds[rowA];
+        int endB = nameEnds[rowB];
+        for (; a < endA && b < endB; a++, b++) {
+            char x = nameChars[a];
+            char y = nameChars[b];
+            if (x != y) {
+                x = Character.toLowerCase(Character.toUpperCase(x));
+                y = Character.toLowerCase(Character.toUpperCase(y));
+                if (x != y) {
+                    return x - y;
+                }
+            }
+        }
+        return (endA - a) - (endB - b);
+    }
+
+    // Approximate heap footprint of the snapshot's arrays and pooled strings
+    public long sizeInBytes() {
+        long bytes = 16L * 8 // Object headers and array headers, roughly
+                + 4L * ids.length + 8L * (starts.length + ends.length) + 2L * nameChars.length
+                + 4L * (nameEnds.length + dateCodes.length + timeCodes.length) + 4L * texts.length;
+        for (String text : texts) {
+            bytes += 40 + 2L * text.length();
+        }
+        return bytes;
+    }
+
+    // Every row, in the order the snapshot was filled
+    public View all() {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return new View(rows);
+    }
+
+    // The given rows, in the given order; the array is used as is
+    View view(int[] rows) {
+        return new View(rows.length == 0 ? NO_ROWS : rows);
+    }
+
+    // Decides whether a row belongs in a filtered view
+    public interface RowPredicate {
+        boolean test(EventSnapshot snapshot, int row);
+    }
+
+    // An ordered selection of the snapshot's rows. As a List it hands out a fresh Event
+    // per get(), so callers that keep rows should keep the Event they were given.
+    public final class View extends AbstractList<Event> implements RandomAccess {
+        private final int[] rows;
+
+        private View(int[] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Event get(int position) {
+            return getEvent(rows[position]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+
+        // Snapshot row behind a position, for the primitive getters on EventSnapshot
+        public int rowAt(int position) {
+            return rows[position];
+        }
+
+        public EventSnapshot snapshot() {
+            return EventSnapshot.this;
+        }
+
+        // The rows that pass the predicate, in this view's order
+        public View filter(RowPredicate predicate) {
+            int[] kept = new int[rows.length];
+            int count = 0;
+            for (int row : rows) {
+                if (predicate.test(EventSnapshot.this, row)) {
+                    kept[count++] = row;
+                }
+            }
+            return new View(count == 0 ? NO_ROWS : Arrays.copyOf(kept, count));
+        }
+
+        // Rows whose name contains the query, ignoring case
+        public View nameContains(String query) {
+            String lowerQuery = query.toLowerCase(Locale.ROOT);
+            return filter((snapshot, row) -> snapshot.nameContains(row, lowerQuery));
+        }
+
+        // Rows starting in [fromMillis, toMillis)
+        public View startingBetween(long fromMillis, long toMillis) {
+            return filter((snapshot, row) -> snapshot.starts[row] >= fromMillis && snapshot.starts[row] < toMillis);
+        }
+
+        // The same rows ordered by start time, then ID, like getUserEventsList
+        public View sortedByStart() {
+            int[] sorted = rows.clone();
+            sortByStart(sorted, new int[sorted.length], 0, sorted.length);
+            return new View(sorted);
+        }
+    }
+
+    // Merge sort of row indexes on (start, ID); primitive keys, so no boxing or comparator objects
+    private void sortByStart(int[] rows, int[] scratch, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortByStart(rows, scratch, from, mid);
+        sortByStart(rows, scratch, mid, to);
+        if (!startsAfter(rows[mid - 1], rows[mid])) {
+            return; // Halves already in order, common for data that came out of the index sorted
+        }
+        System.arraycopy(rows, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && !startsAfter(scratch[left], scratch[right]))) {
+                rows[i] = scratch[left++];
+            } else {
+                rows[i] = scratch[right++];
+            }
+        }
+    }
+
+    private boolean startsAfter(int a, int b) {
+        return starts[a] != starts[b] ? starts[a] > starts[b] : ids[a] > ids[b];
+    }
+
+    // Fills a snapshot one row at a time. Text comes in as char ranges so a cursor can
+    // copy each column into a reused buffer rather than creating a String per cell.
+    public static final class Builder {
+        private int size;
+        private int[] ids;
+        private long[] starts;
+        private long[] ends;
+        private char[] nameChars;
+        private int nameLength;
+        private int[] nameEnds;
+        private int[] dateCodes;
+        private int[] timeCodes;
+        private final TextPool texts = new TextPool();
+
+        public Builder(int expectedRows) {
+            int capacity = Math.max(expectedRows, 16);
+            ids = new int[capacity];
+            starts = new long[capacity];
+            ends = new long[capacity];
+            nameChars = new char[capacity * 16];
+            nameEnds = new int[capacity];
+            dateCodes = new int[capacity];
+            timeCodes = new int[capacity];
+        }
+
+        public Builder add(int id, long startMillis, long endMillis, char[] name, int nameLength,
+                           char[] date, int dateLength, char[] time, int timeLength) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                nameEnds = Arrays.copyOf(nameEnds, capacity);
+                dateCodes = Arrays.copyOf(dateCodes, capacity);
+                timeCodes = Arrays.copyOf(timeCodes, capacity);
+            }
+            if (this.nameLength + nameLength > nameChars.length) {
+                nameChars = Arrays.copyOf(nameChars, Math.max(nameChars.length * 2, this.nameLength + nameLength));
+            }
+            System.arraycopy(name, 0, nameChars, this.nameLength, nameLength);
+            this.nameLength += nameLength;
+
+            ids[size] = id;
+            starts[size] = startMillis;
+            ends[size] = endMillis;
+            nameEnds[size] = this.nameLength;
+            dateCodes[size] = texts.intern(date, dateLength);
+            timeCodes[size] = texts.intern(time, timeLength);
+            size++;
+            return this;
+        }
+
+        public Builder add(Event event) {
+            char[] name = text(event.getName());
+            char[] date = text(event.getDate());
+            char[] time = text(event.getTime());
+            return add(event.getId(), event.getStartMillis(), event.getEndMillis(),
+                    name, name.length, date, date.length, time, time.length);
+        }
+
+        public EventSnapshot build() {
+            return new EventSnapshot(this);
+        }
+
+        private static char[] text(String value) {
+            return value != null ? value.toCharArray() : new char[0];
+        }
+    }
+
+    // Interns char ranges into Strings, allocating only the first time a value is seen
+    private static final class TextPool {
+        private final List<String> values = new ArrayList<>();
+        private int[] table = new int[64]; // Open addressing; value index + 1, 0 = empty
+
+        int intern(char[] chars, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            int mask = table.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (table[slot] != 0) {
+                String value = values.get(table[slot] - 1);
+                if (equals(value, chars, length)) {
+                    return table[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            values.add(new String(chars, 0, length));
+            table[slot] = values.size();
+            if (values.size() * 2 > table.length) {
+                rehash();
+            }
+            return values.size() - 1;
+        }
+
+        String[] toArray() {
+            return values.toArray(new String[0]);
+        }
+
+        private void rehash() {
+            table = new int[table.length * 2];
+            int mask = table.length - 1;
+            for (int i = 0; i < values.size(); i++) {
+                int hash = values.get(i).hashCode(); // Same formula as intern()
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = i + 1;
+            }
+        }
+
+        private static boolean equals(String value, char[] chars, int length) {
+            if (value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != chars[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
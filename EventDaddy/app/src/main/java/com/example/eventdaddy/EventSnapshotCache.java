@@ -0,0 +1,152 @@
+package com.example.eventdaddy;
+
+import android.content.ComponentCallbacks2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps each user's events as an EventSnapshot in memory, so reopening the grid, adding an
+// event and streaming a query don't each read every row from the database again.
+// The cache is bounded by the snapshots' estimated size (EventSnapshot.sizeInBytes), not by
+// how many users it holds: one user with 50,000 events can take the room of many small
+// ones. Least recently used snapshots are evicted first. Any change to a user's events, from
+// any writer (addEvent, updateEvent, deleteEvent, sync, imports), drops that user's
+// snapshot and no one else's; the next read loads it again.
+public class EventSnapshotCache {
+
+    private static final PerfMetrics.Counter HITS = PerfMetrics.counter("cache.snapshot.hits");
+    private static final PerfMetrics.Counter MISSES = PerfMetrics.counter("cache.snapshot.misses");
+    private static final PerfMetrics.Counter EVICTIONS = PerfMetrics.counter("cache.snapshot.evictions");
+
+    private final EventStore store;
+    private final long maxBytes;
+    private final Map<Integer, UserState> users = new ConcurrentHashMap<>();
+    // Access order, least recently used first; guarded by this
+    private final LinkedHashMap<Integer, EventSnapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;  // Guarded by this
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public EventSnapshotCache(EventStore store, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxBytes);
+        }
+        this.store = store;
+        this.maxBytes = maxBytes;
+    }
+
+    // The user's events, from memory if they haven't changed since they were last loaded.
+    // A miss queries the store, so call off the main thread.
+    public EventSnapshot get(int userId) {
+        UserState user = users.computeIfAbsent(userId, UserState::new);
+        long generation;
+        synchronized (this) {
+            EventSnapshot cached = snapshots.get(userId);
+            if (cached != null) {
+                hitCount.incrementAndGet();
+                HITS.increment();
+                return cached;
+            }
+            generation = user.generation;
+        }
+        missCount.incrementAndGet();
+        MISSES.increment();
+        EventSnapshot snapshot = store.getUserEventsSnapshot(userId);
+        long bytes = snapshot.sizeInBytes();
+        synchronized (this) {
+            // Not kept if the events changed during the query, or if it alone would fill the cache
+            if (user.generation == generation && bytes <= maxBytes && users.get(userId) == user) {
+                EventSnapshot previous = snapshots.put(userId, snapshot);
+                if (previous != null) {
+                    sizeBytes -= previous.sizeInBytes();
+                }
+                sizeBytes += bytes;
+                trimTo(maxBytes);
+            }
+        }
+        return snapshot;
+    }
+
+    // Frees memory when the system asks: half of it while the app is still in use but its UI
+    // is hidden, all of it once the app is in the background and could be killed for memory
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            synchronized (this) {
+                trimTo(sizeBytes / 2);
+            }
+        }
+    }
+
+    public synchronized void evictAll() {
+        trimTo(0);
+    }
+
+    // Forgets a user's snapshot and stops watching their events, e.g. on logout
+    public void release(int userId) {
+        UserState user = users.remove(userId);
+        if (user != null) {
+            user.subscription.unsubscribe();
+            invalidate(user);
+        }
+    }
+
+    public void clear() {
+        for (Integer userId : users.keySet()) {
+            release(userId);
+        }
+    }
+
+    // Reads answered from memory
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    // Reads that went to the store
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    // Estimated bytes held right now
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Evicts least recently used snapshots until at most targetBytes are held; caller holds this
+    private void trimTo(long targetBytes) {
+        Iterator<EventSnapshot> eldest = snapshots.values().iterator();
+        while (sizeBytes > targetBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+            EVICTIONS.increment();
+        }
+    }
+
+    private synchronized void invalidate(UserState user) {
+        user.generation++;
+        EventSnapshot stale = snapshots.remove(user.userId);
+        if (stale != null) {
+            sizeBytes -= stale.sizeInBytes();
+        }
+    }
+
+    private final class UserState {
+        private final int userId;
+        private final EventChangeNotifier.Subscription subscription;
+        private long generation;  // Bumped on every change; guarded by the cache
+
+        UserState(int userId) {
+            this.userId = userId;
+            // Delivered on the writer's thread, so the snapshot is dropped before the write returns
+            subscription = store.getChangeNotifier().subscribe(userId, Runnable::run, changes -> invalidate(this));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.eventdaddy;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Storage operations the app needs for users and events.
+// DatabaseHelper is the real implementation; unit tests can supply an in-memory one.
+public interface EventStore {
+
+    boolean addUser(String username, String password);
+
+    boolean checkUser(String username, String password);
+
+    // Checks credentials and returns the user's ID, or -1 if they don't match
+    int authenticate(String username, String password);
+
+    int getUserId(String username);
+
+    boolean addEvent(String eventName, String eventDate, String eventTime, int userId);
+
+    // Same as addEvent but returns the new event's ID, or -1 on failure
+    long insertEvent(String eventName, String eventDate, String eventTime, int userId);
+
+    // Adds an event repeating by the rule (null for a one-off); returns its ID, or -1 on failure
+    long insertRecurringEvent(String eventName, String eventDate, String eventTime, int userId,
+                              Recurrence recurrence);
+
+    // Adds an event lasting durationMillis (0 for none) that repeats by the rule (null for a
+    // one-off); returns its ID, or -1 on failure
+    long insertEvent(String eventName, String eventDate, String eventTime, long durationMillis, int userId,
+                     Recurrence recurrence);
+
+    // Moves an event to a new start, keeping its duration and any recurrence rule
+    boolean updateEvent(int eventId, String eventName, String eventDate, String eventTime);
+
+    // Removes one occurrence of a recurring event; false if it doesn't exist or doesn't repeat
+    boolean skipOccurrence(int eventId, long occurrenceStart);
+
+    boolean deleteEvent(int eventId);
+
+    // Publishes every insert, update and delete made through this store
+    EventChangeNotifier getChangeNotifier();
+
+    // ID of the user who owns the event, or -1 if there is no such event
+    int getEventUserId(int eventId);
+
+    // All of the user's stored events ordered by start time, then ID; a recurring event
+    // appears once, as its first occurrence
+    List<Event> getUserEventsList(int userId);
+
+    // The same events as a columnar snapshot, for result sets too big to hold as Event objects
+    EventSnapshot getUserEventsSnapshot(int userId);
+
+    // Events and occurrences of recurring events starting in [fromMillis, toMillis), in start order
+    List<Event> getUserEventsBetween(int userId, long fromMillis, long toMillis);
+
+    // Events and occurrences overlapping [fromMillis, toMillis) (see Event.overlaps), in start order
+    List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis);
+
+    // Number of events on each day of the month, without loading the events themselves
+    MonthSummary getUserMonthSummary(int userId, YearMonth month);
+
+    // Up to pageSize events at or after the (startMillis, eventId) position, in start order,
+    // with recurring events expanded into occurrences (this and getUserEventsBefore)
+    List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize);
+
+    // Up to limit events with words starting with the query's words, best matches first
+    List<Event> searchUserEvents(int userId, String query, int limit);
+
+    // Up to limit events whose name or date contains the text anywhere, in start order
+    List<Event> searchUserEventsContaining(int userId, String text, int limit);
+
+    // Up to pageSize events strictly before the (startMillis, eventId) position, in start order
+    List<Event> getUserEventsBefore(int userId, long startMillis, int eventId, int pageSize);
+}
@@ -0,0 +1,71 @@
+package com.example.eventdaddy;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.Locale;
+
+// Converts the free-form event date/time text into epoch millis for storage and sorting
+public final class EventTimes {
+
+    // Value stored when an event's date can't be parsed; sorts ahead of every real date
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    // "2025-03-07" as hinted in the add dialog; single-digit month/day are accepted too
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-M-d", Locale.US)
+            .withResolverStyle(ResolverStyle.STRICT);
+
+    // "10:00 AM" (what the app stores today) or 24-hour "14:30"
+    private static final DateTimeFormatter TIME_12H = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("h:mm[ ]a")
+            .toFormatter(Locale.US);
+    private static final DateTimeFormatter TIME_24H = DateTimeFormatter.ofPattern("H:mm", Locale.US);
+
+    private EventTimes() {}
+
+    // Returns the event's start in epoch millis (device time zone), or UNKNOWN if the date
+    // isn't recognized. A missing or unrecognized time means the start of that day.
+    public static long toEpochMillis(String date, String time) {
+        LocalDate day = parseDate(date);
+        if (day == null) {
+            return UNKNOWN;
+        }
+        LocalTime startTime = parseTime(time);
+        return day.atTime(startTime != null ? startTime : LocalTime.MIDNIGHT)
+                .atZone(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.trim(), DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalTime parseTime(String time) {
+        if (time == null) {
+            return null;
+        }
+        String trimmed = time.trim();
+        try {
+            return LocalTime.parse(trimmed, TIME_12H);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalTime.parse(trimmed, TIME_24H);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns filter box text into SQLite FTS4 MATCH expressions.
+// The text is split into words the same way FTS4's default "simple" tokenizer splits
+// the indexed columns, and every word is matched as a prefix, so "team lu" finds
+// "Team lunch" and "2025-03" finds every event in March 2025.
+final class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    // Words in order, split and case-folded like the simple tokenizer: ASCII letters and digits
+    // and all non-ASCII characters form words, and only ASCII letters are lowercased
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(foldAscii(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c >= 0x80 || (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static String foldAscii(String word) {
+        char[] chars = word.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                chars[i] = (char) (chars[i] + ('a' - 'A'));
+            }
+        }
+        return new String(chars);
+    }
+
+    // Phrase of prefix terms matching the words in sequence in any column, e.g. "team* lu*";
+    // null if the text has no words to search for
+    static String prefixPhrase(String text) {
+        List<String> tokens = tokens(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder phrase = new StringBuilder("\"");
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(tokens.get(i)).append('*');
+        }
+        return phrase.append('"').toString();
+    }
+
+    // The same phrase restricted to one column, e.g. event_name:"team* lu*"
+    static String prefixPhrase(String column, String text) {
+        String phrase = prefixPhrase(text);
+        return phrase != null ? column + ":" + phrase : null;
+    }
+}
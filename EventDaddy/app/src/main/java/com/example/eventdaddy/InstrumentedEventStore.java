@@ -0,0 +1,271 @@
+package com.example.eventdaddy;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// Times every call to another EventStore (normally DatabaseHelper) into PerfMetrics, as
+// "db.<method>" spans credited with the rows each one returned. Nothing is measured while
+// metrics are disabled.
+public class InstrumentedEventStore implements EventStore {
+
+    private static final PerfMetrics.Timer ADD_USER = PerfMetrics.timer("db.addUser");
+    private static final PerfMetrics.Timer CHECK_USER = PerfMetrics.timer("db.checkUser");
+    private static final PerfMetrics.Timer AUTHENTICATE = PerfMetrics.timer("db.authenticate");
+    private static final PerfMetrics.Timer GET_USER_ID = PerfMetrics.timer("db.getUserId");
+    private static final PerfMetrics.Timer ADD_EVENT = PerfMetrics.timer("db.addEvent");
+    private static final PerfMetrics.Timer INSERT_EVENT = PerfMetrics.timer("db.insertEvent");
+    private static final PerfMetrics.Timer UPDATE_EVENT = PerfMetrics.timer("db.updateEvent");
+    private static final PerfMetrics.Timer SKIP_OCCURRENCE = PerfMetrics.timer("db.skipOccurrence");
+    private static final PerfMetrics.Timer DELETE_EVENT = PerfMetrics.timer("db.deleteEvent");
+    private static final PerfMetrics.Timer GET_EVENT_USER_ID = PerfMetrics.timer("db.getEventUserId");
+    private static final PerfMetrics.Timer LIST = PerfMetrics.timer("db.getUserEventsList");
+    private static final PerfMetrics.Timer SNAPSHOT = PerfMetrics.timer("db.getUserEventsSnapshot");
+    private static final PerfMetrics.Timer BETWEEN = PerfMetrics.timer("db.getUserEventsBetween");
+    private static final PerfMetrics.Timer OVERLAPPING = PerfMetrics.timer("db.getUserEventsOverlapping");
+    private static final PerfMetrics.Timer MONTH_SUMMARY = PerfMetrics.timer("db.getUserMonthSummary");
+    private static final PerfMetrics.Timer PAGE_FROM = PerfMetrics.timer("db.getUserEventsFrom");
+    private static final PerfMetrics.Timer PAGE_BEFORE = PerfMetrics.timer("db.getUserEventsBefore");
+    private static final PerfMetrics.Timer SEARCH = PerfMetrics.timer("db.searchUserEvents");
+    private static final PerfMetrics.Timer SEARCH_CONTAINING = PerfMetrics.timer("db.searchUserEventsContaining");
+    private static final PerfMetrics.Counter ROWS_READ = PerfMetrics.counter("db.rowsRead");
+
+    private final EventStore store;
+
+    public InstrumentedEventStore(EventStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean addUser(String username, String password) {
+        long start = ADD_USER.begin();
+        try {
+            return store.addUser(username, password);
+        } finally {
+            ADD_USER.end(start);
+        }
+    }
+
+    @Override
+    public boolean checkUser(String username, String password) {
+        long start = CHECK_USER.begin();
+        try {
+            return store.checkUser(username, password);
+        } finally {
+            CHECK_USER.end(start);
+        }
+    }
+
+    @Override
+    public int authenticate(String username, String password) {
+        long start = AUTHENTICATE.begin();
+        try {
+            return store.authenticate(username, password);
+        } finally {
+            AUTHENTICATE.end(start);
+        }
+    }
+
+    @Override
+    public int getUserId(String username) {
+        long start = GET_USER_ID.begin();
+        try {
+            return store.getUserId(username);
+        } finally {
+            GET_USER_ID.end(start);
+        }
+    }
+
+    @Override
+    public boolean addEvent(String eventName, String eventDate, String eventTime, int userId) {
+        long start = ADD_EVENT.begin();
+        try {
+            return store.addEvent(eventName, eventDate, eventTime, userId);
+        } finally {
+            ADD_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public long insertEvent(String eventName, String eventDate, String eventTime, int userId) {
+        long start = INSERT_EVENT.begin();
+        try {
+            return store.insertEvent(eventName, eventDate, eventTime, userId);
+        } finally {
+            INSERT_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public long insertRecurringEvent(String eventName, String eventDate, String eventTime, int userId,
+                                     Recurrence recurrence) {
+        long start = INSERT_EVENT.begin();
+        try {
+            return store.insertRecurringEvent(eventName, eventDate, eventTime, userId, recurrence);
+        } finally {
+            INSERT_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public long insertEvent(String eventName, String eventDate, String eventTime, long durationMillis, int userId,
+                            Recurrence recurrence) {
+        long start = INSERT_EVENT.begin();
+        try {
+            return store.insertEvent(eventName, eventDate, eventTime, durationMillis, userId, recurrence);
+        } finally {
+            INSERT_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public boolean updateEvent(int eventId, String eventName, String eventDate, String eventTime) {
+        long start = UPDATE_EVENT.begin();
+        try {
+            return store.updateEvent(eventId, eventName, eventDate, eventTime);
+        } finally {
+            UPDATE_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public boolean skipOccurrence(int eventId, long occurrenceStart) {
+        long start = SKIP_OCCURRENCE.begin();
+        try {
+            return store.skipOccurrence(eventId, occurrenceStart);
+        } finally {
+            SKIP_OCCURRENCE.end(start);
+        }
+    }
+
+    @Override
+    public boolean deleteEvent(int eventId) {
+        long start = DELETE_EVENT.begin();
+        try {
+            return store.deleteEvent(eventId);
+        } finally {
+            DELETE_EVENT.end(start);
+        }
+    }
+
+    @Override
+    public EventChangeNotifier getChangeNotifier() {
+        return store.getChangeNotifier();
+    }
+
+    @Override
+    public int getEventUserId(int eventId) {
+        long start = GET_EVENT_USER_ID.begin();
+        try {
+            return store.getEventUserId(eventId);
+        } finally {
+            GET_EVENT_USER_ID.end(start);
+        }
+    }
+
+    @Override
+    public List<Event> getUserEventsList(int userId) {
+        long start = LIST.begin();
+        List<Event> events = null;
+        try {
+            return events = store.getUserEventsList(userId);
+        } finally {
+            end(LIST, start, events);
+        }
+    }
+
+    @Override
+    public EventSnapshot getUserEventsSnapshot(int userId) {
+        long start = SNAPSHOT.begin();
+        EventSnapshot snapshot = null;
+        try {
+            return snapshot = store.getUserEventsSnapshot(userId);
+        } finally {
+            end(SNAPSHOT, start, snapshot != null ? snapshot.size() : 0);
+        }
+    }
+
+    @Override
+    public List<Event> getUserEventsBetween(int userId, long fromMillis, long toMillis) {
+        long start = BETWEEN.begin();
+        List<Event> events = null;
+        try {
+            return events = store.getUserEventsBetween(userId, fromMillis, toMillis);
+        } finally {
+            end(BETWEEN, start, events);
+        }
+    }
+
+    @Override
+    public List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+        long start = OVERLAPPING.begin();
+        List<Event> events = null;
+        try {
+            return events = store.getUserEventsOverlapping(userId, fromMillis, toMillis);
+        } finally {
+            end(OVERLAPPING, start, events);
+        }
+    }
+
+    @Override
+    public MonthSummary getUserMonthSummary(int userId, YearMonth month) {
+        long start = MONTH_SUMMARY.begin();
+        try {
+            return store.getUserMonthSummary(userId, month);
+        } finally {
+            MONTH_SUMMARY.end(start);
+        }
+    }
+
+    @Override
+    public List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+        long start = PAGE_FROM.begin();
+        List<Event> events = null;
+        try {
+            return events = store.getUserEventsFrom(userId, startMillis, eventId, pageSize);
+        } finally {
+            end(PAGE_FROM, start, events);
+        }
+    }
+
+    @Override
+    public List<Event> searchUserEvents(int userId, String query, int limit) {
+        long start = SEARCH.begin();
+        List<Event> events = null;
+        try {
+            return events = store.searchUserEvents(userId, query, limit);
+        } finally {
+            end(SEARCH, start, events);
+        }
+    }
+
+    @Override
+    public List<Event> searchUserEventsContaining(int userId, String text, int limit) {
+        long start = SEARCH_CONTAINING.begin();
+        List<Event> events = null;
+        try {
+            return events = store.searchUserEventsContaining(userId, text, limit);
+        } finally {
+            end(SEARCH_CONTAINING, start, events);
+        }
+    }
+
+    @Override
+    public List<Event> getUserEventsBefore(int userId, long startMillis, int eventId, int pageSize) {
+        long start = PAGE_BEFORE.begin();
+        List<Event> events = null;
+        try {
+            return events = store.getUserEventsBefore(userId, startMillis, eventId, pageSize);
+        } finally {
+            end(PAGE_BEFORE, start, events);
+        }
+    }
+
+    private static void end(PerfMetrics.Timer timer, long start, List<Event> events) {
+        end(timer, start, events != null ? events.size() : 0);
+    }
+
+    private static void end(PerfMetrics.Timer timer, long start, int rows) {
+        timer.end(start, rows);
+        ROWS_READ.add(rows);
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.eventdaddy;
 
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.Trace;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
@@ -11,20 +14,53 @@ import androidx.appcompat.app.AppCompatActivity;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static boolean maintenanceScheduled;  // Only touched on the main thread
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
+        Trace.beginSection("MainActivity.onCreate");
+        try {
+            super.onCreate(savedInstanceState);
+            createOrSkipLogin();
+            scheduleMaintenanceAfterStartup();
+        } finally {
+            Trace.endSection();
+        }
+    }
 
+    // Scheduling the maintenance job is a call into JobScheduler, which start-up doesn't need:
+    // it waits until the main thread first runs out of start-up work, whichever screen opens,
+    // and then runs on the repository's writer thread. Once per process is enough.
+    private void scheduleMaintenanceAfterStartup() {
+        if (maintenanceScheduled) {
+            return;
+        }
+        maintenanceScheduled = true;
+        Context appContext = getApplicationContext();
+        Looper.myQueue().addIdleHandler(() -> {
+            EventRepository.getInstance(appContext).runInBackground(() ->
+                    MaintenanceJobService.schedule(appContext, MaintenanceJobService.DEFAULT_ARCHIVE_HORIZON_DAYS));
+            return false;
+        });
+    }
+
+    private void createOrSkipLogin() {
         // Check if the user is already logged in using SharedPreferences
         SharedPreferences prefs = getSharedPreferences("EventDaddyPrefs", MODE_PRIVATE);
         boolean isLoggedIn = prefs.getBoolean("isLoggedIn", false);
+        int savedUserId = prefs.getInt("userId", -1);
 
-        // If user is already logged in, skip login screen and go straight to EventGridActivity
-        if (isLoggedIn) {
+        // If user is already logged in, skip login screen and go straight to EventGridActivity.
+        // The login layout is never inflated, and the first page of events starts loading now
+        // so the query runs while the grid activity is being created.
+        if (isLoggedIn && savedUserId != -1) {
+            EventRepository.getInstance(this).prefetchFirstPage(savedUserId, EventGridActivity.PAGE_SIZE);
             Intent intent = new Intent(this, EventGridActivity.class);
+            intent.putExtra("userId", savedUserId);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK); // Prevent back navigation
             startActivity(intent);
             finish();
+            return;
         }
 
         // Load the login screen layout
@@ -51,26 +87,27 @@ public class MainActivity extends AppCompatActivity {
         if (username.isEmpty() || password.isEmpty()) {
             Toast.makeText(this, "Please enter both username and password", Toast.LENGTH_SHORT).show();
         } else {
-            DatabaseHelper dbHelper = new DatabaseHelper(this);
-
-            // Check credentials in the database
-            if (dbHelper.checkUser(username, password)) {
-                int userId = dbHelper.getUserId(username);
-
-                // Save login state and user ID
-                SharedPreferences.Editor editor = prefs.edit();
-                editor.putBoolean("isLoggedIn", true);
-                editor.putInt("userId", userId);
-                editor.apply();
-
-                // Navigate to SMS permission screen
-                Intent intent = new Intent(this, SmsPermissionActivity.class);
-                intent.putExtra("userId", userId);
-                startActivity(intent);
-                finish();
-            } else {
-                Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
-            }
+            // Check credentials in the database (off the UI thread); -1 means no match
+            EventRepository.getInstance(this).login(username, password, userId -> {
+                if (userId != -1) {
+                    // Save login state and user ID
+                    SharedPreferences.Editor editor = prefs.edit();
+                    editor.putBoolean("isLoggedIn", true);
+                    editor.putInt("userId", userId);
+                    editor.apply();
+
+                    // Warm the grid's first page while the permission screen is up
+                    EventRepository.getInstance(this).prefetchFirstPage(userId, EventGridActivity.PAGE_SIZE);
+
+                    // Navigate to SMS permission screen
+                    Intent intent = new Intent(this, SmsPermissionActivity.class);
+                    intent.putExtra("userId", userId);
+                    startActivity(intent);
+                    finish();
+                } else {
+                    Toast.makeText(this, "Invalid username or password", Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 
@@ -82,14 +119,14 @@ public class MainActivity extends AppCompatActivity {
         if (username.isEmpty() || password.isEmpty()) {
             Toast.makeText(this, "Please enter both username and password", Toast.LENGTH_SHORT).show();
         } else {
-            DatabaseHelper dbHelper = new DatabaseHelper(this);
-
             // Attempt to add user to the database
-            if (dbHelper.addUser(username, password)) {
-                Toast.makeText(this, "Account created successfully!", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "Account creation failed. Username might already exist.", Toast.LENGTH_SHORT).show();
-            }
+            EventRepository.getInstance(this).addUser(username, password, created -> {
+                if (created) {
+                    Toast.makeText(this, "Account created successfully!", Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, "Account creation failed. Username might already exist.", Toast.LENGTH_SHORT).show();
+                }
+            });
         }
     }
 }
@@ -0,0 +1,80 @@
+package com.example.eventdaddy;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs DatabaseMaintenance about once a day, only while the device is idle and charging, so
+// archiving and compaction never compete with the user for the disk or the battery. The
+// system stops the job as soon as either condition ends; the run then stops after its
+// current slice and the job is retried later.
+public class MaintenanceJobService extends JobService {
+
+    public static final int DEFAULT_ARCHIVE_HORIZON_DAYS = 365;
+
+    private static final String TAG = "MaintenanceJobService";
+    private static final int JOB_ID = 1_001;
+    private static final String EXTRA_ARCHIVE_HORIZON_DAYS = "archive_horizon_days";
+    private static final long PERIOD_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // Longest a single run may take; the rest waits for the next one
+    private static final long BUDGET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "EventDaddy-maintenance"));
+    private volatile boolean stopped;
+
+    // Schedules the daily job, archiving events that ended more than archiveHorizonDays ago.
+    // Cheap to call on every launch: a job that is already scheduled the same way is left
+    // alone, so its period isn't restarted.
+    public static void schedule(Context context, int archiveHorizonDays) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        JobInfo pending = scheduler.getPendingJob(JOB_ID);
+        if (pending != null && pending.getExtras().getInt(EXTRA_ARCHIVE_HORIZON_DAYS) == archiveHorizonDays) {
+            return;
+        }
+        PersistableBundle extras = new PersistableBundle();
+        extras.putInt(EXTRA_ARCHIVE_HORIZON_DAYS, archiveHorizonDays);
+        scheduler.schedule(new JobInfo.Builder(JOB_ID, new ComponentName(context, MaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(PERIOD_MILLIS)
+                .setExtras(extras)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopped = false;
+        long horizonMillis = TimeUnit.DAYS.toMillis(params.getExtras().getInt(EXTRA_ARCHIVE_HORIZON_DAYS,
+                DEFAULT_ARCHIVE_HORIZON_DAYS));
+        executor.execute(() -> {
+            DatabaseMaintenance.Result result = new DatabaseMaintenance(DatabaseHelper.getInstance(this),
+                    System::currentTimeMillis, horizonMillis).run(BUDGET_MILLIS, () -> stopped);
+            Log.i(TAG, result.toString());
+            // An unfinished run resumes at the next period, when the device is idle again
+            jobFinished(params, false);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        stopped = true;
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        executor.shutdown();
+        super.onDestroy();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.eventdaddy;
+
+import android.database.sqlite.SQLiteDatabase;
+
+// One version step of a database schema, in two parts:
+//   - schema: DDL and other quick changes, run inside the open helper's upgrade transaction
+//   - backfill: per-row work over a table (filling a new column, indexing old rows), run
+//     afterwards by SchemaMigrator in key-ordered chunks, one transaction per chunk
+// Built as e.g.
+//   Migration.to(6, "event durations")
+//           .schema(db -> db.execSQL("ALTER TABLE ..."))
+//           .backfill("events", "event_id", (db, afterKey, lastKey) -> db.execSQL("UPDATE ..."))
+public final class Migration {
+
+    public interface SchemaStep {
+        void apply(SQLiteDatabase db);
+    }
+
+    // Does the step's work for the rows with keys in (afterKey, lastKey]
+    public interface RangeStep {
+        void apply(SQLiteDatabase db, long afterKey, long lastKey);
+    }
+
+    private final int version;
+    private final String description;
+    private SchemaStep schema;
+    private String table;
+    private String keyColumn;
+    private RangeStep backfill;
+
+    private Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    // A step that brings the database from version - 1 to version
+    public static Migration to(int version, String description) {
+        return new Migration(version, description);
+    }
+
+    public Migration schema(SchemaStep schema) {
+        this.schema = schema;
+        return this;
+    }
+
+    // Per-row work over the table, visited in order of its integer keyColumn (e.g. the rowid
+    // alias). Rows added after the upgrade are written in the new form and need none of it.
+    public Migration backfill(String table, String keyColumn, RangeStep backfill) {
+        this.table = table;
+        this.keyColumn = keyColumn;
+        this.backfill = backfill;
+        return this;
+    }
+
+    public int getVersion() { return version; }
+    public String getDescription() { return description; }
+
+    boolean hasBackfill() {
+        return backfill != null;
+    }
+
+    void applySchema(SQLiteDatabase db) {
+        if (schema != null) {
+            schema.apply(db);
+        }
+    }
+
+    String getTable() { return table; }
+    String getKeyColumn() { return keyColumn; }
+
+    void applyBackfill(SQLiteDatabase db, long afterKey, long lastKey) {
+        backfill.apply(db, afterKey, lastKey);
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " (" + description + ")";
+    }
+}
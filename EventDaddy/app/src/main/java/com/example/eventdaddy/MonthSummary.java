@@ -0,0 +1,67 @@
+package com.example.eventdaddy;
+
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+// How many events fall on each day of one month, for a calendar's month grid.
+// It is filled from start/end pairs alone, so summarizing a month never creates an Event
+// or a String per row. An event counts once on every day of the month it overlaps.
+public final class MonthSummary {
+
+    private final YearMonth month;
+    private final long[] dayStarts;  // Start of each day in local time, then of the next month
+    private final int[] counts;
+
+    public MonthSummary(YearMonth month) {
+        this.month = month;
+        int days = month.lengthOfMonth();
+        dayStarts = new long[days + 1];
+        for (int day = 0; day <= days; day++) {
+            dayStarts[day] = month.atDay(1).plusDays(day).atStartOfDay(ZoneId.systemDefault())
+                    .toInstant().toEpochMilli();
+        }
+        counts = new int[days];
+    }
+
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    // The month as an epoch-millis range [getFromMillis(), getToMillis())
+    public long getFromMillis() {
+        return dayStarts[0];
+    }
+
+    public long getToMillis() {
+        return dayStarts[counts.length];
+    }
+
+    // Number of events on a day, 1-based like the day of the month
+    public int getCount(int dayOfMonth) {
+        return counts[dayOfMonth - 1];
+    }
+
+    public int getDaysInMonth() {
+        return counts.length;
+    }
+
+    // Counts an event on each day it overlaps; events outside the month are ignored
+    public void add(long startMillis, long endMillis) {
+        long from = getFromMillis();
+        long to = getToMillis();
+        if (startMillis >= to || (endMillis <= from && startMillis < from)) {
+            return;
+        }
+        int first = dayIndex(Math.max(startMillis, from));
+        int last = endMillis > startMillis ? dayIndex(Math.min(endMillis, to) - 1) : first;
+        for (int day = first; day <= last; day++) {
+            counts[day]++;
+        }
+    }
+
+    private int dayIndex(long millis) {
+        int index = Arrays.binarySearch(dayStarts, millis);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.eventdaddy;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.spec.KeySpec;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Salted PBKDF2 password hashes, stored as "pbkdf2-sha256$<iterations>$<salt>$<hash>".
+// Hashing is deliberately slow, so only call this off the main thread.
+public class PasswordHasher {
+
+    // Work factor for new hashes. Raise it as devices get faster; older hashes keep
+    // verifying with the count stored alongside them and are upgraded on the next login.
+    public static final int DEFAULT_ITERATIONS = 60_000;
+
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    // Returns a new salted hash of the password in the stored format
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    // Checks a password against a stored hash; false for a wrong password or a malformed hash
+    public boolean verify(String password, String stored) {
+        String[] parts = split(stored);
+        if (parts == null) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // True if the stored value isn't a hash at this work factor and should be rewritten
+    public boolean needsRehash(String stored) {
+        String[] parts = split(stored);
+        return parts == null || !parts[1].equals(String.valueOf(iterations));
+    }
+
+    // True if the value is in the hashed format at all (as opposed to a legacy plaintext password)
+    public static boolean isHash(String stored) {
+        return split(stored) != null;
+    }
+
+    private static String[] split(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX + "$")) {
+            return null;
+        }
+        String[] parts = stored.split("\\$");
+        return parts.length == 4 ? parts : null;
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Switch;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+// Hidden screen (long-press the grid's header) showing PerfMetrics: a switch to collect
+// or not, and the report, which can be reset or shared as text. The same report is printed
+// by `adb shell dumpsys activity com.example.eventdaddy/.EventGridActivity`.
+public class PerfDebugActivity extends AppCompatActivity {
+
+    private static final String PREF_METRICS_ENABLED = "perfMetricsEnabled";
+
+    private TextView reportView;
+
+    // Applies the saved switch at start-up, before anything is measured
+    static void restoreSettings(Context context) {
+        PerfMetrics.setTracer(new SystemTracer());
+        PerfMetrics.setEnabled(context.getSharedPreferences("EventDaddyPrefs", MODE_PRIVATE)
+                .getBoolean(PREF_METRICS_ENABLED, false));
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_perf_debug);
+        reportView = findViewById(R.id.perfReport);
+
+        Switch enabledSwitch = findViewById(R.id.perfEnabledSwitch);
+        enabledSwitch.setChecked(PerfMetrics.isEnabled());
+        enabledSwitch.setOnCheckedChangeListener((button, checked) -> {
+            PerfMetrics.setEnabled(checked);
+            getSharedPreferences("EventDaddyPrefs", MODE_PRIVATE).edit()
+                    .putBoolean(PREF_METRICS_ENABLED, checked).apply();
+            showReport();
+        });
+        findViewById(R.id.perfRefreshButton).setOnClickListener(v -> showReport());
+        findViewById(R.id.perfResetButton).setOnClickListener(v -> {
+            PerfMetrics.reset();
+            showReport();
+        });
+        findViewById(R.id.perfShareButton).setOnClickListener(v -> {
+            Intent send = new Intent(Intent.ACTION_SEND)
+                    .setType("text/plain")
+                    .putExtra(Intent.EXTRA_SUBJECT, "EventDaddy performance report")
+                    .putExtra(Intent.EXTRA_TEXT, PerfMetrics.report());
+            startActivity(Intent.createChooser(send, "Share report"));
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    private void showReport() {
+        reportView.setText(PerfMetrics.report());
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.eventdaddy;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Built-in timing for the slow paths users report: every EventStore call (through
+// InstrumentedEventStore), grid rebuilds and row views. Call sites hold a Timer or Counter
+// from a static field and wrap their work:
+//   long start = TIMER.begin();
+//   try { ... } finally { TIMER.end(start, rowsRead); }
+// While disabled (the default) begin() is one volatile read and end() returns at once, so
+// instrumented code costs nothing measurable. While enabled, each timing goes into a
+// histogram of power-of-two buckets made of atomic counters, so recording never locks, and
+// to the Tracer, which forwards spans to system tracing (see SystemTracer).
+// The hidden debug screen (PerfDebugActivity) shows report() and switches collection on and off.
+public final class PerfMetrics {
+
+    // Receives every span, e.g. to show it in platform tracing tools
+    public interface Tracer {
+        void beginSection(String name);
+
+        void endSection();
+
+        void beginAsyncSection(String name, int cookie);
+
+        void endAsyncSection(String name, int cookie);
+    }
+
+    private static final Tracer NO_TRACER = new Tracer() {
+        @Override public void beginSection(String name) {}
+        @Override public void endSection() {}
+        @Override public void beginAsyncSection(String name, int cookie) {}
+        @Override public void endAsyncSection(String name, int cookie) {}
+    };
+
+    // begin() result when nothing is being measured
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    // Bucket i holds timings in [2^i, 2^(i+1)) nanoseconds; 2^40 ns is about 18 minutes
+    private static final int BUCKETS = 41;
+
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled;
+    private static volatile Tracer tracer = NO_TRACER;
+
+    private PerfMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Starts or stops collection; what was collected so far is kept until reset()
+    public static void setEnabled(boolean enabled) {
+        PerfMetrics.enabled = enabled;
+    }
+
+    public static void setTracer(Tracer tracer) {
+        PerfMetrics.tracer = tracer != null ? tracer : NO_TRACER;
+    }
+
+    // The timer with this name, created on first use
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    // The counter with this name, created on first use
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    // Clears every timer and counter
+    public static void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+    }
+
+    // Plain-text table of every timer that has run and every counter that has counted, by name
+    public static String report() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "Metrics %s%n", enabled ? "enabled" : "disabled"));
+        text.append(String.format(Locale.US, "%-34s %8s %9s %9s %9s %9s %10s%n",
+                "timer (ms)", "calls", "mean", "p50", "p90", "max", "rows"));
+        for (Timer timer : new TreeMap<>(timers).values()) {
+            long calls = timer.getCount();
+            if (calls == 0) {
+                continue;
+            }
+            text.append(String.format(Locale.US, "%-34s %8d %9.2f %9.2f %9.2f %9.2f %10d%n", timer.name, calls,
+                    millis(timer.totalNanos.sum() / calls), millis(timer.percentileNanos(50)),
+                    millis(timer.percentileNanos(90)), millis(timer.maxNanos.get()), timer.rows.sum()));
+        }
+        for (Counter counter : new TreeMap<>(counters).values()) {
+            if (counter.get() != 0) {
+                text.append(String.format(Locale.US, "%-34s %8d%n", counter.name, counter.get()));
+            }
+        }
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public static final class Timer {
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Starts a span on this thread; pass the result to end() on the same thread
+        public long begin() {
+            if (!enabled) {
+                return NOT_TIMED;
+            }
+            tracer.beginSection(name);
+            return System.nanoTime();
+        }
+
+        public void end(long start) {
+            end(start, 0);
+        }
+
+        // Ends a span from begin(), crediting it with the rows it read or produced
+        public void end(long start, long rowCount) {
+            if (start == NOT_TIMED) {
+                return;
+            }
+            tracer.endSection();
+            record(System.nanoTime() - start, rowCount);
+        }
+
+        // Starts a span that may end on another thread or after other work on this one,
+        // such as a list diffed in the background and laid out later
+        public long beginAsync(int cookie) {
+            if (!enabled) {
+                return NOT_TIMED;
+            }
+            tracer.beginAsyncSection(name, cookie);
+            return System.nanoTime();
+        }
+
+        public void endAsync(long start, int cookie, long rowCount) {
+            if (start == NOT_TIMED) {
+                return;
+            }
+            tracer.endAsyncSection(name, cookie);
+            record(System.nanoTime() - start, rowCount);
+        }
+
+        // Ends an async span's trace section without recording it, e.g. when the work was
+        // superseded and never finished
+        public void cancelAsync(long start, int cookie) {
+            if (start != NOT_TIMED) {
+                tracer.endAsyncSection(name, cookie);
+            }
+        }
+
+        // Visible for tests: adds one timing directly
+        void record(long nanos, long rowCount) {
+            nanos = Math.max(nanos, 0);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1)));
+            count.increment();
+            totalNanos.add(nanos);
+            rows.add(rowCount);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        // Upper bound of the bucket holding the given percentile; within 2x of the true value
+        public long percentileNanos(int percentile) {
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            long rank = (total * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min((1L << (i + 1)) - 1, maxNanos.get());
+                }
+            }
+            return 0;
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            rows.reset();
+            maxNanos.set(0);
+        }
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        private void reset() {
+            value.reset();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.eventdaddy;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// How an event repeats: every `interval` days, weeks or months from its first start,
+// optionally limited to `count` occurrences and/or to starts no later than untilMillis,
+// minus occurrences skipped one at a time.
+// Only the rule is stored; occurrences are computed on demand for the window being shown
+// or scheduled. Occurrence n is the first start plus n * interval units of local time, so
+// a 9:00 meeting stays at 9:00 across DST changes and a monthly event on the 31st falls on
+// the last day of shorter months. Since occurrence n can be computed directly, finding the
+// first one in a window never steps through the ones before it.
+public final class Recurrence {
+
+    public enum Frequency {
+        DAILY(ChronoUnit.DAYS),
+        WEEKLY(ChronoUnit.WEEKS),
+        MONTHLY(ChronoUnit.MONTHS);
+
+        final ChronoUnit unit;
+
+        Frequency(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    // untilMillis / lastStart value for a series that never ends
+    public static final long NO_END = Long.MAX_VALUE;
+
+    private static final long[] NONE_SKIPPED = new long[0];
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;          // 0 = no limit
+    private final long untilMillis;
+    private final long[] skipped;     // Starts of skipped occurrences, sorted
+
+    public Recurrence(Frequency frequency, int interval, int count, long untilMillis) {
+        this(frequency, interval, count, untilMillis, NONE_SKIPPED);
+    }
+
+    private Recurrence(Frequency frequency, int interval, int count, long untilMillis, long[] skipped) {
+        if (frequency == null || interval < 1 || count < 0) {
+            throw new IllegalArgumentException("Invalid recurrence: " + frequency + " " + interval + " " + count);
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.untilMillis = untilMillis;
+        this.skipped = skipped;
+    }
+
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+    public int getCount() { return count; }
+    public long getUntilMillis() { return untilMillis; }
+
+    // The same rule with one more occurrence skipped
+    public Recurrence withSkipped(long occurrenceStart) {
+        if (isSkipped(occurrenceStart)) {
+            return this;
+        }
+        long[] starts = Arrays.copyOf(skipped, skipped.length + 1);
+        starts[skipped.length] = occurrenceStart;
+        Arrays.sort(starts);
+        return new Recurrence(frequency, interval, count, untilMillis, starts);
+    }
+
+    // The same rule with exactly these occurrences skipped (in any order)
+    public Recurrence withSkipped(long[] occurrenceStarts) {
+        long[] starts = occurrenceStarts.clone();
+        Arrays.sort(starts);
+        return new Recurrence(frequency, interval, count, untilMillis, starts);
+    }
+
+    // Starts of the skipped occurrences, sorted
+    public long[] getSkipped() {
+        return skipped.clone();
+    }
+
+    public boolean isSkipped(long occurrenceStart) {
+        return Arrays.binarySearch(skipped, occurrenceStart) >= 0;
+    }
+
+    // Stored form of the rule (without skipped occurrences, which have their own table),
+    // e.g. "FREQ=WEEKLY;INTERVAL=2;COUNT=10". UNTIL, when present, is in epoch millis.
+    public String encode() {
+        StringBuilder text = new StringBuilder("FREQ=").append(frequency).append(";INTERVAL=").append(interval);
+        if (count > 0) {
+            text.append(";COUNT=").append(count);
+        }
+        if (untilMillis != NO_END) {
+            text.append(";UNTIL=").append(untilMillis);
+        }
+        return text.toString();
+    }
+
+    // Parses encode()'s format; throws IllegalArgumentException if the text isn't a rule
+    public static Recurrence decode(String text) {
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        long until = NO_END;
+        try {
+            for (String part : text.split(";")) {
+                int equals = part.indexOf('=');
+                String value = part.substring(equals + 1);
+                switch (part.substring(0, Math.max(equals, 0))) {
+                    case "FREQ": frequency = Frequency.valueOf(value); break;
+                    case "INTERVAL": interval = Integer.parseInt(value); break;
+                    case "COUNT": count = Integer.parseInt(value); break;
+                    case "UNTIL": until = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("Unknown recurrence part: " + part);
+                }
+            }
+        } catch (NullPointerException e) {
+            throw new IllegalArgumentException("Missing recurrence rule", e);
+        }
+        return new Recurrence(frequency, interval, count, until);
+    }
+
+    // Start of the series' last occurrence (skipped or not), or NO_END if it never ends
+    public long lastStart(long firstStart) {
+        if (firstStart == EventTimes.UNKNOWN) {
+            return firstStart;
+        }
+        LocalDateTime first = local(firstStart);
+        long last = lastIndex(first, firstStart);
+        return last == Long.MAX_VALUE ? NO_END : startOf(first, last);
+    }
+
+    // Occurrences of a series starting in [fromMillis, toMillis), earliest first, at most limit.
+    // A series whose start couldn't be parsed has no schedule and is its only occurrence.
+    public List<Event> occurrencesBetween(Event series, long fromMillis, long toMillis, int limit) {
+        long firstStart = series.getStartMillis();
+        if (firstStart == EventTimes.UNKNOWN) {
+            boolean inRange = fromMillis <= firstStart && firstStart < toMillis && limit > 0;
+            return inRange ? Collections.singletonList(series) : Collections.emptyList();
+        }
+        LocalDateTime first = local(firstStart);
+        long last = lastIndex(first, firstStart);
+        List<Event> occurrences = new ArrayList<>();
+        for (long n = indexAtOrAfter(first, firstStart, fromMillis); n <= last && occurrences.size() < limit; n++) {
+            long start = startOf(first, n);
+            if (start >= toMillis) {
+                break;
+            }
+            if (!isSkipped(start)) {
+                occurrences.add(occurrence(series, first, n, start));
+            }
+        }
+        return occurrences;
+    }
+
+    // Occurrences of a series that overlap [fromMillis, toMillis) (see Event.overlaps), which
+    // includes ones that started before the range and are still running at its beginning
+    public List<Event> occurrencesOverlapping(Event series, long fromMillis, long toMillis) {
+        List<Event> overlapping = new ArrayList<>(occurrencesBetween(series,
+                minus(fromMillis, series.getDurationMillis()), toMillis, Integer.MAX_VALUE));
+        overlapping.removeIf(occurrence -> !occurrence.overlaps(fromMillis, toMillis));
+        return overlapping;
+    }
+
+    // Starts of the occurrences in [fromMillis, toMillis), earliest first, without creating
+    // an Event per occurrence
+    public long[] startsBetween(long firstStart, long fromMillis, long toMillis) {
+        if (firstStart == EventTimes.UNKNOWN) {
+            return fromMillis <= firstStart && firstStart < toMillis ? new long[]{firstStart} : new long[0];
+        }
+        LocalDateTime first = local(firstStart);
+        long last = lastIndex(first, firstStart);
+        long[] starts = new long[8];
+        int size = 0;
+        for (long n = indexAtOrAfter(first, firstStart, fromMillis); n <= last; n++) {
+            long start = startOf(first, n);
+            if (start >= toMillis) {
+                break;
+            }
+            if (!isSkipped(start)) {
+                if (size == starts.length) {
+                    starts = Arrays.copyOf(starts, size * 2);
+                }
+                starts[size++] = start;
+            }
+        }
+        return Arrays.copyOf(starts, size);
+    }
+
+    // Up to limit occurrences at or after the (startMillis, eventId) keyset position used by
+    // EventStore paging, earliest first
+    public List<Event> occurrencesFrom(Event series, long startMillis, int eventId, int limit) {
+        if (series.getId() < eventId) {
+            if (startMillis == Long.MAX_VALUE) {
+                return Collections.emptyList();
+            }
+            startMillis++;  // Same start sorts before the position, so it's excluded
+        }
+        return occurrencesBetween(series, startMillis, NO_END, limit);
+    }
+
+    // Up to limit occurrences strictly before the (startMillis, eventId) keyset position,
+    // the latest ones, still earliest first
+    public List<Event> occurrencesBefore(Event series, long startMillis, int eventId, int limit) {
+        long firstStart = series.getStartMillis();
+        boolean sameStartIncluded = series.getId() < eventId;
+        if (firstStart == EventTimes.UNKNOWN) {
+            boolean before = firstStart < startMillis || (firstStart == startMillis && sameStartIncluded);
+            return before && limit > 0 ? Collections.singletonList(series) : Collections.emptyList();
+        }
+        LocalDateTime first = local(firstStart);
+        long n = Math.min(lastIndex(first, firstStart), indexAtOrAfter(first, firstStart, startMillis) - 1);
+        if (sameStartIncluded && n + 1 <= lastIndex(first, firstStart) && startOf(first, n + 1) == startMillis) {
+            n++;
+        }
+        List<Event> occurrences = new ArrayList<>();
+        for (; n >= 0 && occurrences.size() < limit; n--) {
+            long start = startOf(first, n);
+            if (!isSkipped(start)) {
+                occurrences.add(occurrence(series, first, n, start));
+            }
+        }
+        Collections.reverse(occurrences);
+        return occurrences;
+    }
+
+    // Index of the last occurrence allowed by count and until, or Long.MAX_VALUE if unbounded
+    private long lastIndex(LocalDateTime first, long firstStart) {
+        long last = count > 0 ? count - 1 : Long.MAX_VALUE;
+        if (untilMillis != NO_END) {
+            last = Math.min(last, indexAtOrAfter(first, firstStart, untilMillis + 1) - 1);
+        }
+        return last;
+    }
+
+    // Index of the first occurrence starting at or after millis, ignoring count and until.
+    // Estimated from the calendar distance, then corrected for DST and month-length shifts.
+    private long indexAtOrAfter(LocalDateTime first, long firstStart, long millis) {
+        if (millis <= firstStart) {
+            return 0;
+        }
+        long n = frequency.unit.between(first, local(millis)) / interval;
+        while (startOf(first, n) < millis) {
+            n++;
+        }
+        while (n > 0 && startOf(first, n - 1) >= millis) {
+            n--;
+        }
+        return n;
+    }
+
+    private long startOf(LocalDateTime first, long n) {
+        return first.plus(n * interval, frequency.unit).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Occurrence n as an Event: the series' ID, name, time text and duration, with that day's date
+    private Event occurrence(Event series, LocalDateTime first, long n, long start) {
+        String date = n == 0 ? series.getDate() : first.plus(n * interval, frequency.unit).toLocalDate().toString();
+        return new Event(series.getId(), series.getName(), date, series.getTime(),
+                start, start + series.getDurationMillis(), this);
+    }
+
+    // a - b, clamped instead of wrapping past Long.MIN_VALUE
+    static long minus(long a, long b) {
+        long difference = a - b;
+        return ((a ^ b) & (a ^ difference)) < 0 ? Long.MIN_VALUE : difference;
+    }
+
+    private static LocalDateTime local(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
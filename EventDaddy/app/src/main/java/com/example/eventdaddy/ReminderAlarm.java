@@ -0,0 +1,19 @@
+package com.example.eventdaddy;
+
+// Outlives the app's process on behalf of a ReminderScheduler: wakes the app for the next
+// reminder even if the process has been killed, and remembers the last reminder sent, so a
+// scheduler rebuilt after a restart neither misses a reminder nor sends one twice.
+// SystemReminderAlarm is the real implementation; unit tests can keep both in memory.
+public interface ReminderAlarm {
+
+    // Arms the wake-up for this time, replacing the one armed before
+    void set(long atMillis);
+
+    // Disarms the wake-up, e.g. when the user logs out
+    void cancel();
+
+    // Due time of the last reminder sent, or Long.MIN_VALUE if none has been
+    long getSentThrough();
+
+    void setSentThrough(long dueMillis);
+}
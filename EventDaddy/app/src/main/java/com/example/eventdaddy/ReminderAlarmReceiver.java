@@ -0,0 +1,64 @@
+package com.example.eventdaddy;
+
+import android.Manifest;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.telephony.SmsManager;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.concurrent.Executors;
+
+// Woken by SystemReminderAlarm when a reminder comes due, and after a reboot (which clears
+// alarms). If the process was killed, the logged-in user's scheduler is rebuilt from the
+// store; either way whatever is due goes out before the receiver finishes, and sending
+// arms the alarm for the next one.
+public class ReminderAlarmReceiver extends BroadcastReceiver {
+
+    private static final long REMINDER_LEAD_MS = 30 * 60 * 1000;        // Remind this long before the start
+    private static final long REMINDER_BATCH_WINDOW_MS = 5 * 60 * 1000; // Reminders this close share one SMS
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        SharedPreferences prefs = context.getSharedPreferences("EventDaddyPrefs", Context.MODE_PRIVATE);
+        int userId = prefs.getInt("userId", -1);
+        ReminderScheduler scheduler = prefs.getBoolean("isLoggedIn", false) && userId != -1
+                ? startRemindersIfEnabled(context, userId) : null;
+        if (scheduler == null) {
+            return;
+        }
+        PendingResult result = goAsync();
+        scheduler.sendDueNow(result::finish);
+    }
+
+    // Starts SMS reminders for the user if they granted SEND_SMS and gave a number to text,
+    // and returns the user's running scheduler; null if reminders are off
+    public static ReminderScheduler startRemindersIfEnabled(Context context, int userId) {
+        EventRepository repository = EventRepository.getInstance(context);
+        synchronized (repository) {
+            if (repository.hasReminders(userId)) {
+                return repository.getReminders();
+            }
+            if (ContextCompat.checkSelfPermission(context, Manifest.permission.SEND_SMS)
+                    != PackageManager.PERMISSION_GRANTED) {
+                return null;
+            }
+            String phoneNumber = context.getSharedPreferences("EventDaddyPrefs", Context.MODE_PRIVATE)
+                    .getString("reminderPhoneNumber", "");
+            if (phoneNumber.isEmpty()) {
+                return null;
+            }
+            ReminderScheduler scheduler = new ReminderScheduler(userId,
+                    new InstrumentedEventStore(DatabaseHelper.getInstance(context)),
+                    new SmsReminderSender(context.getSystemService(SmsManager.class), phoneNumber),
+                    new SystemReminderAlarm(context, userId),
+                    Executors.newSingleThreadScheduledExecutor(), System::currentTimeMillis,
+                    REMINDER_LEAD_MS, REMINDER_BATCH_WINDOW_MS);
+            repository.startReminders(scheduler);
+            return scheduler;
+        }
+    }
+}
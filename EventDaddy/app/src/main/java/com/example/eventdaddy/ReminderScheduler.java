@@ -0,0 +1,282 @@
+package com.example.eventdaddy;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Sends a reminder shortly before each of a user's upcoming events.
+// Pending reminders sit in a min-heap ordered by due time, and the scheduler only wakes
+// for the head of the heap instead of polling. Reminders that come due within one batch
+// window of each other go out as a single dispatch. Only reminders due within the next
+// LOAD_HORIZON_MILLIS are held; the horizon moves forward as time passes, so a recurring
+// event contributes one or two occurrences at a time no matter how long it runs. Changes
+// published by the store adjust the heap in place. All state is confined to the executor's
+// thread: the public methods just post work to it, and change batches are delivered on it.
+// The executor's timer only lasts as long as the process, so every wake-up is also armed on
+// the ReminderAlarm, which brings the app back to rebuild the heap if the process is gone.
+public class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+
+    // How far ahead reminders are loaded (and recurring events expanded) at a time
+    private static final long LOAD_HORIZON_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long NOT_LOADED = Long.MIN_VALUE;
+
+    private final int userId;
+    private final EventStore store;
+    private final ReminderSender sender;
+    private final ReminderAlarm alarm;
+    private final ScheduledExecutorService executor;
+    private final LongSupplier clock;
+    private final long leadMillis;
+    private final long batchWindowMillis;
+
+    // Due reminders, earliest first. Replaced or removed entries stay in the heap until
+    // they surface and are skipped, so a change never has to search the heap.
+    private final PriorityQueue<Reminder> heap = new PriorityQueue<>((a, b) -> a.dueMillis != b.dueMillis
+            ? Long.compare(a.dueMillis, b.dueMillis) : Integer.compare(a.event.getId(), b.event.getId()));
+    // Current reminder per occurrence (Event.getOccurrenceKey); a heap entry is live only if
+    // it is the one mapped here
+    private final Map<Long, Reminder> pending = new HashMap<>();
+    // Occurrences starting before this have been loaded; later ones are still in the store.
+    // NOT_LOADED until loadUpcoming has run.
+    private long loadedUntil = NOT_LOADED;
+
+    private EventChangeNotifier.Subscription subscription;
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAt = Long.MAX_VALUE;
+
+    // leadMillis: how long before the start to remind; batchWindowMillis: how far past the
+    // first due reminder to look for others to send along with it
+    public ReminderScheduler(int userId, EventStore store, ReminderSender sender, ReminderAlarm alarm,
+                             ScheduledExecutorService executor, LongSupplier clock, long leadMillis,
+                             long batchWindowMillis) {
+        this.userId = userId;
+        this.store = store;
+        this.sender = sender;
+        this.alarm = alarm;
+        this.executor = executor;
+        this.clock = clock;
+        this.leadMillis = leadMillis;
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    // Subscribes to the user's changes, loads their upcoming events and arms the first
+    // wake-up. Subscribing first means a change made during the load is applied after it.
+    public synchronized void start() {
+        subscription = store.getChangeNotifier().subscribe(userId, executor, this::applyChanges);
+        executor.execute(this::loadUpcoming);
+    }
+
+    // Stops the scheduler and disarms its alarm; reminders that haven't gone out yet are dropped
+    public synchronized void shutdown() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+            subscription = null;
+        }
+        executor.shutdownNow();
+        alarm.cancel();
+    }
+
+    // Sends whatever is due now, e.g. when the alarm fires, then runs done on the scheduler's
+    // thread. Posted after start()'s load, so a freshly started scheduler sends from a full heap.
+    public void sendDueNow(Runnable done) {
+        executor.execute(() -> {
+            try {
+                sendDue();
+            } finally {
+                done.run();
+            }
+        });
+    }
+
+    // Loads from scratch, e.g. in a process the alarm restarted; reminders the alarm says
+    // already went out are not queued again
+    private void loadUpcoming() {
+        long now = clock.getAsLong();
+        loadedUntil = now;
+        extendHorizon(now);
+        long sentThrough = alarm.getSentThrough();
+        pending.values().removeIf(reminder -> reminder.dueMillis <= sentThrough);
+        scheduleNext();
+    }
+
+    // Loads the occurrences whose reminders come due within the horizon from now
+    private void extendHorizon(long now) {
+        long until = now + leadMillis + LOAD_HORIZON_MILLIS;
+        List<Event> upcoming = store.getUserEventsBetween(userId, Math.max(loadedUntil, now), until);
+        loadedUntil = until;
+        for (Event occurrence : upcoming) {
+            put(occurrence, now);
+        }
+    }
+
+    // Applies a batch of the user's event changes to the heap
+    private void applyChanges(List<EventChange> changes) {
+        if (loadedUntil == NOT_LOADED) {
+            return;  // Made before the initial load, which is still queued and will see them
+        }
+        long now = clock.getAsLong();
+        for (EventChange change : changes) {
+            switch (change.getType()) {
+                case INSERTED:
+                case UPDATED:
+                    Event event = change.getEvent();
+                    if (event.isRecurring()) {
+                        // Re-expand the series over what's loaded; its rule or skips may have changed
+                        removeAll(event.getId());
+                        for (Event occurrence : event.getRecurrence().occurrencesBetween(
+                                event, now, loadedUntil, Integer.MAX_VALUE)) {
+                            put(occurrence, now);
+                        }
+                    } else {
+                        put(event, now);
+                    }
+                    break;
+                case DELETED:
+                    removeAll(change.getEventId());
+                    break;
+                case RELOADED:
+                    pending.clear();
+                    heap.clear();
+                    loadUpcoming();
+                    break;
+            }
+        }
+        compactIfMostlyStale();
+        scheduleNext();
+    }
+
+    // Visible for tests: runs the due check now rather than waiting for the timer
+    void wakeUpNow() {
+        sendDueNow(() -> { });
+    }
+
+    // Visible for tests: number of reminders still waiting to go out
+    int pendingCount() {
+        return pending.size();
+    }
+
+    // Queues (or re-queues) an occurrence's reminder. Ones that have already started are
+    // dropped, and ones past the horizon are left for extendHorizon to load.
+    private void put(Event event, long now) {
+        long start = event.getStartMillis();
+        if (start == EventTimes.UNKNOWN || start < now || start >= loadedUntil) {
+            if (pending.remove(event.getOccurrenceKey()) != null) {
+                compactIfMostlyStale();
+            }
+            return;
+        }
+        Reminder reminder = new Reminder(event, start - leadMillis);
+        pending.put(event.getOccurrenceKey(), reminder);
+        heap.add(reminder);
+        compactIfMostlyStale();
+    }
+
+    // Drops every pending reminder for an event, i.e. all occurrences of a series
+    private void removeAll(int eventId) {
+        pending.values().removeIf(reminder -> reminder.event.getId() == eventId);
+    }
+
+    // Sends everything due now, plus anything due within the batch window after it, as one dispatch
+    private void sendDue() {
+        wakeUp = null;
+        wakeUpAt = Long.MAX_VALUE;
+        if (loadedUntil == NOT_LOADED) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (now >= loadedUntil - leadMillis) {
+            extendHorizon(now);
+        }
+        Reminder head = peekLive();
+        if (head == null || head.dueMillis > now) {
+            scheduleNext();
+            return;
+        }
+        long batchEnd = Math.max(now, head.dueMillis) + batchWindowMillis;
+        List<Event> batch = new ArrayList<>();
+        long lastDue = head.dueMillis;
+        while ((head = peekLive()) != null && head.dueMillis <= batchEnd) {
+            heap.poll();
+            pending.remove(head.event.getOccurrenceKey());
+            batch.add(head.event);
+            lastDue = head.dueMillis;
+        }
+        // One retry; a batch that fails twice is dropped so later reminders still go out
+        if (!trySend(batch) && !trySend(batch)) {
+            Log.e(TAG, "Dropped " + batch.size() + " reminders after the retry failed");
+        }
+        alarm.setSentThrough(lastDue);
+        scheduleNext();
+    }
+
+    private boolean trySend(List<Event> batch) {
+        try {
+            sender.send(userId, batch);
+            return true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Sending " + batch.size() + " reminders failed", e);
+            return false;
+        }
+    }
+
+    // Points the single timer at the earliest live reminder, or at the end of the horizon if
+    // that comes first
+    private void scheduleNext() {
+        Reminder head = peekLive();
+        long dueAt = Math.min(head != null ? head.dueMillis : Long.MAX_VALUE, loadedUntil - leadMillis);
+        if (dueAt == wakeUpAt && wakeUp != null) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        wakeUpAt = dueAt;
+        if (!executor.isShutdown()) {
+            long delay = Math.max(0, dueAt - clock.getAsLong());
+            wakeUp = executor.schedule(this::sendDue, delay, TimeUnit.MILLISECONDS);
+            alarm.set(dueAt);
+        }
+    }
+
+    // Returns the earliest reminder still current, discarding replaced or removed ones
+    private Reminder peekLive() {
+        Reminder head;
+        while ((head = heap.peek()) != null && pending.get(head.event.getOccurrenceKey()) != head) {
+            heap.poll();
+        }
+        return head;
+    }
+
+    // Rebuilds the heap from the live reminders once stale entries outnumber them
+    private void compactIfMostlyStale() {
+        if (heap.size() > 2 * pending.size() + 16) {
+            heap.clear();
+            heap.addAll(pending.values());
+        }
+    }
+
+    private static final class Reminder {
+        final Event event;
+        final long dueMillis;
+
+        Reminder(Event event, long dueMillis) {
+            this.event = event;
+            this.dueMillis = dueMillis;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.eventdaddy;
+
+import java.util.List;
+
+// Delivers reminders for events that are about to start.
+// SmsReminderSender is the real implementation; unit tests can record batches in memory.
+public interface ReminderSender {
+
+    // Sends one dispatch covering every event in the batch, in start order
+    void send(int userId, List<Event> events);
+}
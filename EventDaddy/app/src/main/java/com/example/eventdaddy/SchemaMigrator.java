@@ -0,0 +1,152 @@
+package com.example.eventdaddy;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Upgrades a database through an ordered list of Migrations without losing data.
+// SQLiteOpenHelper runs onUpgrade in one transaction, which holds the write lock for as long
+// as it takes; fine for DDL, too long for rewriting a 100k-row table. So upgrade() only runs
+// each step's schema part, and records the steps with a backfill in a table of their own.
+// runBackfills(), called once the database is open, then works through them in version
+// order, chunkSize rows per transaction. The position reached is saved with every chunk, so
+// an upgrade that is interrupted (the process killed, the battery dying) picks up from the
+// last committed chunk next time instead of starting over, and other connections can read
+// between chunks.
+public final class SchemaMigrator {
+
+    public static final int DEFAULT_CHUNK_SIZE = 2_000;
+
+    // Steps whose backfill hasn't finished, and the last key each has done
+    private static final String TABLE_BACKFILLS = "schema_backfills";
+    private static final String COLUMN_VERSION = "version";
+    private static final String COLUMN_RESUME_KEY = "resume_key";
+    private static final String CREATE_TABLE_BACKFILLS =
+            "CREATE TABLE IF NOT EXISTS " + TABLE_BACKFILLS + " (" +
+                    COLUMN_VERSION + " INTEGER PRIMARY KEY, " +
+                    COLUMN_RESUME_KEY + " INTEGER NOT NULL)";
+
+    // Receives each backfill's progress after every committed chunk
+    public interface ProgressListener {
+        void onProgress(Migration step, long rowsDone, long rowsTotal);
+    }
+
+    private final List<Migration> migrations;
+
+    // Steps must be in version order, one per version
+    public SchemaMigrator(List<Migration> migrations) {
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).getVersion() != migrations.get(i - 1).getVersion() + 1) {
+                throw new IllegalArgumentException("Migrations must go up one version at a time: " + migrations);
+            }
+        }
+        this.migrations = new ArrayList<>(migrations);
+    }
+
+    // Version of a database that has had every step
+    public int getLatestVersion() {
+        return migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    // For onCreate: a new database is created at the latest version with nothing to backfill
+    public static void createTables(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_BACKFILLS);
+    }
+
+    // For onUpgrade: runs the schema part of each step after oldVersion, up to newVersion,
+    // and queues their backfills
+    public void upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        createTables(db);
+        for (Migration step : migrations) {
+            if (step.getVersion() <= oldVersion || step.getVersion() > newVersion) {
+                continue;
+            }
+            step.applySchema(db);
+            if (step.hasBackfill()) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_VERSION, step.getVersion());
+                values.put(COLUMN_RESUME_KEY, Long.MIN_VALUE);
+                db.insertWithOnConflict(TABLE_BACKFILLS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        }
+    }
+
+    // Whether an upgrade left backfills to run. Databases created before this class existed
+    // have no table for them, and nothing to run either.
+    public boolean hasPendingBackfills(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new String[]{TABLE_BACKFILLS}) > 0 && DatabaseUtils.queryNumEntries(db, TABLE_BACKFILLS) > 0;
+    }
+
+    // Runs every queued backfill to the end, oldest version first, and returns the number of
+    // rows visited. Call outside any transaction; each chunk commits on its own.
+    public long runBackfills(SQLiteDatabase db, int chunkSize, ProgressListener listener) {
+        long visited = 0;
+        for (Migration step : migrations) {
+            if (!step.hasBackfill()) {
+                continue;
+            }
+            Long resumeKey = resumeKey(db, step);
+            if (resumeKey == null) {
+                continue;
+            }
+            visited += runBackfill(db, step, resumeKey, chunkSize, listener);
+        }
+        return visited;
+    }
+
+    private long runBackfill(SQLiteDatabase db, Migration step, long afterKey, int chunkSize,
+                             ProgressListener listener) {
+        String[] versionArg = {String.valueOf(step.getVersion())};
+        long total = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + step.getTable() + " WHERE " +
+                step.getKeyColumn() + " > ?", new String[]{String.valueOf(afterKey)});
+        long done = 0;
+        while (true) {
+            long lastKey;
+            long rows;
+            // The chunk is the next chunkSize keys; its last key is where the next one starts
+            try (Cursor cursor = db.rawQuery("SELECT MAX(k), COUNT(*) FROM (SELECT " + step.getKeyColumn() +
+                    " AS k FROM " + step.getTable() + " WHERE " + step.getKeyColumn() + " > ? ORDER BY " +
+                    step.getKeyColumn() + " LIMIT ?)", new String[]{String.valueOf(afterKey),
+                    String.valueOf(chunkSize)})) {
+                cursor.moveToFirst();
+                rows = cursor.getLong(1);
+                lastKey = cursor.getLong(0);
+            }
+            db.beginTransaction();
+            try {
+                if (rows == 0) {
+                    db.delete(TABLE_BACKFILLS, COLUMN_VERSION + " = ?", versionArg);
+                } else {
+                    step.applyBackfill(db, afterKey, lastKey);
+                    ContentValues values = new ContentValues();
+                    values.put(COLUMN_RESUME_KEY, lastKey);
+                    db.update(TABLE_BACKFILLS, values, COLUMN_VERSION + " = ?", versionArg);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (rows == 0) {
+                return done;
+            }
+            afterKey = lastKey;
+            done += rows;
+            if (listener != null) {
+                listener.onProgress(step, done, total);
+            }
+        }
+    }
+
+    // Where the step's backfill stopped, or null if it isn't queued
+    private static Long resumeKey(SQLiteDatabase db, Migration step) {
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_RESUME_KEY + " FROM " + TABLE_BACKFILLS + " WHERE " +
+                COLUMN_VERSION + " = ?", new String[]{String.valueOf(step.getVersion())})) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : null;
+        }
+    }
+}
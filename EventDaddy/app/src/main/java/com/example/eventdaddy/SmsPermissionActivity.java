@@ -1,11 +1,14 @@
 package com.example.eventdaddy;
 
 import android.Manifest;
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.text.InputType;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -42,7 +45,7 @@ public class SmsPermissionActivity extends AppCompatActivity {
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.SEND_SMS)
                 == PackageManager.PERMISSION_GRANTED) {
             Toast.makeText(this, "Permission already granted.", Toast.LENGTH_SHORT).show();
-            navigateToEventGrid(userId); // Navigate after granting permissions
+            askForReminderNumber(); // Already granted, so go straight to the number
         } else {
             ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.SEND_SMS}, SMS_PERMISSION_CODE);
         }
@@ -54,13 +57,36 @@ public class SmsPermissionActivity extends AppCompatActivity {
         if (requestCode == SMS_PERMISSION_CODE) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 Toast.makeText(this, "SMS Permission Granted.", Toast.LENGTH_SHORT).show();
+                askForReminderNumber();
             } else {
                 Toast.makeText(this, "SMS Permission Denied.", Toast.LENGTH_SHORT).show();
+                navigateToEventGrid(userId); // Navigate without reminders
             }
-            navigateToEventGrid(userId); // Navigate regardless of permission
         }
     }
 
+    // Asks which number event reminders should be texted to, then continues to the grid
+    private void askForReminderNumber() {
+        EditText phoneInput = new EditText(this);
+        phoneInput.setHint("Phone number");
+        phoneInput.setInputType(InputType.TYPE_CLASS_PHONE);
+
+        new AlertDialog.Builder(this)
+                .setTitle("Send reminders to")
+                .setView(phoneInput)
+                .setPositiveButton("Save", (dialog, which) -> {
+                    String phoneNumber = phoneInput.getText().toString().trim();
+                    if (!phoneNumber.isEmpty()) {
+                        SharedPreferences prefs = getSharedPreferences("EventDaddyPrefs", MODE_PRIVATE);
+                        prefs.edit().putString("reminderPhoneNumber", phoneNumber).apply();
+                    }
+                    navigateToEventGrid(userId);
+                })
+                .setNegativeButton("Skip", (dialog, which) -> navigateToEventGrid(userId))
+                .setCancelable(false)
+                .show();
+    }
+
     private void navigateToEventGrid(int userId) {
         Intent intent = new Intent(this, EventGridActivity.class);
         intent.putExtra("userId", userId); // Pass the userId to EventGridActivity
@@ -0,0 +1,35 @@
+package com.example.eventdaddy;
+
+import android.telephony.SmsManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sends each batch of reminders as a single (possibly multipart) text message
+public class SmsReminderSender implements ReminderSender {
+
+    private final SmsManager smsManager;
+    private final String phoneNumber;
+
+    public SmsReminderSender(SmsManager smsManager, String phoneNumber) {
+        this.smsManager = smsManager;
+        this.phoneNumber = phoneNumber;
+    }
+
+    @Override
+    public void send(int userId, List<Event> events) {
+        StringBuilder message = new StringBuilder(events.size() == 1 ? "EventDaddy reminder: " : "EventDaddy reminders: ");
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append(event.getName()).append(" on ").append(event.getDate());
+            if (event.getTime() != null && !event.getTime().isEmpty()) {
+                message.append(" at ").append(event.getTime());
+            }
+        }
+        ArrayList<String> parts = smsManager.divideMessage(message.toString());
+        smsManager.sendMultipartTextMessage(phoneNumber, null, parts, null, null);
+    }
+}
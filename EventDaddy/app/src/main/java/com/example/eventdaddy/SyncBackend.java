@@ -0,0 +1,36 @@
+package com.example.eventdaddy;
+
+import java.io.IOException;
+
+// The server side of sync, which keeps the latest change to each of an account's events and
+// numbers them in the order it stored them. Batches are SyncBatch bytes, so only changed
+// events go over the network in either direction.
+// Unit tests use an in-process fake; a real server implements the same two calls.
+public interface SyncBackend {
+
+    // Stores a batch of the account's changes; each one is kept only if it supersedes what
+    // the server already has for that event. Throws if the batch wasn't stored.
+    void push(String account, byte[] batch) throws IOException;
+
+    // Up to limit of the account's changes stored after the cursor, leaving out those the
+    // device itself pushed
+    Pull pull(String account, String deviceId, long cursor, int limit) throws IOException;
+
+    final class Pull {
+        private final byte[] batch;
+        private final long cursor;
+        private final boolean more;
+
+        public Pull(byte[] batch, long cursor, boolean more) {
+            this.batch = batch;
+            this.cursor = cursor;
+            this.more = more;
+        }
+
+        public byte[] getBatch() { return batch; }
+        // Position to pull from next time
+        public long getCursor() { return cursor; }
+        // Whether changes beyond this batch are waiting
+        public boolean hasMore() { return more; }
+    }
+}
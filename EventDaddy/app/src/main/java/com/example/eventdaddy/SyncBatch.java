@@ -0,0 +1,102 @@
+package com.example.eventdaddy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Wire format of a batch of SyncChanges: a gzipped binary record per change. Each event's
+// start is sent as its date and time text and rebuilt on arrival, as when it was added.
+// Names in a calendar repeat a lot, so a batch typically shrinks to a fraction of its size.
+public final class SyncBatch {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private SyncBatch() {
+    }
+
+    public static byte[] encode(List<SyncChange> changes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(changes.size());
+            for (SyncChange change : changes) {
+                out.writeUTF(change.getSyncId());
+                out.writeLong(change.getModifiedMillis());
+                out.writeUTF(change.getOrigin());
+                Event event = change.getEvent();
+                out.writeBoolean(event != null);
+                if (event == null) {
+                    continue;
+                }
+                out.writeUTF(text(event.getName()));
+                out.writeUTF(text(event.getDate()));
+                out.writeUTF(text(event.getTime()));
+                out.writeLong(event.getDurationMillis());
+                Recurrence recurrence = event.getRecurrence();
+                out.writeBoolean(recurrence != null);
+                if (recurrence != null) {
+                    out.writeUTF(recurrence.encode());
+                    long[] skipped = recurrence.getSkipped();
+                    out.writeInt(skipped.length);
+                    for (long start : skipped) {
+                        out.writeLong(start);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Only writes to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    // Parses encode()'s output; throws IOException if the bytes aren't a batch
+    public static List<SyncChange> decode(byte[] batch) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(batch)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown sync batch version " + version);
+            }
+            int count = in.readInt();
+            List<SyncChange> changes = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                String syncId = in.readUTF();
+                long modifiedMillis = in.readLong();
+                String origin = in.readUTF();
+                if (!in.readBoolean()) {
+                    changes.add(SyncChange.deleted(syncId, modifiedMillis, origin));
+                    continue;
+                }
+                String name = in.readUTF();
+                String date = in.readUTF();
+                String time = in.readUTF();
+                long durationMillis = in.readLong();
+                Recurrence recurrence = null;
+                if (in.readBoolean()) {
+                    recurrence = Recurrence.decode(in.readUTF());
+                    long[] skipped = new long[in.readInt()];
+                    for (int j = 0; j < skipped.length; j++) {
+                        skipped[j] = in.readLong();
+                    }
+                    recurrence = recurrence.withSkipped(skipped);
+                }
+                long start = EventTimes.toEpochMillis(date, time);
+                long end = start == EventTimes.UNKNOWN ? start : start + durationMillis;
+                changes.add(SyncChange.updated(syncId, modifiedMillis, origin,
+                        new Event(0, name, date, time, start, end, recurrence)));
+            }
+            return changes;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unreadable recurrence in sync batch", e);
+        }
+    }
+
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.eventdaddy;
+
+// The latest state of one event as it travels between devices: either its details or, once
+// deleted, a tombstone. Events are matched across devices by syncId, since each device numbers
+// its rows on its own. Conflicts are settled per event by last writer wins: the change with
+// the later modifiedMillis replaces the other, ties going to the greater origin (device ID)
+// so that every device settles on the same one.
+public final class SyncChange {
+
+    private final String syncId;
+    private final long modifiedMillis;
+    private final String origin;
+    private final Event event;  // Null for a tombstone; its ID is meaningless off the device
+
+    private SyncChange(String syncId, long modifiedMillis, String origin, Event event) {
+        this.syncId = syncId;
+        this.modifiedMillis = modifiedMillis;
+        this.origin = origin;
+        this.event = event;
+    }
+
+    public static SyncChange updated(String syncId, long modifiedMillis, String origin, Event event) {
+        return new SyncChange(syncId, modifiedMillis, origin, event);
+    }
+
+    public static SyncChange deleted(String syncId, long modifiedMillis, String origin) {
+        return new SyncChange(syncId, modifiedMillis, origin, null);
+    }
+
+    public String getSyncId() { return syncId; }
+    public long getModifiedMillis() { return modifiedMillis; }
+    public String getOrigin() { return origin; }
+    // The event's details, with its recurrence and skipped occurrences; null if deleted
+    public Event getEvent() { return event; }
+
+    public boolean isDeleted() {
+        return event == null;
+    }
+
+    // Whether this change wins over a copy last written at modifiedMillis by origin
+    public boolean supersedes(long modifiedMillis, String origin) {
+        if (this.modifiedMillis != modifiedMillis) {
+            return this.modifiedMillis > modifiedMillis;
+        }
+        return this.origin.compareTo(origin) > 0;
+    }
+
+    public boolean supersedes(SyncChange other) {
+        return supersedes(other.modifiedMillis, other.origin);
+    }
+
+    @Override
+    public String toString() {
+        return (isDeleted() ? "deleted(" : "updated(") + syncId + " @" + modifiedMillis + " by " + origin + ")";
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.eventdaddy;
+
+import java.io.IOException;
+import java.util.List;
+
+// Brings a user's events on this device and on the backend up to date with each other.
+// Works offline-first: writes always go to the local database and its change log, and a
+// sync later uploads the log in batches of up to batchSize events, then downloads what other
+// devices changed since the last pull. Neither direction reads the whole account, so the
+// bytes sent and the time taken follow the number of changes, not the number of events.
+// A batch that fails stays in the log (or behind the cursor) and is simply sent again next
+// time; applying a change twice has no effect, since it no longer supersedes the copy.
+// Run it off the main thread, e.g. from a background job; calls for one user must not overlap.
+public class SyncEngine {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    private static final PerfMetrics.Timer PUSH = PerfMetrics.timer("sync.push");
+    private static final PerfMetrics.Timer PULL = PerfMetrics.timer("sync.pull");
+
+    private final SyncStore store;
+    private final SyncBackend backend;
+    private final String deviceId;
+    private final int batchSize;
+
+    // deviceId must be stable for the install and unique among the account's devices
+    public SyncEngine(SyncStore store, SyncBackend backend, String deviceId, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.store = store;
+        this.backend = backend;
+        this.deviceId = deviceId;
+        this.batchSize = batchSize;
+    }
+
+    // Uploads the user's pending changes, then applies everyone else's, under the given account
+    public Result sync(int userId, String account) throws IOException {
+        Result result = new Result();
+        push(userId, account, result);
+        pull(userId, account, result);
+        return result;
+    }
+
+    private void push(int userId, String account, Result result) throws IOException {
+        SyncStore.PendingChanges pending = store.getPendingChanges(userId, deviceId, batchSize);
+        while (!pending.isEmpty()) {
+            long start = PUSH.begin();
+            try {
+                byte[] batch = SyncBatch.encode(pending.getChanges());
+                backend.push(account, batch);
+                store.clearPendingChanges(userId, pending.getThroughSeq());
+                result.pushed += pending.getChanges().size();
+                result.bytesUploaded += batch.length;
+                result.batches++;
+            } finally {
+                PUSH.end(start, pending.getChanges().size());
+            }
+            pending = store.getPendingChanges(userId, deviceId, batchSize);
+        }
+    }
+
+    private void pull(int userId, String account, Result result) throws IOException {
+        long cursor = store.getPullCursor(userId);
+        SyncBackend.Pull pull;
+        do {
+            long start = PULL.begin();
+            int received = 0;
+            try {
+                pull = backend.pull(account, deviceId, cursor, batchSize);
+                List<SyncChange> changes = SyncBatch.decode(pull.getBatch());
+                received = changes.size();
+                result.applied += store.applyRemoteChanges(userId, changes, deviceId, pull.getCursor());
+                result.pulled += received;
+                result.bytesDownloaded += pull.getBatch().length;
+                result.batches++;
+                cursor = pull.getCursor();
+            } finally {
+                PULL.end(start, received);
+            }
+        } while (pull.hasMore());
+    }
+
+    // What one sync did
+    public static final class Result {
+        private int pushed;
+        private int pulled;
+        private int applied;
+        private int batches;
+        private long bytesUploaded;
+        private long bytesDownloaded;
+
+        // Changes uploaded
+        public int getPushed() { return pushed; }
+        // Changes downloaded
+        public int getPulled() { return pulled; }
+        // Downloaded changes that won over the local copy
+        public int getApplied() { return applied; }
+        // Round trips made, in both directions
+        public int getBatches() { return batches; }
+        public long getBytesUploaded() { return bytesUploaded; }
+        public long getBytesDownloaded() { return bytesDownloaded; }
+
+        @Override
+        public String toString() {
+            return "pushed " + pushed + " (" + bytesUploaded + " B), pulled " + pulled + " (" + bytesDownloaded +
+                    " B), applied " + applied + " in " + batches + " batches";
+        }
+    }
+}
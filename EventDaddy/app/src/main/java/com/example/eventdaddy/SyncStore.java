@@ -0,0 +1,41 @@
+package com.example.eventdaddy;
+
+import java.util.List;
+
+// Local side of sync. Every event write on this device is recorded in a change log, in order,
+// until the backend has it; changes from other devices are applied without being logged again.
+// DatabaseHelper is the real implementation; unit tests can supply an in-memory one.
+public interface SyncStore {
+
+    // The current state of each event named by the oldest `limit` entries of the user's change
+    // log (a tombstone if it was deleted since), stamped with deviceId where written here
+    PendingChanges getPendingChanges(int userId, String deviceId, int limit);
+
+    // Drops the user's log entries up to and including throughSeq, once the backend has them
+    void clearPendingChanges(int userId, long throughSeq);
+
+    // Position in the backend's changes that the user has pulled up to; 0 before the first pull
+    long getPullCursor(int userId);
+
+    // Applies each change that supersedes the local copy of its event (or its tombstone) and
+    // saves the new cursor, all in one go. Returns how many changes were applied.
+    int applyRemoteChanges(int userId, List<SyncChange> changes, String deviceId, long cursor);
+
+    final class PendingChanges {
+        private final List<SyncChange> changes;
+        private final long throughSeq;
+
+        public PendingChanges(List<SyncChange> changes, long throughSeq) {
+            this.changes = changes;
+            this.throughSeq = throughSeq;
+        }
+
+        public List<SyncChange> getChanges() { return changes; }
+        // Last log entry covered by these changes
+        public long getThroughSeq() { return throughSeq; }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+    }
+}
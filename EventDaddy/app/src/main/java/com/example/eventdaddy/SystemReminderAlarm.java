@@ -0,0 +1,59 @@
+package com.example.eventdaddy;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+
+// ReminderAlarm on AlarmManager, which fires ReminderAlarmReceiver even while the device
+// dozes. Exact when the user allows exact alarms, otherwise within the system's window.
+// What has been sent is kept in SharedPreferences, per user.
+public class SystemReminderAlarm implements ReminderAlarm {
+
+    private static final String PREFS = "EventDaddyReminders";
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final String sentThroughKey;
+
+    public SystemReminderAlarm(Context context, int userId) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = context.getSystemService(AlarmManager.class);
+        this.sentThroughKey = "sentThrough." + userId;
+    }
+
+    @Override
+    public void set(long atMillis) {
+        PendingIntent wakeUp = wakeUpIntent();
+        if (alarmManager.canScheduleExactAlarms()) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, atMillis, wakeUp);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, atMillis, wakeUp);
+        }
+    }
+
+    @Override
+    public void cancel() {
+        alarmManager.cancel(wakeUpIntent());
+    }
+
+    @Override
+    public long getSentThrough() {
+        return prefs().getLong(sentThroughKey, Long.MIN_VALUE);
+    }
+
+    @Override
+    public void setSentThrough(long dueMillis) {
+        prefs().edit().putLong(sentThroughKey, dueMillis).apply();
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    private PendingIntent wakeUpIntent() {
+        return PendingIntent.getBroadcast(context, 0, new Intent(context, ReminderAlarmReceiver.class),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.eventdaddy;
+
+import android.os.Trace;
+
+// Forwards PerfMetrics spans to android.os.Trace, so they appear by name in Perfetto and
+// systrace captures next to the framework's own sections
+final class SystemTracer implements PerfMetrics.Tracer {
+
+    @Override
+    public void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    @Override
+    public void endSection() {
+        Trace.endSection();
+    }
+
+    @Override
+    public void beginAsyncSection(String name, int cookie) {
+        Trace.beginAsyncSection(name, cookie);
+    }
+
+    @Override
+    public void endAsyncSection(String name, int cookie) {
+        Trace.endAsyncSection(name, cookie);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.eventdaddy;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Timings collected by DataLayerBenchmark, written as JSON so runs from different releases
+// can be compared by a script or against a checked-in baseline. One result per operation
+// and data size:
+//   {"operation": "getUserEventsList", "events": 10000, "iterations": 20,
+//    "medianNanos": 81234, "p90Nanos": 90412, "minNanos": 79001}
+// A baseline is any earlier report; a result regresses if its median exceeds the baseline's
+// median for the same operation and size by more than the tolerance factor.
+final class BenchmarkReport {
+
+    static final int FORMAT_VERSION = 1;
+
+    private final Map<String, JSONObject> results = new LinkedHashMap<>();
+
+    // Records one operation's per-iteration timings
+    void add(String operation, int events, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        try {
+            results.put(key(operation, events), new JSONObject()
+                    .put("operation", operation)
+                    .put("events", events)
+                    .put("iterations", sorted.length)
+                    .put("medianNanos", sorted[sorted.length / 2])
+                    .put("p90Nanos", sorted[Math.min(sorted.length - 1, sorted.length * 9 / 10)])
+                    .put("minNanos", sorted[0]));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void write(File file) throws IOException {
+        JSONObject report = new JSONObject();
+        try {
+            report.put("formatVersion", FORMAT_VERSION)
+                    .put("javaVersion", System.getProperty("java.version"))
+                    .put("results", new JSONArray(results.values()));
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            Files.write(file.toPath(), report.toString(2).getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Describes every result slower than the baseline's by more than `tolerance` times;
+    // operations missing from either report are ignored
+    List<String> regressionsAgainst(File baseline, double tolerance) throws IOException {
+        List<String> regressions = new ArrayList<>();
+        try {
+            JSONArray previous = new JSONObject(new String(Files.readAllBytes(baseline.toPath()),
+                    StandardCharsets.UTF_8)).getJSONArray("results");
+            for (int i = 0; i < previous.length(); i++) {
+                JSONObject before = previous.getJSONObject(i);
+                JSONObject now = results.get(key(before.getString("operation"), before.getInt("events")));
+                if (now != null && now.getLong("medianNanos") > before.getLong("medianNanos") * tolerance) {
+                    regressions.add(String.format("%s @ %d events: %d ns -> %d ns", before.getString("operation"),
+                            before.getInt("events"), before.getLong("medianNanos"), now.getLong("medianNanos")));
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Unreadable baseline " + baseline, e);
+        }
+        return regressions;
+    }
+
+    private static String key(String operation, int events) {
+        return operation + "@" + events;
+    }
+}
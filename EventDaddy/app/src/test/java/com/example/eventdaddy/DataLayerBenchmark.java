@@ -0,0 +1,336 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+// Times the data layer at growing account sizes on a plain JVM: Robolectric supplies the
+// Android framework and runs DatabaseHelper against real SQLite, so no device is needed.
+// Skipped in normal test runs; enable it with
+//   ./gradlew :app:testDebugUnitTest --tests '*DataLayerBenchmark' -Pbenchmark
+// Results go to app/build/benchmarks/data-layer.json (see BenchmarkReport). With
+// -PbenchmarkBaseline=<earlier report> the run fails if any operation got more than
+// -PbenchmarkTolerance (default 1.5) times slower. -PbenchmarkSizes=1000,10000 picks the sizes.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DataLayerBenchmark {
+
+    private static final String TEST_DB = "benchmark.db";
+    private static final int USER_ID = 1;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_ITERATIONS = 10;
+    // Whole-account imports and exports are slow enough that a few runs are plenty
+    private static final int BULK_ITERATIONS = 3;
+    // Single statements are cheap, so they get enough runs to be past JIT warm-up
+    private static final int STATEMENT_WARMUP = 500;
+    private static final int STATEMENT_ITERATIONS = 1000;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("eventdaddy.benchmark"));
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+            context.deleteDatabase(TEST_DB);
+        }
+    }
+
+    private interface Operation {
+        void run(int iteration);
+    }
+
+    // Runs op WARMUP_ITERATIONS times untimed, then `iterations` times timed one by one
+    private static long[] time(int iterations, Operation op) {
+        return time(WARMUP_ITERATIONS, iterations, op);
+    }
+
+    private static long[] time(int warmups, int iterations, Operation op) {
+        for (int i = 0; i < warmups; i++) {
+            op.run(i);
+        }
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            op.run(warmups + i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    // Fewer repetitions of whole-account reads as the account grows, to bound the run time
+    private static int fullReadIterations(int events) {
+        return Math.max(5, Math.min(50, 200_000 / events));
+    }
+
+    private static String date(int i) {
+        return String.format(Locale.US, "2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+    }
+
+    // A fresh database holding `events` events for USER_ID spread over one year, plus the
+    // same number for another user so every query has to filter by user
+    private void seed(int events) throws IOException {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(TEST_DB);
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.addUser("owner", "correct horse");
+        helper.addUser("other", "correct horse");
+        for (int userId : new int[]{USER_ID, USER_ID + 1}) {
+            int[] next = {0};
+            int imported = helper.importEvents(userId, () -> {
+                int i = next[0]++;
+                return i < events ? new Event(0, (i % 3 == 0 ? "Game " : "Practice ") + i, date(i),
+                        (1 + i % 11) + ":00 PM") : null;
+            }, null);
+            assertEquals(events, imported);
+        }
+    }
+
+    @Test
+    public void dataLayer() throws IOException {
+        BenchmarkReport report = new BenchmarkReport();
+        for (String size : System.getProperty("eventdaddy.benchmark.sizes", "1000,10000,100000").split(",")) {
+            int events = Integer.parseInt(size.trim());
+            seed(events);
+            measure(report, events);
+            measureBulk(report, events);
+            measureStatements(report, events);
+            measureSync(report, events);
+        }
+        helper.addUser("benchmark", "correct horse");
+        report.add("checkUser", 0, time(10, i -> assertTrue(helper.checkUser("benchmark", "correct horse"))));
+
+        File output = new File(System.getProperty("eventdaddy.benchmark.output", "build/benchmarks/data-layer.json"));
+        report.write(output);
+        System.out.println("Benchmark results written to " + output.getAbsolutePath());
+
+        String baseline = System.getProperty("eventdaddy.benchmark.baseline", "");
+        if (!baseline.isEmpty()) {
+            double tolerance = Double.parseDouble(System.getProperty("eventdaddy.benchmark.tolerance", "1.5"));
+            List<String> regressions = report.regressionsAgainst(new File(baseline), tolerance);
+            assertTrue("Slower than " + baseline + ":\n" + String.join("\n", regressions), regressions.isEmpty());
+        }
+    }
+
+    private void measure(BenchmarkReport report, int events) {
+        int fullReads = fullReadIterations(events);
+        List<Event> all = helper.getUserEventsList(USER_ID);
+        assertEquals(events, all.size());
+        Event middle = all.get(events / 2);
+        int firstId = all.stream().mapToInt(Event::getId).min().getAsInt();
+
+        report.add("addEvent", events, time(100, i ->
+                assertTrue(helper.addEvent("Added " + i, date(i), "9:00 AM", USER_ID))));
+        report.add("getUserEventsList", events, time(fullReads, i -> helper.getUserEventsList(USER_ID)));
+        report.add("getUserEventsSnapshot", events, time(fullReads, i -> helper.getUserEventsSnapshot(USER_ID)));
+        // In-memory queries over the snapshot: top-K against a full sort, split and on one thread
+        EventSnapshot snapshot = helper.getUserEventsSnapshot(USER_ID);
+        EventQuery topByName = EventQuery.builder().orderBy(EventQuery.BY_NAME).limit(PAGE_SIZE).build();
+        EventQuery allByName = EventQuery.builder().orderBy(EventQuery.BY_NAME).build();
+        report.add("queryTopK", events, time(fullReads, i -> topByName.run(snapshot)));
+        report.add("querySorted", events, time(fullReads, i -> allByName.run(snapshot)));
+        report.add("querySortedOneThread", events, time(fullReads, i -> allByName.run(snapshot, Runnable::run, 1)));
+        report.add("queryFilter", events, time(fullReads, i ->
+                EventQuery.builder().nameContains("game " + i).build().run(snapshot)));
+        // The grid's sorted list is keyset pages, so sorting costs one page wherever it starts
+        report.add("firstPage", events, time(100, i ->
+                helper.getUserEventsFrom(USER_ID, Long.MIN_VALUE, 0, PAGE_SIZE)));
+        report.add("middlePage", events, time(100, i ->
+                helper.getUserEventsFrom(USER_ID, middle.getStartMillis(), middle.getId(), PAGE_SIZE)));
+        // The grid's filter is a bounded full-text prefix search
+        report.add("filter", events, time(100, i -> helper.searchUserEvents(USER_ID, "gam", 100)));
+        report.add("filterRare", events, time(100, i ->
+                helper.searchUserEvents(USER_ID, String.valueOf(events / 2 + i), 100)));
+        // What the filter did before FTS: load every event and test each one
+        report.add("filterContainsLoop", events, time(fullReads, i -> {
+            int matches = 0;
+            for (Event event : helper.getUserEventsList(USER_ID)) {
+                if (event.getName().toLowerCase(Locale.ROOT).contains("gam")) {
+                    matches++;
+                }
+            }
+            assertTrue(matches > 0);
+        }));
+        // Mid-word matches, which the filter adds after the FTS ones; a rare text has to scan
+        // the user's whole start index before it fills the limit
+        report.add("filterMidWord", events, time(100, i ->
+                helper.searchUserEventsContaining(USER_ID, i % 2 == 0 ? "ame" : "ractic", 100)));
+        report.add("filterMidWordRare", events, time(fullReads, i ->
+                helper.searchUserEventsContaining(USER_ID, "zz" + i, 100)));
+        report.add("weekOverlapping", events, time(100, i -> helper.getUserEventsOverlapping(USER_ID,
+                EventTimes.toEpochMillis("2025-06-02", null), EventTimes.toEpochMillis("2025-06-09", null))));
+        report.add("monthSummary", events, time(100, i ->
+                helper.getUserMonthSummary(USER_ID, YearMonth.of(2025, 1 + i % 12))));
+        report.add("updateEvent", events, time(100, i ->
+                assertTrue(helper.updateEvent(firstId + i, "Updated " + i, date(i + 1), "10:00 AM"))));
+        report.add("deleteEvent", events, time(100, i ->
+                assertTrue(helper.deleteEvent(firstId + events / 2 + i))));
+    }
+
+    // The statement cache on its own: the SQL of DatabaseHelper's hot single-row statements,
+    // compiled for every call ("...CompiledPerCall") against compiled once and reused with
+    // fresh bindings the way its CachedStatement is ("...Cached"). Both sides run the same SQL
+    // and nothing else, so the difference is the compile. Many more runs than the rest of the
+    // benchmark so the first (1k) size isn't measuring a cold JIT.
+    private void measureStatements(BenchmarkReport report, int events) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long start = EventTimes.toEpochMillis("2025-03-07", "10:00 AM");
+        long[][] ids = new long[2][STATEMENT_WARMUP + STATEMENT_ITERATIONS];
+        measureStatement(report, events, "insert", db, "INSERT INTO events (event_name, event_date, " +
+                "event_time, user_id, start_epoch_millis, end_epoch_millis) VALUES (?, ?, ?, ?, ?, ?)",
+                (statement, variant, i) -> {
+                    statement.bindString(1, "Statement " + i);
+                    statement.bindString(2, "2025-03-07");
+                    statement.bindString(3, "10:00 AM");
+                    statement.bindLong(4, USER_ID);
+                    statement.bindLong(5, start);
+                    statement.bindLong(6, start);
+                    ids[variant][i] = statement.executeInsert();
+                });
+        measureStatement(report, events, "update", db, "UPDATE events SET event_name = ?, event_date = ?, " +
+                "event_time = ?, start_epoch_millis = ?, end_epoch_millis = ? + (end_epoch_millis - " +
+                "start_epoch_millis) WHERE event_id = ?",
+                (statement, variant, i) -> {
+                    statement.bindString(1, "Renamed " + i);
+                    statement.bindString(2, "2025-03-08");
+                    statement.bindString(3, "11:00 AM");
+                    statement.bindLong(4, start);
+                    statement.bindLong(5, start);
+                    statement.bindLong(6, ids[variant][i]);
+                    assertEquals(1, statement.executeUpdateDelete());
+                });
+        measureStatement(report, events, "delete", db, "DELETE FROM events WHERE event_id = ?",
+                (statement, variant, i) -> {
+                    statement.bindLong(1, ids[variant][i]);
+                    assertEquals(1, statement.executeUpdateDelete());
+                });
+        measureStatement(report, events, "getUserId", db, "SELECT id FROM users WHERE username = ?",
+                (statement, variant, i) -> {
+                    statement.bindString(1, "owner");
+                    assertEquals(USER_ID, statement.simpleQueryForLong());
+                });
+    }
+
+    private interface StatementRun {
+        // variant is 0 when compiled per call and 1 when cached, so each side has its own rows
+        void run(SQLiteStatement statement, int variant, int iteration);
+    }
+
+    private static void measureStatement(BenchmarkReport report, int events, String name, SQLiteDatabase db,
+                                         String sql, StatementRun run) {
+        report.add(name + "CompiledPerCall", events, time(STATEMENT_WARMUP, STATEMENT_ITERATIONS, i -> {
+            SQLiteStatement statement = db.compileStatement(sql);
+            try {
+                run.run(statement, 0, i);
+            } finally {
+                statement.close();
+            }
+        }));
+        SQLiteStatement cached = db.compileStatement(sql);
+        try {
+            report.add(name + "Cached", events, time(STATEMENT_WARMUP, STATEMENT_ITERATIONS, i -> {
+                cached.clearBindings();
+                run.run(cached, 1, i);
+            }));
+        } finally {
+            cached.close();
+        }
+    }
+
+    // Whole-account CSV import into a new user and export of USER_ID, against adding the same
+    // rows one addEvent at a time. Each timing covers every row; rows/s is printed as well.
+    private void measureBulk(BenchmarkReport report, int events) throws IOException {
+        StringWriter csv = new StringWriter();
+        assertEquals(events, helper.exportEvents(USER_ID, EventFileFormat.CSV.openWriter(csv), null));
+        String exported = csv.toString();
+        long[] exports = new long[BULK_ITERATIONS];
+        long[] imports = new long[BULK_ITERATIONS];
+        for (int i = -1; i < BULK_ITERATIONS; i++) {  // -1 is the warm-up
+            long start = System.nanoTime();
+            helper.exportEvents(USER_ID, EventFileFormat.CSV.openWriter(new StringWriter()), null);
+            long exportNanos = System.nanoTime() - start;
+
+            assertTrue(helper.addUser("bulk", "correct horse"));
+            int bulkUser = helper.getUserId("bulk");
+            start = System.nanoTime();
+            assertEquals(events, helper.importEvents(bulkUser,
+                    EventFileFormat.CSV.openReader(new StringReader(exported)), null));
+            long importNanos = System.nanoTime() - start;
+            assertTrue(helper.deleteUser(bulkUser, null));
+            if (i >= 0) {
+                exports[i] = exportNanos;
+                imports[i] = importNanos;
+            }
+        }
+        report.add("exportEvents", events, exports);
+        report.add("importEvents", events, imports);
+
+        // Per-row inserts, each its own transaction; capped so the largest size doesn't take minutes
+        int rows = Math.min(events, 2_000);
+        assertTrue(helper.addUser("bulk", "correct horse"));
+        int bulkUser = helper.getUserId("bulk");
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            helper.addEvent("Added " + i, date(i), "9:00 AM", bulkUser);
+        }
+        long addNanos = System.nanoTime() - start;
+        assertTrue(helper.deleteUser(bulkUser, null));
+        System.out.printf(Locale.US, "%d events: importEvents %.0f rows/s, exportEvents %.0f rows/s, " +
+                        "addEvent loop %.0f rows/s%n", events, rowsPerSecond(events, median(imports)),
+                rowsPerSecond(events, median(exports)), rowsPerSecond(rows, addNanos));
+    }
+
+    private static long median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double rowsPerSecond(int rows, long nanos) {
+        return rows * 1e9 / Math.max(nanos, 1);
+    }
+
+    // Once the account is on the server, a sync after one edit sends and receives one small
+    // batch, so its cost shouldn't grow with the account
+    private void measureSync(BenchmarkReport report, int events) throws IOException {
+        SyncEngine sync = new SyncEngine(helper, new FakeSyncServer(), "benchmark", SyncEngine.DEFAULT_BATCH_SIZE);
+        sync.sync(USER_ID, "benchmark");
+        int eventId = helper.getUserEventsList(USER_ID).get(0).getId();
+        report.add("editAndSync", events, time(100, i -> {
+            assertTrue(helper.updateEvent(eventId, "Synced " + i, date(i), "10:00 AM"));
+            try {
+                assertEquals(1, sync.sync(USER_ID, "benchmark").getPushed());
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }));
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.eventdaddy;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+// Upgrades a large version 1 database on the JVM, with Robolectric supplying real SQLite
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseUpgradeTest {
+
+    private static final String TEST_DB = "upgrade-test.db";
+    private static final int EVENTS = 100_000;
+    private static final int CHUNK_SIZE = 5_000;
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(TEST_DB);
+    }
+
+    // The database as version 1 of the app left it, with `events` events for user 1
+    private void createVersion1Database(int events) {
+        SQLiteDatabase db = context.openOrCreateDatabase(TEST_DB, Context.MODE_PRIVATE, null);
+        db.execSQL("CREATE TABLE users (id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT UNIQUE, password TEXT)");
+        db.execSQL("CREATE TABLE events (event_id INTEGER PRIMARY KEY AUTOINCREMENT, event_name TEXT, " +
+                "event_date TEXT, event_time TEXT, user_id INTEGER, FOREIGN KEY(user_id) REFERENCES users(id))");
+        db.execSQL("INSERT INTO users (username, password) VALUES ('alex', 'secret')");
+        SQLiteStatement insert = db.compileStatement(
+                "INSERT INTO events (event_name, event_date, event_time, user_id) VALUES (?, ?, ?, 1)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < events; i++) {
+                insert.bindString(1, (i % 3 == 0 ? "Game " : "Practice ") + i);
+                insert.bindString(2, String.format(Locale.US, "2025-%02d-%02d", 1 + i % 12, 1 + i % 28));
+                insert.bindString(3, (1 + i % 11) + ":00 PM");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        db.setVersion(1);
+        db.close();
+    }
+
+    private long count(String sql) {
+        return DatabaseUtils.longForQuery(helper.getReadableDatabase(), sql, null);
+    }
+
+    @Test
+    public void upgradeFromVersion1_backfillsEveryRowInChunks() {
+        createVersion1Database(EVENTS);
+        Map<Integer, List<Long>> progress = new TreeMap<>();
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.setMigrationChunkSize(CHUNK_SIZE);
+        helper.setMigrationListener((step, rowsDone, rowsTotal) -> {
+            assertEquals(EVENTS, rowsTotal);
+            progress.computeIfAbsent(step.getVersion(), version -> new ArrayList<>()).add(rowsDone);
+        });
+
+        assertEquals(1, helper.authenticate("alex", "secret"));
+
+        // Start times, the search index, durations, sync IDs and counts were each filled in chunks
+        assertEquals(List.of(2, 4, 6, 7, 8), new ArrayList<>(progress.keySet()));
+        for (List<Long> done : progress.values()) {
+            assertEquals(EVENTS / CHUNK_SIZE, done.size());
+            assertEquals(CHUNK_SIZE, (long) done.get(0));
+            assertEquals(EVENTS, (long) done.get(done.size() - 1));
+        }
+        assertEquals(0, count("SELECT COUNT(*) FROM events WHERE start_epoch_millis = " + EventTimes.UNKNOWN +
+                " OR end_epoch_millis != start_epoch_millis OR sync_id IS NULL"));
+        assertEquals(EVENTS, count("SELECT COUNT(DISTINCT sync_id) FROM events"));
+        assertEquals(EVENTS, count("SELECT COUNT(*) FROM change_log"));
+        assertEquals(EVENTS, helper.getUserEventCount(1));
+        assertTrue(names(helper.searchUserEvents(1, "game 4242", 10)).contains("Game 4242"));
+        assertEquals("Game 0", helper.getUserEventsList(1).get(0).getName());  // 2025-01-01
+    }
+
+    @Test
+    public void interruptedBackfill_resumesFromTheLastChunk() {
+        int events = 20_000;
+        createVersion1Database(events);
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.setMigrationChunkSize(1_000);
+        helper.setMigrationListener((step, rowsDone, rowsTotal) -> {
+            if (step.getVersion() == 4 && rowsDone == 3_000) {
+                throw new IllegalStateException("Killed");
+            }
+        });
+        try {
+            helper.getReadableDatabase();
+            fail("Expected the upgrade to be interrupted");
+        } catch (IllegalStateException expected) {
+            // The schema is at the new version, with some of the backfills still to run
+        }
+        helper.close();
+
+        Map<Integer, Long> remaining = new TreeMap<>();
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.setMigrationChunkSize(1_000);
+        helper.setMigrationListener((step, rowsDone, rowsTotal) -> remaining.putIfAbsent(step.getVersion(), rowsTotal));
+
+        assertTrue(names(helper.searchUserEvents(1, "game 999", 10)).contains("Game 999"));
+        // Start times were done; the index picked up after its third chunk; the rest ran in full
+        assertEquals(Map.of(4, (long) events - 3_000, 6, (long) events, 7, (long) events, 8, (long) events),
+                remaining);
+        assertEquals(events, count("SELECT COUNT(*) FROM events_fts"));
+        assertEquals(0, count("SELECT COUNT(*) FROM schema_backfills"));
+        assertEquals(events, helper.getUserEventCount(1));
+    }
+
+    @Test
+    public void newDatabase_hasNothingToBackfill() {
+        helper = new DatabaseHelper(context, TEST_DB);
+        helper.setMigrationListener((step, rowsDone, rowsTotal) -> fail("Nothing to migrate"));
+
+        assertTrue(helper.addUser("sam", "pw"));
+        assertEquals(1, helper.insertEvent("First", "2025-03-01", "9:00 AM", 1));
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+}
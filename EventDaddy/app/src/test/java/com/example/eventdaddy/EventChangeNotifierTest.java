@@ -0,0 +1,106 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class EventChangeNotifierTest {
+
+    private final EventChangeNotifier notifier = new EventChangeNotifier();
+    private final QueueExecutor mainThread = new QueueExecutor();
+
+    // Holds deliveries until the test runs them, like a busy main looper
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.add(command);
+        }
+
+        int run() {
+            int count = 0;
+            Runnable next;
+            while ((next = pending.poll()) != null) {
+                next.run();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static Event event(int id, String name) {
+        return new Event(id, name, "2030-01-01", "9:00 AM");
+    }
+
+    @Test
+    public void changesAreDeliveredOnlyToTheirUser() {
+        List<List<EventChange>> mine = new ArrayList<>();
+        List<List<EventChange>> theirs = new ArrayList<>();
+        notifier.subscribe(1, mainThread, mine::add);
+        notifier.subscribe(2, mainThread, theirs::add);
+
+        notifier.publish(EventChange.inserted(1, event(1, "Standup")));
+        assertTrue("Delivery waits for the subscriber's executor", mine.isEmpty());
+        mainThread.run();
+
+        assertEquals(1, mine.size());
+        assertEquals(1, mine.get(0).get(0).getEventId());
+        assertTrue(theirs.isEmpty());
+    }
+
+    @Test
+    public void burstOfChanges_isCoalescedIntoOneBatch() {
+        List<List<EventChange>> batches = new ArrayList<>();
+        notifier.subscribe(1, mainThread, batches::add);
+
+        notifier.publish(EventChange.inserted(1, event(1, "Standup")));
+        notifier.publish(EventChange.updated(1, event(1, "Standup (moved)")));
+        notifier.publish(EventChange.inserted(1, event(2, "Cancelled")));
+        notifier.publish(EventChange.deleted(1, 2));
+        notifier.publish(EventChange.deleted(1, 3));
+        assertEquals("One delivery is queued for the whole burst", 1, mainThread.run());
+
+        List<EventChange> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(EventChange.Type.INSERTED, batch.get(0).getType());
+        assertEquals("Standup (moved)", batch.get(0).getEvent().getName());
+        assertEquals(EventChange.Type.DELETED, batch.get(1).getType());
+        assertEquals(3, batch.get(1).getEventId());
+    }
+
+    @Test
+    public void reload_supersedesPendingChanges() {
+        List<List<EventChange>> batches = new ArrayList<>();
+        notifier.subscribe(1, mainThread, batches::add);
+
+        notifier.publish(EventChange.inserted(1, event(1, "Standup")));
+        notifier.publish(EventChange.reloaded(1));
+        notifier.publish(EventChange.updated(1, event(1, "Standup")));
+        mainThread.run();
+
+        assertEquals(1, batches.get(0).size());
+        assertEquals(EventChange.Type.RELOADED, batches.get(0).get(0).getType());
+        assertEquals(1, batches.get(0).get(0).getUserId());
+    }
+
+    @Test
+    public void unsubscribe_dropsQueuedAndLaterChanges() {
+        List<List<EventChange>> batches = new ArrayList<>();
+        EventChangeNotifier.Subscription subscription = notifier.subscribe(1, mainThread, batches::add);
+
+        notifier.publish(EventChange.inserted(1, event(1, "Standup")));
+        subscription.unsubscribe();
+        notifier.publish(EventChange.inserted(1, event(2, "Review")));
+        mainThread.run();
+
+        assertTrue(batches.isEmpty());
+        assertFalse(notifier.hasSubscribers());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventFileFormatTest {
+
+    private static List<Event> readAll(EventFileFormat format, String text) throws IOException {
+        EventFileFormat.EventReader reader = format.openReader(new StringReader(text));
+        List<Event> events = new ArrayList<>();
+        Event event;
+        while ((event = reader.next()) != null) {
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static String writeAll(EventFileFormat format, List<Event> events) throws IOException {
+        StringWriter out = new StringWriter();
+        EventFileFormat.EventWriter writer = format.openWriter(out);
+        for (Event event : events) {
+            writer.write(event);
+        }
+        writer.finish();
+        return out.toString();
+    }
+
+    @Test
+    public void csv_readsQuotedFieldsAndSkipsHeaderAndBlankLines() throws IOException {
+        List<Event> events = readAll(EventFileFormat.CSV,
+                "name,date,time\r\n" +
+                "Team Meeting,2025-03-07,9:00 AM\r\n" +
+                "\r\n" +
+                "\"Dinner, with \"\"Sam\"\"\",2025-03-08,7:30 PM\n" +
+                "No time,2025-03-09\n");
+
+        assertEquals(3, events.size());
+        assertEquals("Team Meeting", events.get(0).getName());
+        assertEquals("9:00 AM", events.get(0).getTime());
+        assertEquals("Dinner, with \"Sam\"", events.get(1).getName());
+        assertEquals("2025-03-08", events.get(1).getDate());
+        assertEquals("", events.get(2).getTime());
+    }
+
+    @Test
+    public void csv_roundTrips() throws IOException {
+        List<Event> original = Arrays.asList(
+                new Event(1, "Plain", "2025-03-07", "10:00 AM"),
+                new Event(2, "Has, comma and \"quotes\"", "2025-03-08", "1:00 PM"));
+
+        List<Event> reread = readAll(EventFileFormat.CSV, writeAll(EventFileFormat.CSV, original));
+
+        assertEquals(2, reread.size());
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.get(i).getName(), reread.get(i).getName());
+            assertEquals(original.get(i).getDate(), reread.get(i).getDate());
+            assertEquals(original.get(i).getTime(), reread.get(i).getTime());
+        }
+    }
+
+    @Test
+    public void ics_readsSummaryAndStartWithFoldedLines() throws IOException {
+        List<Event> events = readAll(EventFileFormat.ICS,
+                "BEGIN:VCALENDAR\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "SUMMARY:Quarterly planning\\, part\r\n" +
+                "  two\r\n" +
+                "DTSTART:20250307T143000\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "SUMMARY:All day\r\n" +
+                "DTSTART;VALUE=DATE:20250308\r\n" +
+                "END:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\n" +
+                "DTSTART:20250309T100000\r\n" +
+                "END:VEVENT\r\n" +
+                "END:VCALENDAR\r\n");
+
+        assertEquals(2, events.size());
+        assertEquals("Quarterly planning, part two", events.get(0).getName());
+        assertEquals("2025-03-07", events.get(0).getDate());
+        assertEquals("2:30 PM", events.get(0).getTime());
+        assertEquals("2025-03-08", events.get(1).getDate());
+        assertEquals("", events.get(1).getTime());
+    }
+
+    @Test
+    public void ics_roundTripsIncludingUnparseableDates() throws IOException {
+        List<Event> original = Arrays.asList(
+                new Event(1, "Standup; daily", "2025-03-07", "9:00 AM"),
+                new Event(2, "Someday", "next spring", "10:00 AM"));
+
+        List<Event> reread = readAll(EventFileFormat.ICS, writeAll(EventFileFormat.ICS, original));
+
+        assertEquals(2, reread.size());
+        assertEquals("Standup; daily", reread.get(0).getName());
+        assertEquals(original.get(0).getStartMillis(), reread.get(0).getStartMillis());
+        assertEquals("next spring", reread.get(1).getDate());
+    }
+
+    private static Event lasting(int id, String name, String date, String time, long durationMillis) {
+        long start = EventTimes.toEpochMillis(date, time);
+        return new Event(id, name, date, time, start, start + durationMillis, null);
+    }
+
+    @Test
+    public void durations_roundTripInBothFormats() throws IOException {
+        List<Event> original = Arrays.asList(
+                lasting(1, "Workshop", "2025-03-07", "9:00 AM", 90 * 60_000L),
+                lasting(2, "Reminder", "2025-03-08", "1:00 PM", 0));
+
+        for (EventFileFormat format : EventFileFormat.values()) {
+            List<Event> reread = readAll(format, writeAll(format, original));
+            assertEquals(format.name(), 90 * 60_000L, reread.get(0).getDurationMillis());
+            assertEquals(format.name(), 0, reread.get(1).getDurationMillis());
+        }
+    }
+
+    @Test
+    public void durations_areReadFromCsvColumnAndIcsDtendOrDuration() throws IOException {
+        List<Event> csv = readAll(EventFileFormat.CSV,
+                "name,date,time,duration\n" +
+                "Game,2025-03-07,10:00 AM,PT2H\n" +
+                "Old file,2025-03-07,10:00 AM\n" +
+                "Garbled,2025-03-07,10:00 AM,two hours\n");
+        assertEquals(2 * 3_600_000L, csv.get(0).getDurationMillis());
+        assertEquals(0, csv.get(1).getDurationMillis());
+        assertEquals(0, csv.get(2).getDurationMillis());
+
+        List<Event> ics = readAll(EventFileFormat.ICS,
+                "BEGIN:VCALENDAR\r\n" +
+                "BEGIN:VEVENT\r\nSUMMARY:Trip\r\nDTSTART;VALUE=DATE:20250307\r\n" +
+                "DTEND;VALUE=DATE:20250310\r\nEND:VEVENT\r\n" +
+                "BEGIN:VEVENT\r\nSUMMARY:Call\r\nDTSTART:20250307T143000\r\nDURATION:PT45M\r\nEND:VEVENT\r\n" +
+                "END:VCALENDAR\r\n");
+        assertEquals(EventTimes.toEpochMillis("2025-03-10", ""), ics.get(0).getEndMillis());
+        assertEquals(45 * 60_000L, ics.get(1).getDurationMillis());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventIntervalIndexTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static Event event(int id, long start, long end) {
+        return new Event(id, "Event " + id, "", "", start, end, null);
+    }
+
+    private static List<Integer> ids(List<Event> events) {
+        List<Integer> ids = new ArrayList<>();
+        for (Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void longEventStartedBeforeTheWindow_isFound() {
+        List<Event> events = List.of(
+                event(1, 0, 100 * HOUR),         // Runs through everything below
+                event(2, 10 * HOUR, 11 * HOUR),
+                event(3, 20 * HOUR, 21 * HOUR),
+                event(4, 30 * HOUR, 30 * HOUR),  // No duration
+                event(5, 40 * HOUR, 41 * HOUR));
+        EventIntervalIndex index = new EventIntervalIndex(events, 0, 200 * HOUR);
+
+        assertEquals(List.of(1, 4), ids(index.overlapping(25 * HOUR, 35 * HOUR)));
+        assertEquals("An event ending at the window start doesn't overlap it",
+                List.of(1), ids(index.overlapping(21 * HOUR, 30 * HOUR)));
+        assertEquals("A zero-length event overlaps the window it starts in",
+                List.of(1, 4), ids(index.overlapping(30 * HOUR, 31 * HOUR)));
+        assertEquals(List.of(), ids(index.overlapping(100 * HOUR, 200 * HOUR)));
+    }
+
+    @Test
+    public void matchesABruteForceScan() {
+        Random random = new Random(15);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            long start = random.nextInt(1000) * HOUR;
+            long duration = random.nextInt(4) == 0 ? random.nextInt(200) * HOUR : random.nextInt(3) * HOUR;
+            events.add(event(i, start, start + duration));
+        }
+        EventIntervalIndex index = new EventIntervalIndex(events, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 200; i++) {
+            long from = random.nextInt(1100) * HOUR;
+            long to = from + random.nextInt(100) * HOUR;
+            List<Event> expected = new ArrayList<>();
+            for (Event event : events) {
+                if (event.overlaps(from, to)) {
+                    expected.add(event);
+                }
+            }
+            expected.sort(Event.START_ORDER);
+            assertEquals(ids(expected), ids(index.overlapping(from, to)));
+        }
+    }
+
+    @Test
+    public void covers_onlyTheLoadedRange() {
+        EventIntervalIndex index = new EventIntervalIndex(List.of(), 10, 20);
+        assertTrue(index.covers(10, 20));
+        assertTrue(index.covers(12, 15));
+        assertFalse(index.covers(9, 15));
+        assertFalse(index.covers(15, 21));
+    }
+
+    @Test
+    public void rangeCache_servesNearbyWindowsUntilTheEventsChange() {
+        int[] queries = {0};
+        InMemoryEventStore store = new InMemoryEventStore() {
+            @Override
+            public synchronized List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+                queries[0]++;
+                return super.getUserEventsOverlapping(userId, fromMillis, toMillis);
+            }
+        };
+        store.insertEvent("Trip", "2025-03-03", "9:00 AM", 72 * HOUR, 1, null);  // Until Mar 6, 9:00
+        store.insertEvent("Dinner", "2025-03-05", "7:00 PM", HOUR, 1, null);
+        EventRangeCache cache = new EventRangeCache(store);
+        long march5 = EventTimes.toEpochMillis("2025-03-05", null);
+        long day = 24 * HOUR;
+
+        assertEquals(List.of("Trip", "Dinner"), names(cache.overlapping(1, march5, march5 + day)));
+        assertEquals(List.of("Trip"), names(cache.overlapping(1, march5 + day, march5 + 2 * day)));
+        assertEquals("The next day was loaded along with the first", 1, queries[0]);
+
+        store.insertEvent("Lunch", "2025-03-05", "12:00 PM", 1);
+        assertEquals(List.of("Trip", "Lunch", "Dinner"), names(cache.overlapping(1, march5, march5 + day)));
+        assertEquals("A change drops the cached range", 2, queries[0]);
+    }
+
+    @Test
+    public void monthSummary_countsEventsOnEveryDayTheyOverlap() {
+        InMemoryEventStore store = new InMemoryEventStore();
+        store.insertEvent("Trip", "2025-02-27", "9:00 AM", 72 * HOUR, 1, null);        // Feb 27 - Mar 2
+        store.insertEvent("Lunch", "2025-03-02", "12:00 PM", 1);
+        store.insertRecurringEvent("Sync", "2025-03-03", "10:00 AM", 1,
+                new Recurrence(Recurrence.Frequency.WEEKLY, 1, 3, Recurrence.NO_END));  // Mar 3, 10, 17
+        store.insertEvent("Overnight", "2025-03-31", "10:00 PM", 4 * HOUR, 1, null);   // Into April
+
+        MonthSummary march = store.getUserMonthSummary(1, YearMonth.of(2025, 3));
+        assertEquals(31, march.getDaysInMonth());
+        assertEquals(1, march.getCount(1));
+        assertEquals(2, march.getCount(2));
+        assertEquals(1, march.getCount(3));
+        assertEquals(0, march.getCount(4));
+        assertEquals(1, march.getCount(17));
+        assertEquals(0, march.getCount(24));
+        assertEquals(1, march.getCount(31));
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EventQueryTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final String[] WORDS = {"Game", "practice", "LUNCH", "Review", "game night", "Standup"};
+
+    // Events in random order with repeated names and starts, so ties are common
+    private static List<Event> randomEvents(int count, long seed) {
+        Random random = new Random(seed);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = random.nextInt(500) * HOUR;
+            events.add(new Event(i + 1, WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(20), "", "",
+                    start, start + random.nextInt(3) * HOUR, null));
+        }
+        return events;
+    }
+
+    private static EventSnapshot snapshotOf(List<Event> events) {
+        EventSnapshot.Builder builder = new EventSnapshot.Builder(events.size());
+        for (Event event : events) {
+            builder.add(event);
+        }
+        return builder.build();
+    }
+
+    private static List<Integer> ids(List<Event> events) {
+        return events.stream().map(Event::getId).collect(Collectors.toList());
+    }
+
+    // The same query done the obvious way: filter, stable sort, cut
+    private static List<Integer> expected(List<Event> events, Predicate<Event> filter, Comparator<Event> order,
+                                          int limit) {
+        return ids(events.stream().filter(filter).sorted(order).limit(limit).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void filtersCombine() {
+        List<Event> events = randomEvents(2_000, 1);
+        EventSnapshot snapshot = snapshotOf(events);
+        EventQuery query = EventQuery.builder()
+                .nameContains("GAME")
+                .startingBetween(100 * HOUR, 300 * HOUR)
+                .where((s, row) -> s.getId(row) % 2 == 0)
+                .build();
+
+        assertEquals(ids(events.stream()
+                        .filter(e -> e.getName().toLowerCase().contains("game"))
+                        .filter(e -> e.getStartMillis() >= 100 * HOUR && e.getStartMillis() < 300 * HOUR)
+                        .filter(e -> e.getId() % 2 == 0)
+                        .collect(Collectors.toList())),
+                ids(query.run(snapshot)));
+    }
+
+    @Test
+    public void overlapping_matchesEventOverlaps() {
+        List<Event> events = randomEvents(2_000, 2);
+        List<Event> result = EventQuery.builder().overlapping(50 * HOUR, 51 * HOUR).build().run(snapshotOf(events));
+        assertEquals(ids(events.stream().filter(e -> e.overlaps(50 * HOUR, 51 * HOUR)).collect(Collectors.toList())),
+                ids(result));
+    }
+
+    @Test
+    public void limitedQuery_returnsTheSameRowsAsAFullSort() {
+        List<Event> events = randomEvents(5_000, 3);
+        EventSnapshot snapshot = snapshotOf(events);
+        Comparator<Event> byName = Comparator.comparing(Event::getName, String.CASE_INSENSITIVE_ORDER);
+        Comparator<Event> byStartDescending = Comparator.comparingLong(Event::getStartMillis).reversed();
+
+        for (int limit : new int[]{0, 1, 10, 100, 4_999, 10_000}) {
+            assertEquals("Name, limit " + limit, expected(events, e -> true, byName, limit),
+                    ids(EventQuery.builder().orderBy(EventQuery.BY_NAME).limit(limit).build().run(snapshot)));
+            assertEquals("Latest first, limit " + limit,
+                    expected(events, e -> e.getName().contains("a"), byStartDescending.thenComparing(Event::getId),
+                            limit),
+                    ids(EventQuery.builder().nameContains("a").orderBy(EventQuery.BY_START.reversed())
+                            .orderBy(EventQuery.BY_ID).limit(limit).build().run(snapshot)));
+        }
+    }
+
+    @Test
+    public void startThenId_matchesTheListOrder() {
+        List<Event> events = randomEvents(3_000, 4);
+        assertEquals(expected(events, e -> true, Event.START_ORDER, Integer.MAX_VALUE),
+                ids(EventQuery.builder().orderBy(EventQuery.BY_START_THEN_ID).build().run(snapshotOf(events))));
+    }
+
+    @Test
+    public void splitRun_givesTheSameResultAsOneThread() {
+        List<Event> events = randomEvents(20_000, 5);
+        EventSnapshot snapshot = snapshotOf(events);
+        List<EventQuery> queries = List.of(
+                EventQuery.builder().nameContains("game").build(),
+                EventQuery.builder().nameContains("game").limit(50).build(),
+                EventQuery.builder().orderBy(EventQuery.BY_NAME).build(),
+                EventQuery.builder().orderBy(EventQuery.BY_START).limit(25).build(),
+                EventQuery.builder().startingBetween(0, 100 * HOUR).orderBy(EventQuery.BY_END.reversed())
+                        .limit(3_000).build());
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            for (EventQuery query : queries) {
+                List<Integer> single = ids(query.run(snapshot, pool, 1));
+                for (int slices : new int[]{2, 4, 7}) {
+                    assertEquals(single, ids(query.run(snapshot, pool, slices)));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void compareNames_ignoresCaseAndOrdersPrefixesFirst() {
+        EventSnapshot snapshot = snapshotOf(List.of(
+                new Event(1, "game", "", ""), new Event(2, "Game", "", ""),
+                new Event(3, "Game night", "", ""), new Event(4, "", "", "")));
+        assertEquals(0, snapshot.compareNames(0, 1));
+        assertTrue(snapshot.compareNames(1, 2) < 0);
+        assertTrue(snapshot.compareNames(3, 0) < 0);
+        assertTrue(snapshot.compareNames(2, 3) > 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.eventdaddy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EventRangeCacheTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long MARCH_10 = EventTimes.toEpochMillis("2025-03-10", "");
+
+    private InMemoryEventStore store;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        store = new InMemoryEventStore() {
+            @Override
+            public synchronized List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+                loads.incrementAndGet();
+                return super.getUserEventsOverlapping(userId, fromMillis, toMillis);
+            }
+        };
+        for (int day = 1; day <= 28; day++) {
+            store.addEvent("Practice " + day, String.format(Locale.US, "2025-03-%02d", day), "6:00 PM", 1);
+        }
+    }
+
+    @Test
+    public void windowInsideTheLoadedSlack_isAHit() {
+        EventRangeCache cache = new EventRangeCache(store);
+
+        assertEquals(7, cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY).size());
+        // One week of slack was loaded on each side
+        assertEquals(7, cache.overlapping(1, MARCH_10 + 7 * DAY, MARCH_10 + 14 * DAY).size());
+        assertEquals(7, cache.overlapping(1, MARCH_10 - 7 * DAY, MARCH_10).size());
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void windowOutsideTheLoadedRange_isAMiss() {
+        EventRangeCache cache = new EventRangeCache(store);
+        cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY);
+
+        assertEquals(4, cache.overlapping(1, MARCH_10 + 15 * DAY, MARCH_10 + 22 * DAY).size());
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void change_dropsTheUsersRange() {
+        EventRangeCache cache = new EventRangeCache(store);
+        cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY);
+        cache.overlapping(2, MARCH_10, MARCH_10 + 7 * DAY);
+
+        store.addEvent("Game", "2025-03-11", "10:00 AM", 1);
+
+        assertEquals(8, cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY).size());
+        cache.overlapping(2, MARCH_10, MARCH_10 + 7 * DAY);
+        assertEquals(3, loads.get());  // Each user once, then user 1 again after the change
+    }
+
+    @Test
+    public void changeDuringALoad_isNotKept() {
+        InMemoryEventStore racing = new InMemoryEventStore() {
+            private boolean raced;
+
+            @Override
+            public synchronized List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+                List<Event> events = super.getUserEventsOverlapping(userId, fromMillis, toMillis);
+                loads.incrementAndGet();
+                if (!raced) {
+                    raced = true;
+                    addEvent("Written meanwhile", "2025-03-11", "10:00 AM", userId);
+                }
+                return events;
+            }
+        };
+        EventRangeCache cache = new EventRangeCache(racing);
+
+        assertEquals(0, cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY).size());
+        assertEquals(1, cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY).size());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void release_forgetsTheUser() {
+        EventRangeCache cache = new EventRangeCache(store);
+        cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY);
+
+        cache.release(1);
+
+        assertFalse(store.getChangeNotifier().hasSubscribers());
+        cache.overlapping(1, MARCH_10, MARCH_10 + 7 * DAY);
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.eventdaddy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EventRepositoryTest {
+
+    private static final long CACHE_BYTES = 1 << 20;
+
+    private InMemoryEventStore store;
+    private ExecutorService readers;
+    private ExecutorService writer;
+    private QueueExecutor mainThread;
+    private EventRepository repository;
+
+    // Stands in for the main looper: callbacks only run when the test drains it
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> pending = new ArrayDeque<>();
+        private final Semaphore posted = new Semaphore(0);
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            pending.add(command);
+            posted.release();
+        }
+
+        // Waits for the given number of posted callbacks, then runs everything queued
+        void drain(int expected) throws InterruptedException {
+            assertTrue(posted.tryAcquire(expected, 5, TimeUnit.SECONDS));
+            Runnable next;
+            while ((next = poll()) != null) {
+                next.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return pending.poll();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        store = new InMemoryEventStore();
+        readers = Executors.newFixedThreadPool(2);
+        writer = Executors.newSingleThreadExecutor();
+        mainThread = new QueueExecutor();
+        repository = new EventRepository(store, readers, writer, mainThread, CACHE_BYTES);
+    }
+
+    @After
+    public void tearDown() {
+        repository.shutdown();
+        EventRepository.setErrorReporter(error -> { });
+    }
+
+    @Test
+    public void loadUserEvents_deliversSortedResultOnCallbackExecutor() throws Exception {
+        store.addEvent("Later", "2025-03-01", "10:00 AM", 1);
+        store.addEvent("Sooner", "2025-01-01", "10:00 AM", 1);
+        store.addEvent("Someone else", "2024-01-01", "10:00 AM", 2);
+
+        List<Event> delivered = new ArrayList<>();
+        repository.loadUserEvents(1, delivered::addAll).get(5, TimeUnit.SECONDS);
+        assertTrue("Callback must wait for the main thread", delivered.isEmpty());
+        mainThread.drain(1);
+
+        assertEquals(2, delivered.size());
+        assertEquals("Sooner", delivered.get(0).getName());
+        assertEquals("Later", delivered.get(1).getName());
+    }
+
+    @Test
+    public void newerRead_cancelsStaleRead() throws Exception {
+        CountDownLatch slowQueryStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowQuery = new CountDownLatch(1);
+        EventRepository blockingRepository = new EventRepository(new InMemoryEventStore() {
+            private boolean first = true;
+
+            @Override
+            public List<Event> searchUserEvents(int userId, String query, int limit) {
+                boolean block;
+                synchronized (this) {
+                    block = first;
+                    first = false;
+                }
+                if (block) {
+                    slowQueryStarted.countDown();
+                    try {
+                        releaseSlowQuery.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.searchUserEvents(userId, query, limit);
+            }
+        }, readers, writer, mainThread, CACHE_BYTES);
+
+        List<String> results = new ArrayList<>();
+        Future<List<Event>> stale = blockingRepository.filterUserEvents(1, "old", 10, matches -> results.add("old"));
+        assertTrue(slowQueryStarted.await(5, TimeUnit.SECONDS));
+
+        Future<List<Event>> fresh = blockingRepository.filterUserEvents(1, "new", 10, matches -> results.add("new"));
+        releaseSlowQuery.countDown();
+        fresh.get(5, TimeUnit.SECONDS);
+        mainThread.drain(1);
+
+        assertTrue(stale.isCancelled());
+        assertEquals(List.of("new"), results);
+    }
+
+    @Test
+    public void failedRead_goesToTheErrorReporterUnlessTheCallbackHandlesIt() throws Exception {
+        List<Throwable> reported = new ArrayList<>();
+        EventRepository.setErrorReporter(reported::add);
+        EventRepository failing = new EventRepository(new InMemoryEventStore() {
+            @Override
+            public List<Event> searchUserEvents(int userId, String query, int limit) {
+                throw new IllegalStateException("disk I/O error");
+            }
+        }, readers, writer, mainThread, CACHE_BYTES);
+
+        failing.filterUserEvents(1, "game", 10, matches -> fail("Search should have failed"));
+        mainThread.drain(1);
+        assertEquals(1, reported.size());
+        assertEquals("disk I/O error", reported.get(0).getMessage());
+
+        List<Throwable> handled = new ArrayList<>();
+        failing.filterUserEvents(1, "game", 10, new EventRepository.Callback<List<Event>>() {
+            @Override
+            public void onResult(List<Event> result) {
+                fail("Search should have failed");
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handled.add(error);
+            }
+        });
+        mainThread.drain(1);
+        assertEquals(1, handled.size());
+        assertEquals(1, reported.size());
+    }
+
+    @Test
+    public void writes_runInSubmissionOrder() throws Exception {
+        List<Boolean> results = new ArrayList<>();
+        repository.addEvent("A", "2025-01-01", "10:00 AM", 1, results::add);
+        repository.addEvent("B", "2025-01-02", "10:00 AM", 1, results::add);
+        repository.deleteEvent(1, results::add);
+        mainThread.drain(3);
+
+        assertEquals(List.of(true, true, true), results);
+        List<Event> remaining = store.getUserEventsList(1);
+        assertEquals(1, remaining.size());
+        assertEquals("B", remaining.get(0).getName());
+    }
+
+    @Test
+    public void login_resolvesUserIdOrMinusOne() throws Exception {
+        store.addUser("alex", "secret");
+
+        List<Integer> ids = new ArrayList<>();
+        repository.login("alex", "secret", ids::add);
+        mainThread.drain(1);
+        repository.login("alex", "wrong", ids::add);
+        mainThread.drain(1);
+
+        assertEquals(List.of(1, -1), ids);
+    }
+
+    @Test
+    public void login_runsOnTheWriterThread() throws Exception {
+        // A successful login may rewrite the password hash, so it belongs with the writes
+        List<Thread> threads = new ArrayList<>();
+        EventRepository recording = new EventRepository(new InMemoryEventStore() {
+            @Override
+            public synchronized int authenticate(String username, String password) {
+                threads.add(Thread.currentThread());
+                return super.authenticate(username, password);
+            }
+        }, readers, writer, mainThread, CACHE_BYTES);
+        Thread writerThread = writer.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        recording.login("alex", "secret", id -> { }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(writerThread), threads);
+    }
+
+    @Test
+    public void streamedQuery_deliversResultsInChunks() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            store.addEvent(i % 5 == 0 ? "Game " + i : "Practice " + i, "2025-01-01", "10:00 AM", 1);
+        }
+        store.addEvent("Game elsewhere", "2025-01-01", "10:00 AM", 2);
+
+        List<EventQuery.Chunk> chunks = new ArrayList<>();
+        EventQuery query = EventQuery.builder().nameContains("game").orderBy(EventQuery.BY_NAME).build();
+        assertEquals(Integer.valueOf(5), repository.streamUserEvents(1, query, 2, chunks::add).get(5, TimeUnit.SECONDS));
+        mainThread.drain(3);
+
+        assertEquals(3, chunks.size());
+        assertEquals("Game 0", chunks.get(0).getEvents().get(0).getName());
+        assertEquals("Game 10", chunks.get(0).getEvents().get(1).getName());
+        assertEquals(4, chunks.get(2).getOffset());
+        assertEquals(5, chunks.get(2).getTotal());
+        assertTrue(chunks.get(2).isLast());
+        assertFalse(chunks.get(1).isLast());
+    }
+
+    @Test
+    public void prefetchedFirstPage_isReusedUntilAWrite() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        InMemoryEventStore counting = new InMemoryEventStore() {
+            @Override
+            public synchronized List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+                queries.incrementAndGet();
+                return super.getUserEventsFrom(userId, startMillis, eventId, pageSize);
+            }
+        };
+        repository.shutdown();
+        readers = Executors.newFixedThreadPool(2);
+        writer = Executors.newSingleThreadExecutor();
+        repository = new EventRepository(counting, readers, writer, mainThread, CACHE_BYTES);
+        counting.addEvent("Kickoff", "2025-01-01", "10:00 AM", 1);
+
+        repository.prefetchFirstPage(1, 10).get(5, TimeUnit.SECONDS);
+        List<Event> page = new ArrayList<>();
+        repository.loadEventsFrom(1, Long.MIN_VALUE, 0, 10, page::addAll);
+        mainThread.drain(1);
+        assertEquals(1, page.size());
+        assertEquals(1, queries.get());
+        assertFalse(counting.getChangeNotifier().hasSubscribers());
+
+        // Writes that bypass the repository, like imports and sync, drop it too
+        repository.prefetchFirstPage(1, 10).get(5, TimeUnit.SECONDS);
+        counting.addEvent("Imported", "2025-01-02", "10:00 AM", 1);
+        page.clear();
+        repository.loadEventsFrom(1, Long.MIN_VALUE, 0, 10, page::addAll);
+        mainThread.drain(1);
+        assertEquals(2, page.size());
+        assertEquals(3, queries.get());
+
+        repository.prefetchFirstPage(1, 10).get(5, TimeUnit.SECONDS);
+        List<Boolean> added = new ArrayList<>();
+        repository.addEvent("Added", "2025-01-03", "10:00 AM", 1, added::add);
+        mainThread.drain(1);
+        assertEquals(List.of(true), added);
+
+        page.clear();
+        repository.loadEventsFrom(1, Long.MIN_VALUE, 0, 10, page::addAll);
+        mainThread.drain(1);
+        assertEquals(3, page.size());
+        assertFalse(counting.getChangeNotifier().hasSubscribers());
+    }
+
+    @Test
+    public void pageWaitingOnTheSlowPrefetch_leavesTheOtherReaderFree() throws Exception {
+        CountDownLatch prefetchStarted = new CountDownLatch(1);
+        CountDownLatch releasePrefetch = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        InMemoryEventStore slow = new InMemoryEventStore() {
+            @Override
+            public List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+                if (queries.incrementAndGet() == 1) {
+                    prefetchStarted.countDown();
+                    try {
+                        releasePrefetch.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getUserEventsFrom(userId, startMillis, eventId, pageSize);
+            }
+        };
+        repository.shutdown();
+        readers = Executors.newFixedThreadPool(2);
+        writer = Executors.newSingleThreadExecutor();
+        repository = new EventRepository(slow, readers, writer, mainThread, CACHE_BYTES);
+        slow.addEvent("Kickoff", "2025-01-01", "10:00 AM", 1);
+
+        repository.prefetchFirstPage(1, 10);
+        assertTrue(prefetchStarted.await(5, TimeUnit.SECONDS));
+        List<Event> page = new ArrayList<>();
+        Future<List<Event>> firstPage = repository.loadEventsFrom(1, Long.MIN_VALUE, 0, 10, page::addAll);
+
+        // One reader is running the prefetch; the page must not be holding the other
+        repository.loadMonthSummary(1, YearMonth.of(2025, 1), summary -> { }).get(5, TimeUnit.SECONDS);
+        assertFalse(firstPage.isDone());
+
+        releasePrefetch.countDown();
+        assertEquals(1, firstPage.get(5, TimeUnit.SECONDS).size());
+        mainThread.drain(2);
+        assertEquals(1, page.size());
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    public void failedPrefetch_fallsBackToANormalRead() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        InMemoryEventStore flaky = new InMemoryEventStore() {
+            @Override
+            public List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+                if (queries.incrementAndGet() == 1) {
+                    throw new IllegalStateException("database locked");
+                }
+                return super.getUserEventsFrom(userId, startMillis, eventId, pageSize);
+            }
+        };
+        repository.shutdown();
+        readers = Executors.newFixedThreadPool(2);
+        writer = Executors.newSingleThreadExecutor();
+        repository = new EventRepository(flaky, readers, writer, mainThread, CACHE_BYTES);
+        flaky.addEvent("Kickoff", "2025-01-01", "10:00 AM", 1);
+
+        Future<List<Event>> prefetch = repository.prefetchFirstPage(1, 10);
+        List<Event> page = new ArrayList<>();
+        repository.loadEventsFrom(1, Long.MIN_VALUE, 0, 10, page::addAll).get(5, TimeUnit.SECONDS);
+        mainThread.drain(1);
+
+        assertTrue(prefetch.isDone());
+        assertEquals(1, page.size());
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    public void calendarLoads_reachTheCallback() throws Exception {
+        store.addEvent("Kickoff", "2025-03-01", "10:00 AM", 1);
+        store.addEvent("Game", "2025-03-15", "10:00 AM", 1);
+        store.addEvent("Practice", "2025-03-15", "6:00 PM", 1);
+
+        List<Event> week = new ArrayList<>();
+        repository.loadEventsOverlapping(1, EventTimes.toEpochMillis("2025-03-10", ""),
+                EventTimes.toEpochMillis("2025-03-17", ""), week::addAll);
+        mainThread.drain(1);
+        assertEquals(2, week.size());
+
+        List<MonthSummary> month = new ArrayList<>();
+        repository.loadMonthSummary(1, YearMonth.of(2025, 3), month::add);
+        mainThread.drain(1);
+        assertEquals(1, month.get(0).getCount(1));
+        assertEquals(2, month.get(0).getCount(15));
+    }
+
+    @Test
+    public void loadUserEvents_comesFromMemoryUntilTheUserWrites() throws Exception {
+        store.addEvent("Kickoff", "2025-01-01", "10:00 AM", 1);
+        List<Event> loaded = new ArrayList<>();
+        repository.loadUserEvents(1, loaded::addAll).get(5, TimeUnit.SECONDS);
+        mainThread.drain(1);
+        repository.loadUserEvents(1, loaded::addAll).get(5, TimeUnit.SECONDS);
+        mainThread.drain(1);
+        assertEquals(2, loaded.size());
+        EventSnapshotCache cache = repository.getSnapshotCache();
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        List<Boolean> added = new ArrayList<>();
+        repository.addEvent("Final", "2025-02-01", "10:00 AM", 1, added::add);
+        mainThread.drain(1);
+        assertEquals(List.of(true), added);
+
+        loaded.clear();
+        repository.loadUserEvents(1, loaded::addAll).get(5, TimeUnit.SECONDS);
+        mainThread.drain(1);
+        assertEquals("Final", loaded.get(1).getName());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void filter_putsWordPrefixMatchesFirstThenMidWordOnes() throws Exception {
+        store.addEvent("Team Meeting", "2025-01-10", "10:00 AM", 1);
+        store.addEvent("Eetu's party", "2025-03-01", "10:00 AM", 1);
+        store.addEvent("Sweet sixteen", "2025-02-01", "10:00 AM", 1);
+        store.addEvent("Dentist", "2025-01-05", "10:00 AM", 1);
+
+        List<Event> matches = new ArrayList<>();
+        repository.filterUserEvents(1, "eet", 10, matches::addAll);
+        mainThread.drain(1);
+        List<String> names = new ArrayList<>();
+        for (Event event : matches) {
+            names.add(event.getName());
+        }
+        assertEquals(List.of("Eetu's party", "Team Meeting", "Sweet sixteen"), names);
+
+        matches.clear();
+        repository.filterUserEvents(1, "eet", 2, matches::addAll);
+        mainThread.drain(1);
+        assertEquals(2, matches.size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.eventdaddy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+// Per-keystroke filter latency: the old approach (lowercase + contains over every event)
+// against EventSearchIndex, typing a query one character at a time.
+public class EventSearchIndexBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final String TYPED_QUERY = "meeting 2025";
+    private static final int ROUNDS = 5;
+    private static final String[] WORDS = {"team", "meeting", "dentist", "birthday", "practice",
+            "dinner", "review", "concert", "flight", "game", "class", "party"};
+
+    @Before
+    public void setUp() {
+        assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("eventdaddy.benchmark"));
+    }
+
+    @Test
+    public void perKeystrokeLatency() {
+        System.out.println("events  | contains loop (us/keystroke) | index (us/keystroke)");
+        for (int size : SIZES) {
+            List<Event> events = generateEvents(size);
+
+            EventSearchIndex index = new EventSearchIndex(events);
+
+            // Warm up both paths so the JIT doesn't skew the first size
+            typeWithContainsLoop(events);
+            typeWithIndex(index);
+
+            long loopNanos = 0;
+            long indexNanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                loopNanos += typeWithContainsLoop(events);
+                indexNanos += typeWithIndex(index);
+            }
+
+            int keystrokes = ROUNDS * TYPED_QUERY.length();
+            System.out.printf(Locale.ROOT, "%7d | %28.1f | %20.1f%n", size,
+                    loopNanos / 1000.0 / keystrokes, indexNanos / 1000.0 / keystrokes);
+        }
+    }
+
+    private static long typeWithContainsLoop(List<Event> events) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 1; i <= TYPED_QUERY.length(); i++) {
+            String query = TYPED_QUERY.substring(0, i);
+            List<Event> matches = new ArrayList<>();
+            for (Event event : events) {
+                String name = event.getName().toLowerCase();
+                String date = event.getDate().toLowerCase();
+                if (name.contains(query.toLowerCase()) || date.contains(query.toLowerCase())) {
+                    matches.add(event);
+                }
+            }
+            found += matches.size();
+        }
+        assertTrue(found > 0);
+        return System.nanoTime() - start;
+    }
+
+    private static long typeWithIndex(EventSearchIndex index) {
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 1; i <= TYPED_QUERY.length(); i++) {
+            found += index.search(TYPED_QUERY.substring(0, i)).size();
+        }
+        assertTrue(found > 0);
+        return System.nanoTime() - start;
+    }
+
+    private static List<Event> generateEvents(int count) {
+        Random random = new Random(42);
+        List<Event> events = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+            String date = String.format(Locale.ROOT, "%d-%02d-%02d",
+                    2023 + random.nextInt(3), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            events.add(new Event(id, name, date, "10:00 AM"));
+        }
+        return events;
+    }
+}
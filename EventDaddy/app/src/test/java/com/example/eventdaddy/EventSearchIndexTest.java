@@ -0,0 +1,66 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventSearchIndexTest {
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+
+    private static EventSearchIndex sampleIndex() {
+        return new EventSearchIndex(Arrays.asList(
+                new Event(1, "Team Meeting", "2025-02-10", "10:00 AM"),
+                new Event(2, "Dentist", "2025-01-05", "10:00 AM"),
+                new Event(3, "Meetup", "2025-03-01", "10:00 AM"),
+                new Event(4, "Birthday", "2024-12-31", "10:00 AM")));
+    }
+
+    @Test
+    public void search_matchesNameOrDateIgnoringCase_sortedByDate() {
+        EventSearchIndex index = sampleIndex();
+
+        assertEquals(Arrays.asList("Team Meeting", "Meetup"), names(index.search("MEET")));
+        assertEquals(Arrays.asList("Dentist", "Team Meeting", "Meetup"), names(index.search("2025")));
+        assertEquals(Arrays.asList("Birthday", "Dentist", "Team Meeting", "Meetup"), names(index.search("")));
+        assertTrue(index.search("xyz").isEmpty());
+    }
+
+    @Test
+    public void search_extendingQueryNarrowsSameAsFreshSearch() {
+        EventSearchIndex index = sampleIndex();
+        String typed = "meeting";
+        for (int i = 1; i <= typed.length(); i++) {
+            String prefix = typed.substring(0, i);
+            assertEquals(prefix, names(sampleIndex().search(prefix)), names(index.search(prefix)));
+        }
+    }
+
+    @Test
+    public void addUpdateRemove_areVisibleToNextSearch() {
+        EventSearchIndex index = sampleIndex();
+        assertEquals(2, index.search("meet").size());
+
+        index.add(new Event(5, "Meet the parents", "2025-04-01", "10:00 AM"));
+        assertEquals(Arrays.asList("Team Meeting", "Meetup", "Meet the parents"), names(index.search("meet")));
+
+        assertTrue(index.update(new Event(3, "Concert", "2025-03-01", "10:00 AM")));
+        assertEquals(Arrays.asList("Team Meeting", "Meet the parents"), names(index.search("meet")));
+        assertFalse(index.update(new Event(99, "Unknown", "2025-03-01", "10:00 AM")));
+
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+        assertEquals(Arrays.asList("Meet the parents"), names(index.search("meet")));
+        assertEquals(4, index.size());
+    }
+}
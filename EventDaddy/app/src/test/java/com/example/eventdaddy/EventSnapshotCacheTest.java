@@ -0,0 +1,158 @@
+package com.example.eventdaddy;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EventSnapshotCacheTest {
+
+    private InMemoryEventStore store;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        store = new InMemoryEventStore() {
+            @Override
+            public synchronized EventSnapshot getUserEventsSnapshot(int userId) {
+                loads.incrementAndGet();
+                return super.getUserEventsSnapshot(userId);
+            }
+        };
+    }
+
+    private void addEvents(int userId, int events) {
+        for (int i = 0; i < events; i++) {
+            store.addEvent("Practice " + i, "2025-03-01", "6:00 PM", userId);
+        }
+    }
+
+    @Test
+    public void repeatedReads_areHits() {
+        addEvents(1, 10);
+        EventSnapshotCache cache = new EventSnapshotCache(store, 1 << 20);
+
+        EventSnapshot first = cache.get(1);
+        assertSame(first, cache.get(1));
+        assertSame(first, cache.get(1));
+
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(first.sizeInBytes(), cache.getSizeBytes());
+    }
+
+    @Test
+    public void writes_dropOnlyTheirOwnersSnapshot() {
+        addEvents(1, 3);
+        addEvents(2, 3);
+        EventSnapshotCache cache = new EventSnapshotCache(store, 1 << 20);
+        EventSnapshot other = cache.get(2);
+
+        cache.get(1);
+        store.addEvent("Game", "2025-04-01", "10:00 AM", 1);
+        assertEquals(4, cache.get(1).size());
+
+        int eventId = cache.get(1).getId(0);
+        store.updateEvent(eventId, "Renamed", "2025-01-01", "10:00 AM");
+        assertEquals("Renamed", cache.get(1).getName(0));
+
+        store.deleteEvent(eventId);
+        assertEquals(3, cache.get(1).size());
+
+        assertSame(other, cache.get(2));
+        assertEquals(5, loads.get());  // User 2 once, user 1 after each of the four changes
+    }
+
+    @Test
+    public void fullCache_evictsTheLeastRecentlyUsed() {
+        addEvents(1, 100);
+        addEvents(2, 100);
+        addEvents(3, 100);
+        long perUser = store.getUserEventsSnapshot(1).sizeInBytes();
+        loads.set(0);
+        EventSnapshotCache cache = new EventSnapshotCache(store, perUser * 5 / 2);
+
+        cache.get(1);
+        cache.get(2);
+        cache.get(1);  // Now 2 is the least recently used
+        cache.get(3);
+
+        assertTrue(cache.getSizeBytes() <= cache.getMaxBytes());
+        cache.get(1);
+        cache.get(3);
+        assertEquals(3, loads.get());
+        cache.get(2);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void snapshotLargerThanTheCache_isNotKept() {
+        addEvents(1, 100);
+        EventSnapshotCache cache = new EventSnapshotCache(store, 100);
+
+        assertEquals(100, cache.get(1).size());
+        cache.get(1);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void changeDuringALoad_isNotCached() {
+        InMemoryEventStore racing = new InMemoryEventStore() {
+            private boolean raced;
+
+            @Override
+            public synchronized EventSnapshot getUserEventsSnapshot(int userId) {
+                EventSnapshot snapshot = super.getUserEventsSnapshot(userId);
+                if (!raced) {
+                    raced = true;
+                    addEvent("Written meanwhile", "2025-05-01", "10:00 AM", userId);
+                }
+                return snapshot;
+            }
+        };
+        EventSnapshotCache cache = new EventSnapshotCache(racing, 1 << 20);
+
+        assertEquals(0, cache.get(1).size());
+        assertEquals(0, cache.getSizeBytes());
+        assertEquals(1, cache.get(1).size());
+        assertTrue(cache.getSizeBytes() > 0);
+    }
+
+    @Test
+    public void trimMemory_halvesWhileHiddenAndEmptiesInTheBackground() {
+        for (int userId = 1; userId <= 4; userId++) {
+            addEvents(userId, 50);
+        }
+        EventSnapshotCache cache = new EventSnapshotCache(store, 1 << 20);
+        for (int userId = 1; userId <= 4; userId++) {
+            cache.get(userId);
+        }
+        long full = cache.getSizeBytes();
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertTrue(cache.getSizeBytes() <= full / 2);
+        assertTrue(cache.getSizeBytes() > 0);
+
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void release_forgetsTheUser() {
+        addEvents(1, 3);
+        EventSnapshotCache cache = new EventSnapshotCache(store, 1 << 20);
+        cache.get(1);
+
+        cache.release(1);
+
+        assertEquals(0, cache.getSizeBytes());
+        assertFalse(store.getChangeNotifier().hasSubscribers());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventSnapshotTest {
+
+    private static EventSnapshot sample() {
+        return new EventSnapshot.Builder(2)
+                .add(new Event(1, "Team Lunch", "2025-03-07", "1:00 PM"))
+                .add(new Event(2, "Standup", "2025-03-07", "9:00 AM"))
+                .add(new Event(3, "Review", "2025-03-07", "9:00 AM"))
+                .add(new Event(4, "Kickoff", "2025-01-15", "10:00 AM"))
+                .add(new Event(5, "", "someday", ""))
+                .build();
+    }
+
+    private static List<String> names(List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void rows_roundTripThroughTheColumns() {
+        EventSnapshot snapshot = sample();
+        assertEquals(5, snapshot.size());
+
+        Event lunch = snapshot.getEvent(0);
+        assertEquals(1, lunch.getId());
+        assertEquals("Team Lunch", lunch.getName());
+        assertEquals("2025-03-07", lunch.getDate());
+        assertEquals("1:00 PM", lunch.getTime());
+        assertEquals(EventTimes.toEpochMillis("2025-03-07", "1:00 PM"), lunch.getStartMillis());
+
+        assertEquals("", snapshot.getName(4));
+        assertEquals(EventTimes.UNKNOWN, snapshot.getStartMillis(4));
+    }
+
+    @Test
+    public void repeatedDatesAndTimes_shareOneString() {
+        EventSnapshot snapshot = sample();
+        assertSame(snapshot.getDate(0), snapshot.getDate(1));
+        assertSame(snapshot.getTime(1), snapshot.getTime(2));
+    }
+
+    @Test
+    public void views_sortAndFilterWithoutTouchingTheSnapshot() {
+        EventSnapshot snapshot = sample();
+        EventSnapshot.View sorted = snapshot.all().sortedByStart();
+        assertEquals(List.of("", "Kickoff", "Standup", "Review", "Team Lunch"), names(sorted));
+        assertSame(snapshot, sorted.snapshot());
+
+        assertEquals(List.of("Team Lunch"), names(sorted.nameContains("LUN")));
+        assertEquals(List.of("Standup", "Review", "Team Lunch"), names(sorted.startingBetween(
+                EventTimes.toEpochMillis("2025-03-07", null), EventTimes.toEpochMillis("2025-03-08", null))));
+        assertTrue(sorted.nameContains("nothing").isEmpty());
+
+        // The original order is untouched by the sorted view
+        assertEquals("Team Lunch", snapshot.all().get(0).getName());
+    }
+
+    @Test
+    public void builder_growsPastItsInitialCapacity() {
+        EventSnapshot.Builder builder = new EventSnapshot.Builder(0);
+        for (int i = 0; i < 1_000; i++) {
+            builder.add(new Event(i, "Event number " + i, "2025-01-" + (1 + i % 28), "10:00 AM"));
+        }
+        EventSnapshot snapshot = builder.build();
+        assertEquals(1_000, snapshot.size());
+        assertEquals("Event number 999", snapshot.getName(999));
+        assertEquals("2025-01-20", snapshot.getDate(999));
+        EventSnapshot.View sorted = snapshot.all().sortedByStart();
+        assertEquals(1_000, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(snapshot.getStartMillis(sorted.rowAt(i - 1)) <= snapshot.getStartMillis(sorted.rowAt(i)));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.Assert.*;
+
+public class EventTimesTest {
+
+    private static long millis(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void toEpochMillis_parsesDateAndTwelveHourTime() {
+        assertEquals(millis(2025, 3, 7, 10, 0), EventTimes.toEpochMillis("2025-03-07", "10:00 AM"));
+        assertEquals(millis(2025, 3, 7, 14, 30), EventTimes.toEpochMillis("2025-3-7", "2:30 pm"));
+        assertEquals(millis(2025, 3, 7, 14, 30), EventTimes.toEpochMillis(" 2025-03-07 ", "14:30"));
+    }
+
+    @Test
+    public void toEpochMillis_ordersTimesChronologically() {
+        // As text, "10:00 AM" sorts before "9:00 AM"
+        assertTrue(EventTimes.toEpochMillis("2025-03-07", "9:00 AM")
+                < EventTimes.toEpochMillis("2025-03-07", "10:00 AM"));
+        assertTrue(EventTimes.toEpochMillis("2025-03-07", "11:00 AM")
+                < EventTimes.toEpochMillis("2025-03-07", "1:00 PM"));
+    }
+
+    @Test
+    public void toEpochMillis_handlesMissingOrBadInput() {
+        assertEquals(millis(2025, 3, 7, 0, 0), EventTimes.toEpochMillis("2025-03-07", null));
+        assertEquals(millis(2025, 3, 7, 0, 0), EventTimes.toEpochMillis("2025-03-07", "soon"));
+        assertEquals(EventTimes.UNKNOWN, EventTimes.toEpochMillis("next friday", "10:00 AM"));
+        assertEquals(EventTimes.UNKNOWN, EventTimes.toEpochMillis("2025-02-30", "10:00 AM"));
+        assertEquals(EventTimes.UNKNOWN, EventTimes.toEpochMillis(null, null));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.eventdaddy;
+
+// ReminderAlarm for JVM tests: keeps the armed time and what was sent in memory, so one
+// instance handed to a second scheduler stands in for a process restart
+class FakeReminderAlarm implements ReminderAlarm {
+
+    static final long NOT_ARMED = Long.MIN_VALUE;
+
+    private volatile long armedAt = NOT_ARMED;
+    private volatile long sentThrough = Long.MIN_VALUE;
+
+    @Override
+    public void set(long atMillis) {
+        armedAt = atMillis;
+    }
+
+    @Override
+    public void cancel() {
+        armedAt = NOT_ARMED;
+    }
+
+    @Override
+    public long getSentThrough() {
+        return sentThrough;
+    }
+
+    @Override
+    public void setSentThrough(long dueMillis) {
+        sentThrough = dueMillis;
+    }
+
+    long armedAt() {
+        return armedAt;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.eventdaddy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// ReminderSender for JVM tests: records each dispatch instead of sending anything
+class FakeReminderSender implements ReminderSender {
+
+    private final List<List<String>> batches = new ArrayList<>();
+    private final Semaphore sent = new Semaphore(0);
+
+    @Override
+    public synchronized void send(int userId, List<Event> events) {
+        List<String> names = new ArrayList<>();
+        for (Event event : events) {
+            names.add(event.getName());
+        }
+        batches.add(names);
+        sent.release();
+    }
+
+    // Event names of every dispatch so far, one list per batch
+    synchronized List<List<String>> batches() {
+        return new ArrayList<>(batches);
+    }
+
+    // Waits for the given number of dispatches
+    boolean await(int count) throws InterruptedException {
+        return sent.tryAcquire(count, 5, TimeUnit.SECONDS);
+    }
+}
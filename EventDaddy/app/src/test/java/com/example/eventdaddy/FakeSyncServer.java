@@ -0,0 +1,96 @@
+package com.example.eventdaddy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// SyncBackend for JVM tests: an in-process server that keeps the latest change to each event
+// per account, settles conflicts the same way devices do, and counts the traffic
+class FakeSyncServer implements SyncBackend {
+
+    private final Map<String, Account> accounts = new HashMap<>();
+    private long bytesReceived;
+    private long bytesSent;
+    private int requests;
+    private int failingPushes;
+
+    private static final class Account {
+        final Map<String, Long> versions = new HashMap<>();                 // Sync ID -> version
+        final NavigableMap<Long, SyncChange> changes = new TreeMap<>();     // Latest per event only
+        long lastVersion;
+    }
+
+    @Override
+    public synchronized void push(String account, byte[] batch) throws IOException {
+        requests++;
+        if (failingPushes > 0) {
+            failingPushes--;
+            throw new IOException("Push failed");
+        }
+        bytesReceived += batch.length;
+        Account stored = accounts.computeIfAbsent(account, name -> new Account());
+        for (SyncChange change : SyncBatch.decode(batch)) {
+            Long version = stored.versions.get(change.getSyncId());
+            if (version != null) {
+                if (!change.supersedes(stored.changes.get(version))) {
+                    continue;
+                }
+                stored.changes.remove(version);
+            }
+            stored.versions.put(change.getSyncId(), ++stored.lastVersion);
+            stored.changes.put(stored.lastVersion, change);
+        }
+    }
+
+    @Override
+    public synchronized Pull pull(String account, String deviceId, long cursor, int limit) {
+        requests++;
+        List<SyncChange> changes = new ArrayList<>();
+        long position = cursor;
+        boolean more = false;
+        Account stored = accounts.get(account);
+        if (stored != null) {
+            for (Map.Entry<Long, SyncChange> entry : stored.changes.tailMap(cursor, false).entrySet()) {
+                if (changes.size() == limit) {
+                    more = true;
+                    break;
+                }
+                position = entry.getKey();
+                if (!entry.getValue().getOrigin().equals(deviceId)) {
+                    changes.add(entry.getValue());
+                }
+            }
+        }
+        byte[] batch = SyncBatch.encode(changes);
+        bytesSent += batch.length;
+        return new Pull(batch, position, more);
+    }
+
+    // Makes the next `count` pushes fail without storing anything
+    synchronized void failPushes(int count) {
+        failingPushes = count;
+    }
+
+    // The server's copy of one event, or null if it has never seen it
+    synchronized SyncChange get(String account, String syncId) {
+        Account stored = accounts.get(account);
+        Long version = stored != null ? stored.versions.get(syncId) : null;
+        return version != null ? stored.changes.get(version) : null;
+    }
+
+    synchronized long bytesReceived() {
+        return bytesReceived;
+    }
+
+    synchronized long bytesSent() {
+        return bytesSent;
+    }
+
+    synchronized int requests() {
+        return requests;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FtsQueryTest {
+
+    @Test
+    public void tokens_splitLikeTheSimpleTokenizer() {
+        assertEquals(List.of("team", "lunch"), FtsQuery.tokens("  Team-LUNCH! "));
+        assertEquals(List.of("2025", "03", "07"), FtsQuery.tokens("2025-03-07"));
+        assertEquals(List.of("café"), FtsQuery.tokens("Café"));
+        assertTrue(FtsQuery.tokens("--").isEmpty());
+        assertTrue(FtsQuery.tokens(null).isEmpty());
+    }
+
+    @Test
+    public void prefixPhrase_quotesEveryWordAsAPrefix() {
+        assertEquals("\"team* lu*\"", FtsQuery.prefixPhrase("Team lu"));
+        assertEquals("event_name:\"2025* 03*\"", FtsQuery.prefixPhrase("event_name", "2025-03"));
+    }
+
+    @Test
+    public void prefixPhrase_neutralizesQuerySyntax() {
+        // Quotes, stars and operators never reach the MATCH expression
+        assertEquals("\"a* or* b*\"", FtsQuery.prefixPhrase("\"a\" OR b*"));
+        assertNull(FtsQuery.prefixPhrase("***"));
+        assertNull(FtsQuery.prefixPhrase("event_name", " "));
+    }
+}
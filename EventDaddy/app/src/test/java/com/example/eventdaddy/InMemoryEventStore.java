@@ -0,0 +1,417 @@
+package com.example.eventdaddy;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+// Simple EventStore for JVM tests, no SQLite involved. Keeps a change log like
+// DatabaseHelper's, so it can stand in for one device's database in sync tests.
+class InMemoryEventStore implements EventStore, SyncStore {
+
+    private final Map<String, String> passwords = new LinkedHashMap<>();
+    private final Map<String, Integer> userIds = new LinkedHashMap<>();
+    private final Map<Integer, Event> events = new LinkedHashMap<>();
+    private final Map<Integer, Integer> eventOwners = new LinkedHashMap<>();
+    private int nextEventId = 1;
+    private final EventChangeNotifier changeNotifier = new EventChangeNotifier();
+
+    // Sync bookkeeping, as in DatabaseHelper's tables
+    private final Map<Integer, Stamp> stamps = new HashMap<>();        // By event ID
+    private final Map<String, Integer> eventIdsBySyncId = new HashMap<>();
+    private final Map<String, Stamp> tombstones = new HashMap<>();    // By sync ID
+    private final List<LogEntry> changeLog = new ArrayList<>();
+    private final Map<Integer, Long> pullCursors = new HashMap<>();
+    private long nextSeq = 1;
+    private LongSupplier clock = System::currentTimeMillis;
+
+    // Who last wrote an event, origin null meaning this device
+    private static final class Stamp {
+        final String syncId;
+        final int userId;
+        final long modifiedMillis;
+        final String origin;
+
+        Stamp(String syncId, int userId, long modifiedMillis, String origin) {
+            this.syncId = syncId;
+            this.userId = userId;
+            this.modifiedMillis = modifiedMillis;
+            this.origin = origin;
+        }
+    }
+
+    private static final class LogEntry {
+        final long seq;
+        final int userId;
+        final String syncId;
+
+        LogEntry(long seq, int userId, String syncId) {
+            this.seq = seq;
+            this.userId = userId;
+            this.syncId = syncId;
+        }
+    }
+
+    // Time source for the modified stamps of local writes
+    synchronized void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized boolean addUser(String username, String password) {
+        if (passwords.containsKey(username)) {
+            return false;
+        }
+        passwords.put(username, password);
+        userIds.put(username, userIds.size() + 1);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean checkUser(String username, String password) {
+        return password.equals(passwords.get(username));
+    }
+
+    @Override
+    public synchronized int authenticate(String username, String password) {
+        return checkUser(username, password) ? getUserId(username) : -1;
+    }
+
+    @Override
+    public synchronized int getUserId(String username) {
+        Integer id = userIds.get(username);
+        return id != null ? id : -1;
+    }
+
+    @Override
+    public synchronized boolean addEvent(String eventName, String eventDate, String eventTime, int userId) {
+        return insertEvent(eventName, eventDate, eventTime, userId) != -1;
+    }
+
+    @Override
+    public synchronized long insertEvent(String eventName, String eventDate, String eventTime, int userId) {
+        return insertRecurringEvent(eventName, eventDate, eventTime, userId, null);
+    }
+
+    @Override
+    public synchronized long insertRecurringEvent(String eventName, String eventDate, String eventTime, int userId,
+                                                  Recurrence recurrence) {
+        return insertEvent(eventName, eventDate, eventTime, 0, userId, recurrence);
+    }
+
+    @Override
+    public synchronized long insertEvent(String eventName, String eventDate, String eventTime, long durationMillis,
+                                         int userId, Recurrence recurrence) {
+        int id = nextEventId++;
+        long start = EventTimes.toEpochMillis(eventDate, eventTime);
+        Event event = new Event(id, eventName, eventDate, eventTime, start,
+                start == EventTimes.UNKNOWN ? start : start + durationMillis, recurrence);
+        events.put(id, event);
+        eventOwners.put(id, userId);
+        String syncId = UUID.randomUUID().toString();
+        eventIdsBySyncId.put(syncId, id);
+        logLocalWrite(id, new Stamp(syncId, userId, clock.getAsLong(), null));
+        changeNotifier.publish(EventChange.inserted(userId, event));
+        return id;
+    }
+
+    @Override
+    public synchronized boolean updateEvent(int eventId, String eventName, String eventDate, String eventTime) {
+        if (!events.containsKey(eventId)) {
+            return false;
+        }
+        Event old = events.get(eventId);
+        long start = EventTimes.toEpochMillis(eventDate, eventTime);
+        Event event = new Event(eventId, eventName, eventDate, eventTime, start,
+                start + old.getDurationMillis(), old.getRecurrence());
+        events.put(eventId, event);
+        touch(eventId);
+        changeNotifier.publish(EventChange.updated(eventOwners.get(eventId), event));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteEvent(int eventId) {
+        Integer owner = eventOwners.remove(eventId);
+        if (events.remove(eventId) == null) {
+            return false;
+        }
+        Stamp stamp = stamps.remove(eventId);
+        eventIdsBySyncId.remove(stamp.syncId);
+        tombstones.put(stamp.syncId, new Stamp(stamp.syncId, owner, clock.getAsLong(), null));
+        changeLog.add(new LogEntry(nextSeq++, owner, stamp.syncId));
+        changeNotifier.publish(EventChange.deleted(owner, eventId));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean skipOccurrence(int eventId, long occurrenceStart) {
+        Event series = events.get(eventId);
+        if (series == null || !series.isRecurring()) {
+            return false;
+        }
+        series = new Event(eventId, series.getName(), series.getDate(), series.getTime(),
+                series.getStartMillis(), series.getEndMillis(), series.getRecurrence().withSkipped(occurrenceStart));
+        events.put(eventId, series);
+        touch(eventId);
+        changeNotifier.publish(EventChange.updated(eventOwners.get(eventId), series));
+        return true;
+    }
+
+    private void touch(int eventId) {
+        Stamp stamp = stamps.get(eventId);
+        logLocalWrite(eventId, new Stamp(stamp.syncId, stamp.userId, clock.getAsLong(), null));
+    }
+
+    private void logLocalWrite(int eventId, Stamp stamp) {
+        stamps.put(eventId, stamp);
+        changeLog.add(new LogEntry(nextSeq++, stamp.userId, stamp.syncId));
+    }
+
+    @Override
+    public synchronized PendingChanges getPendingChanges(int userId, String deviceId, int limit) {
+        LinkedHashSet<String> syncIds = new LinkedHashSet<>();
+        long throughSeq = 0;
+        for (LogEntry entry : changeLog) {
+            if (entry.userId == userId && syncIds.size() < limit) {
+                syncIds.add(entry.syncId);
+                throughSeq = entry.seq;
+            }
+        }
+        List<SyncChange> changes = new ArrayList<>();
+        for (String syncId : syncIds) {
+            Integer eventId = eventIdsBySyncId.get(syncId);
+            if (eventId != null) {
+                Stamp stamp = stamps.get(eventId);
+                changes.add(SyncChange.updated(syncId, stamp.modifiedMillis,
+                        stamp.origin != null ? stamp.origin : deviceId, events.get(eventId)));
+            } else if (tombstones.containsKey(syncId)) {
+                Stamp stamp = tombstones.get(syncId);
+                changes.add(SyncChange.deleted(syncId, stamp.modifiedMillis,
+                        stamp.origin != null ? stamp.origin : deviceId));
+            }
+        }
+        return new PendingChanges(changes, throughSeq);
+    }
+
+    // Number of log entries (not events) waiting to be pushed
+    synchronized int getChangeLogSize() {
+        return changeLog.size();
+    }
+
+    @Override
+    public synchronized void clearPendingChanges(int userId, long throughSeq) {
+        changeLog.removeIf(entry -> entry.userId == userId && entry.seq <= throughSeq);
+    }
+
+    @Override
+    public synchronized long getPullCursor(int userId) {
+        return pullCursors.getOrDefault(userId, 0L);
+    }
+
+    @Override
+    public synchronized int applyRemoteChanges(int userId, List<SyncChange> changes, String deviceId, long cursor) {
+        int applied = 0;
+        for (SyncChange change : changes) {
+            Integer eventId = eventIdsBySyncId.get(change.getSyncId());
+            Stamp local = eventId != null ? stamps.get(eventId) : tombstones.get(change.getSyncId());
+            if (local != null && (local.userId != userId || !change.supersedes(local.modifiedMillis,
+                    local.origin != null ? local.origin : deviceId))) {
+                continue;
+            }
+            Stamp stamp = new Stamp(change.getSyncId(), userId, change.getModifiedMillis(), change.getOrigin());
+            if (change.isDeleted()) {
+                if (eventId != null) {
+                    events.remove(eventId);
+                    eventOwners.remove(eventId);
+                    stamps.remove(eventId);
+                    eventIdsBySyncId.remove(change.getSyncId());
+                }
+                tombstones.put(change.getSyncId(), stamp);
+            } else {
+                if (eventId == null) {
+                    eventId = nextEventId++;
+                    eventIdsBySyncId.put(change.getSyncId(), eventId);
+                    tombstones.remove(change.getSyncId());
+                }
+                Event event = change.getEvent();
+                events.put(eventId, new Event(eventId, event.getName(), event.getDate(), event.getTime(),
+                        event.getStartMillis(), event.getEndMillis(), event.getRecurrence()));
+                eventOwners.put(eventId, userId);
+                stamps.put(eventId, stamp);
+            }
+            for (Iterator<LogEntry> it = changeLog.iterator(); it.hasNext(); ) {
+                if (it.next().syncId.equals(change.getSyncId())) {
+                    it.remove();
+                }
+            }
+            applied++;
+        }
+        pullCursors.put(userId, cursor);
+        if (applied > 0) {
+            changeNotifier.publish(EventChange.reloaded(userId));
+        }
+        return applied;
+    }
+
+    @Override
+    public EventChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    @Override
+    public synchronized EventSnapshot getUserEventsSnapshot(int userId) {
+        EventSnapshot.Builder builder = new EventSnapshot.Builder(events.size());
+        for (Event event : getUserEventsList(userId)) {
+            builder.add(event);
+        }
+        return builder.build();
+    }
+
+    // Same matching and ranking as the FTS query in DatabaseHelper, done by brute force
+    @Override
+    public synchronized List<Event> searchUserEvents(int userId, String query, int limit) {
+        List<String> words = FtsQuery.tokens(query);
+        List<Event> nameMatches = new ArrayList<>();
+        List<Event> dateMatches = new ArrayList<>();
+        if (words.isEmpty()) {
+            return nameMatches;
+        }
+        for (Event event : getUserEventsList(userId)) {
+            if (phraseMatches(FtsQuery.tokens(event.getName()), words)) {
+                nameMatches.add(event);
+            } else if (phraseMatches(FtsQuery.tokens(event.getDate()), words)) {
+                dateMatches.add(event);
+            }
+        }
+        nameMatches.addAll(dateMatches);
+        return new ArrayList<>(nameMatches.subList(0, Math.min(limit, nameMatches.size())));
+    }
+
+    @Override
+    public synchronized List<Event> searchUserEventsContaining(int userId, String text, int limit) {
+        List<Event> matches = new ArrayList<>();
+        if (text.isEmpty()) {
+            return matches;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (Event event : getUserEventsList(userId)) {
+            if (matches.size() == limit) {
+                break;
+            }
+            if (event.getName().toLowerCase(Locale.ROOT).contains(lower)
+                    || event.getDate().toLowerCase(Locale.ROOT).contains(lower)) {
+                matches.add(event);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean phraseMatches(List<String> tokens, List<String> words) {
+        for (int start = 0; start + words.size() <= tokens.size(); start++) {
+            int matched = 0;
+            while (matched < words.size() && tokens.get(start + matched).startsWith(words.get(matched))) {
+                matched++;
+            }
+            if (matched == words.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized int getEventUserId(int eventId) {
+        Integer owner = eventOwners.get(eventId);
+        return owner != null ? owner : -1;
+    }
+
+    @Override
+    public synchronized List<Event> getUserEventsList(int userId) {
+        List<Event> result = new ArrayList<>();
+        for (Event event : events.values()) {
+            if (eventOwners.get(event.getId()) == userId) {
+                result.add(event);
+            }
+        }
+        result.sort(Event.START_ORDER);
+        return result;
+    }
+
+    @Override
+    public synchronized List<Event> getUserEventsBetween(int userId, long fromMillis, long toMillis) {
+        List<Event> result = new ArrayList<>();
+        for (Event event : getUserEventsList(userId)) {
+            if (event.isRecurring()) {
+                result.addAll(event.getRecurrence().occurrencesBetween(event, fromMillis, toMillis, Integer.MAX_VALUE));
+            } else if (event.getStartMillis() >= fromMillis && event.getStartMillis() < toMillis) {
+                result.add(event);
+            }
+        }
+        result.sort(Event.START_ORDER);
+        return result;
+    }
+
+    @Override
+    public synchronized List<Event> getUserEventsOverlapping(int userId, long fromMillis, long toMillis) {
+        List<Event> result = new ArrayList<>();
+        for (Event event : getUserEventsList(userId)) {
+            if (event.isRecurring()) {
+                result.addAll(event.getRecurrence().occurrencesOverlapping(event, fromMillis, toMillis));
+            } else if (event.overlaps(fromMillis, toMillis)) {
+                result.add(event);
+            }
+        }
+        result.sort(Event.START_ORDER);
+        return result;
+    }
+
+    @Override
+    public synchronized MonthSummary getUserMonthSummary(int userId, YearMonth month) {
+        MonthSummary summary = new MonthSummary(month);
+        for (Event event : getUserEventsOverlapping(userId, summary.getFromMillis(), summary.getToMillis())) {
+            summary.add(event.getStartMillis(), event.getEndMillis());
+        }
+        return summary;
+    }
+
+    @Override
+    public synchronized List<Event> getUserEventsFrom(int userId, long startMillis, int eventId, int pageSize) {
+        List<Event> page = new ArrayList<>();
+        for (Event event : getUserEventsList(userId)) {
+            if (event.isRecurring()) {
+                page.addAll(event.getRecurrence().occurrencesFrom(event, startMillis, eventId, pageSize));
+            } else if (comparePosition(event, startMillis, eventId) >= 0) {
+                page.add(event);
+            }
+        }
+        page.sort(Event.START_ORDER);
+        return new ArrayList<>(page.subList(0, Math.min(pageSize, page.size())));
+    }
+
+    @Override
+    public synchronized List<Event> getUserEventsBefore(int userId, long startMillis, int eventId, int pageSize) {
+        List<Event> before = new ArrayList<>();
+        for (Event event : getUserEventsList(userId)) {
+            if (event.isRecurring()) {
+                before.addAll(event.getRecurrence().occurrencesBefore(event, startMillis, eventId, pageSize));
+            } else if (comparePosition(event, startMillis, eventId) < 0) {
+                before.add(event);
+            }
+        }
+        before.sort(Event.START_ORDER);
+        return new ArrayList<>(before.subList(Math.max(0, before.size() - pageSize), before.size()));
+    }
+
+    private static int comparePosition(Event event, long startMillis, int eventId) {
+        int byStart = Long.compare(event.getStartMillis(), startMillis);
+        return byStart != 0 ? byStart : Integer.compare(event.getId(), eventId);
+    }
+}
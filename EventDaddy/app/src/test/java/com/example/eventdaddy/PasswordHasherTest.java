@@ -0,0 +1,45 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PasswordHasherTest {
+
+    // Low work factor so the tests stay fast; the format is the same at any cost
+    private final PasswordHasher hasher = new PasswordHasher(1_000);
+
+    @Test
+    public void verify_acceptsOnlyTheOriginalPassword() {
+        String stored = hasher.hash("secret");
+        assertTrue(hasher.verify("secret", stored));
+        assertFalse(hasher.verify("Secret", stored));
+        assertFalse(hasher.verify("", stored));
+    }
+
+    @Test
+    public void hash_isSaltedAndNeverStoresThePassword() {
+        String first = hasher.hash("secret");
+        String second = hasher.hash("secret");
+        assertNotEquals(first, second);
+        assertFalse(first.contains("secret"));
+        assertTrue(PasswordHasher.isHash(first));
+    }
+
+    @Test
+    public void verify_usesTheStoredWorkFactor() {
+        String stored = new PasswordHasher(500).hash("secret");
+        assertTrue(hasher.verify("secret", stored));
+        assertTrue(hasher.needsRehash(stored));
+        assertFalse(hasher.needsRehash(hasher.hash("secret")));
+    }
+
+    @Test
+    public void legacyAndMalformedValues_neverVerify() {
+        assertFalse(PasswordHasher.isHash("secret"));
+        assertFalse(hasher.verify("secret", "secret"));
+        assertFalse(hasher.verify("secret", null));
+        assertFalse(hasher.verify("secret", "pbkdf2-sha256$1000$not base64$x"));
+        assertTrue(hasher.needsRehash("secret"));
+    }
+}
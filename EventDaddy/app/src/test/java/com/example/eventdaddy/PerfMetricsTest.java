@@ -0,0 +1,111 @@
+package com.example.eventdaddy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PerfMetricsTest {
+
+    private final List<String> traced = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        PerfMetrics.reset();
+        PerfMetrics.setTracer(new PerfMetrics.Tracer() {
+            @Override public void beginSection(String name) { traced.add("begin " + name); }
+            @Override public void endSection() { traced.add("end"); }
+            @Override public void beginAsyncSection(String name, int cookie) { traced.add("begin " + name + " #" + cookie); }
+            @Override public void endAsyncSection(String name, int cookie) { traced.add("end " + name + " #" + cookie); }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        PerfMetrics.setEnabled(false);
+        PerfMetrics.setTracer(null);
+        PerfMetrics.reset();
+    }
+
+    @Test
+    public void disabled_recordsAndTracesNothing() {
+        PerfMetrics.Timer timer = PerfMetrics.timer("test.disabled");
+        PerfMetrics.Counter counter = PerfMetrics.counter("test.disabledCounter");
+        long start = timer.begin();
+        assertEquals(PerfMetrics.NOT_TIMED, start);
+        timer.end(start, 10);
+        counter.add(5);
+
+        assertEquals(0, timer.getCount());
+        assertEquals(0, counter.get());
+        assertTrue(traced.isEmpty());
+    }
+
+    @Test
+    public void enabled_recordsSpansAndPairsTraceSections() {
+        PerfMetrics.setEnabled(true);
+        PerfMetrics.Timer timer = PerfMetrics.timer("test.enabled");
+        long start = timer.begin();
+        timer.end(start, 3);
+        long async = timer.beginAsync(7);
+        timer.endAsync(async, 7, 4);
+        timer.cancelAsync(timer.beginAsync(8), 8);
+
+        assertEquals(2, timer.getCount());
+        assertEquals(7, timer.getRows());
+        assertEquals(List.of("begin test.enabled", "end", "begin test.enabled #7", "end test.enabled #7",
+                "begin test.enabled #8", "end test.enabled #8"), traced);
+    }
+
+    @Test
+    public void spanStartedWhileEnabled_endsItsSectionAfterDisabling() {
+        PerfMetrics.setEnabled(true);
+        PerfMetrics.Timer timer = PerfMetrics.timer("test.toggled");
+        long start = timer.begin();
+        PerfMetrics.setEnabled(false);
+        timer.end(start);
+        assertEquals(List.of("begin test.toggled", "end"), traced);
+    }
+
+    @Test
+    public void percentiles_comeFromPowerOfTwoBuckets() {
+        PerfMetrics.setEnabled(true);
+        PerfMetrics.Timer timer = PerfMetrics.timer("test.histogram");
+        for (int i = 0; i < 90; i++) {
+            timer.record(1_000, 0);  // Lands in the [512, 1024) bucket
+        }
+        for (int i = 0; i < 10; i++) {
+            timer.record(1_000_000, 0);
+        }
+
+        assertEquals(1_023, timer.percentileNanos(50));
+        assertEquals(1_023, timer.percentileNanos(90));
+        assertEquals("Capped at the largest timing seen", 1_000_000, timer.percentileNanos(99));
+        String report = PerfMetrics.report();
+        assertTrue(report, report.contains("test.histogram"));
+        assertFalse("Timers that never ran are left out", report.contains("test.disabled "));
+    }
+
+    @Test
+    public void instrumentedStore_timesCallsAndCountsRows() {
+        PerfMetrics.setEnabled(true);
+        InMemoryEventStore memory = new InMemoryEventStore();
+        EventStore store = new InstrumentedEventStore(memory);
+        store.addEvent("A", "2025-01-01", "9:00 AM", 1);
+        store.addEvent("B", "2025-01-02", "9:00 AM", 1);
+        long rowsBefore = PerfMetrics.counter("db.rowsRead").get();
+
+        assertEquals(2, store.getUserEventsList(1).size());
+        assertEquals(1, store.getUserEventsFrom(1, Long.MIN_VALUE, 0, 1).size());
+
+        assertEquals(2, PerfMetrics.timer("db.addEvent").getCount());
+        assertEquals(1, PerfMetrics.timer("db.getUserEventsList").getCount());
+        assertEquals(2, PerfMetrics.timer("db.getUserEventsList").getRows());
+        assertEquals(rowsBefore + 3, PerfMetrics.counter("db.rowsRead").get());
+        assertSame(memory.getChangeNotifier(), store.getChangeNotifier());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecurrenceTest {
+
+    private static final Recurrence WEEKLY = new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END);
+
+    private static Event series(int id, String date, Recurrence recurrence) {
+        return new Event(id, "Series " + id, date, "9:00 AM", EventTimes.toEpochMillis(date, "9:00 AM"), recurrence);
+    }
+
+    private static long nine(String date) {
+        return EventTimes.toEpochMillis(date, "9:00 AM");
+    }
+
+    private static List<String> dates(List<Event> events) {
+        List<String> dates = new ArrayList<>();
+        for (Event event : events) {
+            dates.add(event.getDate());
+        }
+        return dates;
+    }
+
+    @Test
+    public void window_startsAtTheFirstOccurrenceInsideIt() {
+        Event sync = series(1, "2025-01-06", WEEKLY);
+        List<Event> march = WEEKLY.occurrencesBetween(sync, nine("2025-03-01"), nine("2025-04-01"), 100);
+
+        assertEquals(List.of("2025-03-03", "2025-03-10", "2025-03-17", "2025-03-24", "2025-03-31"), dates(march));
+        assertEquals(nine("2025-03-03"), march.get(0).getStartMillis());
+        assertEquals(1, march.get(0).getId());
+    }
+
+    @Test
+    public void occurrencesKeepTheirLocalTimeAcrossDaylightSaving() {
+        Recurrence daily = new Recurrence(Recurrence.Frequency.DAILY, 1, 0, Recurrence.NO_END);
+        Event standup = series(1, "2025-03-01", daily);
+        for (Event occurrence : daily.occurrencesBetween(standup, Long.MIN_VALUE, nine("2025-04-15"), 100)) {
+            assertEquals(nine(occurrence.getDate()), occurrence.getStartMillis());
+        }
+    }
+
+    @Test
+    public void monthlyOnThe31st_fallsOnTheLastDayOfShortMonths() {
+        Recurrence monthly = new Recurrence(Recurrence.Frequency.MONTHLY, 1, 4, Recurrence.NO_END);
+        Event rent = series(1, "2025-01-31", monthly);
+
+        List<Event> all = monthly.occurrencesBetween(rent, Long.MIN_VALUE, Recurrence.NO_END, 100);
+        assertEquals(List.of("2025-01-31", "2025-02-28", "2025-03-31", "2025-04-30"), dates(all));
+        assertEquals(nine("2025-04-30"), monthly.lastStart(rent.getStartMillis()));
+    }
+
+    @Test
+    public void untilAndSkips_limitTheSeries() {
+        Recurrence everyOtherDay = new Recurrence(Recurrence.Frequency.DAILY, 2, 0, nine("2025-01-09"))
+                .withSkipped(nine("2025-01-05"));
+        Event gym = series(1, "2025-01-01", everyOtherDay);
+
+        assertEquals(List.of("2025-01-01", "2025-01-03", "2025-01-07", "2025-01-09"),
+                dates(everyOtherDay.occurrencesBetween(gym, Long.MIN_VALUE, Recurrence.NO_END, 100)));
+        assertEquals(nine("2025-01-09"), everyOtherDay.lastStart(gym.getStartMillis()));
+        assertEquals(Recurrence.NO_END, WEEKLY.lastStart(gym.getStartMillis()));
+    }
+
+    @Test
+    public void keysetPositions_matchEventStorePaging() {
+        Event sync = series(5, "2025-01-06", WEEKLY);
+        long jan13 = nine("2025-01-13");
+
+        // At (jan13, 5) the Jan 13 occurrence is included; at (jan13, 6) it has been passed
+        assertEquals("2025-01-13", WEEKLY.occurrencesFrom(sync, jan13, 5, 1).get(0).getDate());
+        assertEquals("2025-01-20", WEEKLY.occurrencesFrom(sync, jan13, 6, 1).get(0).getDate());
+        assertEquals(List.of("2025-01-06"), dates(WEEKLY.occurrencesBefore(sync, jan13, 5, 10)));
+        assertEquals(List.of("2025-01-06", "2025-01-13"), dates(WEEKLY.occurrencesBefore(sync, jan13, 6, 10)));
+        assertEquals(List.of("2025-01-13", "2025-01-20"),
+                dates(WEEKLY.occurrencesBefore(sync, nine("2025-01-27"), 0, 2)));
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        Recurrence rule = new Recurrence(Recurrence.Frequency.MONTHLY, 3, 12, 1_900_000_000_000L);
+        Recurrence decoded = Recurrence.decode(rule.encode());
+
+        assertEquals("FREQ=MONTHLY;INTERVAL=3;COUNT=12;UNTIL=1900000000000", rule.encode());
+        assertEquals(Recurrence.Frequency.MONTHLY, decoded.getFrequency());
+        assertEquals(3, decoded.getInterval());
+        assertEquals(12, decoded.getCount());
+        assertEquals(1_900_000_000_000L, decoded.getUntilMillis());
+        assertEquals(WEEKLY.encode(), Recurrence.decode("FREQ=WEEKLY;INTERVAL=1").encode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsUnknownRules() {
+        Recurrence.decode("FREQ=YEARLY");
+    }
+
+    @Test
+    public void storePaging_mergesSeriesWithOneOffEvents() {
+        InMemoryEventStore store = new InMemoryEventStore();
+        store.insertRecurringEvent("Sync", "2025-01-06", "10:00 AM", 1, WEEKLY);
+        store.insertEvent("Launch", "2025-01-14", "9:00 AM", 1);
+
+        List<Event> page = store.getUserEventsFrom(1, Long.MIN_VALUE, 0, 4);
+        List<String> rows = new ArrayList<>();
+        for (Event event : page) {
+            rows.add(event.getDate() + " " + event.getName());
+        }
+        assertEquals(List.of("2025-01-06 Sync", "2025-01-13 Sync", "2025-01-14 Launch", "2025-01-20 Sync"), rows);
+        assertEquals(1, store.getUserEventsList(1).stream().filter(Event::isRecurring).count());
+    }
+}
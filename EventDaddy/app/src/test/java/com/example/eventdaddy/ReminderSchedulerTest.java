@@ -0,0 +1,218 @@
+package com.example.eventdaddy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+// Robolectric only for android.util.Log, which the scheduler logs failed sends to
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReminderSchedulerTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long LEAD = 30 * MINUTE;
+    private static final long BATCH_WINDOW = 5 * MINUTE;
+    private static final long NINE_AM = EventTimes.toEpochMillis("2030-01-01", "9:00 AM");
+
+    private InMemoryEventStore store;
+    private FakeReminderSender sender;
+    private FakeReminderAlarm alarm;
+    private ScheduledExecutorService executor;
+    private AtomicLong now;
+    private ReminderScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryEventStore();
+        sender = new FakeReminderSender();
+        alarm = new FakeReminderAlarm();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        // Fake clock: the real timer is armed hours out, so tests drive wake-ups directly
+        now = new AtomicLong(NINE_AM - 2 * 60 * MINUTE);
+        scheduler = new ReminderScheduler(1, store, sender, alarm, executor, now::get, LEAD, BATCH_WINDOW);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    // Waits for everything already posted to the scheduler's thread
+    private void flush() throws Exception {
+        executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private void wakeUpAt(long millis) throws Exception {
+        now.set(millis);
+        scheduler.wakeUpNow();
+        flush();
+    }
+
+    @Test
+    public void remindersDueInTheSameWindow_goOutAsOneBatch() throws Exception {
+        store.addEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        store.addEvent("Review", "2030-01-01", "9:03 AM", 1);
+        store.addEvent("Lunch", "2030-01-01", "12:00 PM", 1);
+        store.addEvent("Someone else's", "2030-01-01", "9:00 AM", 2);
+        store.addEvent("Already over", "2029-12-31", "9:00 AM", 1);
+        scheduler.start();
+        flush();
+        assertEquals(3, scheduler.pendingCount());
+
+        wakeUpAt(NINE_AM - LEAD - MINUTE);
+        assertTrue("Nothing is due yet", sender.batches().isEmpty());
+
+        wakeUpAt(NINE_AM - LEAD);
+        assertEquals(List.of(List.of("Standup", "Review")), sender.batches());
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    @Test
+    public void storeChanges_updateTheQueueInPlace() throws Exception {
+        scheduler.start();
+        flush();
+
+        store.insertEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        int review = (int) store.insertEvent("Review", "2030-01-01", "9:00 AM", 1);
+        store.insertEvent("Not mine", "2030-01-01", "9:00 AM", 2);
+        // Moved later, then removed: neither should go out with the 9:00 batch
+        store.updateEvent(review, "Review", "2030-01-01", "11:00 AM");
+        int cancelled = (int) store.insertEvent("Cancelled", "2030-01-01", "9:00 AM", 1);
+        store.deleteEvent(cancelled);
+        flush();
+        assertEquals(2, scheduler.pendingCount());
+
+        wakeUpAt(NINE_AM - LEAD);
+        assertEquals(List.of(List.of("Standup")), sender.batches());
+
+        wakeUpAt(NINE_AM + 2 * 60 * MINUTE - LEAD);
+        assertEquals(List.of(List.of("Standup"), List.of("Review")), sender.batches());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    public void eventMovedFromThePast_isQueued() throws Exception {
+        int eventId = (int) store.insertEvent("Rescheduled", "2029-12-31", "9:00 AM", 1);
+        scheduler.start();
+        flush();
+        assertEquals(0, scheduler.pendingCount());
+
+        store.updateEvent(eventId, "Rescheduled", "2030-01-01", "9:00 AM");
+        flush();
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    @Test
+    public void reload_rebuildsTheQueueFromTheStore() throws Exception {
+        store.insertEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        scheduler.start();
+        flush();
+
+        store.insertEvent("Review", "2030-01-01", "10:00 AM", 1);
+        store.getChangeNotifier().publish(EventChange.reloaded(1));
+        flush();
+        assertEquals(2, scheduler.pendingCount());
+    }
+
+    @Test
+    public void recurringEvent_isExpandedAsTheHorizonMoves() throws Exception {
+        int standup = (int) store.insertRecurringEvent("Standup", "2030-01-01", "9:00 AM", 1,
+                new Recurrence(Recurrence.Frequency.DAILY, 1, 0, Recurrence.NO_END));
+        scheduler.start();
+        flush();
+        assertEquals("Only occurrences inside the horizon are queued", 1, scheduler.pendingCount());
+
+        long day = 24 * 60 * MINUTE;
+        store.skipOccurrence(standup, NINE_AM + day);
+        wakeUpAt(NINE_AM - LEAD);
+        wakeUpAt(NINE_AM + day - LEAD);
+        wakeUpAt(NINE_AM + 2 * day - LEAD);
+        assertEquals(List.of(List.of("Standup"), List.of("Standup")), sender.batches());
+        assertTrue(scheduler.pendingCount() <= 1);
+    }
+
+    @Test
+    public void timerFiresForTheNextDueReminder() throws Exception {
+        scheduler.shutdown();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new ReminderScheduler(1, store, sender, alarm, executor, System::currentTimeMillis, 0, 0);
+        scheduler.start();
+
+        long start = System.currentTimeMillis() + 100;
+        store.getChangeNotifier().publish(EventChange.inserted(1, new Event(1, "Soon", "", "", start)));
+        assertTrue("Reminder should fire without a manual wake-up", sender.await(1));
+        assertEquals(List.of(List.of("Soon")), sender.batches());
+    }
+
+    @Test
+    public void alarm_followsTheNextWakeUpAndIsDisarmedOnShutdown() throws Exception {
+        store.addEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        store.addEvent("Lunch", "2030-01-01", "12:00 PM", 1);
+        scheduler.start();
+        flush();
+        assertEquals(NINE_AM - LEAD, alarm.armedAt());
+
+        wakeUpAt(NINE_AM - LEAD);
+        assertEquals(NINE_AM + 3 * 60 * MINUTE - LEAD, alarm.armedAt());
+
+        scheduler.shutdown();
+        assertEquals(FakeReminderAlarm.NOT_ARMED, alarm.armedAt());
+    }
+
+    @Test
+    public void schedulerRebuiltAfterARestart_sendsWhatIsDueOnlyOnce() throws Exception {
+        store.addEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        store.addEvent("Review", "2030-01-01", "9:20 AM", 1);
+        scheduler.start();
+        flush();
+        wakeUpAt(NINE_AM - LEAD);
+        assertEquals(List.of(List.of("Standup")), sender.batches());
+
+        // The process dies without a shutdown; the alarm fires for Review and a new
+        // scheduler loads from the store
+        executor.shutdownNow();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        now.set(NINE_AM + 20 * MINUTE - LEAD);
+        scheduler = new ReminderScheduler(1, store, sender, alarm, executor, now::get, LEAD, BATCH_WINDOW);
+        scheduler.start();
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.sendDueNow(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(List.of("Standup"), List.of("Review")), sender.batches());
+        assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    public void failedSend_isRetriedOnce() throws Exception {
+        AtomicInteger failuresLeft = new AtomicInteger(1);
+        scheduler.shutdown();
+        executor = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new ReminderScheduler(1, store, (userId, events) -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("No service");
+            }
+            sender.send(userId, events);
+        }, alarm, executor, now::get, LEAD, BATCH_WINDOW);
+        store.addEvent("Standup", "2030-01-01", "9:00 AM", 1);
+        scheduler.start();
+        flush();
+
+        wakeUpAt(NINE_AM - LEAD);
+
+        assertEquals(List.of(List.of("Standup")), sender.batches());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.eventdaddy;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyncBatchTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    public void roundTrip_keepsEventsRecurrenceAndTombstones() throws IOException {
+        Recurrence weekly = new Recurrence(Recurrence.Frequency.WEEKLY, 2, 10, Recurrence.NO_END);
+        long start = EventTimes.toEpochMillis("2025-03-03", "6:00 PM");
+        Event practice = new Event(7, "Practice", "2025-03-03", "6:00 PM", start, start + 2 * HOUR,
+                weekly.withSkipped(start + 14 * 24 * HOUR));
+        List<SyncChange> changes = List.of(
+                SyncChange.updated("a1", 1000, "phone", practice),
+                SyncChange.deleted("b2", 2000, "tablet"));
+
+        List<SyncChange> decoded = SyncBatch.decode(SyncBatch.encode(changes));
+
+        assertEquals(2, decoded.size());
+        SyncChange updated = decoded.get(0);
+        assertEquals("a1", updated.getSyncId());
+        assertEquals(1000, updated.getModifiedMillis());
+        assertEquals("phone", updated.getOrigin());
+        Event event = updated.getEvent();
+        assertEquals("Practice", event.getName());
+        assertEquals(start, event.getStartMillis());
+        assertEquals(2 * HOUR, event.getDurationMillis());
+        assertEquals(weekly.encode(), event.getRecurrence().encode());
+        assertArrayEquals(new long[]{start + 14 * 24 * HOUR}, event.getRecurrence().getSkipped());
+
+        SyncChange deleted = decoded.get(1);
+        assertTrue(deleted.isDeleted());
+        assertEquals("b2", deleted.getSyncId());
+        assertEquals(2000, deleted.getModifiedMillis());
+        assertEquals("tablet", deleted.getOrigin());
+    }
+
+    @Test
+    public void encode_compressesRepetitiveEvents() {
+        List<SyncChange> changes = new ArrayList<>();
+        long raw = 0;
+        for (int i = 0; i < 1000; i++) {
+            String date = String.format("2025-%02d-%02d", 1 + i % 12, 1 + i % 28);
+            Event event = new Event(0, "Soccer practice " + i, date, "6:00 PM");
+            changes.add(SyncChange.updated("sync-id-" + i, 1_700_000_000_000L + i, "phone", event));
+            raw += ("sync-id-" + i).length() + 8 + "phone".length() + event.getName().length() + date.length() + 7 + 8;
+        }
+
+        byte[] batch = SyncBatch.encode(changes);
+
+        assertTrue(batch.length + " bytes for " + raw + " raw", batch.length < raw / 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_rejectsBytesThatAreNotABatch() throws IOException {
+        byte[] garbage = new byte[64];
+        Arrays.fill(garbage, (byte) 7);
+        SyncBatch.decode(garbage);
+    }
+
+    @Test
+    public void supersedes_laterWriteWinsAndTiesGoToTheGreaterOrigin() {
+        SyncChange early = SyncChange.deleted("x", 1000, "tablet");
+        SyncChange late = SyncChange.deleted("x", 2000, "phone");
+        SyncChange tie = SyncChange.deleted("x", 2000, "watch");
+
+        assertTrue(late.supersedes(early));
+        assertFalse(early.supersedes(late));
+        assertTrue(tie.supersedes(late));
+        assertFalse(late.supersedes(tie));
+        assertFalse(late.supersedes(late));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.eventdaddy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+// Two devices signed in to the same account, each with its own store, syncing through the
+// fake server
+public class SyncEngineTest {
+
+    private static final String ACCOUNT = "sam";
+    private static final int BATCH_SIZE = 50;
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private FakeSyncServer server;
+    private InMemoryEventStore phone;
+    private InMemoryEventStore tablet;
+    private SyncEngine phoneSync;
+    private SyncEngine tabletSync;
+    private int phoneUser;
+    private int tabletUser;
+
+    @Before
+    public void setUp() {
+        server = new FakeSyncServer();
+        phone = new InMemoryEventStore();
+        tablet = new InMemoryEventStore();
+        phone.setClock(clock::incrementAndGet);
+        tablet.setClock(clock::incrementAndGet);
+        phone.addUser(ACCOUNT, "pw");
+        tablet.addUser("someone else", "pw");
+        tablet.addUser(ACCOUNT, "pw");
+        phoneUser = phone.getUserId(ACCOUNT);
+        tabletUser = tablet.getUserId(ACCOUNT);
+        phoneSync = new SyncEngine(phone, server, "phone", BATCH_SIZE);
+        tabletSync = new SyncEngine(tablet, server, "tablet", BATCH_SIZE);
+    }
+
+    private static List<String> names(InMemoryEventStore store, int userId) {
+        List<String> names = new ArrayList<>();
+        for (Event event : store.getUserEventsList(userId)) {
+            names.add(event.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static int idOf(InMemoryEventStore store, int userId, String name) {
+        for (Event event : store.getUserEventsList(userId)) {
+            if (event.getName().equals(name)) {
+                return event.getId();
+            }
+        }
+        throw new AssertionError("No event named " + name);
+    }
+
+    @Test
+    public void sync_carriesInsertsUpdatesAndDeletesToTheOtherDevice() throws IOException {
+        phone.addEvent("Game", "2025-03-01", "10:00 AM", phoneUser);
+        long practice = phone.insertEvent("Practice", "2025-03-03", "6:00 PM", phoneUser);
+        long cancelled = phone.insertEvent("Cancelled", "2025-03-05", "6:00 PM", phoneUser);
+        phone.updateEvent((int) practice, "Practice (field 2)", "2025-03-04", "6:00 PM");
+        phone.deleteEvent((int) cancelled);
+
+        SyncEngine.Result pushed = phoneSync.sync(phoneUser, ACCOUNT);
+        SyncEngine.Result pulled = tabletSync.sync(tabletUser, ACCOUNT);
+
+        // Five writes to three events go up as three changes, the deleted one as a tombstone
+        assertEquals(3, pushed.getPushed());
+        assertEquals(0, phone.getChangeLogSize());
+        assertEquals(3, pulled.getPulled());
+        assertEquals(List.of("Game", "Practice (field 2)"), names(tablet, tabletUser));
+        assertEquals(EventTimes.toEpochMillis("2025-03-04", "6:00 PM"),
+                tablet.getUserEventsList(tabletUser).get(1).getStartMillis());
+        assertTrue(tablet.getUserEventsList(1).isEmpty());
+    }
+
+    @Test
+    public void sync_doesNotSendBackWhatItReceived() throws IOException {
+        phone.addEvent("Game", "2025-03-01", "10:00 AM", phoneUser);
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+
+        SyncEngine.Result tabletAgain = tabletSync.sync(tabletUser, ACCOUNT);
+        SyncEngine.Result phoneAgain = phoneSync.sync(phoneUser, ACCOUNT);
+
+        assertEquals(0, tabletAgain.getPushed());
+        assertEquals(0, phoneAgain.getPulled());
+        assertEquals(0, tablet.getChangeLogSize());
+    }
+
+    @Test
+    public void conflictingEdits_laterWriteWinsOnEveryDevice() throws IOException {
+        phone.addEvent("Game", "2025-03-01", "10:00 AM", phoneUser);
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+
+        // Both edit offline; the tablet's edit is later
+        phone.updateEvent(idOf(phone, phoneUser, "Game"), "Game at home", "2025-03-01", "10:00 AM");
+        tablet.updateEvent(idOf(tablet, tabletUser, "Game"), "Game away", "2025-03-01", "11:00 AM");
+
+        phoneSync.sync(phoneUser, ACCOUNT);
+        SyncEngine.Result tabletResult = tabletSync.sync(tabletUser, ACCOUNT);
+        SyncEngine.Result phoneResult = phoneSync.sync(phoneUser, ACCOUNT);
+
+        assertEquals(0, tabletResult.getApplied());  // The phone's older edit loses
+        assertEquals(1, phoneResult.getApplied());
+        assertEquals(List.of("Game away"), names(phone, phoneUser));
+        assertEquals(List.of("Game away"), names(tablet, tabletUser));
+    }
+
+    @Test
+    public void tombstone_keepsAnOlderEditFromBringingTheEventBack() throws IOException {
+        phone.addEvent("Game", "2025-03-01", "10:00 AM", phoneUser);
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+
+        tablet.updateEvent(idOf(tablet, tabletUser, "Game"), "Game moved", "2025-03-02", "10:00 AM");
+        phone.deleteEvent(idOf(phone, phoneUser, "Game"));
+
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+        phoneSync.sync(phoneUser, ACCOUNT);
+
+        assertTrue(names(phone, phoneUser).isEmpty());
+        assertTrue(names(tablet, tabletUser).isEmpty());
+        assertEquals(0, tablet.getChangeLogSize());
+    }
+
+    @Test
+    public void editAfterDelete_winsOverTheTombstone() throws IOException {
+        phone.addEvent("Game", "2025-03-01", "10:00 AM", phoneUser);
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+
+        phone.deleteEvent(idOf(phone, phoneUser, "Game"));
+        tablet.updateEvent(idOf(tablet, tabletUser, "Game"), "Game rescheduled", "2025-03-08", "10:00 AM");
+
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+        phoneSync.sync(phoneUser, ACCOUNT);
+
+        assertEquals(List.of("Game rescheduled"), names(phone, phoneUser));
+        assertEquals(List.of("Game rescheduled"), names(tablet, tabletUser));
+    }
+
+    @Test
+    public void recurringSeries_syncsWithItsSkippedOccurrences() throws IOException {
+        Recurrence weekly = new Recurrence(Recurrence.Frequency.WEEKLY, 1, 0, Recurrence.NO_END);
+        long series = phone.insertEvent("Practice", "2025-03-03", "6:00 PM", 90 * 60_000L, phoneUser, weekly);
+        long skipped = EventTimes.toEpochMillis("2025-03-10", "6:00 PM");
+        phone.skipOccurrence((int) series, skipped);
+
+        phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+
+        Event copy = tablet.getUserEventsList(tabletUser).get(0);
+        assertEquals(90 * 60_000L, copy.getDurationMillis());
+        assertEquals(weekly.encode(), copy.getRecurrence().encode());
+        assertTrue(copy.getRecurrence().isSkipped(skipped));
+    }
+
+    @Test
+    public void failedPush_staysInTheLogForTheNextSync() throws IOException {
+        for (int i = 0; i < 3 * BATCH_SIZE; i++) {
+            phone.addEvent("Event " + i, "2025-03-01", "10:00 AM", phoneUser);
+        }
+        server.failPushes(2);
+
+        assertThrows(IOException.class, () -> phoneSync.sync(phoneUser, ACCOUNT));
+        assertEquals(3 * BATCH_SIZE, phone.getChangeLogSize());
+        assertThrows(IOException.class, () -> phoneSync.sync(phoneUser, ACCOUNT));
+
+        SyncEngine.Result result = phoneSync.sync(phoneUser, ACCOUNT);
+        assertEquals(3 * BATCH_SIZE, result.getPushed());
+        tabletSync.sync(tabletUser, ACCOUNT);
+        assertEquals(3 * BATCH_SIZE, tablet.getUserEventsList(tabletUser).size());
+    }
+
+    @Test
+    public void traffic_followsTheNumberOfChangesNotTheNumberOfEvents() throws IOException {
+        int events = 2_000;
+        for (int i = 0; i < events; i++) {
+            phone.addEvent("Practice " + i, "2025-03-01", "6:00 PM", phoneUser);
+        }
+        SyncEngine.Result initial = phoneSync.sync(phoneUser, ACCOUNT);
+        tabletSync.sync(tabletUser, ACCOUNT);
+        assertEquals(events, initial.getPushed());
+        assertEquals(events / BATCH_SIZE + 1, initial.getBatches());
+
+        phone.updateEvent(idOf(phone, phoneUser, "Practice 7"), "Practice 7 (moved)", "2025-03-02", "6:00 PM");
+        int requestsBefore = server.requests();
+        SyncEngine.Result push = phoneSync.sync(phoneUser, ACCOUNT);
+        SyncEngine.Result pull = tabletSync.sync(tabletUser, ACCOUNT);
+
+        assertEquals(1, push.getPushed());
+        assertEquals(1, pull.getPulled());
+        assertEquals(3, server.requests() - requestsBefore);  // One push, then one pull per device
+        assertTrue(push.getBytesUploaded() * 100 < initial.getBytesUploaded());
+        assertTrue(pull.getBytesDownloaded() < 200);
+        assertTrue(names(tablet, tabletUser).contains("Practice 7 (moved)"));
+    }
+}